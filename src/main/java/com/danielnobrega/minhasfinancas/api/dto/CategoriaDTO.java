@@ -0,0 +1,15 @@
+package com.danielnobrega.minhasfinancas.api.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CategoriaDTO {
+	
+	private Long id;
+	private String nome;
+	private String padraoDescricao;
+	private Long usuario;
+
+}
@@ -0,0 +1,18 @@
+package com.danielnobrega.minhasfinancas.api.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CotacaoDTO {
+	
+	private LocalDate data;
+	private String origem;
+	private String destino;
+	private BigDecimal taxa;
+
+}
@@ -0,0 +1,16 @@
+package com.danielnobrega.minhasfinancas.api.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class GastoCategoriaDTO {
+	
+	private Long categoria;
+	private String nome;
+	private BigDecimal total;
+
+}
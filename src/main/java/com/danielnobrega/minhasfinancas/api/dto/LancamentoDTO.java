@@ -14,8 +14,10 @@ public class LancamentoDTO {
 	private Integer mes;
 	private Integer ano;
 	private BigDecimal valor;
+	private String moeda;
 	private Long usuario;
 	private String tipo;
 	private String status;
+	private Long categoria;
 
 }
@@ -0,0 +1,19 @@
+package com.danielnobrega.minhasfinancas.api.dto;
+
+import java.math.BigDecimal;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class OrcamentoDTO {
+	
+	private Long usuario;
+	private Long categoria;
+	private Integer ano;
+	private Integer mes;
+	private BigDecimal limite;
+	private Integer percentualAviso;
+
+}
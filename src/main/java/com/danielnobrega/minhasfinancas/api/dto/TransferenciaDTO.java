@@ -0,0 +1,20 @@
+package com.danielnobrega.minhasfinancas.api.dto;
+
+import java.math.BigDecimal;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TransferenciaDTO {
+	
+	private String descricao;
+	private Integer mes;
+	private Integer ano;
+	private BigDecimal valor;
+	private String moeda;
+	private Long usuario;
+	private Long destino;
+
+}
@@ -12,5 +12,6 @@ public class UsuarioDTO {
 	private String email;
 	private String senha;
 	private String nome;
+	private String moedaBase;
 
 }
@@ -0,0 +1,80 @@
+package com.danielnobrega.minhasfinancas.api.resources;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.danielnobrega.minhasfinancas.api.dto.CategoriaDTO;
+import com.danielnobrega.minhasfinancas.api.dto.GastoCategoriaDTO;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Categoria;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.service.CategoriaService;
+import com.danielnobrega.minhasfinancas.service.GastoCategoriaService;
+import com.danielnobrega.minhasfinancas.service.UsuarioService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/categorias")
+@RequiredArgsConstructor
+public class CategoriaResource {
+
+	private final CategoriaService service;
+	
+	private final GastoCategoriaService gastoCategoriaService;
+	
+	private final UsuarioService usuarioService;
+	
+	@PostMapping
+	public ResponseEntity salvar(@RequestBody CategoriaDTO dto) {
+		try {
+			Categoria categoria = Categoria.builder()
+					.nome(dto.getNome())
+					.padraoDescricao(dto.getPadraoDescricao())
+					.build();
+			
+			if (dto.getUsuario() != null) {
+				Usuario usuario = usuarioService
+						.obterPorId(dto.getUsuario())
+						.orElseThrow( () -> new RegraNegocioException("Usuário não encontrado para o Id informado"));
+				categoria.setUsuario(usuario);
+			}
+			
+			return new ResponseEntity(service.salvar(categoria), HttpStatus.CREATED);
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+	
+	@GetMapping
+	public ResponseEntity buscar(@RequestParam("usuario") Long idUsuario) {
+		return ResponseEntity.ok(service.obterCategoriasDoUsuario(idUsuario));
+	}
+	
+	@GetMapping("/gastos")
+	public ResponseEntity obterGastosPorCategoria(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam("ano") Integer ano,
+			@RequestParam("mes") Integer mes) {
+		
+		Map<Long, String> nomes = service.obterCategoriasDoUsuario(idUsuario).stream()
+				.collect(Collectors.toMap(Categoria::getId, Categoria::getNome));
+		
+		List<GastoCategoriaDTO> gastos = gastoCategoriaService.obterGastosPorCategoria(idUsuario, ano, mes).stream()
+				.map( gasto -> new GastoCategoriaDTO(gasto.getIdCategoria(), nomes.get(gasto.getIdCategoria()), gasto.getTotal()) )
+				.collect(Collectors.toList());
+		
+		return ResponseEntity.ok(gastos);
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.danielnobrega.minhasfinancas.api.resources;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.danielnobrega.minhasfinancas.api.dto.CotacaoDTO;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Cotacao;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.sharding.ExecucaoPorShard;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/cotacoes")
+@RequiredArgsConstructor
+public class CotacaoResource {
+
+	private final CotacaoService service;
+	
+	private final Optional<ExecucaoPorShard> execucaoPorShard;
+	
+	@PostMapping
+	public ResponseEntity registrar(@RequestBody List<CotacaoDTO> dtos) {
+		// cada shard grava as próprias entidades: o save atribui o id gerado naquele banco
+		Supplier<List<Cotacao>> registro = () -> service.registrar(converter(dtos));
+		
+		try {
+			List<Cotacao> registradas = execucaoPorShard
+					.map( execucao -> execucao.emCadaShard(registro).values().iterator().next() )
+					.orElseGet(registro);
+			return new ResponseEntity(registradas, HttpStatus.CREATED);
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+	
+	private static List<Cotacao> converter(List<CotacaoDTO> dtos) {
+		List<Cotacao> cotacoes = new ArrayList<>(dtos.size());
+		for (CotacaoDTO dto : dtos) {
+			cotacoes.add(Cotacao.builder()
+					.data(dto.getData())
+					.moedaOrigem(dto.getOrigem() == null ? null : dto.getOrigem().trim().toUpperCase())
+					.moedaDestino(dto.getDestino() == null ? null : dto.getDestino().trim().toUpperCase())
+					.taxa(dto.getTaxa())
+					.build());
+		}
+		return cotacoes;
+	}
+
+}
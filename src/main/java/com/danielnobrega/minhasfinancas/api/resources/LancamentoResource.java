@@ -1,9 +1,21 @@
 package com.danielnobrega.minhasfinancas.api.resources;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,19 +23,41 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.danielnobrega.minhasfinancas.api.dto.AtualizaStatusDTO;
 import com.danielnobrega.minhasfinancas.api.dto.LancamentoDTO;
+import com.danielnobrega.minhasfinancas.api.dto.TransferenciaDTO;
+import com.danielnobrega.minhasfinancas.enums.CampoLancamento;
+import com.danielnobrega.minhasfinancas.enums.FormatoExportacao;
+import com.danielnobrega.minhasfinancas.enums.OrdenacaoLancamento;
 import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
 import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.exceptions.BancoIndisponivelException;
 import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Categoria;
 import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
 import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+import com.danielnobrega.minhasfinancas.service.AnaliticoService;
+import com.danielnobrega.minhasfinancas.service.ArquivamentoService;
+import com.danielnobrega.minhasfinancas.service.AuditoriaService;
+import com.danielnobrega.minhasfinancas.service.CategoriaService;
+import com.danielnobrega.minhasfinancas.service.DegradacaoService;
+import com.danielnobrega.minhasfinancas.service.DuplicidadeService;
+import com.danielnobrega.minhasfinancas.service.ExportacaoService;
 import com.danielnobrega.minhasfinancas.service.LancamentoService;
 import com.danielnobrega.minhasfinancas.service.UsuarioService;
+import com.danielnobrega.minhasfinancas.service.VersaoDadosService;
+import com.danielnobrega.minhasfinancas.service.degradacao.Resultado;
+import com.danielnobrega.minhasfinancas.service.versao.VersaoDados;
+import com.danielnobrega.minhasfinancas.sharding.ExecucaoPorShard;
+import com.danielnobrega.minhasfinancas.sharding.ShardContexto;
 
 import lombok.RequiredArgsConstructor;
 
@@ -32,10 +66,34 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class LancamentoResource {
 
+	/**
+	 * Presente quando a busca tinha mais lançamentos que o {@code limite} pedido. Sem limite a
+	 * busca devolve todos os lançamentos que atendem o filtro.
+	 */
+	static final String CABECALHO_TRUNCADO = "X-Resultado-Truncado";
+
 	private final LancamentoService service;
 
 	private final UsuarioService usuarioService;
 
+	private final CategoriaService categoriaService;
+
+	private final DuplicidadeService duplicidadeService;
+
+	private final ExportacaoService exportacaoService;
+
+	private final ArquivamentoService arquivamentoService;
+
+	private final AuditoriaService auditoriaService;
+
+	private final VersaoDadosService versaoDadosService;
+
+	private final DegradacaoService degradacaoService;
+
+	private final Optional<AnaliticoService> analiticoService;
+
+	private final Optional<ExecucaoPorShard> execucaoPorShard;
+
 	@PostMapping
 	public ResponseEntity salvar(@RequestBody LancamentoDTO lancamento ) {
 
@@ -43,7 +101,25 @@ public class LancamentoResource {
 			Lancamento entidade = service.salvar(converter(lancamento));
 			return new ResponseEntity(entidade, HttpStatus.CREATED);
 		} catch (RegraNegocioException e) {
-			return ResponseEntity.badRequest().body(e.getMessage());
+			return ResponseEntity.badRequest().body(e.getErros());
+		}
+	}
+
+	@PostMapping("/transferencias")
+	public ResponseEntity transferir(@RequestBody TransferenciaDTO dto) {
+		Lancamento saida = Lancamento.builder()
+				.descricao(dto.getDescricao())
+				.ano(dto.getAno())
+				.mes(dto.getMes())
+				.valor(dto.getValor())
+				.moeda(moeda(dto.getMoeda()))
+				.usuario(dto.getUsuario() == null ? null : Usuario.builder().id(dto.getUsuario()).build())
+				.build();
+
+		try {
+			return new ResponseEntity(service.transferir(saida, dto.getDestino()), HttpStatus.CREATED);
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getErros());
 		}
 	}
 
@@ -57,7 +133,7 @@ public class LancamentoResource {
 				service.atualizar(lancamento);
 				return ResponseEntity.ok(lancamento);
 			} catch (RegraNegocioException e) {
-				return ResponseEntity.badRequest().body(e.getMessage());
+				return ResponseEntity.badRequest().body(e.getErros());
 			}
 
 		}).orElseGet( () -> new ResponseEntity("Lançamento não encontrado na base de dados", HttpStatus.BAD_REQUEST));
@@ -78,7 +154,7 @@ public class LancamentoResource {
 				service.atualizar(entity);
 				return ResponseEntity.ok(entity);
 			} catch (RegraNegocioException e) {
-				return ResponseEntity.badRequest().body(e.getMessage());
+				return ResponseEntity.badRequest().body(e.getErros());
 			}
 
 		}).orElseGet( () -> new ResponseEntity("Lançamento não encontrado na base de dados", HttpStatus.BAD_REQUEST));
@@ -105,25 +181,224 @@ public class LancamentoResource {
 			@RequestParam(value = "descricao", required = false) String descricao,
 			@RequestParam(value = "mes", required = false) Integer mes,
 			@RequestParam(value = "ano", required = false) Integer ano,
-			@RequestParam("usuario") Long idUsuario
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "tipo", required = false) String tipo,
+			@RequestParam(value = "status", required = false) String status,
+			@RequestParam(value = "categoria", required = false) Long idCategoria,
+			@RequestParam(value = "valorMinimo", required = false) BigDecimal valorMinimo,
+			@RequestParam(value = "valorMaximo", required = false) BigDecimal valorMaximo,
+			@RequestParam(value = "anoInicial", required = false) Integer anoInicial,
+			@RequestParam(value = "mesInicial", required = false) Integer mesInicial,
+			@RequestParam(value = "anoFinal", required = false) Integer anoFinal,
+			@RequestParam(value = "mesFinal", required = false) Integer mesFinal,
+			@RequestParam(value = "ordenacao", required = false) String ordenacao,
+			@RequestParam(value = "direcao", defaultValue = "asc") String direcao,
+			@RequestParam(value = "limite", required = false) Integer limite,
+			@RequestParam(value = "fields", required = false) String campos,
+			WebRequest requisicao
+			) {
+
+		VersaoDados versao = versaoDadosService.obter(idUsuario);
+
+		if (requisicao.checkNotModified(versao.getEtag(), versao.getDataAlteracao())) {
+			return null;
+		}
+
+		FiltroLancamento filtro;
+		try {
+			if (limite != null && (limite < 1 || limite > FiltroLancamento.LIMITE_MAXIMO)) {
+				throw new IllegalArgumentException("limite deve estar entre 1 e " + FiltroLancamento.LIMITE_MAXIMO);
+			}
+			filtro = filtro(idUsuario, descricao, mes, ano, tipo, status, idCategoria, valorMinimo, valorMaximo,
+							anoInicial, mesInicial, anoFinal, mesFinal)
+					.ordenacao(ordenacao == null ? null : OrdenacaoLancamento.valueOf(ordenacao.toUpperCase()))
+					.decrescente("desc".equalsIgnoreCase(direcao))
+					// um a mais para saber se o limite cortou o resultado
+					.limite(limite == null ? null : limite + 1)
+					.campos(campos == null ? null : CampoLancamento.selecionar(campos))
+					.build();
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Não foi possível realizar a consulta. Filtro inválido: " + e.getMessage());
+		}
+
+		// com fields só as colunas pedidas são lidas e serializadas
+		Supplier<List<?>> busca = filtro.getCampos() == null
+				? () -> service.buscar(filtro)
+				: () -> service.buscarCampos(filtro);
+
+		Resultado<List<?>> lancamentos;
+		try {
+			lancamentos = degradacaoService.consultar(DegradacaoService.BUSCA, filtro, () -> {
+				if (!degradacaoService.chamar(DegradacaoService.USUARIO, () -> usuarioService.obterPorId(idUsuario)).isPresent()) {
+					return null;
+				}
+				return degradacaoService.chamar(DegradacaoService.LANCAMENTO, busca);
+			});
+		} catch (BancoIndisponivelException e) {
+			return RespostasDegradadas.indisponivel("Não foi possível realizar a consulta agora. Tente novamente em instantes");
+		}
+
+		if (lancamentos.getValor() == null) {
+			return ResponseEntity.badRequest().body("Não foi possível realizar a consulta. Usuário não encontrado");
+		}
+
+		if (limite == null || lancamentos.getValor().size() <= limite) {
+			return RespostasDegradadas.ok(lancamentos);
+		}
+
+		HttpHeaders cabecalhos = new HttpHeaders();
+		cabecalhos.set(CABECALHO_TRUNCADO, "true");
+		return RespostasDegradadas.ok(lancamentos, lancamentos.getValor().subList(0, limite), cabecalhos);
+	}
+
+	@GetMapping("/resumo")
+	public ResponseEntity resumir (
+			@RequestParam(value = "descricao", required = false) String descricao,
+			@RequestParam(value = "mes", required = false) Integer mes,
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "tipo", required = false) String tipo,
+			@RequestParam(value = "status", required = false) String status,
+			@RequestParam(value = "categoria", required = false) Long idCategoria,
+			@RequestParam(value = "valorMinimo", required = false) BigDecimal valorMinimo,
+			@RequestParam(value = "valorMaximo", required = false) BigDecimal valorMaximo,
+			@RequestParam(value = "anoInicial", required = false) Integer anoInicial,
+			@RequestParam(value = "mesInicial", required = false) Integer mesInicial,
+			@RequestParam(value = "anoFinal", required = false) Integer anoFinal,
+			@RequestParam(value = "mesFinal", required = false) Integer mesFinal,
+			@RequestParam(value = "porMes", defaultValue = "false") boolean porMes,
+			WebRequest requisicao
 			) {
 
-		Lancamento filtro = new Lancamento() ;
-		filtro.setDescricao(descricao);
-		filtro.setMes(mes);
-		filtro.setAno(ano);
+		if (!analiticoService.isPresent()) {
+			return new ResponseEntity("Consultas analíticas desabilitadas", HttpStatus.NOT_FOUND);
+		}
+
+		VersaoDados versao = versaoDadosService.obter(idUsuario);
 
-		Optional <Usuario> usuario = usuarioService.obterPorId(idUsuario);
+		if (requisicao.checkNotModified(versao.getEtag(), versao.getDataAlteracao())) {
+			return null;
+		}
 
-		if (!usuario.isPresent() ) {
+		FiltroLancamento filtro;
+		try {
+			filtro = filtro(idUsuario, descricao, mes, ano, tipo, status, idCategoria, valorMinimo, valorMaximo,
+							anoInicial, mesInicial, anoFinal, mesFinal).build();
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Não foi possível realizar a consulta. Filtro inválido: " + e.getMessage());
+		}
+
+		if (!usuarioService.obterPorId(idUsuario).isPresent()) {
 			return ResponseEntity.badRequest().body("Não foi possível realizar a consulta. Usuário não encontrado");
-		} else {
-			filtro.setUsuario(usuario.get());
 		}
 
-		List<Lancamento> lancamentos = service.buscar(filtro);
+		return ResponseEntity.ok()
+				.cacheControl(CacheControl.noCache().cachePrivate())
+				.body(analiticoService.get().resumir(filtro, porMes));
+	}
+
+	@GetMapping("{id}/historico")
+	public ResponseEntity obterHistorico(
+			@PathVariable("id") Long id,
+			@RequestParam("em") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime momento) {
+		return auditoriaService.reconstruir(id, momento)
+				.<ResponseEntity>map( ResponseEntity::ok )
+				.orElseGet( () -> new ResponseEntity("Lançamento não encontrado no histórico nessa data", HttpStatus.NOT_FOUND));
+	}
+
+	@GetMapping("/arquivados")
+	public ResponseEntity buscarArquivados(@RequestParam("usuario") Long idUsuario) {
+		return ResponseEntity.ok(arquivamentoService.obterArquivados(idUsuario));
+	}
+
+	@GetMapping("/export")
+	public ResponseEntity exportar(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "formato", defaultValue = "csv") String formato,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String aceitaCodificacao
+			) {
+
+		FormatoExportacao formatoExportacao;
+		try {
+			formatoExportacao = FormatoExportacao.valueOf(formato.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Formato de exportação inválido. Use csv ou ofx.");
+		}
+
+		if (!usuarioService.obterPorId(idUsuario).isPresent()) {
+			return ResponseEntity.badRequest().body("Não foi possível realizar a exportação. Usuário não encontrado");
+		}
+
+		boolean gzip = aceitaCodificacao != null && aceitaCodificacao.contains("gzip");
+		// o corpo é escrito em outra thread, que não herda o shard escolhido para a requisição
+		String shard = ShardContexto.obter();
+
+		StreamingResponseBody corpo = saida -> {
+			try {
+				ShardContexto.executar(shard, () -> {
+					try {
+						if (gzip) {
+							GZIPOutputStream compactado = new GZIPOutputStream(saida, 8192, true);
+							exportacaoService.exportar(idUsuario, formatoExportacao, compactado);
+							compactado.finish();
+						} else {
+							exportacaoService.exportar(idUsuario, formatoExportacao, saida);
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					return null;
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		};
+
+		ResponseEntity.BodyBuilder resposta = ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(formatoExportacao.getTipoConteudo() + ";charset=UTF-8"))
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"lancamentos." + formatoExportacao.getExtensao() + "\"")
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
 
-		return ResponseEntity.ok(lancamentos);
+		if (gzip) {
+			resposta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+
+		return resposta.body(corpo);
+	}
+
+	@PostMapping("/duplicidades/varredura")
+	public ResponseEntity varrerDuplicidades(@RequestBody(required = false) List<Long> usuarios) {
+		if (!execucaoPorShard.isPresent()) {
+			return ResponseEntity.ok(duplicidadeService.varrer(usuarios));
+		}
+
+		Map<String, Map<Long, List<List<Long>>>> porShard = usuarios == null || usuarios.isEmpty()
+				? execucaoPorShard.get().emCadaShard( () -> duplicidadeService.varrer(null) )
+				: execucaoPorShard.get().porUsuarios(usuarios, duplicidadeService::varrer);
+		Map<Long, List<List<Long>>> grupos = new HashMap<>();
+		porShard.values().forEach(grupos::putAll);
+		return ResponseEntity.ok(grupos);
+	}
+
+	private FiltroLancamento.FiltroLancamentoBuilder filtro(Long idUsuario, String descricao, Integer mes, Integer ano,
+			String tipo, String status, Long idCategoria, BigDecimal valorMinimo, BigDecimal valorMaximo,
+			Integer anoInicial, Integer mesInicial, Integer anoFinal, Integer mesFinal) {
+		return FiltroLancamento.builder()
+				.idUsuario(idUsuario)
+				.descricao(descricao)
+				.tipo(tipo == null ? null : TipoLancamento.valueOf(tipo.toUpperCase()))
+				.status(status == null ? null : StatusLancamento.valueOf(status.toUpperCase()))
+				.idCategoria(idCategoria)
+				.valorMinimo(valorMinimo)
+				.valorMaximo(valorMaximo)
+				.anoInicial(ano != null ? ano : anoInicial)
+				.mesInicial(mes != null ? mes : mesInicial)
+				.anoFinal(ano != null ? ano : anoFinal)
+				.mesFinal(mes != null ? mes : mesFinal);
+	}
+
+	private static String moeda(String moeda) {
+		return moeda == null || moeda.trim().isEmpty() ? null : moeda.trim().toUpperCase();
 	}
 
 	private Lancamento converter(LancamentoDTO dto) {
@@ -134,6 +409,7 @@ public class LancamentoResource {
 		lancamento.setAno(dto.getAno());
 		lancamento.setMes(dto.getMes());
 		lancamento.setValor(dto.getValor());
+		lancamento.setMoeda(moeda(dto.getMoeda()));
 
 		Usuario usuario = usuarioService
 				.obterPorId(dto.getUsuario())
@@ -141,6 +417,13 @@ public class LancamentoResource {
 
 		lancamento.setUsuario(usuario);
 		
+		if (dto.getCategoria() != null) {
+			Categoria categoria = categoriaService
+					.obterPorId(dto.getCategoria())
+					.orElseThrow( () -> new RegraNegocioException("Categoria não encontrada para o Id informado"));
+			lancamento.setCategoria(categoria);
+		}
+		
 		if (dto.getTipo() != null)
 			lancamento.setTipo(TipoLancamento.valueOf(dto.getTipo()));
 
@@ -0,0 +1,66 @@
+package com.danielnobrega.minhasfinancas.api.resources;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.danielnobrega.minhasfinancas.api.dto.OrcamentoDTO;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Orcamento;
+import com.danielnobrega.minhasfinancas.service.OrcamentoService;
+import com.danielnobrega.minhasfinancas.service.UsuarioService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/orcamentos")
+@RequiredArgsConstructor
+public class OrcamentoResource {
+
+	private final OrcamentoService service;
+	
+	private final UsuarioService usuarioService;
+	
+	@PostMapping
+	public ResponseEntity definir(@RequestBody OrcamentoDTO dto) {
+		try {
+			if (dto.getUsuario() != null) {
+				usuarioService
+					.obterPorId(dto.getUsuario())
+					.orElseThrow( () -> new RegraNegocioException("Usuário não encontrado para o Id informado"));
+			}
+			
+			Orcamento orcamento = Orcamento.builder()
+					.idUsuario(dto.getUsuario())
+					.idCategoria(dto.getCategoria())
+					.ano(dto.getAno())
+					.mes(dto.getMes())
+					.limite(dto.getLimite())
+					.percentualAviso(dto.getPercentualAviso())
+					.build();
+			
+			return new ResponseEntity(service.definir(orcamento), HttpStatus.CREATED);
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+	
+	@GetMapping
+	public ResponseEntity buscar(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam("ano") Integer ano,
+			@RequestParam("mes") Integer mes) {
+		return ResponseEntity.ok(service.obterOrcamentos(idUsuario, ano, mes));
+	}
+	
+	@GetMapping("/alertas")
+	public ResponseEntity obterAlertas(@RequestParam("usuario") Long idUsuario) {
+		return ResponseEntity.ok(service.obterAlertas(idUsuario));
+	}
+
+}
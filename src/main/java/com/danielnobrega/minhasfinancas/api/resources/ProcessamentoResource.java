@@ -0,0 +1,69 @@
+package com.danielnobrega.minhasfinancas.api.resources;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.danielnobrega.minhasfinancas.model.entity.CheckpointProcessamento;
+import com.danielnobrega.minhasfinancas.service.RecalculoSaldoService;
+import com.danielnobrega.minhasfinancas.sharding.ExecucaoPorShard;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/processamentos")
+@RequiredArgsConstructor
+public class ProcessamentoResource {
+
+	private final RecalculoSaldoService recalculoSaldoService;
+	
+	private final Optional<ExecucaoPorShard> execucaoPorShard;
+	
+	@PostMapping("/recalculo-saldo")
+	public ResponseEntity recalcularSaldos(
+			@RequestParam("ano") Integer ano,
+			@RequestParam("mes") Integer mes) {
+		
+		if (mes < 1 || mes > 12) {
+			return ResponseEntity.badRequest().body("Informe um mês válido.");
+		}
+		
+		String nome = String.format("recalculo-saldo-%04d-%02d", ano, mes);
+		if (execucaoPorShard.isPresent()) {
+			execucaoPorShard.get().emCadaShard( () -> {
+				recalculoSaldoService.executarEmSegundoPlano(nome, ano, mes);
+				return nome;
+			});
+		} else {
+			recalculoSaldoService.executarEmSegundoPlano(nome, ano, mes);
+		}
+		return new ResponseEntity(nome, HttpStatus.ACCEPTED);
+	}
+	
+	/**
+	 * Com sharding, cada shard tem o próprio checkpoint e a resposta traz um por shard.
+	 */
+	@GetMapping("/{nome}")
+	public ResponseEntity obterSituacao(@PathVariable("nome") String nome) {
+		if (execucaoPorShard.isPresent()) {
+			Map<String, CheckpointProcessamento> porShard = new LinkedHashMap<>();
+			execucaoPorShard.get().emCadaShard( () -> recalculoSaldoService.obterSituacao(nome) )
+					.forEach( (shard, checkpoint) -> checkpoint.ifPresent( c -> porShard.put(shard, c) ) );
+			return porShard.isEmpty() ? new ResponseEntity(HttpStatus.NOT_FOUND) : ResponseEntity.ok(porShard);
+		}
+		
+		return recalculoSaldoService.obterSituacao(nome)
+				.map( checkpoint -> new ResponseEntity(checkpoint, HttpStatus.OK) )
+				.orElseGet( () -> new ResponseEntity(HttpStatus.NOT_FOUND) );
+	}
+
+}
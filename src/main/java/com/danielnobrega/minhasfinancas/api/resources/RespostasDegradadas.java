@@ -0,0 +1,46 @@
+package com.danielnobrega.minhasfinancas.api.resources;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.danielnobrega.minhasfinancas.service.degradacao.Resultado;
+
+/**
+ * Respostas dos endpoints protegidos pelo DegradacaoService. Um valor obsoleto sai com Age e o
+ * Warning 110 e sem permissão de cache: o ETag da requisição já é o da versão atual, e o cliente
+ * não pode guardar um valor antigo sob ele.
+ */
+final class RespostasDegradadas {
+
+	static final String AVISO_OBSOLETO = "110 - \"Response is Stale\"";
+
+	private RespostasDegradadas() {
+	}
+
+	static ResponseEntity ok(Resultado<?> resultado) {
+		return ok(resultado, resultado.getValor(), new HttpHeaders());
+	}
+
+	/** Responde com outro corpo derivado do resultado e cabeçalhos próprios do endpoint. */
+	static ResponseEntity ok(Resultado<?> resultado, Object corpo, HttpHeaders cabecalhos) {
+		if (!resultado.isObsoleto()) {
+			return ResponseEntity.ok().headers(cabecalhos).cacheControl(CacheControl.noCache().cachePrivate()).body(corpo);
+		}
+
+		return ResponseEntity.ok()
+				.headers(cabecalhos)
+				.cacheControl(CacheControl.noStore())
+				.header(HttpHeaders.AGE, String.valueOf(resultado.getIdadeSegundos()))
+				.header(HttpHeaders.WARNING, AVISO_OBSOLETO)
+				.body(corpo);
+	}
+
+	static ResponseEntity indisponivel(String mensagem) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, "10")
+				.body(mensagem);
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.danielnobrega.minhasfinancas.api.resources;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.danielnobrega.minhasfinancas.sharding.MigradorShard;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Administração dos shards: migração de um usuário e rebalanceamento pelo anel depois de um
+ * shard ser incluído na configuração.
+ */
+@RestController
+@RequestMapping("/api/shards")
+@ConditionalOnProperty(name = "minhasfinancas.sharding.habilitado", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardResource {
+
+	private final MigradorShard migrador;
+	
+	@PostMapping("/migracoes")
+	public ResponseEntity migrar(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam("destino") String destino) {
+		try {
+			return ResponseEntity.ok(migrador.migrarUsuario(idUsuario, destino));
+		} catch (IllegalArgumentException | IllegalStateException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+	
+	@PostMapping("/rebalanceamento")
+	public ResponseEntity rebalancear() {
+		return ResponseEntity.ok(migrador.rebalancear());
+	}
+
+}
@@ -1,8 +1,10 @@
 package com.danielnobrega.minhasfinancas.api.resources;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.time.YearMonth;
+import java.util.Arrays;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,14 +12,25 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.danielnobrega.minhasfinancas.api.dto.UsuarioDTO;
+import com.danielnobrega.minhasfinancas.enums.MetodoProjecao;
+import com.danielnobrega.minhasfinancas.exceptions.BancoIndisponivelException;
 import com.danielnobrega.minhasfinancas.exceptions.ErroAutenticacao;
 import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
 import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.DegradacaoService;
 import com.danielnobrega.minhasfinancas.service.LancamentoService;
+import com.danielnobrega.minhasfinancas.service.ProjecaoService;
+import com.danielnobrega.minhasfinancas.service.SaldoMensalService;
 import com.danielnobrega.minhasfinancas.service.UsuarioService;
+import com.danielnobrega.minhasfinancas.service.VersaoDadosService;
+import com.danielnobrega.minhasfinancas.service.degradacao.Resultado;
+import com.danielnobrega.minhasfinancas.service.versao.VersaoDados;
 
 import lombok.RequiredArgsConstructor;
 
@@ -28,13 +41,19 @@ public class UsuarioResource {
 
 	private final UsuarioService service;
 	private final LancamentoService lancamentoService;
+	private final SaldoMensalService saldoMensalService;
+	private final VersaoDadosService versaoDadosService;
+	private final ProjecaoService projecaoService;
+	private final CotacaoService cotacaoService;
+	private final DegradacaoService degradacaoService;
 
 	@PostMapping
 	public ResponseEntity salvar(@RequestBody UsuarioDTO dto) {
 		Usuario usuario = Usuario.builder()
 				.nome(dto.getNome())
 				.email(dto.getEmail())
-				.senha(dto.getSenha()).build();
+				.senha(dto.getSenha())
+				.moedaBase(dto.getMoedaBase() == null ? null : dto.getMoedaBase().trim().toUpperCase()).build();
 
 		try {
 			Usuario usuarioSalvo = service.salvarUsuario(usuario);
@@ -58,17 +77,73 @@ public class UsuarioResource {
 	}
 	
 	@GetMapping("{id}/saldo")
-	public ResponseEntity obterSaldo(@PathVariable ("id") Long id) {
-		Optional<Usuario> usuario = service.obterPorId(id);
+	public ResponseEntity obterSaldo(
+			@PathVariable ("id") Long id,
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam(value = "mes", required = false) Integer mes,
+			WebRequest requisicao) {
+		VersaoDados versao = versaoDadosService.obter(id);
 		
-		if (!usuario.isPresent()) {
+		// o saldo convertido muda também quando as cotações são recarregadas
+		if (requisicao.checkNotModified(versao.getEtag() + "-" + cotacaoService.obterVersao(), versao.getDataAlteracao())) {
+			return null;
+		}
+		
+		Resultado<BigDecimal> saldo;
+		try {
+			saldo = degradacaoService.consultar(DegradacaoService.SALDO, Arrays.asList(id, ano, mes), () -> {
+				if (!degradacaoService.chamar(DegradacaoService.USUARIO, () -> service.obterPorId(id)).isPresent()) {
+					return null;
+				}
+				
+				return degradacaoService.chamar(DegradacaoService.LANCAMENTO, () -> ano != null 
+						? saldoMensalService.obterSaldoAte(id, ano, mes == null ? 12 : mes)
+						: lancamentoService.obterSaldoPorUsuario(id));
+			});
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		} catch (BancoIndisponivelException e) {
+			return RespostasDegradadas.indisponivel("Não foi possível obter o saldo agora. Tente novamente em instantes");
+		}
+		
+		if (saldo.getValor() == null) {
 			return new ResponseEntity(HttpStatus.NOT_FOUND);
 		}
 		
-		BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(id);
+		return RespostasDegradadas.ok(saldo);
+	}
+	
+	@GetMapping("{id}/projecao")
+	public ResponseEntity obterProjecao(
+			@PathVariable ("id") Long id,
+			@RequestParam(value = "meses", defaultValue = "6") int meses,
+			@RequestParam(value = "metodo", defaultValue = "MEDIA_MOVEL") MetodoProjecao metodo,
+			@RequestParam(value = "janela", defaultValue = "3") int janela,
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam(value = "mes", required = false) Integer mes,
+			WebRequest requisicao) {
+		if (mes != null && (mes < 1 || mes > 12)) {
+			return ResponseEntity.badRequest().body("Informe um MÊS válido");
+		}
+		
+		VersaoDados versao = versaoDadosService.obter(id);
+		YearMonth referencia = ano == null ? YearMonth.now() : YearMonth.of(ano, mes == null ? 12 : mes);
 		
-		return ResponseEntity.ok(saldo);
+		if (requisicao.checkNotModified(versao.getEtag() + "-" + cotacaoService.obterVersao() + "-" + referencia)) {
+			return null;
+		}
+		
+		if (!service.obterPorId(id).isPresent()) {
+			return new ResponseEntity(HttpStatus.NOT_FOUND);
+		}
+		
+		try {
+			return ResponseEntity.ok()
+					.cacheControl(CacheControl.noCache().cachePrivate())
+					.body(projecaoService.projetar(id, referencia.getYear(), referencia.getMonthValue(), meses, metodo, janela));
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
 	}
 
-
 }
@@ -0,0 +1,60 @@
+package com.danielnobrega.minhasfinancas.config;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Modo de inicialização rápida (profile {@code fast-start}). Os beans passam a ser criados no
+ * primeiro uso, exceto a infraestrutura, os beans com métodos {@code @Scheduled} (que só são
+ * agendados quando instanciados) e os listados em {@code minhasfinancas.inicializacao.eager},
+ * como o EntityManagerFactory, que precisa iniciar cedo para o bootstrap em segundo plano.
+ */
+@Configuration
+@ConditionalOnProperty(name = "minhasfinancas.inicializacao.lazy", havingValue = "true")
+public class InicializacaoRapidaConfig {
+
+	@Bean
+	public static BeanFactoryPostProcessor inicializacaoPreguicosa(Environment environment) {
+		Set<String> eager = new HashSet<>(Arrays.asList(environment.getProperty("minhasfinancas.inicializacao.eager", 
+				String[].class, new String[] { "entityManagerFactory", "dataSource", "applicationTaskExecutor" })));
+		
+		return beanFactory -> {
+			for (String nome : beanFactory.getBeanDefinitionNames()) {
+				BeanDefinition definicao = beanFactory.getBeanDefinition(nome);
+				if (definicao.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE || eager.contains(nome)
+						|| possuiAgendamento(definicao, beanFactory.getBeanClassLoader())) {
+					continue;
+				}
+				definicao.setLazyInit(true);
+			}
+		};
+	}
+	
+	private static boolean possuiAgendamento(BeanDefinition definicao, ClassLoader classLoader) {
+		if (definicao.getBeanClassName() == null) {
+			return false;
+		}
+		
+		try {
+			Class<?> classe = ClassUtils.forName(definicao.getBeanClassName(), classLoader);
+			boolean[] agendado = { false };
+			ReflectionUtils.doWithMethods(classe, metodo -> agendado[0] = true, 
+					metodo -> AnnotationUtils.findAnnotation(metodo, Scheduled.class) != null);
+			return agendado[0];
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+}
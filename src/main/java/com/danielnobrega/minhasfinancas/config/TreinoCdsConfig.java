@@ -0,0 +1,28 @@
+package com.danielnobrega.minhasfinancas.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Execução de treino do arquivo AppCDS (profile Maven {@code appcds}): a aplicação sobe com os
+ * profiles da execução real e encerra assim que fica pronta, o que grava o arquivo.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "minhasfinancas.inicializacao.encerrar-apos-pronto", havingValue = "true")
+public class TreinoCdsConfig {
+
+	@Bean
+	public ApplicationListener<ApplicationReadyEvent> encerrarAposPronto() {
+		return evento -> {
+			log.info("Aplicação pronta, encerrando execução de treino");
+			System.exit(SpringApplication.exit(evento.getApplicationContext()));
+		};
+	}
+}
@@ -0,0 +1,75 @@
+package com.danielnobrega.minhasfinancas.enums;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Campos que podem ser pedidos na busca de lançamentos. O nome é o mesmo da resposta completa e
+ * o caminho é o atributo lido da entidade; usuário e categoria saem só com o id, que é a chave
+ * estrangeira da própria linha e não exige junção.
+ */
+public enum CampoLancamento {
+	
+	ID("id", "id"),
+	DESCRICAO("descricao", "descricao"),
+	MES("mes", "mes"),
+	ANO("ano", "ano"),
+	USUARIO("usuario", "usuario", "id"),
+	VALOR("valor", "valor"),
+	MOEDA("moeda", "moeda"),
+	DATA_CADASTRO("dataCadastro", "dataCadastro"),
+	TIPO("tipo", "tipo"),
+	STATUS("status", "status"),
+	CATEGORIA("categoria", "categoria", "id"),
+	ID_CONTRAPARTIDA("idContrapartida", "idContrapartida"),
+	POSSIVEL_DUPLICATA("possivelDuplicata", "possivelDuplicata");
+	
+	private final String nome;
+	
+	private final String[] caminho;
+	
+	CampoLancamento(String nome, String... caminho) {
+		this.nome = nome;
+		this.caminho = caminho;
+	}
+	
+	public String getNome() {
+		return nome;
+	}
+	
+	public String[] getCaminho() {
+		return caminho.clone();
+	}
+	
+	public boolean isReferencia() {
+		return caminho.length > 1;
+	}
+	
+	/**
+	 * Lê a lista de nomes separados por vírgula, na ordem desta enum e sem repetições.
+	 */
+	public static Set<CampoLancamento> selecionar(String nomes) {
+		Set<CampoLancamento> campos = EnumSet.noneOf(CampoLancamento.class);
+		
+		for (String nome : nomes.split(",")) {
+			if (!nome.trim().isEmpty()) {
+				campos.add(doNome(nome.trim()));
+			}
+		}
+		
+		if (campos.isEmpty()) {
+			throw new IllegalArgumentException("informe ao menos um campo");
+		}
+		return campos;
+	}
+	
+	private static CampoLancamento doNome(String nome) {
+		for (CampoLancamento campo : values()) {
+			if (campo.nome.equalsIgnoreCase(nome)) {
+				return campo;
+			}
+		}
+		throw new IllegalArgumentException("campo desconhecido " + nome);
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.danielnobrega.minhasfinancas.enums;
+
+public enum FormatoExportacao {
+	
+	CSV("text/csv", "csv"),
+	OFX("application/x-ofx", "ofx");
+	
+	private final String tipoConteudo;
+	
+	private final String extensao;
+	
+	FormatoExportacao(String tipoConteudo, String extensao) {
+		this.tipoConteudo = tipoConteudo;
+		this.extensao = extensao;
+	}
+	
+	public String getTipoConteudo() {
+		return tipoConteudo;
+	}
+	
+	public String getExtensao() {
+		return extensao;
+	}
+
+}
@@ -0,0 +1,8 @@
+package com.danielnobrega.minhasfinancas.enums;
+
+public enum MetodoProjecao {
+	
+	MEDIA_MOVEL,
+	SAZONAL;
+
+}
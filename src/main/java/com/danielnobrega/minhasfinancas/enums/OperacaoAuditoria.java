@@ -0,0 +1,10 @@
+package com.danielnobrega.minhasfinancas.enums;
+
+public enum OperacaoAuditoria {
+	
+	INCLUSAO,
+	ALTERACAO,
+	EXCLUSAO,
+	BASE;
+
+}
@@ -0,0 +1,20 @@
+package com.danielnobrega.minhasfinancas.enums;
+
+public enum OrdenacaoLancamento {
+	
+	PERIODO("ano", "mes"),
+	VALOR("valor"),
+	DESCRICAO("descricao"),
+	DATA_CADASTRO("dataCadastro");
+	
+	private final String[] atributos;
+	
+	OrdenacaoLancamento(String... atributos) {
+		this.atributos = atributos;
+	}
+	
+	public String[] getAtributos() {
+		return atributos.clone();
+	}
+
+}
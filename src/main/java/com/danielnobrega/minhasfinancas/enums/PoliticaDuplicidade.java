@@ -0,0 +1,8 @@
+package com.danielnobrega.minhasfinancas.enums;
+
+public enum PoliticaDuplicidade {
+	
+	SINALIZAR,
+	REJEITAR;
+
+}
@@ -3,6 +3,16 @@ package com.danielnobrega.minhasfinancas.enums;
 public enum TipoLancamento {
 	
 	RECEITA,
-	DESPESA;
+	DESPESA,
+	TRANSFERENCIA_ENTRADA,
+	TRANSFERENCIA_SAIDA;
+	
+	public boolean isTransferencia() {
+		return this == TRANSFERENCIA_ENTRADA || this == TRANSFERENCIA_SAIDA;
+	}
+	
+	public boolean isEntrada() {
+		return this == RECEITA || this == TRANSFERENCIA_ENTRADA;
+	}
 
 }
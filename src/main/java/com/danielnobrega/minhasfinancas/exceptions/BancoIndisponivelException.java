@@ -0,0 +1,17 @@
+package com.danielnobrega.minhasfinancas.exceptions;
+
+/**
+ * O banco não respondeu a tempo, falhou ou está com o disjuntor aberto. Como a regra de negócio,
+ * é esperada e tratada pelos resources, por isso também não preenche a stack trace.
+ */
+public class BancoIndisponivelException extends RuntimeException {
+
+	public BancoIndisponivelException(String mensagem) {
+		super(mensagem, null, false, false);
+	}
+
+	public BancoIndisponivelException(String mensagem, Throwable causa) {
+		super(mensagem, causa, false, false);
+	}
+
+}
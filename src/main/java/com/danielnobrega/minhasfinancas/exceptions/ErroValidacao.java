@@ -0,0 +1,20 @@
+package com.danielnobrega.minhasfinancas.exceptions;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Erro de um campo específico. As instâncias são imutáveis e, para as regras fixas, declaradas
+ * como constantes, de modo que reportar um erro não aloca nada além da lista que os agrupa.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class ErroValidacao {
+	
+	private final String campo;
+	
+	private final String codigo;
+	
+	private final String mensagem;
+
+}
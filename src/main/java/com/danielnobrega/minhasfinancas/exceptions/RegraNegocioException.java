@@ -1,9 +1,31 @@
 package com.danielnobrega.minhasfinancas.exceptions;
 
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Violação de regra de negócio. É uma situação esperada e tratada pelos resources, por isso
+ * não preenche a stack trace nem registra supressões.
+ */
 public class RegraNegocioException extends RuntimeException {
+	
+	private final List<ErroValidacao> erros;
 
 	public RegraNegocioException(String mensagem) {
-		super(mensagem);
+		super(mensagem, null, false, false);
+		this.erros = null;
+	}
+	
+	public RegraNegocioException(List<ErroValidacao> erros) {
+		super(erros.get(0).getMensagem(), null, false, false);
+		this.erros = Collections.unmodifiableList(erros);
+	}
+	
+	public List<ErroValidacao> getErros() {
+		if (erros == null) {
+			return Collections.singletonList(new ErroValidacao(null, "REGRA_NEGOCIO", getMessage()));
+		}
+		return erros;
 	}
 
 }
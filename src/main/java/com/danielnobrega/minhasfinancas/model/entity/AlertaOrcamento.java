@@ -0,0 +1,71 @@
+package com.danielnobrega.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import com.danielnobrega.minhasfinancas.enums.TipoAlertaOrcamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Registro de uma travessia de limite de orçamento. {@code limite} é o valor atravessado (o do
+ * aviso ou o do orçamento) e {@code gasto} o total logo depois da escrita que o atravessou.
+ */
+@Entity
+@Table(name="alerta_orcamento", schema="financas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertaOrcamento {
+	
+	@Id
+	@Column(name="id")
+	@GeneratedValue( strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name="id_orcamento")
+	private Long idOrcamento;
+	
+	@Column(name="id_usuario")
+	private Long idUsuario;
+	
+	@Column(name="id_categoria")
+	private Long idCategoria;
+	
+	@Column(name="ano")
+	private Integer ano;
+	
+	@Column(name="mes")
+	private Integer mes;
+	
+	@Column(name="tipo")
+	@Enumerated(value = EnumType.STRING)
+	private TipoAlertaOrcamento tipo;
+	
+	@Column(name="limite")
+	private BigDecimal limite;
+	
+	@Column(name="gasto")
+	private BigDecimal gasto;
+	
+	@Column(name="data_alerta")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataAlerta;
+
+}
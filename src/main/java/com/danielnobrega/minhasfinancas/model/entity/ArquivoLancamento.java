@@ -0,0 +1,52 @@
+package com.danielnobrega.minhasfinancas.model.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name="lancamento_arquivo", schema="financas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArquivoLancamento {
+	
+	@Id
+	@Column(name="id")
+	@GeneratedValue( strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name="id_usuario")
+	private Long idUsuario;
+	
+	@Column(name="quantidade")
+	private Integer quantidade;
+	
+	@Column(name="primeiro_id_lancamento")
+	private Long primeiroIdLancamento;
+	
+	@Column(name="ultimo_id_lancamento")
+	private Long ultimoIdLancamento;
+	
+	@Column(name="data_arquivamento")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataArquivamento;
+	
+	@Column(name="conteudo", columnDefinition = "bytea")
+	private byte[] conteudo;
+
+}
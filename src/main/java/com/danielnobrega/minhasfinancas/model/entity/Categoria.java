@@ -0,0 +1,40 @@
+package com.danielnobrega.minhasfinancas.model.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name="categoria", schema="financas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Categoria {
+	
+	@Id
+	@Column(name="id")
+	@GeneratedValue( strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name="nome")
+	private String nome;
+	
+	@Column(name="padrao_descricao")
+	private String padraoDescricao;
+	
+	@ManyToOne
+	@JoinColumn(name="id_usuario")
+	private Usuario usuario;
+
+}
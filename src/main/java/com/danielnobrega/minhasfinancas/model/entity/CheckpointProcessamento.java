@@ -0,0 +1,56 @@
+package com.danielnobrega.minhasfinancas.model.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name="checkpoint_processamento", schema="financas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckpointProcessamento {
+	
+	@Id
+	@Column(name="nome")
+	private String nome;
+	
+	@Column(name="ano")
+	private Integer ano;
+	
+	@Column(name="mes")
+	private Integer mes;
+	
+	@Column(name="ultimo_id_usuario")
+	private Long ultimoIdUsuario;
+	
+	@Column(name="usuarios_processados")
+	private Long usuariosProcessados;
+	
+	@Column(name="grupos_lidos")
+	private Long gruposLidos;
+	
+	@Column(name="inicio")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime inicio;
+	
+	@Column(name="fim")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime fim;
+	
+	@Column(name="concluido")
+	private Boolean concluido;
+
+}
@@ -0,0 +1,52 @@
+package com.danielnobrega.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Quanto vale uma unidade de {@code moedaOrigem} em {@code moedaDestino} a partir de {@code data}.
+ */
+@Entity
+@Table(name="cotacao", schema="financas",
+	   uniqueConstraints = @UniqueConstraint(name="uk_cotacao_data_par", columnNames = {"data", "moeda_origem", "moeda_destino"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Cotacao {
+	
+	@Id
+	@Column(name="id")
+	@GeneratedValue( strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name="data")
+	@Convert(converter = Jsr310JpaConverters.LocalDateConverter.class)
+	private LocalDate data;
+	
+	@Column(name="moeda_origem", length = 3)
+	private String moedaOrigem;
+	
+	@Column(name="moeda_destino", length = 3)
+	private String moedaDestino;
+	
+	@Column(name="taxa", precision = 19, scale = 8)
+	private BigDecimal taxa;
+
+}
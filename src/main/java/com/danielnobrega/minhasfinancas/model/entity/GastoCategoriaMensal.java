@@ -0,0 +1,53 @@
+package com.danielnobrega.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Total de despesas por usuário, categoria e mês, mantido incrementalmente a cada escrita de
+ * lançamento. Despesas sem categoria ficam em {@code idCategoria = 0}.
+ */
+@Entity
+@Table(name="gasto_categoria_mensal", schema="financas", 
+	   uniqueConstraints = @UniqueConstraint(name="uk_gasto_categoria_mensal", columnNames = {"id_usuario", "ano", "mes", "id_categoria"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GastoCategoriaMensal {
+	
+	public static final Long SEM_CATEGORIA = 0l;
+	
+	@Id
+	@Column(name="id")
+	@GeneratedValue( strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name="id_usuario")
+	private Long idUsuario;
+	
+	@Column(name="id_categoria")
+	private Long idCategoria;
+	
+	@Column(name="ano")
+	private Integer ano;
+	
+	@Column(name="mes")
+	private Integer mes;
+	
+	@Column(name="total")
+	private BigDecimal total;
+
+}
@@ -2,6 +2,7 @@ package com.danielnobrega.minhasfinancas.model.entity;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 import javax.persistence.Column;
 import javax.persistence.Convert;
@@ -15,6 +16,7 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Where;
 import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
 
 import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
@@ -27,8 +29,9 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Table(name="lancamento", schema="financas")
+@Where(clause = "data_exclusao is null")
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Lancamento {
@@ -53,6 +56,9 @@ public class Lancamento {
 	
 	@Column(name="valor")
 	private BigDecimal valor;
+	
+	@Column(name="moeda", length = 3)
+	private String moeda;
 
 	@Column(name="data_cadastro")
 	@Convert(converter = Jsr310JpaConverters.LocalDateConverter.class)
@@ -65,5 +71,19 @@ public class Lancamento {
 	@Column(name="status")
 	@Enumerated(value = EnumType.STRING)
 	private StatusLancamento status;
+	
+	@ManyToOne
+	@JoinColumn(name="id_categoria")
+	private Categoria categoria;
+	
+	@Column(name="id_contrapartida")
+	private Long idContrapartida;
+	
+	@Column(name="possivel_duplicata")
+	private Boolean possivelDuplicata;
+	
+	@Column(name="data_exclusao")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataExclusao;
 
 }
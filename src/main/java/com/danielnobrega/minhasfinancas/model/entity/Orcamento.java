@@ -0,0 +1,78 @@
+package com.danielnobrega.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.hibernate.annotations.DynamicUpdate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Limite de despesas de um usuário num mês, de todas as categorias ({@code idCategoria} nulo)
+ * ou de uma só. {@code gasto} é o total de despesas do período, mantido a cada escrita de
+ * lançamento; {@code percentualAviso}, quando informado, gera um aviso antes do limite. O update
+ * dinâmico evita que alterar o limite regrave um {@code gasto} lido antes de escritas concorrentes.
+ * Há no máximo um orçamento por usuário, categoria e mês; {@code chaveCategoria} repete a
+ * categoria com 0 no lugar do nulo para que a chave única valha também para o orçamento total.
+ */
+@Entity
+@DynamicUpdate
+@Table(name="orcamento", schema="financas",
+	   uniqueConstraints = @UniqueConstraint(name="uk_orcamento_periodo", columnNames = {"id_usuario", "ano", "mes", "chave_categoria"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Orcamento {
+	
+	@Id
+	@Column(name="id")
+	@GeneratedValue( strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name="id_usuario")
+	private Long idUsuario;
+	
+	@Column(name="id_categoria")
+	private Long idCategoria;
+	
+	@Column(name="ano")
+	private Integer ano;
+	
+	@Column(name="mes")
+	private Integer mes;
+	
+	@Column(name="limite")
+	private BigDecimal limite;
+	
+	@Column(name="percentual_aviso")
+	private Integer percentualAviso;
+	
+	@Column(name="gasto")
+	private BigDecimal gasto;
+	
+	@JsonIgnore
+	@Column(name="chave_categoria", nullable = false)
+	private Long chaveCategoria;
+	
+	@PrePersist
+	@PreUpdate
+	void preencherChaveCategoria() {
+		chaveCategoria = idCategoria == null ? GastoCategoriaMensal.SEM_CATEGORIA : idCategoria;
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.danielnobrega.minhasfinancas.model.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Registro de auditoria gravado na mesma transação da escrita no lançamento, ainda não juntado
+ * num SegmentoAuditoria. O conteúdo é um único registro codificado por CodificadorAuditoria; a
+ * linha é removida na mesma transação que grava o segmento.
+ */
+@Entity
+@Table(name="lancamento_auditoria_pendente", schema="financas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendenciaAuditoria {
+	
+	@Id
+	@Column(name="id")
+	@GeneratedValue( strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name="id_lancamento")
+	private Long idLancamento;
+	
+	@Column(name="momento")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime momento;
+	
+	@Column(name="conteudo", columnDefinition = "bytea")
+	private byte[] conteudo;
+
+}
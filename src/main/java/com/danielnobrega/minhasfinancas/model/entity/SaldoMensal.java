@@ -0,0 +1,52 @@
+package com.danielnobrega.minhasfinancas.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name="saldo_mensal", schema="financas", 
+	   uniqueConstraints = @UniqueConstraint(name="uk_saldo_mensal_usuario_periodo", columnNames = {"id_usuario", "ano", "mes"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoMensal {
+	
+	@Id
+	@Column(name="id")
+	@GeneratedValue( strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name="id_usuario")
+	private Long idUsuario;
+	
+	@Column(name="ano")
+	private Integer ano;
+	
+	@Column(name="mes")
+	private Integer mes;
+	
+	@Column(name="saldo")
+	private BigDecimal saldo;
+	
+	@Column(name="data_fechamento")
+	@Convert(converter = Jsr310JpaConverters.LocalDateConverter.class)
+	private LocalDate dataFechamento;
+
+}
@@ -0,0 +1,59 @@
+package com.danielnobrega.minhasfinancas.model.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Alterações de um lançamento gravadas num mesmo lote, codificadas por CodificadorAuditoria.
+ * As linhas só são incluídas ou removidas pela compactação, nunca alteradas.
+ */
+@Entity
+@Table(name="lancamento_auditoria", schema="financas",
+	   indexes = @Index(name="ix_lancamento_auditoria_lancamento", columnList = "id_lancamento, data_inicial"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentoAuditoria {
+	
+	@Id
+	@Column(name="id")
+	@GeneratedValue( strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name="id_lancamento")
+	private Long idLancamento;
+	
+	@Column(name="quantidade")
+	private Integer quantidade;
+	
+	@Column(name="data_inicial")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataInicial;
+	
+	@Column(name="data_final")
+	@Convert(converter = Jsr310JpaConverters.LocalDateTimeConverter.class)
+	private LocalDateTime dataFinal;
+	
+	@Column(name="excluido")
+	private Boolean excluido;
+	
+	@Column(name="conteudo", columnDefinition = "bytea")
+	private byte[] conteudo;
+
+}
@@ -0,0 +1,31 @@
+package com.danielnobrega.minhasfinancas.model.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name="trava_agendamento", schema="financas")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TravaAgendamento {
+	
+	@Id
+	@Column(name="nome")
+	private String nome;
+	
+	@Column(name="bloqueado_ate")
+	private Long bloqueadoAte;
+	
+	@Column(name="bloqueado_por")
+	private String bloqueadoPor;
+
+}
@@ -1,11 +1,16 @@
 package com.danielnobrega.minhasfinancas.model.entity;
 
+import java.util.Locale;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -14,14 +19,22 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * O email é gravado sem espaços nas pontas e em minúsculas, e as buscas por email devem usar
+ * {@link #normalizarEmail(String)}; assim a restrição única sobre a coluna equivale a um índice
+ * único em lower(email).
+ */
 @Entity
-@Table(name="usuario", schema="financas")
+@Table(name="usuario", schema="financas",
+	   uniqueConstraints = @UniqueConstraint(name=Usuario.UK_EMAIL, columnNames = "email"))
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Usuario {
 	
+	public static final String UK_EMAIL = "uk_usuario_email";
+	
 	@Id
 	@Column(name="id")
 	@GeneratedValue( strategy = GenerationType.IDENTITY)
@@ -36,5 +49,18 @@ public class Usuario {
 	@Column(name="senha")
 	@JsonIgnore
 	private String senha;
+	
+	@Column(name="moeda_base", length = 3)
+	private String moedaBase;
+	
+	public static String normalizarEmail(String email) {
+		return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+	}
+	
+	@PrePersist
+	@PreUpdate
+	void normalizar() {
+		email = normalizarEmail(email);
+	}
 
 }
@@ -0,0 +1,47 @@
+package com.danielnobrega.minhasfinancas.model.filtro;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import com.danielnobrega.minhasfinancas.enums.CampoLancamento;
+import com.danielnobrega.minhasfinancas.enums.OrdenacaoLancamento;
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Critérios de busca de lançamentos de um usuário. Os limites de período são inclusivos; um
+ * limite sem mês cobre o ano inteiro (janeiro no inicial, dezembro no final). Os campos só valem
+ * para a busca por campos; nulos, a busca devolve as entidades completas. Sem limite a busca
+ * devolve todos os lançamentos que atendem os critérios.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroLancamento {
+	
+	/** Maior limite aceito pela API de busca. */
+	public static final int LIMITE_MAXIMO = 1000;
+	
+	private Long idUsuario;
+	private String descricao;
+	private TipoLancamento tipo;
+	private StatusLancamento status;
+	private Long idCategoria;
+	private BigDecimal valorMinimo;
+	private BigDecimal valorMaximo;
+	private Integer anoInicial;
+	private Integer mesInicial;
+	private Integer anoFinal;
+	private Integer mesFinal;
+	private OrdenacaoLancamento ordenacao;
+	private boolean decrescente;
+	private Integer limite;
+	private Set<CampoLancamento> campos;
+
+}
@@ -0,0 +1,20 @@
+package com.danielnobrega.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Total de despesas de uma categoria no mês, numa moeda diferente da base do usuário.
+ */
+public interface GastoMoeda {
+
+	Long getIdCategoria();
+
+	Integer getAno();
+
+	Integer getMes();
+
+	String getMoeda();
+
+	BigDecimal getTotal();
+
+}
@@ -0,0 +1,17 @@
+package com.danielnobrega.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+public interface ResumoLancamento {
+
+	Long getId();
+
+	String getDescricao();
+
+	Integer getAno();
+
+	Integer getMes();
+
+	BigDecimal getValor();
+
+}
@@ -0,0 +1,13 @@
+package com.danielnobrega.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+public interface ResumoSaldo {
+
+	BigDecimal getReceitas();
+
+	BigDecimal getDespesas();
+
+	BigDecimal getSaldo();
+
+}
@@ -0,0 +1,18 @@
+package com.danielnobrega.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Parcial do saldo numa moeda. Os lançamentos na moeda base do usuário vêm numa única linha, com
+ * {@code moeda} nula e período zerado; os demais vêm por moeda e mês de competência, que é o que
+ * a conversão precisa para escolher a cotação.
+ */
+public interface SaldoMoeda extends ResumoSaldo {
+
+	String getMoeda();
+
+	Integer getAno();
+
+	Integer getMes();
+
+}
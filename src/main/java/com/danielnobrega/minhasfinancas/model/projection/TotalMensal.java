@@ -0,0 +1,20 @@
+package com.danielnobrega.minhasfinancas.model.projection;
+
+import java.math.BigDecimal;
+
+public interface TotalMensal {
+
+	Integer getAno();
+
+	Integer getMes();
+
+	String getTipo();
+
+	/**
+	 * Nula quando o total está na moeda base do usuário.
+	 */
+	String getMoeda();
+
+	BigDecimal getTotal();
+
+}
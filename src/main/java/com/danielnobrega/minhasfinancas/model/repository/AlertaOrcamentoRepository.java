@@ -0,0 +1,13 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.danielnobrega.minhasfinancas.model.entity.AlertaOrcamento;
+
+public interface AlertaOrcamentoRepository extends JpaRepository<AlertaOrcamento, Long>{
+	
+	List<AlertaOrcamento> findByIdUsuarioOrderByIdDesc(Long idUsuario);
+
+}
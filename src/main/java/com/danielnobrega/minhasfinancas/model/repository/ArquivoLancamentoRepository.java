@@ -0,0 +1,13 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.danielnobrega.minhasfinancas.model.entity.ArquivoLancamento;
+
+public interface ArquivoLancamentoRepository extends JpaRepository<ArquivoLancamento, Long>{
+	
+	List<ArquivoLancamento> findByIdUsuarioOrderById(Long idUsuario);
+
+}
@@ -0,0 +1,19 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.danielnobrega.minhasfinancas.model.entity.Categoria;
+
+public interface CategoriaRepository extends JpaRepository<Categoria, Long>{
+	
+	@Query( value = " select c from Categoria c left join c.usuario u where c.padraoDescricao is not null order by u.id nulls last, c.id ")
+	List<Categoria> obterCategoriasComRegra();
+	
+	@Query( value = " select c from Categoria c left join c.usuario u where u.id = :idUsuario or u is null order by c.nome ")
+	List<Categoria> obterCategoriasDoUsuario(@Param("idUsuario") Long idUsuario);
+
+}
@@ -0,0 +1,19 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import com.danielnobrega.minhasfinancas.model.entity.Cotacao;
+
+public interface CotacaoRepository extends JpaRepository<Cotacao, Long> {
+	
+	Optional<Cotacao> findByDataAndMoedaOrigemAndMoedaDestino(LocalDate data, String moedaOrigem, String moedaDestino);
+	
+	@Query("select c from Cotacao c order by c.moedaOrigem, c.moedaDestino, c.data")
+	List<Cotacao> listarOrdenadas();
+
+}
@@ -0,0 +1,65 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.danielnobrega.minhasfinancas.model.entity.GastoCategoriaMensal;
+import com.danielnobrega.minhasfinancas.model.projection.GastoMoeda;
+
+public interface GastoCategoriaMensalRepository extends JpaRepository<GastoCategoriaMensal, Long>{
+	
+	@Modifying
+	@Query( value = " update GastoCategoriaMensal g set g.total = g.total + :valor "
+				  + " where g.idUsuario = :idUsuario and g.idCategoria = :idCategoria and g.ano = :ano and g.mes = :mes ")
+	int acumular(@Param("idUsuario") Long idUsuario, 
+				 @Param("idCategoria") Long idCategoria, 
+				 @Param("ano") Integer ano, 
+				 @Param("mes") Integer mes, 
+				 @Param("valor") BigDecimal valor);
+	
+	List<GastoCategoriaMensal> findByIdUsuarioAndAnoAndMes(Long idUsuario, Integer ano, Integer mes);
+	
+	@Query( value = " select coalesce(sum(g.total), 0) from GastoCategoriaMensal g "
+				  + " where g.idUsuario = :idUsuario and g.ano = :ano and g.mes = :mes ")
+	BigDecimal somarTotal(@Param("idUsuario") Long idUsuario, 
+						  @Param("ano") Integer ano, 
+						  @Param("mes") Integer mes);
+	
+	@Query( value = " select coalesce(sum(g.total), 0) from GastoCategoriaMensal g "
+				  + " where g.idUsuario = :idUsuario and g.idCategoria = :idCategoria and g.ano = :ano and g.mes = :mes ")
+	BigDecimal somarTotalDaCategoria(@Param("idUsuario") Long idUsuario, 
+									 @Param("idCategoria") Long idCategoria, 
+									 @Param("ano") Integer ano, 
+									 @Param("mes") Integer mes);
+	
+	@Modifying
+	@Query( value = " delete from GastoCategoriaMensal g where g.idUsuario = :idUsuario ")
+	int removerDoUsuario(@Param("idUsuario") Long idUsuario);
+	
+	/**
+	 * Recria os totais só com as despesas na moeda base; as das outras moedas precisam de cotação
+	 * e são somadas depois, a partir de {@link #obterGastosEmOutraMoeda}.
+	 */
+	@Modifying
+	@Query( value = " insert into financas.gasto_categoria_mensal (id_usuario, id_categoria, ano, mes, total) "
+				  + " select l.id_usuario, coalesce(l.id_categoria, 0), l.ano, l.mes, sum(l.valor) "
+				  + " from financas.lancamento l "
+				  + " where l.id_usuario = :idUsuario and l.tipo = 'DESPESA' and l.data_exclusao is null "
+				  + "   and (l.moeda is null or l.moeda = :moedaBase) "
+				  + " group by l.id_usuario, coalesce(l.id_categoria, 0), l.ano, l.mes ", nativeQuery = true)
+	int reconstruirDoUsuario(@Param("idUsuario") Long idUsuario, @Param("moedaBase") String moedaBase);
+	
+	@Query( value = " select coalesce(l.id_categoria, 0) as idCategoria, l.ano as ano, l.mes as mes, l.moeda as moeda, "
+				  + "        sum(l.valor) as total "
+				  + " from financas.lancamento l "
+				  + " where l.id_usuario = :idUsuario and l.tipo = 'DESPESA' and l.data_exclusao is null "
+				  + "   and l.moeda is not null and l.moeda <> :moedaBase "
+				  + " group by coalesce(l.id_categoria, 0), l.ano, l.mes, l.moeda ", nativeQuery = true)
+	List<GastoMoeda> obterGastosEmOutraMoeda(@Param("idUsuario") Long idUsuario, @Param("moedaBase") String moedaBase);
+
+}
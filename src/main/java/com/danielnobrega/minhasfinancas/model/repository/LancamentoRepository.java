@@ -1,18 +1,88 @@
 package com.danielnobrega.minhasfinancas.model.repository;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
 import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoLancamento;
+import com.danielnobrega.minhasfinancas.model.projection.SaldoMoeda;
+import com.danielnobrega.minhasfinancas.model.projection.TotalMensal;
 
-public interface LancamentoRepository extends JpaRepository<Lancamento, Long>{
+public interface LancamentoRepository extends JpaRepository<Lancamento, Long>, LancamentoRepositoryCustom {
 	
-	@Query( value = " select sum(l.valor) from Lancamento l join l.usuario u "
-				  + " where u.id = :idUsuario and l.tipo = :tipo group by u")
-	BigDecimal obterSaldoPorTipoLancamentoEUsuario(@Param("idUsuario") Long idUsuario, @Param("tipo") TipoLancamento tipo);
+	@Query( value = " select l.id as id, l.descricao as descricao, l.ano as ano, l.mes as mes, l.valor as valor "
+				  + " from Lancamento l where l.usuario.id = :idUsuario ")
+	List<ResumoLancamento> obterResumosPorUsuario(@Param("idUsuario") Long idUsuario);
+	
+	/**
+	 * Os lançamentos na moeda base informada saem sem moeda e sem período, numa linha só. A
+	 * normalização fica numa subconsulta para que o agrupamento use as colunas dela: cada
+	 * ocorrência de {@code :moedaBase} vira um parâmetro próprio, e o PostgreSQL não reconhece
+	 * expressões com parâmetros diferentes no select e no group by como a mesma.
+	 */
+	@Query( value = " select p.moeda as moeda, p.ano as ano, p.mes as mes, "
+				  + "        coalesce(sum(case when p.tipo = 'RECEITA' then p.valor else 0 end), 0) as receitas, "
+				  + "        coalesce(sum(case when p.tipo = 'DESPESA' then p.valor else 0 end), 0) as despesas, "
+				  + "        coalesce(sum(case when p.tipo in ('RECEITA', 'TRANSFERENCIA_ENTRADA') then p.valor "
+				  + "                          when p.tipo in ('DESPESA', 'TRANSFERENCIA_SAIDA') then -p.valor else 0 end), 0) as saldo "
+				  + " from ( select case when l.moeda is null or l.moeda = :moedaBase then null else l.moeda end as moeda, "
+				  + "               case when l.moeda is null or l.moeda = :moedaBase then 0 else l.ano end as ano, "
+				  + "               case when l.moeda is null or l.moeda = :moedaBase then 0 else l.mes end as mes, "
+				  + "               l.tipo as tipo, l.valor as valor "
+				  + "        from financas.lancamento l "
+				  + "        where l.id_usuario = :idUsuario "
+				  + "          and l.data_exclusao is null "
+				  + "          and (:somenteEfetivados = false or l.status = 'EFETIVADO') "
+				  + "          and (l.ano < :ano or (l.ano = :ano and l.mes <= :mes)) ) p "
+				  + " group by p.moeda, p.ano, p.mes ", nativeQuery = true)
+	List<SaldoMoeda> obterSaldosPorMoeda(@Param("idUsuario") Long idUsuario, 
+										 @Param("moedaBase") String moedaBase,
+										 @Param("somenteEfetivados") boolean somenteEfetivados,
+										 @Param("ano") Integer ano, 
+										 @Param("mes") Integer mes);
+	
+	@Query( value = " select p.moeda as moeda, p.ano as ano, p.mes as mes, "
+				  + "        coalesce(sum(case when p.tipo = 'RECEITA' then p.valor else 0 end), 0) as receitas, "
+				  + "        coalesce(sum(case when p.tipo = 'DESPESA' then p.valor else 0 end), 0) as despesas, "
+				  + "        coalesce(sum(case when p.tipo in ('RECEITA', 'TRANSFERENCIA_ENTRADA') then p.valor "
+				  + "                          when p.tipo in ('DESPESA', 'TRANSFERENCIA_SAIDA') then -p.valor else 0 end), 0) as saldo "
+				  + " from ( select case when l.moeda is null or l.moeda = :moedaBase then null else l.moeda end as moeda, "
+				  + "               case when l.moeda is null or l.moeda = :moedaBase then 0 else l.ano end as ano, "
+				  + "               case when l.moeda is null or l.moeda = :moedaBase then 0 else l.mes end as mes, "
+				  + "               l.tipo as tipo, l.valor as valor "
+				  + "        from financas.lancamento l "
+				  + "        where l.id_usuario = :idUsuario "
+				  + "          and l.data_exclusao is null "
+				  + "          and (:somenteEfetivados = false or l.status = 'EFETIVADO') "
+				  + "          and (l.ano > :anoInicial or (l.ano = :anoInicial and l.mes > :mesInicial)) "
+				  + "          and (l.ano < :ano or (l.ano = :ano and l.mes <= :mes)) ) p "
+				  + " group by p.moeda, p.ano, p.mes ", nativeQuery = true)
+	List<SaldoMoeda> obterSaldosPorMoedaEntrePeriodos(@Param("idUsuario") Long idUsuario, 
+													  @Param("moedaBase") String moedaBase,
+													  @Param("somenteEfetivados") boolean somenteEfetivados,
+													  @Param("anoInicial") Integer anoInicial, 
+													  @Param("mesInicial") Integer mesInicial,
+													  @Param("ano") Integer ano, 
+													  @Param("mes") Integer mes);
+	
+	@Query( value = " select p.ano as ano, p.mes as mes, p.tipo as tipo, p.moeda as moeda, sum(p.valor) as total "
+				  + " from ( select l.ano as ano, l.mes as mes, l.tipo as tipo, l.valor as valor, "
+				  + "               case when l.moeda is null or l.moeda = :moedaBase then null else l.moeda end as moeda "
+				  + "        from financas.lancamento l "
+				  + "        where l.id_usuario = :idUsuario "
+				  + "          and l.data_exclusao is null "
+				  + "          and l.status <> 'CANCELADO' ) p "
+				  + " group by p.ano, p.mes, p.tipo, p.moeda "
+				  + " order by p.ano, p.mes ", nativeQuery = true)
+	List<TotalMensal> obterTotaisMensais(@Param("idUsuario") Long idUsuario, @Param("moedaBase") String moedaBase);
+	
+	@Modifying
+	@Query( value = " update Lancamento l set l.dataExclusao = :dataExclusao where l.id = :id ")
+	int marcarExcluido(@Param("id") Long id, @Param("dataExclusao") LocalDateTime dataExclusao);
 
 }
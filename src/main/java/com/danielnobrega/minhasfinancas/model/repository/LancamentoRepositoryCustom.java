@@ -0,0 +1,14 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+
+public interface LancamentoRepositoryCustom {
+
+	List<Lancamento> buscar(FiltroLancamento filtro);
+	
+	List<Map<String, Object>> buscarCampos(FiltroLancamento filtro);
+}
@@ -0,0 +1,205 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+import com.danielnobrega.minhasfinancas.enums.CampoLancamento;
+import com.danielnobrega.minhasfinancas.enums.OrdenacaoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+
+/**
+ * Monta a consulta de busca a partir dos critérios informados, escolhendo para cada um o
+ * formato que o índice (id_usuario, ano, mes) consegue usar: igualdade no usuário sempre
+ * primeiro, igualdade de ano quando o período está dentro de um único ano e intervalo em ano
+ * com o mês como filtro residual quando atravessa anos. Só a descrição é comparada sem
+ * diferenciar maiúsculas, sobre lower(descricao), compatível com um índice de expressão.
+ */
+public class LancamentoRepositoryImpl implements LancamentoRepositoryCustom {
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<Lancamento> buscar(FiltroLancamento filtro) {
+		Objects.requireNonNull(filtro.getIdUsuario());
+		
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Lancamento> consulta = cb.createQuery(Lancamento.class);
+		Root<Lancamento> lancamento = consulta.from(Lancamento.class);
+		
+		consulta.select(lancamento)
+				.where(predicados(filtro, cb, lancamento).toArray(new Predicate[0]))
+				.orderBy(ordenacao(filtro, cb, lancamento));
+		
+		return limitar(entityManager.createQuery(consulta), filtro).getResultList();
+	}
+	
+	/**
+	 * Mesma busca, selecionando só as colunas dos campos do filtro. Cada linha vira um mapa na
+	 * ordem dos campos, sem passar por entidade nem carregar o usuário; as referências saem como
+	 * um objeto só com o id, no mesmo formato da resposta completa.
+	 */
+	@Override
+	public List<Map<String, Object>> buscarCampos(FiltroLancamento filtro) {
+		Objects.requireNonNull(filtro.getIdUsuario());
+		List<CampoLancamento> campos = new ArrayList<>(filtro.getCampos());
+		
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Object[]> consulta = cb.createQuery(Object[].class);
+		Root<Lancamento> lancamento = consulta.from(Lancamento.class);
+		
+		List<Selection<?>> colunas = new ArrayList<>(campos.size());
+		for (CampoLancamento campo : campos) {
+			Path<?> caminho = lancamento;
+			for (String atributo : campo.getCaminho()) {
+				caminho = caminho.get(atributo);
+			}
+			colunas.add(caminho);
+		}
+		
+		consulta.multiselect(colunas)
+				.where(predicados(filtro, cb, lancamento).toArray(new Predicate[0]))
+				.orderBy(ordenacao(filtro, cb, lancamento));
+		
+		List<Object[]> linhas = limitar(entityManager.createQuery(consulta), filtro).getResultList();
+		List<Map<String, Object>> resultado = new ArrayList<>(linhas.size());
+		
+		for (Object linha : linhas) {
+			// com uma única coluna o Hibernate devolve o valor, não um vetor
+			Object[] valores = campos.size() == 1 ? new Object[] { linha } : (Object[]) linha;
+			Map<String, Object> mapa = new LinkedHashMap<>(campos.size() * 2);
+			
+			for (int i = 0; i < valores.length; i++) {
+				CampoLancamento campo = campos.get(i);
+				mapa.put(campo.getNome(), campo.isReferencia() && valores[i] != null 
+						? Collections.singletonMap("id", valores[i]) 
+						: valores[i]);
+			}
+			resultado.add(mapa);
+		}
+		return resultado;
+	}
+	
+	private <T> TypedQuery<T> limitar(TypedQuery<T> query, FiltroLancamento filtro) {
+		if (filtro.getLimite() != null) {
+			query.setMaxResults(Math.max(1, filtro.getLimite()));
+		}
+		return query;
+	}
+	
+	private List<Predicate> predicados(FiltroLancamento filtro, CriteriaBuilder cb, Root<Lancamento> lancamento) {
+		List<Predicate> predicados = new ArrayList<>();
+		predicados.add(cb.equal(lancamento.get("usuario").get("id"), filtro.getIdUsuario()));
+		
+		periodo(filtro, cb, lancamento, predicados);
+		
+		if (filtro.getTipo() != null) {
+			predicados.add(cb.equal(lancamento.get("tipo"), filtro.getTipo()));
+		}
+		
+		if (filtro.getStatus() != null) {
+			predicados.add(cb.equal(lancamento.get("status"), filtro.getStatus()));
+		}
+		
+		if (filtro.getIdCategoria() != null) {
+			predicados.add(cb.equal(lancamento.get("categoria").get("id"), filtro.getIdCategoria()));
+		}
+		
+		Path<BigDecimal> valor = lancamento.get("valor");
+		if (filtro.getValorMinimo() != null && filtro.getValorMaximo() != null) {
+			predicados.add(filtro.getValorMinimo().compareTo(filtro.getValorMaximo()) == 0
+					? cb.equal(valor, filtro.getValorMinimo())
+					: cb.between(valor, filtro.getValorMinimo(), filtro.getValorMaximo()));
+		} else if (filtro.getValorMinimo() != null) {
+			predicados.add(cb.greaterThanOrEqualTo(valor, filtro.getValorMinimo()));
+		} else if (filtro.getValorMaximo() != null) {
+			predicados.add(cb.lessThanOrEqualTo(valor, filtro.getValorMaximo()));
+		}
+		
+		if (filtro.getDescricao() != null && !filtro.getDescricao().trim().isEmpty()) {
+			predicados.add(cb.like(cb.lower(lancamento.get("descricao")), 
+					"%" + escaparLike(filtro.getDescricao().trim().toLowerCase()) + "%", '\\'));
+		}
+		
+		return predicados;
+	}
+	
+	private void periodo(FiltroLancamento filtro, CriteriaBuilder cb, Root<Lancamento> lancamento, List<Predicate> predicados) {
+		Integer anoInicial = filtro.getAnoInicial();
+		Integer anoFinal = filtro.getAnoFinal();
+		int mesInicial = filtro.getMesInicial() == null ? 1 : filtro.getMesInicial();
+		int mesFinal = filtro.getMesFinal() == null ? 12 : filtro.getMesFinal();
+		Path<Integer> ano = lancamento.get("ano");
+		Path<Integer> mes = lancamento.get("mes");
+		
+		if (anoInicial == null && anoFinal == null) {
+			mesEntre(cb, mes, mesInicial, mesFinal, predicados);
+			return;
+		}
+		
+		if (anoInicial != null && anoInicial.equals(anoFinal)) {
+			predicados.add(cb.equal(ano, anoInicial));
+			mesEntre(cb, mes, mesInicial, mesFinal, predicados);
+			return;
+		}
+		
+		if (anoInicial != null && anoFinal != null) {
+			predicados.add(cb.between(ano, anoInicial, anoFinal));
+		} else if (anoInicial != null) {
+			predicados.add(cb.greaterThanOrEqualTo(ano, anoInicial));
+		} else if (anoFinal != null) {
+			predicados.add(cb.lessThanOrEqualTo(ano, anoFinal));
+		}
+		
+		if (anoInicial != null && mesInicial > 1) {
+			predicados.add(cb.or(cb.greaterThan(ano, anoInicial), cb.greaterThanOrEqualTo(mes, mesInicial)));
+		}
+		
+		if (anoFinal != null && mesFinal < 12) {
+			predicados.add(cb.or(cb.lessThan(ano, anoFinal), cb.lessThanOrEqualTo(mes, mesFinal)));
+		}
+	}
+	
+	private void mesEntre(CriteriaBuilder cb, Path<Integer> mes, int mesInicial, int mesFinal, List<Predicate> predicados) {
+		if (mesInicial == mesFinal) {
+			predicados.add(cb.equal(mes, mesInicial));
+		} else if (mesInicial > 1 || mesFinal < 12) {
+			predicados.add(cb.between(mes, mesInicial, mesFinal));
+		}
+	}
+	
+	private List<Order> ordenacao(FiltroLancamento filtro, CriteriaBuilder cb, Root<Lancamento> lancamento) {
+		OrdenacaoLancamento ordenacao = filtro.getOrdenacao() == null ? OrdenacaoLancamento.PERIODO : filtro.getOrdenacao();
+		List<Order> ordens = new ArrayList<>();
+		
+		for (String atributo : ordenacao.getAtributos()) {
+			ordens.add(filtro.isDecrescente() ? cb.desc(lancamento.get(atributo)) : cb.asc(lancamento.get(atributo)));
+		}
+		
+		// desempate estável para que o limite sempre corte no mesmo ponto
+		ordens.add(filtro.isDecrescente() ? cb.desc(lancamento.get("id")) : cb.asc(lancamento.get("id")));
+		return ordens;
+	}
+	
+	private String escaparLike(String texto) {
+		return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.danielnobrega.minhasfinancas.model.entity.Orcamento;
+
+public interface OrcamentoRepository extends JpaRepository<Orcamento, Long>{
+	
+	List<Orcamento> findByIdUsuarioAndAnoAndMes(Long idUsuario, Integer ano, Integer mes);
+	
+	@Modifying
+	@Query( value = " update Orcamento o set o.gasto = o.gasto + :valor where o.id = :id ")
+	int acumular(@Param("id") Long id, @Param("valor") BigDecimal valor);
+	
+	@Query( value = " select o.gasto from Orcamento o where o.id = :id ")
+	BigDecimal obterGasto(@Param("id") Long id);
+
+}
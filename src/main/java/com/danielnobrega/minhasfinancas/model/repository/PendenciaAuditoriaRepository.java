@@ -0,0 +1,9 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.danielnobrega.minhasfinancas.model.entity.PendenciaAuditoria;
+
+public interface PendenciaAuditoriaRepository extends JpaRepository<PendenciaAuditoria, Long>{
+
+}
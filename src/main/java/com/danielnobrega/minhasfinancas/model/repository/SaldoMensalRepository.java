@@ -0,0 +1,34 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.danielnobrega.minhasfinancas.model.entity.SaldoMensal;
+
+public interface SaldoMensalRepository extends JpaRepository<SaldoMensal, Long>{
+	
+	@Query( value = " select s from SaldoMensal s where s.idUsuario = :idUsuario "
+				  + " and (s.ano < :ano or (s.ano = :ano and s.mes <= :mes)) "
+				  + " order by s.ano desc, s.mes desc ")
+	List<SaldoMensal> obterFechamentosAte(@Param("idUsuario") Long idUsuario, 
+										  @Param("ano") Integer ano, 
+										  @Param("mes") Integer mes, 
+										  Pageable pageable);
+	
+	@Modifying
+	@Query( value = " delete from SaldoMensal s where s.idUsuario = :idUsuario "
+				  + " and (s.ano > :ano or (s.ano = :ano and s.mes >= :mes)) ")
+	int invalidarAPartirDe(@Param("idUsuario") Long idUsuario, @Param("ano") Integer ano, @Param("mes") Integer mes);
+	
+	@Modifying
+	@Query( value = " delete from SaldoMensal s where (s.ano > :ano or (s.ano = :ano and s.mes >= :mes)) "
+				  + " and s.idUsuario in (select l.usuario.id from Lancamento l where l.moeda in :moedas) ")
+	int invalidarComMoedaAPartirDe(@Param("moedas") Collection<String> moedas, @Param("ano") Integer ano, @Param("mes") Integer mes);
+
+}
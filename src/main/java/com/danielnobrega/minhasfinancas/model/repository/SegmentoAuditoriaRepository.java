@@ -0,0 +1,29 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.danielnobrega.minhasfinancas.model.entity.SegmentoAuditoria;
+
+public interface SegmentoAuditoriaRepository extends JpaRepository<SegmentoAuditoria, Long> {
+	
+	List<SegmentoAuditoria> findByIdLancamentoAndDataInicialLessThanEqualOrderById(Long idLancamento, LocalDateTime momento);
+	
+	List<SegmentoAuditoria> findByIdLancamentoAndDataFinalLessThanOrderById(Long idLancamento, LocalDateTime limite);
+	
+	/**
+	 * Lançamentos com mais de um segmento anterior ao limite, ou já excluídos antes dele.
+	 */
+	@Query( value = " select s.idLancamento from SegmentoAuditoria s "
+				  + " where s.dataFinal < :limite "
+				  + " group by s.idLancamento "
+				  + " having count(s) > 1 or sum(case when s.excluido = true then 1 else 0 end) > 0 "
+				  + " order by s.idLancamento ")
+	List<Long> obterCompactaveis(@Param("limite") LocalDateTime limite, Pageable pagina);
+
+}
@@ -0,0 +1,28 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.danielnobrega.minhasfinancas.model.entity.TravaAgendamento;
+
+public interface TravaAgendamentoRepository extends JpaRepository<TravaAgendamento, String>{
+	
+	@Modifying
+	@Query( value = " update TravaAgendamento t set t.bloqueadoAte = :ate, t.bloqueadoPor = :instancia "
+				  + " where t.nome = :nome and t.bloqueadoAte <= :agora ")
+	int adquirir(@Param("nome") String nome, @Param("instancia") String instancia, 
+				 @Param("agora") Long agora, @Param("ate") Long ate);
+	
+	@Modifying
+	@Query( value = " insert into financas.trava_agendamento (nome, bloqueado_ate, bloqueado_por) "
+				  + " values (:nome, :ate, :instancia) ", nativeQuery = true)
+	int criar(@Param("nome") String nome, @Param("instancia") String instancia, @Param("ate") Long ate);
+	
+	@Modifying
+	@Query( value = " update TravaAgendamento t set t.bloqueadoAte = :agora "
+				  + " where t.nome = :nome and t.bloqueadoPor = :instancia ")
+	int liberar(@Param("nome") String nome, @Param("instancia") String instancia, @Param("agora") Long agora);
+
+}
@@ -1,8 +1,15 @@
 package com.danielnobrega.minhasfinancas.model.repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.LockModeType;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.danielnobrega.minhasfinancas.model.entity.Usuario;
 
@@ -11,4 +18,17 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long>{
 	boolean existsByEmail(String email);
 	
 	Optional<Usuario> findByEmail(String email);
+	
+	@Query("select u.id from Usuario u order by u.id")
+	List<Long> listarIds();
+	
+	@Query("select u.id from Usuario u where u.id > :id order by u.id")
+	List<Long> listarIdsAPartirDe(@Param("id") Long id, Pageable pageable);
+	
+	@Query("select u.moedaBase from Usuario u where u.id = :id")
+	String obterMoedaBase(@Param("id") Long id);
+	
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select u from Usuario u where u.id = :id")
+	Optional<Usuario> bloquear(@Param("id") Long id);
 }
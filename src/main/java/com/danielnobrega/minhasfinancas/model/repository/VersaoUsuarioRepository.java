@@ -0,0 +1,18 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.danielnobrega.minhasfinancas.model.entity.VersaoUsuario;
+
+public interface VersaoUsuarioRepository extends JpaRepository<VersaoUsuario, Long>{
+	
+	@Modifying
+	@Query( value = " update VersaoUsuario v set v.versao = v.versao + 1, "
+				  + "        v.dataAlteracao = case when v.dataAlteracao > :agora then v.dataAlteracao else :agora end "
+				  + " where v.idUsuario = :idUsuario ")
+	int incrementar(@Param("idUsuario") Long idUsuario, @Param("agora") Long agora);
+
+}
@@ -0,0 +1,11 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+import com.danielnobrega.minhasfinancas.service.analitico.ResumoAnalitico;
+
+public interface AnaliticoService {
+
+	ResumoAnalitico resumir(FiltroLancamento filtro, boolean porPeriodo);
+	
+	ResumoAnalitico obterResumoSaldo(Long idUsuario, boolean somenteEfetivados, int ano, int mes);
+}
@@ -0,0 +1,12 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import java.util.List;
+
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+
+public interface ArquivamentoService {
+
+	int arquivar();
+	
+	List<Lancamento> obterArquivados(Long idUsuario);
+}
@@ -0,0 +1,15 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+
+public interface AuditoriaService {
+
+	Optional<Lancamento> reconstruir(Long idLancamento, LocalDateTime momento);
+	
+	int drenar();
+	
+	int compactar();
+}
@@ -0,0 +1,18 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.danielnobrega.minhasfinancas.model.entity.Categoria;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+
+public interface CategoriaService {
+
+	Categoria salvar(Categoria categoria);
+	
+	Optional<Categoria> obterPorId(Long id);
+	
+	List<Categoria> obterCategoriasDoUsuario(Long idUsuario);
+	
+	void categorizar(Lancamento lancamento);
+}
@@ -0,0 +1,43 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.danielnobrega.minhasfinancas.model.entity.Cotacao;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoSaldo;
+import com.danielnobrega.minhasfinancas.model.projection.SaldoMoeda;
+import com.danielnobrega.minhasfinancas.service.cotacao.ConversorMoeda;
+
+public interface CotacaoService {
+	
+	String MOEDA_PADRAO = "BRL";
+	
+	List<Cotacao> registrar(List<Cotacao> cotacoes);
+	
+	void recarregar();
+	
+	long obterVersao();
+	
+	ConversorMoeda conversorPara(String moedaBase);
+	
+	/**
+	 * Cotação vigente no último dia do mês de competência, a mesma usada pelo conversor.
+	 */
+	BigDecimal obterTaxa(String moeda, String moedaBase, int ano, int mes);
+	
+	/**
+	 * Moeda base do usuário, ou a padrão quando ele não escolheu nenhuma.
+	 */
+	String obterMoedaBase(Long idUsuario);
+	
+	/**
+	 * Valor do lançamento na moeda base do seu usuário, pela cotação do mês de competência.
+	 */
+	BigDecimal valorNaMoedaBase(Lancamento lancamento);
+	
+	ResumoSaldo consolidar(List<SaldoMoeda> parciais, String moedaBase);
+	
+	void validarConversao(String moeda, String moedaBase, int ano, int mes);
+
+}
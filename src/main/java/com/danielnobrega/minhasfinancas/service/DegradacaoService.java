@@ -0,0 +1,21 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import java.util.function.Supplier;
+
+import com.danielnobrega.minhasfinancas.service.degradacao.Resultado;
+
+public interface DegradacaoService {
+	
+	String LANCAMENTO = "lancamento";
+	
+	String USUARIO = "usuario";
+	
+	String SALDO = "saldo";
+	
+	String BUSCA = "busca";
+	
+	<T> T chamar(String dependencia, Supplier<T> chamada);
+	
+	<T> Resultado<T> consultar(String endpoint, Object chave, Supplier<T> consulta);
+
+}
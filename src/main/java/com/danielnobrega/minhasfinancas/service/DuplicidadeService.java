@@ -0,0 +1,13 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import java.util.List;
+import java.util.Map;
+
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+
+public interface DuplicidadeService {
+
+	void verificar(Lancamento lancamento);
+	
+	Map<Long, List<List<Long>>> varrer(List<Long> idsUsuarios);
+}
@@ -0,0 +1,11 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.danielnobrega.minhasfinancas.enums.FormatoExportacao;
+
+public interface ExportacaoService {
+
+	void exportar(Long idUsuario, FormatoExportacao formato, OutputStream saida) throws IOException;
+}
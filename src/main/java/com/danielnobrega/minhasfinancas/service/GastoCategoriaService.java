@@ -0,0 +1,12 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import java.util.List;
+
+import com.danielnobrega.minhasfinancas.model.entity.GastoCategoriaMensal;
+
+public interface GastoCategoriaService {
+
+	List<GastoCategoriaMensal> obterGastosPorCategoria(Long idUsuario, Integer ano, Integer mes);
+	
+	void reconstruir(Long idUsuario);
+}
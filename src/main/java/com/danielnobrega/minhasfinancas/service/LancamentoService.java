@@ -2,10 +2,13 @@ package com.danielnobrega.minhasfinancas.service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
 import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoSaldo;
 
 public interface LancamentoService {
 
@@ -13,9 +16,13 @@ public interface LancamentoService {
 	
 	Lancamento atualizar(Lancamento lancamento);
 	
+	List<Lancamento> transferir(Lancamento saida, Long idUsuarioDestino);
+	
 	void deletar(Lancamento lancamento);
 	
-	List<Lancamento> buscar( Lancamento lancamento );
+	List<Lancamento> buscar( FiltroLancamento filtro );
+	
+	List<Map<String, Object>> buscarCampos( FiltroLancamento filtro );
 	
 	void atualizarStatus(Lancamento lancamento, StatusLancamento status);
 	
@@ -24,4 +31,6 @@ public interface LancamentoService {
 	Optional<Lancamento> obterPorId(Long id);
 	
 	BigDecimal obterSaldoPorUsuario(Long id);
+	
+	ResumoSaldo obterResumoSaldo(Long idUsuario, boolean somenteEfetivados, Integer ano, Integer mes);
 }
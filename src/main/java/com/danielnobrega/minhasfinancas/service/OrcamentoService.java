@@ -0,0 +1,15 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import java.util.List;
+
+import com.danielnobrega.minhasfinancas.model.entity.AlertaOrcamento;
+import com.danielnobrega.minhasfinancas.model.entity.Orcamento;
+
+public interface OrcamentoService {
+
+	Orcamento definir(Orcamento orcamento);
+	
+	List<Orcamento> obterOrcamentos(Long idUsuario, Integer ano, Integer mes);
+	
+	List<AlertaOrcamento> obterAlertas(Long idUsuario);
+}
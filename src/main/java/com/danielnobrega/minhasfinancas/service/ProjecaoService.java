@@ -0,0 +1,9 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import com.danielnobrega.minhasfinancas.enums.MetodoProjecao;
+import com.danielnobrega.minhasfinancas.service.projecao.Projecao;
+
+public interface ProjecaoService {
+
+	Projecao projetar(Long idUsuario, Integer ano, Integer mes, int meses, MetodoProjecao metodo, int janela);
+}
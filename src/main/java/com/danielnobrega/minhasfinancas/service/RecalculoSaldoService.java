@@ -0,0 +1,14 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import java.util.Optional;
+
+import com.danielnobrega.minhasfinancas.model.entity.CheckpointProcessamento;
+
+public interface RecalculoSaldoService {
+
+	CheckpointProcessamento executar(String nome, Integer ano, Integer mes);
+	
+	void executarEmSegundoPlano(String nome, Integer ano, Integer mes);
+	
+	Optional<CheckpointProcessamento> obterSituacao(String nome);
+}
@@ -0,0 +1,8 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import com.danielnobrega.minhasfinancas.service.reconciliacao.ExecucaoReconciliacao;
+
+public interface ReconciliacaoService {
+
+	ExecucaoReconciliacao reconciliar();
+}
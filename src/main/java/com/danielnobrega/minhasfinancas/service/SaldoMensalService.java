@@ -0,0 +1,14 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import java.math.BigDecimal;
+
+import com.danielnobrega.minhasfinancas.model.entity.SaldoMensal;
+
+public interface SaldoMensalService {
+
+	BigDecimal obterSaldoAte(Long idUsuario, Integer ano, Integer mes);
+	
+	SaldoMensal fecharMes(Long idUsuario, Integer ano, Integer mes);
+	
+	void fecharMes(Integer ano, Integer mes);
+}
@@ -0,0 +1,8 @@
+package com.danielnobrega.minhasfinancas.service;
+
+import com.danielnobrega.minhasfinancas.service.versao.VersaoDados;
+
+public interface VersaoDadosService {
+
+	VersaoDados obter(Long idUsuario);
+}
@@ -0,0 +1,74 @@
+package com.danielnobrega.minhasfinancas.service.agendamento;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.danielnobrega.minhasfinancas.model.repository.TravaAgendamentoRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Garante que uma tarefa agendada rode em uma única instância por vez, com uma trava por nome
+ * na tabela trava_agendamento. A trava vale até {@code duracaoMaxima} depois de adquirida, para
+ * que uma instância que caia no meio da tarefa não a bloqueie para sempre; a duração deve
+ * cobrir com folga a execução mais longa. As instâncias que não conseguem a trava pulam a
+ * execução.
+ */
+@Slf4j
+@Component
+public class ExecucaoExclusiva {
+	
+	private final String instancia = UUID.randomUUID().toString();
+	
+	private TravaAgendamentoRepository repository;
+	
+	private TransactionTemplate transactionTemplate;
+	
+	public ExecucaoExclusiva(TravaAgendamentoRepository repository, PlatformTransactionManager transactionManager) {
+		this.repository = repository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+	
+	/**
+	 * Executa a tarefa se a trava estiver livre. Devolve false, sem executar, quando outra
+	 * instância está com ela.
+	 */
+	public boolean executar(String nome, Duration duracaoMaxima, Runnable tarefa) {
+		if (!adquirir(nome, duracaoMaxima)) {
+			log.debug("{} já está em execução em outra instância", nome);
+			return false;
+		}
+		
+		try {
+			tarefa.run();
+			return true;
+		} finally {
+			transactionTemplate.execute( status -> repository.liberar(nome, instancia, System.currentTimeMillis()) );
+		}
+	}
+	
+	private boolean adquirir(String nome, Duration duracaoMaxima) {
+		long agora = System.currentTimeMillis();
+		long ate = agora + duracaoMaxima.toMillis();
+		
+		if (transactionTemplate.execute( status -> repository.adquirir(nome, instancia, agora, ate) > 0 )) {
+			return true;
+		}
+		
+		try {
+			// insert explícito: um save faria merge e tomaria a trava de quem acabou de criá-la
+			return transactionTemplate.execute( status -> repository.criar(nome, instancia, ate) > 0 );
+		} catch (DataIntegrityViolationException e) {
+			// a trava já existe e está com outra instância
+			return false;
+		}
+	}
+
+}
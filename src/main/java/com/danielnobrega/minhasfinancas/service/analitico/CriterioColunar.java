@@ -0,0 +1,113 @@
+package com.danielnobrega.minhasfinancas.service.analitico;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+
+import lombok.Getter;
+
+/**
+ * Critérios de um FiltroLancamento reduzidos aos tipos das colunas do LedgerColunar, com a
+ * mesma semântica da busca no banco: limites de período inclusivos, mês como filtro residual
+ * quando não há ano e descrição comparada sem diferenciar maiúsculas, por trecho.
+ */
+@Getter
+public final class CriterioColunar {
+
+	private final int periodoInicial;
+
+	private final int periodoFinal;
+
+	private final int mesInicial;
+
+	private final int mesFinal;
+
+	private final byte tipo;
+
+	private final byte status;
+
+	private final long idCategoria;
+
+	private final long centavosMinimo;
+
+	private final long centavosMaximo;
+
+	private final String descricao;
+
+	private CriterioColunar(int periodoInicial, int periodoFinal, int mesInicial, int mesFinal, byte tipo, byte status,
+			long idCategoria, long centavosMinimo, long centavosMaximo, String descricao) {
+		this.periodoInicial = periodoInicial;
+		this.periodoFinal = periodoFinal;
+		this.mesInicial = mesInicial;
+		this.mesFinal = mesFinal;
+		this.tipo = tipo;
+		this.status = status;
+		this.idCategoria = idCategoria;
+		this.centavosMinimo = centavosMinimo;
+		this.centavosMaximo = centavosMaximo;
+		this.descricao = descricao;
+	}
+
+	public static CriterioColunar de(FiltroLancamento filtro) {
+		int mesInicial = filtro.getMesInicial() == null ? 1 : filtro.getMesInicial();
+		int mesFinal = filtro.getMesFinal() == null ? 12 : filtro.getMesFinal();
+		boolean semAno = filtro.getAnoInicial() == null && filtro.getAnoFinal() == null;
+
+		String descricao = filtro.getDescricao() == null || filtro.getDescricao().trim().isEmpty()
+				? null
+				: filtro.getDescricao().trim().toLowerCase();
+
+		return new CriterioColunar(
+				filtro.getAnoInicial() == null ? Integer.MIN_VALUE : LedgerColunar.periodo(filtro.getAnoInicial(), mesInicial),
+				filtro.getAnoFinal() == null ? Integer.MAX_VALUE : LedgerColunar.periodo(filtro.getAnoFinal(), mesFinal),
+				semAno ? mesInicial : 1,
+				semAno ? mesFinal : 12,
+				filtro.getTipo() == null ? LedgerColunar.NULO : (byte) filtro.getTipo().ordinal(),
+				filtro.getStatus() == null ? LedgerColunar.NULO : (byte) filtro.getStatus().ordinal(),
+				filtro.getIdCategoria() == null ? 0 : filtro.getIdCategoria(),
+				filtro.getValorMinimo() == null ? Long.MIN_VALUE : centavos(filtro.getValorMinimo(), RoundingMode.CEILING),
+				filtro.getValorMaximo() == null ? Long.MAX_VALUE : centavos(filtro.getValorMaximo(), RoundingMode.FLOOR),
+				descricao);
+	}
+
+	/**
+	 * Critério equivalente ao da consulta de saldo: todos os lançamentos até o mês informado,
+	 * inclusive, ou só os efetivados.
+	 */
+	public static CriterioColunar saldoAte(boolean somenteEfetivados, int ano, int mes) {
+		return new CriterioColunar(Integer.MIN_VALUE, LedgerColunar.periodo(ano, mes), 1, 12, LedgerColunar.NULO,
+				somenteEfetivados ? (byte) StatusLancamento.EFETIVADO.ordinal() : LedgerColunar.NULO,
+				0, Long.MIN_VALUE, Long.MAX_VALUE, null);
+	}
+
+	boolean filtraMes() {
+		return mesInicial > 1 || mesFinal < 12;
+	}
+
+	boolean aceitarMes(int mes) {
+		return mes >= mesInicial && mes <= mesFinal;
+	}
+
+	boolean filtraDescricao() {
+		return descricao != null;
+	}
+
+	/**
+	 * Avalia a descrição uma vez por termo do dicionário, e não uma vez por linha.
+	 */
+	boolean[] aceitarDescricoes(List<String> termosMinusculos) {
+		boolean[] aceitos = new boolean[termosMinusculos.size()];
+		for (int i = 0; i < aceitos.length; i++) {
+			aceitos[i] = termosMinusculos.get(i).contains(descricao);
+		}
+		return aceitos;
+	}
+
+	private static long centavos(BigDecimal valor, RoundingMode arredondamento) {
+		return valor.setScale(2, arredondamento).unscaledValue().longValue();
+	}
+
+}
@@ -0,0 +1,346 @@
+package com.danielnobrega.minhasfinancas.service.analitico;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.service.cotacao.ConversorMoeda;
+
+/**
+ * Lançamentos de um usuário em vetores primitivos, um por coluna: valor em centavos, período
+ * empacotado ({@code ano * 12 + mes - 1}), ordinal de tipo e status e códigos da descrição e da
+ * moeda em dicionários próprios do usuário. As consultas percorrem os vetores sob a trava de
+ * leitura sem alocar nada por linha; as escritas trocam a linha no lugar, e a exclusão move a
+ * última linha para a posição liberada.
+ *
+ * Linhas em moeda diferente da base do usuário são somadas à parte, por moeda e mês, e cada uma
+ * dessas somas é convertida uma única vez no fim da varredura.
+ */
+public final class LedgerColunar {
+
+	static final byte NULO = -1;
+
+	private static final int CAPACIDADE_INICIAL = 64;
+
+	private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+
+	private final Map<Long, Integer> posicoes = new HashMap<>();
+
+	private final List<String> termosMinusculos = new ArrayList<>();
+
+	private final Map<String, Integer> codigos = new HashMap<>();
+
+	private final List<String> moedasEstrangeiras = new ArrayList<>();
+
+	private final String moedaBase;
+
+	private int tamanho;
+
+	private long[] ids;
+
+	private long[] centavos;
+
+	private int[] periodos;
+
+	private byte[] tipos;
+
+	private byte[] status;
+
+	private int[] descricoes;
+
+	private long[] categorias;
+
+	private int[] moedas;
+
+	/**
+	 * @param moedaBase moeda base do usuário; nula quando ele usa a padrão
+	 */
+	public LedgerColunar(int capacidade, String moedaBase) {
+		this.moedaBase = moedaBase;
+		int inicial = Math.max(capacidade, CAPACIDADE_INICIAL);
+		ids = new long[inicial];
+		centavos = new long[inicial];
+		periodos = new int[inicial];
+		tipos = new byte[inicial];
+		status = new byte[inicial];
+		descricoes = new int[inicial];
+		categorias = new long[inicial];
+		moedas = new int[inicial];
+	}
+
+	public String getMoedaBase() {
+		return moedaBase;
+	}
+
+	public int tamanho() {
+		trava.readLock().lock();
+		try {
+			return tamanho;
+		} finally {
+			trava.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Inclui a linha ou substitui a existente com o mesmo id. Uma categoria nula é gravada como 0;
+	 * uma moeda nula, ou igual à base, como {@link #NULO}.
+	 */
+	public void gravar(long id, BigDecimal valor, String moeda, int ano, int mes, TipoLancamento tipo,
+			StatusLancamento situacao, String descricao, Long idCategoria) {
+		trava.writeLock().lock();
+		try {
+			Integer posicao = posicoes.get(id);
+			int i;
+			if (posicao == null) {
+				garantirCapacidade(tamanho + 1);
+				i = tamanho++;
+				posicoes.put(id, i);
+			} else {
+				i = posicao;
+			}
+
+			ids[i] = id;
+			centavos[i] = centavos(valor);
+			periodos[i] = periodo(ano, mes);
+			tipos[i] = tipo == null ? NULO : (byte) tipo.ordinal();
+			status[i] = situacao == null ? NULO : (byte) situacao.ordinal();
+			descricoes[i] = codificar(descricao);
+			categorias[i] = idCategoria == null ? 0 : idCategoria;
+			moedas[i] = codificarMoeda(moeda);
+		} finally {
+			trava.writeLock().unlock();
+		}
+	}
+
+	public void remover(long id) {
+		trava.writeLock().lock();
+		try {
+			Integer posicao = posicoes.remove(id);
+			if (posicao == null) {
+				return;
+			}
+
+			int i = posicao;
+			int ultimo = --tamanho;
+			if (i != ultimo) {
+				ids[i] = ids[ultimo];
+				centavos[i] = centavos[ultimo];
+				periodos[i] = periodos[ultimo];
+				tipos[i] = tipos[ultimo];
+				status[i] = status[ultimo];
+				descricoes[i] = descricoes[ultimo];
+				categorias[i] = categorias[ultimo];
+				moedas[i] = moedas[ultimo];
+				posicoes.put(ids[i], i);
+			}
+		} finally {
+			trava.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Soma receitas e despesas das linhas que atendem ao critério. Transferências entram só no
+	 * saldo. Com {@code porPeriodo} também devolve os totais de cada mês que teve alguma linha, em
+	 * ordem de período. O conversor só é usado se houver linhas em outra moeda.
+	 */
+	public ResumoAnalitico resumir(CriterioColunar criterio, boolean porPeriodo, ConversorMoeda conversor) {
+		trava.readLock().lock();
+		try {
+			boolean[] descricaoAceita = criterio.filtraDescricao() ? criterio.aceitarDescricoes(termosMinusculos) : null;
+			byte receita = (byte) TipoLancamento.RECEITA.ordinal();
+			byte despesa = (byte) TipoLancamento.DESPESA.ordinal();
+			byte entrada = (byte) TipoLancamento.TRANSFERENCIA_ENTRADA.ordinal();
+			byte saida = (byte) TipoLancamento.TRANSFERENCIA_SAIDA.ordinal();
+			int quantidadeMoedas = moedasEstrangeiras.size();
+
+			int inicio = criterio.getPeriodoInicial();
+			int fim = criterio.getPeriodoFinal();
+			int meses = 0;
+
+			if (porPeriodo || quantidadeMoedas > 0) {
+				int menor = Integer.MAX_VALUE;
+				int maior = Integer.MIN_VALUE;
+				for (int i = 0; i < tamanho; i++) {
+					int periodo = periodos[i];
+					menor = periodo < menor ? periodo : menor;
+					maior = periodo > maior ? periodo : maior;
+				}
+				inicio = Math.max(inicio, menor);
+				fim = Math.min(fim, maior);
+				meses = fim >= inicio ? fim - inicio + 1 : 0;
+			}
+
+			long[] receitasPorPeriodo = porPeriodo ? new long[meses] : null;
+			long[] despesasPorPeriodo = porPeriodo ? new long[meses] : null;
+			int[] quantidadePorPeriodo = porPeriodo ? new int[meses] : null;
+			// receitas, despesas e saldo de cada (moeda, mês), ainda na moeda de origem
+			long[] estrangeiras = quantidadeMoedas > 0 ? new long[quantidadeMoedas * meses * 3] : null;
+
+			boolean filtraMes = criterio.filtraMes();
+			byte tipo = criterio.getTipo();
+			byte situacao = criterio.getStatus();
+			long idCategoria = criterio.getIdCategoria();
+			long minimo = criterio.getCentavosMinimo();
+			long maximo = criterio.getCentavosMaximo();
+
+			long quantidade = 0;
+			long receitas = 0;
+			long despesas = 0;
+			long saldo = 0;
+
+			for (int i = 0; i < tamanho; i++) {
+				int periodo = periodos[i];
+				if (periodo < inicio || periodo > fim
+						|| (filtraMes && !criterio.aceitarMes(periodo % 12 + 1))
+						|| (tipo != NULO && tipos[i] != tipo)
+						|| (situacao != NULO && status[i] != situacao)
+						|| (idCategoria != 0 && categorias[i] != idCategoria)
+						|| centavos[i] < minimo || centavos[i] > maximo
+						|| (descricaoAceita != null && (descricoes[i] < 0 || !descricaoAceita[descricoes[i]]))) {
+					continue;
+				}
+
+				long valorReceita = tipos[i] == receita ? centavos[i] : 0;
+				long valorDespesa = tipos[i] == despesa ? centavos[i] : 0;
+				long valorSaldo = valorReceita - valorDespesa
+						+ (tipos[i] == entrada ? centavos[i] : 0) - (tipos[i] == saida ? centavos[i] : 0);
+				quantidade++;
+
+				if (porPeriodo) {
+					quantidadePorPeriodo[periodo - inicio]++;
+				}
+
+				if (moedas[i] != NULO) {
+					int soma = (moedas[i] * meses + periodo - inicio) * 3;
+					estrangeiras[soma] += valorReceita;
+					estrangeiras[soma + 1] += valorDespesa;
+					estrangeiras[soma + 2] += valorSaldo;
+					continue;
+				}
+
+				receitas += valorReceita;
+				despesas += valorDespesa;
+				saldo += valorSaldo;
+
+				if (porPeriodo) {
+					receitasPorPeriodo[periodo - inicio] += valorReceita;
+					despesasPorPeriodo[periodo - inicio] += valorDespesa;
+				}
+			}
+
+			BigDecimal totalReceitas = valor(receitas);
+			BigDecimal totalDespesas = valor(despesas);
+			BigDecimal totalSaldo = valor(saldo);
+			BigDecimal[] receitasConvertidas = porPeriodo ? new BigDecimal[meses] : null;
+			BigDecimal[] despesasConvertidas = porPeriodo ? new BigDecimal[meses] : null;
+
+			for (int m = 0; m < quantidadeMoedas; m++) {
+				String moeda = moedasEstrangeiras.get(m);
+				for (int p = 0; p < meses; p++) {
+					int soma = (m * meses + p) * 3;
+					if (estrangeiras[soma] == 0 && estrangeiras[soma + 1] == 0 && estrangeiras[soma + 2] == 0) {
+						continue;
+					}
+
+					int periodo = inicio + p;
+					BigDecimal receitaConvertida = converter(conversor, estrangeiras[soma], moeda, periodo);
+					BigDecimal despesaConvertida = converter(conversor, estrangeiras[soma + 1], moeda, periodo);
+					totalReceitas = totalReceitas.add(receitaConvertida);
+					totalDespesas = totalDespesas.add(despesaConvertida);
+					totalSaldo = totalSaldo.add(converter(conversor, estrangeiras[soma + 2], moeda, periodo));
+
+					if (porPeriodo) {
+						receitasConvertidas[p] = receitasConvertidas[p] == null ? receitaConvertida : receitasConvertidas[p].add(receitaConvertida);
+						despesasConvertidas[p] = despesasConvertidas[p] == null ? despesaConvertida : despesasConvertidas[p].add(despesaConvertida);
+					}
+				}
+			}
+
+			List<TotalPeriodo> totais = null;
+			if (porPeriodo) {
+				totais = new ArrayList<>();
+				for (int p = 0; p < meses; p++) {
+					if (quantidadePorPeriodo[p] > 0) {
+						int periodo = inicio + p;
+						BigDecimal receitasDoMes = valor(receitasPorPeriodo[p]);
+						BigDecimal despesasDoMes = valor(despesasPorPeriodo[p]);
+						totais.add(new TotalPeriodo(periodo / 12, periodo % 12 + 1, quantidadePorPeriodo[p],
+								receitasConvertidas[p] == null ? receitasDoMes : receitasDoMes.add(receitasConvertidas[p]),
+								despesasConvertidas[p] == null ? despesasDoMes : despesasDoMes.add(despesasConvertidas[p])));
+					}
+				}
+			}
+
+			return new ResumoAnalitico(quantidade, totalReceitas, totalDespesas, totalSaldo, totais);
+		} finally {
+			trava.readLock().unlock();
+		}
+	}
+
+	private static BigDecimal converter(ConversorMoeda conversor, long centavos, String moeda, int periodo) {
+		return centavos == 0 ? BigDecimal.ZERO : conversor.converter(valor(centavos), moeda, periodo / 12, periodo % 12 + 1);
+	}
+
+	public static int periodo(int ano, int mes) {
+		return ano * 12 + mes - 1;
+	}
+
+	static long centavos(BigDecimal valor) {
+		return valor == null ? 0 : valor.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+	}
+
+	private static BigDecimal valor(long centavos) {
+		return BigDecimal.valueOf(centavos, 2);
+	}
+
+	private int codificar(String descricao) {
+		if (descricao == null) {
+			return -1;
+		}
+
+		Integer codigo = codigos.get(descricao);
+		if (codigo == null) {
+			codigo = termosMinusculos.size();
+			termosMinusculos.add(descricao.toLowerCase());
+			codigos.put(descricao, codigo);
+		}
+		return codigo;
+	}
+
+	private int codificarMoeda(String moeda) {
+		if (moeda == null || moeda.equals(moedaBase)) {
+			return NULO;
+		}
+
+		int codigo = moedasEstrangeiras.indexOf(moeda);
+		if (codigo < 0) {
+			codigo = moedasEstrangeiras.size();
+			moedasEstrangeiras.add(moeda);
+		}
+		return codigo;
+	}
+
+	private void garantirCapacidade(int minimo) {
+		if (minimo <= ids.length) {
+			return;
+		}
+
+		int capacidade = Math.max(minimo, ids.length * 2);
+		ids = Arrays.copyOf(ids, capacidade);
+		centavos = Arrays.copyOf(centavos, capacidade);
+		periodos = Arrays.copyOf(periodos, capacidade);
+		tipos = Arrays.copyOf(tipos, capacidade);
+		status = Arrays.copyOf(status, capacidade);
+		descricoes = Arrays.copyOf(descricoes, capacidade);
+		categorias = Arrays.copyOf(categorias, capacidade);
+		moedas = Arrays.copyOf(moedas, capacidade);
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.danielnobrega.minhasfinancas.service.analitico;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.danielnobrega.minhasfinancas.model.projection.ResumoSaldo;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Totais dos lançamentos que atendem a um filtro. {@code periodos} só vem preenchido quando
+ * a quebra por mês é pedida.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class ResumoAnalitico implements ResumoSaldo {
+
+	private final long quantidade;
+
+	private final BigDecimal receitas;
+
+	private final BigDecimal despesas;
+
+	private final BigDecimal saldo;
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private final List<TotalPeriodo> periodos;
+
+}
@@ -0,0 +1,22 @@
+package com.danielnobrega.minhasfinancas.service.analitico;
+
+import java.math.BigDecimal;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public final class TotalPeriodo {
+
+	private final Integer ano;
+
+	private final Integer mes;
+
+	private final int quantidade;
+
+	private final BigDecimal receitas;
+
+	private final BigDecimal despesas;
+
+}
@@ -0,0 +1,196 @@
+package com.danielnobrega.minhasfinancas.service.auditoria;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Categoria;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+
+/**
+ * Campos do lançamento guardados na auditoria. O código de cada campo é o que vai no log, por
+ * isso não pode mudar nem ser reaproveitado; campos novos recebem o próximo código livre.
+ */
+public enum CampoAuditado {
+
+	DESCRICAO(1, Formato.TEXTO, Lancamento::getDescricao, (l, v) -> l.setDescricao((String) v)),
+	ANO(2, Formato.INTEIRO, Lancamento::getAno, (l, v) -> l.setAno((Integer) v)),
+	MES(3, Formato.INTEIRO, Lancamento::getMes, (l, v) -> l.setMes((Integer) v)),
+	VALOR(4, Formato.DECIMAL, Lancamento::getValor, (l, v) -> l.setValor((BigDecimal) v)),
+	MOEDA(5, Formato.TEXTO, Lancamento::getMoeda, (l, v) -> l.setMoeda((String) v)),
+	TIPO(6, Formato.TIPO, Lancamento::getTipo, (l, v) -> l.setTipo((TipoLancamento) v)),
+	STATUS(7, Formato.STATUS, Lancamento::getStatus, (l, v) -> l.setStatus((StatusLancamento) v)),
+	DATA_CADASTRO(8, Formato.DATA, Lancamento::getDataCadastro, (l, v) -> l.setDataCadastro((LocalDate) v)),
+	USUARIO(9, Formato.LONGO,
+			l -> l.getUsuario() == null ? null : l.getUsuario().getId(),
+			(l, v) -> l.setUsuario(v == null ? null : Usuario.builder().id((Long) v).build())),
+	CATEGORIA(10, Formato.LONGO,
+			l -> l.getCategoria() == null ? null : l.getCategoria().getId(),
+			(l, v) -> l.setCategoria(v == null ? null : Categoria.builder().id((Long) v).build())),
+	CONTRAPARTIDA(11, Formato.LONGO, Lancamento::getIdContrapartida, (l, v) -> l.setIdContrapartida((Long) v)),
+	POSSIVEL_DUPLICATA(12, Formato.BOOLEANO, Lancamento::getPossivelDuplicata, (l, v) -> l.setPossivelDuplicata((Boolean) v));
+
+	private static final CampoAuditado[] POR_CODIGO = new CampoAuditado[64];
+
+	static {
+		for (CampoAuditado campo : values()) {
+			POR_CODIGO[campo.codigo] = campo;
+		}
+	}
+
+	private final int codigo;
+
+	private final Formato formato;
+
+	private final Function<Lancamento, Object> leitura;
+
+	private final BiConsumer<Lancamento, Object> escrita;
+
+	CampoAuditado(int codigo, Formato formato, Function<Lancamento, Object> leitura, BiConsumer<Lancamento, Object> escrita) {
+		this.codigo = codigo;
+		this.formato = formato;
+		this.leitura = leitura;
+		this.escrita = escrita;
+	}
+
+	public static CampoAuditado doCodigo(int codigo) {
+		CampoAuditado campo = codigo > 0 && codigo < POR_CODIGO.length ? POR_CODIGO[codigo] : null;
+		if (campo == null) {
+			throw new IllegalStateException("Campo de auditoria desconhecido: " + codigo);
+		}
+		return campo;
+	}
+
+	public static Lancamento montar(Long idLancamento, Map<CampoAuditado, Object> valores) {
+		Lancamento lancamento = Lancamento.builder().id(idLancamento).build();
+		valores.forEach( (campo, valor) -> campo.escrita.accept(lancamento, valor) );
+		return lancamento;
+	}
+
+	public int getCodigo() {
+		return codigo;
+	}
+
+	public Object ler(Lancamento lancamento) {
+		return leitura.apply(lancamento);
+	}
+
+	public boolean mudou(Lancamento anterior, Lancamento atual) {
+		Object antes = ler(anterior);
+		Object depois = ler(atual);
+
+		if (antes instanceof BigDecimal && depois instanceof BigDecimal) {
+			return ((BigDecimal) antes).compareTo((BigDecimal) depois) != 0;
+		}
+		return !Objects.equals(antes, depois);
+	}
+
+	void escrever(DataOutput saida, Object valor) throws IOException {
+		saida.writeBoolean(valor != null);
+		if (valor != null) {
+			formato.escrever(saida, valor);
+		}
+	}
+
+	Object lerValor(DataInput entrada) throws IOException {
+		return entrada.readBoolean() ? formato.ler(entrada) : null;
+	}
+
+	private enum Formato {
+
+		TEXTO {
+			void escrever(DataOutput saida, Object valor) throws IOException {
+				saida.writeUTF((String) valor);
+			}
+
+			Object ler(DataInput entrada) throws IOException {
+				return entrada.readUTF();
+			}
+		},
+		INTEIRO {
+			void escrever(DataOutput saida, Object valor) throws IOException {
+				saida.writeInt((Integer) valor);
+			}
+
+			Object ler(DataInput entrada) throws IOException {
+				return entrada.readInt();
+			}
+		},
+		LONGO {
+			void escrever(DataOutput saida, Object valor) throws IOException {
+				saida.writeLong((Long) valor);
+			}
+
+			Object ler(DataInput entrada) throws IOException {
+				return entrada.readLong();
+			}
+		},
+		DECIMAL {
+			void escrever(DataOutput saida, Object valor) throws IOException {
+				BigDecimal decimal = (BigDecimal) valor;
+				byte[] semEscala = decimal.unscaledValue().toByteArray();
+				saida.writeByte(decimal.scale());
+				saida.writeByte(semEscala.length);
+				saida.write(semEscala);
+			}
+
+			Object ler(DataInput entrada) throws IOException {
+				int escala = entrada.readByte();
+				byte[] semEscala = new byte[entrada.readUnsignedByte()];
+				entrada.readFully(semEscala);
+				return new BigDecimal(new BigInteger(semEscala), escala);
+			}
+		},
+		DATA {
+			void escrever(DataOutput saida, Object valor) throws IOException {
+				saida.writeInt((int) ((LocalDate) valor).toEpochDay());
+			}
+
+			Object ler(DataInput entrada) throws IOException {
+				return LocalDate.ofEpochDay(entrada.readInt());
+			}
+		},
+		BOOLEANO {
+			void escrever(DataOutput saida, Object valor) throws IOException {
+				saida.writeBoolean((Boolean) valor);
+			}
+
+			Object ler(DataInput entrada) throws IOException {
+				return entrada.readBoolean();
+			}
+		},
+		TIPO {
+			void escrever(DataOutput saida, Object valor) throws IOException {
+				saida.writeByte(((TipoLancamento) valor).ordinal());
+			}
+
+			Object ler(DataInput entrada) throws IOException {
+				return TipoLancamento.values()[entrada.readByte()];
+			}
+		},
+		STATUS {
+			void escrever(DataOutput saida, Object valor) throws IOException {
+				saida.writeByte(((StatusLancamento) valor).ordinal());
+			}
+
+			Object ler(DataInput entrada) throws IOException {
+				return StatusLancamento.values()[entrada.readByte()];
+			}
+		};
+
+		abstract void escrever(DataOutput saida, Object valor) throws IOException;
+
+		abstract Object ler(DataInput entrada) throws IOException;
+	}
+
+}
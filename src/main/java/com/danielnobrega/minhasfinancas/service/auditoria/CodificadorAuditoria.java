@@ -0,0 +1,83 @@
+package com.danielnobrega.minhasfinancas.service.auditoria;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.danielnobrega.minhasfinancas.enums.OperacaoAuditoria;
+
+/**
+ * Formato binário dos registros de um segmento de auditoria: versão do formato, quantidade de
+ * registros e, para cada um, momento em milissegundos UTC, operação, quantidade de campos e os
+ * pares código do campo e valor. O id do lançamento fica na linha do segmento, não no conteúdo.
+ */
+public final class CodificadorAuditoria {
+
+	private static final int VERSAO_FORMATO = 1;
+
+	private CodificadorAuditoria() {
+	}
+
+	public static byte[] codificar(List<RegistroAuditoria> registros) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + registros.size() * 32);
+
+		try (DataOutputStream saida = new DataOutputStream(bytes)) {
+			saida.writeByte(VERSAO_FORMATO);
+			saida.writeInt(registros.size());
+
+			for (RegistroAuditoria registro : registros) {
+				saida.writeLong(registro.getMomento().toInstant(ZoneOffset.UTC).toEpochMilli());
+				saida.writeByte(registro.getOperacao().ordinal());
+				saida.writeByte(registro.getCampos().size());
+
+				for (Map.Entry<CampoAuditado, Object> campo : registro.getCampos().entrySet()) {
+					saida.writeByte(campo.getKey().getCodigo());
+					campo.getKey().escrever(saida, campo.getValue());
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	public static List<RegistroAuditoria> decodificar(Long idLancamento, byte[] conteudo) {
+		try (DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(conteudo))) {
+			int versao = entrada.readByte();
+			if (versao != VERSAO_FORMATO) {
+				throw new IllegalStateException("Formato de auditoria desconhecido: " + versao);
+			}
+
+			int quantidade = entrada.readInt();
+			List<RegistroAuditoria> registros = new ArrayList<>(quantidade);
+
+			for (int i = 0; i < quantidade; i++) {
+				LocalDateTime momento = LocalDateTime.ofInstant(Instant.ofEpochMilli(entrada.readLong()), ZoneOffset.UTC);
+				OperacaoAuditoria operacao = OperacaoAuditoria.values()[entrada.readByte()];
+				int totalCampos = entrada.readByte();
+				Map<CampoAuditado, Object> campos = new EnumMap<>(CampoAuditado.class);
+
+				for (int c = 0; c < totalCampos; c++) {
+					CampoAuditado campo = CampoAuditado.doCodigo(entrada.readByte());
+					campos.put(campo, campo.lerValor(entrada));
+				}
+				registros.add(new RegistroAuditoria(idLancamento, momento, operacao, campos));
+			}
+			return registros;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
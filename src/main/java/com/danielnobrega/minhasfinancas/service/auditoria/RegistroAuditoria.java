@@ -0,0 +1,94 @@
+package com.danielnobrega.minhasfinancas.service.auditoria;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.danielnobrega.minhasfinancas.enums.OperacaoAuditoria;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Uma escrita de lançamento na auditoria. A inclusão e a base trazem todos os campos preenchidos,
+ * a alteração só os campos que mudaram (inclusive os que passaram a nulo) e a exclusão nenhum.
+ */
+@Getter
+@AllArgsConstructor
+public final class RegistroAuditoria {
+
+	private final Long idLancamento;
+
+	private final LocalDateTime momento;
+
+	private final OperacaoAuditoria operacao;
+
+	private final Map<CampoAuditado, Object> campos;
+
+	/**
+	 * Registro da escrita de {@code anterior} para {@code atual}, ou nulo se nenhum campo auditado
+	 * mudou.
+	 */
+	public static RegistroAuditoria de(Lancamento anterior, Lancamento atual, LocalDateTime momento) {
+		LocalDateTime emMilissegundos = momento.truncatedTo(ChronoUnit.MILLIS);
+		Map<CampoAuditado, Object> campos = new EnumMap<>(CampoAuditado.class);
+
+		if (atual == null) {
+			return new RegistroAuditoria(anterior.getId(), emMilissegundos, OperacaoAuditoria.EXCLUSAO, campos);
+		}
+
+		if (anterior == null) {
+			for (CampoAuditado campo : CampoAuditado.values()) {
+				if (campo.ler(atual) != null) {
+					campos.put(campo, campo.ler(atual));
+				}
+			}
+			return new RegistroAuditoria(atual.getId(), emMilissegundos, OperacaoAuditoria.INCLUSAO, campos);
+		}
+
+		for (CampoAuditado campo : CampoAuditado.values()) {
+			if (campo.mudou(anterior, atual)) {
+				campos.put(campo, campo.ler(atual));
+			}
+		}
+		return campos.isEmpty() ? null : new RegistroAuditoria(atual.getId(), emMilissegundos, OperacaoAuditoria.ALTERACAO, campos);
+	}
+
+	/**
+	 * Aplica os registros, já em ordem de momento, e devolve os campos do lançamento depois do
+	 * último deles, ou nulo se ele não existia. Um lançamento anterior à auditoria só tem os campos
+	 * alterados desde então.
+	 */
+	public static Map<CampoAuditado, Object> aplicar(List<RegistroAuditoria> registros) {
+		Map<CampoAuditado, Object> estado = null;
+
+		for (RegistroAuditoria registro : registros) {
+			switch (registro.operacao) {
+			case INCLUSAO:
+			case BASE:
+				estado = new EnumMap<>(CampoAuditado.class);
+				estado.putAll(registro.campos);
+				break;
+			case ALTERACAO:
+				if (estado == null) {
+					estado = new EnumMap<>(CampoAuditado.class);
+				}
+				estado.putAll(registro.campos);
+				break;
+			case EXCLUSAO:
+				estado = null;
+				break;
+			}
+		}
+		return estado;
+	}
+
+	public static RegistroAuditoria base(Long idLancamento, LocalDateTime momento, Map<CampoAuditado, Object> estado) {
+		return new RegistroAuditoria(idLancamento, momento, OperacaoAuditoria.BASE, Collections.unmodifiableMap(estado));
+	}
+
+}
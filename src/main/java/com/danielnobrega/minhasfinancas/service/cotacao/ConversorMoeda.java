@@ -0,0 +1,17 @@
+package com.danielnobrega.minhasfinancas.service.cotacao;
+
+import java.math.BigDecimal;
+
+/**
+ * Converte valores para a moeda base de um usuário com um mesmo retrato das cotações, obtido
+ * uma vez por agregação.
+ */
+@FunctionalInterface
+public interface ConversorMoeda {
+
+	/**
+	 * Converte pela cotação vigente no último dia do mês de competência, arredondando em centavos.
+	 */
+	BigDecimal converter(BigDecimal valor, String moeda, int ano, int mes);
+
+}
@@ -0,0 +1,23 @@
+package com.danielnobrega.minhasfinancas.service.cotacao;
+
+import java.math.BigDecimal;
+
+import com.danielnobrega.minhasfinancas.model.projection.ResumoSaldo;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Resumo do saldo com todas as parciais já convertidas para a moeda base do usuário.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class SaldoConsolidado implements ResumoSaldo {
+
+	private final BigDecimal receitas;
+
+	private final BigDecimal despesas;
+
+	private final BigDecimal saldo;
+
+}
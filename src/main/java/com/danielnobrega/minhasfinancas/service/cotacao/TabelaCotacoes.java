@@ -0,0 +1,127 @@
+package com.danielnobrega.minhasfinancas.service.cotacao;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.danielnobrega.minhasfinancas.model.entity.Cotacao;
+
+/**
+ * Retrato imutável das cotações carregadas do banco. Cada par de moedas guarda as datas (em dias
+ * desde a época) e as taxas em vetores ordenados, e a taxa de uma data é a da última cotação do
+ * par até ela, achada por busca binária. Sem cotação direta, usa o inverso da do par contrário.
+ *
+ * Nunca é alterado depois de construído: a recarga monta um retrato novo e troca a referência,
+ * de modo que uma agregação que pegou o retrato no início usa as mesmas taxas até o fim.
+ */
+public final class TabelaCotacoes {
+
+	public static final TabelaCotacoes VAZIA = new TabelaCotacoes(0, Collections.emptyList());
+
+	private final long versao;
+
+	private final Map<String, Serie> series;
+
+	/**
+	 * @param cotacoes ordenadas por moeda de origem, moeda de destino e data
+	 */
+	public TabelaCotacoes(long versao, List<Cotacao> cotacoes) {
+		this.versao = versao;
+
+		Map<String, Serie> series = new HashMap<>();
+		int inicio = 0;
+		for (int i = 1; i <= cotacoes.size(); i++) {
+			if (i == cotacoes.size() || !par(cotacoes.get(i)).equals(par(cotacoes.get(inicio)))) {
+				series.put(par(cotacoes.get(inicio)), new Serie(cotacoes.subList(inicio, i)));
+				inicio = i;
+			}
+		}
+		this.series = series;
+	}
+
+	public long getVersao() {
+		return versao;
+	}
+
+	public int tamanho() {
+		int tamanho = 0;
+		for (Serie serie : series.values()) {
+			tamanho += serie.dias.length;
+		}
+		return tamanho;
+	}
+
+	/**
+	 * Taxa que converte {@code origem} em {@code destino} na data, ou nulo se não houver cotação
+	 * do par, direta ou inversa, até ela.
+	 */
+	public BigDecimal taxa(String origem, String destino, LocalDate data) {
+		if (origem.equals(destino)) {
+			return BigDecimal.ONE;
+		}
+
+		long dia = data.toEpochDay();
+		Serie direta = series.get(par(origem, destino));
+		BigDecimal taxa = direta == null ? null : direta.taxaEm(dia);
+		if (taxa != null) {
+			return taxa;
+		}
+
+		Serie inversa = series.get(par(destino, origem));
+		taxa = inversa == null ? null : inversa.taxaEm(dia);
+		return taxa == null || taxa.signum() == 0 ? null : BigDecimal.ONE.divide(taxa, MathContext.DECIMAL64);
+	}
+
+	/**
+	 * Código de moeda no formato da ISO 4217: três letras maiúsculas.
+	 */
+	public static boolean codigoValido(String moeda) {
+		if (moeda == null || moeda.length() != 3) {
+			return false;
+		}
+
+		for (int i = 0; i < 3; i++) {
+			if (moeda.charAt(i) < 'A' || moeda.charAt(i) > 'Z') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String par(Cotacao cotacao) {
+		return par(cotacao.getMoedaOrigem(), cotacao.getMoedaDestino());
+	}
+
+	private static String par(String origem, String destino) {
+		return origem + '/' + destino;
+	}
+
+	private static final class Serie {
+
+		private final long[] dias;
+
+		private final BigDecimal[] taxas;
+
+		Serie(List<Cotacao> cotacoes) {
+			dias = new long[cotacoes.size()];
+			taxas = new BigDecimal[cotacoes.size()];
+			for (int i = 0; i < cotacoes.size(); i++) {
+				dias[i] = cotacoes.get(i).getData().toEpochDay();
+				taxas[i] = cotacoes.get(i).getTaxa();
+			}
+		}
+
+		BigDecimal taxaEm(long dia) {
+			int i = Arrays.binarySearch(dias, dia);
+			int ultima = i >= 0 ? i : -i - 2;
+			return ultima < 0 ? null : taxas[ultima];
+		}
+
+	}
+
+}
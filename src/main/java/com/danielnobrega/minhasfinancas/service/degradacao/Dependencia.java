@@ -0,0 +1,142 @@
+package com.danielnobrega.minhasfinancas.service.degradacao;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import com.danielnobrega.minhasfinancas.exceptions.BancoIndisponivelException;
+import com.danielnobrega.minhasfinancas.sharding.ShardContexto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Chamadas ao banco feitas por um repositório. Cada chamada roda num pool próprio da dependência,
+ * para que a thread da requisição possa desistir dela ao fim de {@code timeout} milissegundos; o
+ * pool não tem fila, então com todas as threads presas no banco a chamada é recusada na hora.
+ * Só timeouts e erros de acesso a dados (DataAccessException, ou a falta de conexão ao abrir a
+ * transação) contam como falha no disjuntor. Qualquer outra exceção da chamada passa adiante como
+ * veio e conta como sucesso, porque o banco respondeu a tempo. Recusas e interrupções não dizem
+ * nada sobre o banco e não contam, mas descartam a chamada no disjuntor para que uma sondagem
+ * assim não o deixe meio aberto para sempre.
+ */
+public final class Dependencia {
+
+	private final String nome;
+
+	private final long timeout;
+
+	private final Disjuntor disjuntor;
+
+	private final ThreadPoolExecutor executor;
+
+	private final Counter sucessos;
+
+	private final Counter falhas;
+
+	private final Counter timeouts;
+
+	private final Counter rejeitadas;
+
+	private final Counter interrompidas;
+
+	private final Counter bloqueadas;
+
+	public Dependencia(String nome, int threads, long timeout, Disjuntor disjuntor, MeterRegistry meterRegistry) {
+		this.nome = nome;
+		this.timeout = timeout;
+		this.disjuntor = disjuntor;
+
+		AtomicInteger sequencia = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), tarefa -> {
+			Thread thread = new Thread(tarefa, "degradacao-" + nome + "-" + sequencia.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor.allowCoreThreadTimeOut(true);
+
+		this.sucessos = contador(meterRegistry, "sucesso");
+		this.falhas = contador(meterRegistry, "falha");
+		this.timeouts = contador(meterRegistry, "timeout");
+		this.rejeitadas = contador(meterRegistry, "rejeitada");
+		this.interrompidas = contador(meterRegistry, "interrompida");
+		this.bloqueadas = contador(meterRegistry, "bloqueada");
+		meterRegistry.gauge("minhasfinancas.degradacao.disjuntor", Tags.of("dependencia", nome), disjuntor,
+				d -> d.getEstado().ordinal());
+	}
+
+	public <T> T executar(Supplier<T> chamada) {
+		if (!disjuntor.permitir()) {
+			bloqueadas.increment();
+			throw new BancoIndisponivelException("Banco indisponível para " + nome + ": disjuntor aberto");
+		}
+
+		String shard = ShardContexto.obter();
+		Future<T> futuro;
+		try {
+			futuro = executor.submit(() -> shard == null ? chamada.get() : ShardContexto.executar(shard, chamada));
+		} catch (RejectedExecutionException e) {
+			disjuntor.descartar();
+			rejeitadas.increment();
+			throw new BancoIndisponivelException("Banco indisponível para " + nome + ": todas as conexões ocupadas", e);
+		}
+
+		try {
+			T resultado = futuro.get(timeout, TimeUnit.MILLISECONDS);
+			disjuntor.sucesso();
+			sucessos.increment();
+			return resultado;
+		} catch (TimeoutException e) {
+			futuro.cancel(true);
+			disjuntor.falha();
+			timeouts.increment();
+			throw new BancoIndisponivelException("Banco não respondeu em " + timeout + " ms para " + nome, e);
+		} catch (InterruptedException e) {
+			futuro.cancel(true);
+			disjuntor.descartar();
+			interrompidas.increment();
+			Thread.currentThread().interrupt();
+			throw new BancoIndisponivelException("Consulta a " + nome + " interrompida", e);
+		} catch (ExecutionException e) {
+			Throwable causa = e.getCause();
+			if (causa instanceof DataAccessException || causa instanceof CannotCreateTransactionException) {
+				disjuntor.falha();
+				falhas.increment();
+				throw new BancoIndisponivelException("Falha no banco para " + nome + ": " + causa.getMessage(), causa);
+			}
+			disjuntor.sucesso();
+			sucessos.increment();
+			if (causa instanceof RuntimeException) {
+				throw (RuntimeException) causa;
+			}
+			if (causa instanceof Error) {
+				throw (Error) causa;
+			}
+			throw new UndeclaredThrowableException(causa);
+		}
+	}
+
+	public Disjuntor.Estado getEstado() {
+		return disjuntor.getEstado();
+	}
+
+	public void encerrar() {
+		executor.shutdownNow();
+	}
+
+	private Counter contador(MeterRegistry meterRegistry, String resultado) {
+		return meterRegistry.counter("minhasfinancas.degradacao.chamadas", "dependencia", nome, "resultado", resultado);
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.danielnobrega.minhasfinancas.service.degradacao;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Disjuntor de uma dependência. Fechado, deixa passar tudo e conta as falhas seguidas; ao chegar
+ * em {@code limiteFalhas} abre e recusa as chamadas por {@code tempoAberto} milissegundos. Depois
+ * disso fica meio aberto e libera uma única chamada de sondagem: se ela der certo o disjuntor
+ * fecha, se falhar abre de novo pelo mesmo tempo.
+ */
+public final class Disjuntor {
+
+	public enum Estado { FECHADO, MEIO_ABERTO, ABERTO }
+
+	private final int limiteFalhas;
+
+	private final long tempoAberto;
+
+	private final LongSupplier relogio;
+
+	private Estado estado = Estado.FECHADO;
+
+	private int falhasSeguidas;
+
+	private long abertoAte;
+
+	public Disjuntor(int limiteFalhas, long tempoAberto, LongSupplier relogio) {
+		this.limiteFalhas = limiteFalhas;
+		this.tempoAberto = tempoAberto;
+		this.relogio = relogio;
+	}
+
+	public synchronized boolean permitir() {
+		if (estado == Estado.FECHADO) {
+			return true;
+		}
+
+		if (estado == Estado.ABERTO && relogio.getAsLong() >= abertoAte) {
+			estado = Estado.MEIO_ABERTO;
+			return true;
+		}
+		return false;
+	}
+
+	public synchronized void sucesso() {
+		estado = Estado.FECHADO;
+		falhasSeguidas = 0;
+	}
+
+	public synchronized void falha() {
+		if (estado == Estado.MEIO_ABERTO || ++falhasSeguidas >= limiteFalhas) {
+			estado = Estado.ABERTO;
+			abertoAte = relogio.getAsLong() + tempoAberto;
+			falhasSeguidas = 0;
+		}
+	}
+
+	/**
+	 * Encerra sem resultado uma chamada liberada, quando ela não chegou a mostrar se o banco
+	 * responde: uma sondagem assim devolve a vez para a próxima chamada em vez de prender o
+	 * disjuntor meio aberto.
+	 */
+	public synchronized void descartar() {
+		if (estado == Estado.MEIO_ABERTO) {
+			estado = Estado.ABERTO;
+			abertoAte = relogio.getAsLong();
+		}
+	}
+
+	public synchronized Estado getEstado() {
+		return estado;
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.danielnobrega.minhasfinancas.service.degradacao;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Valor de uma consulta protegida. Quando o banco não pôde responder, é o último valor obtido
+ * para a mesma consulta, com a idade dele em segundos.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Resultado<T> {
+
+	private final T valor;
+
+	private final boolean obsoleto;
+
+	private final long idadeSegundos;
+
+	public static <T> Resultado<T> atual(T valor) {
+		return new Resultado<>(valor, false, 0);
+	}
+
+	public static <T> Resultado<T> obsoleto(T valor, long idadeSegundos) {
+		return new Resultado<>(valor, true, idadeSegundos);
+	}
+
+}
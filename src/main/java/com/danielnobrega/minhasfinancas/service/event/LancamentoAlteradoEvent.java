@@ -0,0 +1,28 @@
+package com.danielnobrega.minhasfinancas.service.event;
+
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Publicado pelo LancamentoService a cada inclusão, alteração ou exclusão, dentro da
+ * transação da escrita. {@code anterior} é nulo nas inclusões e {@code atual} nas exclusões.
+ */
+@Getter
+@RequiredArgsConstructor
+public class LancamentoAlteradoEvent {
+
+	private final Lancamento anterior;
+	
+	private final Lancamento atual;
+	
+	public boolean isInclusao() {
+		return anterior == null;
+	}
+	
+	public boolean isExclusao() {
+		return atual == null;
+	}
+
+}
@@ -0,0 +1,250 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+import com.danielnobrega.minhasfinancas.service.AnaliticoService;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.analitico.CriterioColunar;
+import com.danielnobrega.minhasfinancas.service.analitico.LedgerColunar;
+import com.danielnobrega.minhasfinancas.service.analitico.ResumoAnalitico;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Mantém em memória um LedgerColunar por usuário ativo e responde saldo e resumos percorrendo
+ * os vetores, sem hidratar entidades. O ledger é carregado na primeira consulta do usuário por
+ * uma leitura JDBC das colunas necessárias e, depois, acompanha cada escrita confirmada pelo
+ * LancamentoAlteradoEvent.
+ *
+ * Uma escrita confirmada durante a carga invalida o resultado dela: a consulta que disparou a
+ * carga ainda é respondida com ele, mas o ledger não é guardado e a próxima consulta carrega de
+ * novo. A memória é limitada pelo total de linhas em {@code max-linhas}; acima dele os usuários
+ * consultados há mais tempo são descartados.
+ */
+@Service
+@ConditionalOnProperty(name = "minhasfinancas.analitico.habilitado", havingValue = "true")
+public class AnaliticoServiceImpl implements AnaliticoService {
+
+	private static final String CONSULTA =
+			  " select l.id, l.descricao, l.ano, l.mes, l.valor, l.moeda, l.tipo, l.status, l.id_categoria "
+			+ " from financas.lancamento l "
+			+ " where l.id_usuario = ? and l.data_exclusao is null ";
+
+	private static final String CONTAGEM =
+			  " select u.moeda_base, count(l.id) as linhas from financas.usuario u "
+			+ " left join financas.lancamento l on l.id_usuario = u.id and l.data_exclusao is null "
+			+ " where u.id = ? "
+			+ " group by u.moeda_base ";
+
+	private JdbcTemplate jdbcTemplate;
+
+	private CotacaoService cotacaoService;
+
+	private long maxLinhas;
+
+	private final LinkedHashMap<Long, LedgerColunar> ledgers = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final Map<Long, List<Carga>> cargas = new HashMap<>();
+
+	private final Counter carregados;
+
+	private final Counter descartados;
+
+	private final Counter invalidados;
+
+	public AnaliticoServiceImpl(DataSource dataSource, CotacaoService cotacaoService, MeterRegistry meterRegistry,
+			@Value("${minhasfinancas.analitico.max-linhas:1000000}") long maxLinhas,
+			@Value("${minhasfinancas.analitico.fetch-size:1000}") int fetchSize) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.jdbcTemplate.setFetchSize(fetchSize);
+		this.cotacaoService = cotacaoService;
+		this.maxLinhas = maxLinhas;
+		this.carregados = meterRegistry.counter("minhasfinancas.analitico.ledgers", "resultado", "carregado");
+		this.descartados = meterRegistry.counter("minhasfinancas.analitico.ledgers", "resultado", "descartado");
+		this.invalidados = meterRegistry.counter("minhasfinancas.analitico.ledgers", "resultado", "invalidado");
+	}
+
+	@Override
+	public ResumoAnalitico resumir(FiltroLancamento filtro, boolean porPeriodo) {
+		Objects.requireNonNull(filtro.getIdUsuario());
+		LedgerColunar ledger = obterLedger(filtro.getIdUsuario());
+		return ledger.resumir(CriterioColunar.de(filtro), porPeriodo, cotacaoService.conversorPara(ledger.getMoedaBase()));
+	}
+
+	@Override
+	public ResumoAnalitico obterResumoSaldo(Long idUsuario, boolean somenteEfetivados, int ano, int mes) {
+		LedgerColunar ledger = obterLedger(idUsuario);
+		return ledger.resumir(CriterioColunar.saldoAte(somenteEfetivados, ano, mes), false,
+				cotacaoService.conversorPara(ledger.getMoedaBase()));
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		Lancamento anterior = evento.getAnterior();
+		Lancamento atual = evento.getAtual();
+		Long usuarioAnterior = idUsuario(anterior);
+		Long usuarioAtual = idUsuario(atual);
+
+		if (anterior != null && anterior.getId() != null && !Objects.equals(usuarioAnterior, usuarioAtual)) {
+			LedgerColunar ledger = ledgerEmUso(usuarioAnterior);
+			if (ledger != null) {
+				ledger.remover(anterior.getId());
+			}
+		}
+
+		if (atual != null && atual.getId() != null) {
+			LedgerColunar ledger = ledgerEmUso(usuarioAtual);
+			if (ledger != null) {
+				gravar(ledger, atual);
+			}
+		}
+	}
+
+	private LedgerColunar obterLedger(Long idUsuario) {
+		Carga carga = new Carga();
+
+		synchronized (ledgers) {
+			LedgerColunar ledger = ledgers.get(idUsuario);
+			if (ledger != null) {
+				return ledger;
+			}
+			cargas.computeIfAbsent(idUsuario, id -> new ArrayList<>(1)).add(carga);
+		}
+
+		LedgerColunar ledger;
+		try {
+			ledger = carregar(idUsuario);
+		} finally {
+			synchronized (ledgers) {
+				List<Carga> doUsuario = cargas.get(idUsuario);
+				doUsuario.remove(carga);
+				if (doUsuario.isEmpty()) {
+					cargas.remove(idUsuario);
+				}
+			}
+		}
+
+		synchronized (ledgers) {
+			if (carga.invalidada) {
+				invalidados.increment();
+				return ledger;
+			}
+
+			LedgerColunar existente = ledgers.get(idUsuario);
+			if (existente != null) {
+				return existente;
+			}
+
+			ledgers.put(idUsuario, ledger);
+			carregados.increment();
+			descartarExcedentes();
+		}
+		return ledger;
+	}
+
+	private LedgerColunar carregar(Long idUsuario) {
+		List<LedgerColunar> dimensionado = jdbcTemplate.query(CONTAGEM,
+				(rs, linha) -> new LedgerColunar(rs.getInt("linhas"), 
+						rs.getString("moeda_base") == null ? CotacaoService.MOEDA_PADRAO : rs.getString("moeda_base")), idUsuario);
+		LedgerColunar ledger = dimensionado.isEmpty() ? new LedgerColunar(0, CotacaoService.MOEDA_PADRAO) : dimensionado.get(0);
+
+		jdbcTemplate.query(CONSULTA, rs -> {
+			long categoria = rs.getLong("id_categoria");
+			Long idCategoria = rs.wasNull() ? null : categoria;
+			ledger.gravar(
+					rs.getLong("id"),
+					rs.getBigDecimal("valor"),
+					rs.getString("moeda"),
+					rs.getInt("ano"),
+					rs.getInt("mes"),
+					enumeracao(TipoLancamento.class, rs.getString("tipo")),
+					enumeracao(StatusLancamento.class, rs.getString("status")),
+					rs.getString("descricao"),
+					idCategoria);
+		}, idUsuario);
+
+		return ledger;
+	}
+
+	/**
+	 * Devolve o ledger do usuário, se estiver carregado, e invalida as cargas em andamento dele.
+	 */
+	private LedgerColunar ledgerEmUso(Long idUsuario) {
+		if (idUsuario == null) {
+			return null;
+		}
+
+		synchronized (ledgers) {
+			List<Carga> doUsuario = cargas.get(idUsuario);
+			if (doUsuario != null) {
+				for (Carga carga : doUsuario) {
+					carga.invalidada = true;
+				}
+			}
+			return ledgers.get(idUsuario);
+		}
+	}
+
+	private void descartarExcedentes() {
+		long total = 0;
+		for (LedgerColunar ledger : ledgers.values()) {
+			total += ledger.tamanho();
+		}
+
+		Iterator<LedgerColunar> maisAntigos = ledgers.values().iterator();
+		while (total > maxLinhas && ledgers.size() > 1 && maisAntigos.hasNext()) {
+			total -= maisAntigos.next().tamanho();
+			maisAntigos.remove();
+			descartados.increment();
+		}
+	}
+
+	private void gravar(LedgerColunar ledger, Lancamento lancamento) {
+		ledger.gravar(
+				lancamento.getId(),
+				lancamento.getValor() == null ? BigDecimal.ZERO : lancamento.getValor(),
+				lancamento.getMoeda(),
+				lancamento.getAno(),
+				lancamento.getMes(),
+				lancamento.getTipo(),
+				lancamento.getStatus(),
+				lancamento.getDescricao(),
+				lancamento.getCategoria() == null ? null : lancamento.getCategoria().getId());
+	}
+
+	private Long idUsuario(Lancamento lancamento) {
+		return lancamento == null || lancamento.getUsuario() == null ? null : lancamento.getUsuario().getId();
+	}
+
+	private static <E extends Enum<E>> E enumeracao(Class<E> tipo, String nome) {
+		return nome == null ? null : Enum.valueOf(tipo, nome);
+	}
+
+	private static final class Carga {
+
+		private boolean invalidada;
+
+	}
+
+}
@@ -0,0 +1,276 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.ArquivoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Categoria;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.ArquivoLancamentoRepository;
+import com.danielnobrega.minhasfinancas.service.ArquivamentoService;
+import com.danielnobrega.minhasfinancas.service.agendamento.ExecucaoExclusiva;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Move em lotes os lançamentos excluídos há mais de {@code retencaoDias} para
+ * lancamento_arquivo. Cada lote gera um registro por usuário com as linhas serializadas
+ * em formato binário e compactadas com gzip; as linhas saem da tabela quente na mesma transação.
+ * A execução agendada roda em uma única instância.
+ *
+ * Tipo e status são gravados pelo nome, para que o arquivo continue legível se as enumerações
+ * ganharem ou reordenarem constantes. A versão 1 do formato, que gravava o ordinal e não tinha
+ * moeda nem contrapartida, ainda é lida.
+ */
+@Slf4j
+@Service
+public class ArquivamentoServiceImpl implements ArquivamentoService {
+	
+	private static final int VERSAO_FORMATO = 2;
+	
+	private static final int VERSAO_ORDINAIS = 1;
+	
+	private static final String CONSULTA_EXCLUIDOS = 
+			  " select l.id, l.id_usuario, l.descricao, l.ano, l.mes, l.valor, l.moeda, l.tipo, l.status, "
+			+ "        l.data_cadastro, l.id_categoria, l.id_contrapartida, l.data_exclusao "
+			+ " from financas.lancamento l "
+			+ " where l.data_exclusao < ? "
+			+ " order by l.id_usuario, l.id ";
+	
+	private static final String REMOVER_LANCAMENTO = " delete from financas.lancamento where id = ? ";
+	
+	private ArquivoLancamentoRepository repository;
+	
+	private JdbcTemplate jdbcTemplate;
+	
+	private TransactionTemplate transactionTemplate;
+	
+	private int retencaoDias;
+	
+	private ExecucaoExclusiva execucaoExclusiva;
+	
+	private Duration duracaoMaxima;
+	
+	public ArquivamentoServiceImpl(ArquivoLancamentoRepository repository, DataSource dataSource, 
+			PlatformTransactionManager transactionManager, ExecucaoExclusiva execucaoExclusiva,
+			@Value("${minhasfinancas.arquivamento.retencao-dias:30}") int retencaoDias,
+			@Value("${minhasfinancas.arquivamento.tamanho-lote:1000}") int tamanhoLote,
+			@Value("${minhasfinancas.arquivamento.duracao-maxima-minutos:60}") long duracaoMaximaMinutos) {
+		this.repository = repository;
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.jdbcTemplate.setMaxRows(tamanhoLote);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.retencaoDias = retencaoDias;
+		this.execucaoExclusiva = execucaoExclusiva;
+		this.duracaoMaxima = Duration.ofMinutes(duracaoMaximaMinutos);
+	}
+	
+	@Scheduled(cron = "${minhasfinancas.arquivamento.cron:0 30 2 * * *}")
+	public void arquivarAgendado() {
+		execucaoExclusiva.executar("arquivamento-lancamentos", duracaoMaxima, this::arquivar);
+	}
+
+	@Override
+	public int arquivar() {
+		Timestamp limite = Timestamp.valueOf(LocalDateTime.now().minusDays(retencaoDias));
+		int total = 0;
+		int lote;
+		
+		do {
+			lote = transactionTemplate.execute( status -> arquivarLote(limite) );
+			total += lote;
+		} while (lote == jdbcTemplate.getMaxRows());
+		
+		if (total > 0) {
+			log.info("{} lançamentos excluídos arquivados", total);
+		}
+		return total;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Lancamento> obterArquivados(Long idUsuario) {
+		List<Lancamento> lancamentos = new ArrayList<>();
+		
+		for (ArquivoLancamento arquivo : repository.findByIdUsuarioOrderById(idUsuario)) {
+			lancamentos.addAll(descompactar(arquivo));
+		}
+		return lancamentos;
+	}
+	
+	private int arquivarLote(Timestamp limite) {
+		List<Lancamento> lote = jdbcTemplate.query(CONSULTA_EXCLUIDOS, (rs, linha) -> ler(rs), limite);
+		
+		if (lote.isEmpty()) {
+			return 0;
+		}
+		
+		Map<Long, List<Lancamento>> porUsuario = lote.stream()
+				.collect(Collectors.groupingBy( l -> l.getUsuario().getId(), LinkedHashMap::new, Collectors.toList() ));
+		LocalDateTime agora = LocalDateTime.now();
+		
+		porUsuario.forEach( (idUsuario, lancamentos) -> repository.save(ArquivoLancamento.builder()
+				.idUsuario(idUsuario)
+				.quantidade(lancamentos.size())
+				.primeiroIdLancamento(lancamentos.get(0).getId())
+				.ultimoIdLancamento(lancamentos.get(lancamentos.size() - 1).getId())
+				.dataArquivamento(agora)
+				.conteudo(compactar(lancamentos))
+				.build()) );
+		repository.flush();
+		
+		jdbcTemplate.batchUpdate(REMOVER_LANCAMENTO, lote.stream()
+				.map( l -> new Object[] { l.getId() } )
+				.collect(Collectors.toList()));
+		
+		return lote.size();
+	}
+	
+	private Lancamento ler(ResultSet rs) throws SQLException {
+		long idCategoria = rs.getLong("id_categoria");
+		boolean semCategoria = rs.wasNull();
+		String status = rs.getString("status");
+		
+		return Lancamento.builder()
+				.id(rs.getLong("id"))
+				.usuario(Usuario.builder().id(rs.getLong("id_usuario")).build())
+				.descricao(rs.getString("descricao"))
+				.ano(rs.getInt("ano"))
+				.mes(rs.getInt("mes"))
+				.valor(rs.getBigDecimal("valor"))
+				.moeda(rs.getString("moeda"))
+				.tipo(TipoLancamento.valueOf(rs.getString("tipo")))
+				.status(status == null ? null : StatusLancamento.valueOf(status))
+				.dataCadastro(rs.getObject("data_cadastro", LocalDate.class))
+				.categoria(semCategoria ? null : Categoria.builder().id(idCategoria).build())
+				.idContrapartida(rs.getObject("id_contrapartida") == null ? null : rs.getLong("id_contrapartida"))
+				.dataExclusao(rs.getTimestamp("data_exclusao").toLocalDateTime())
+				.build();
+	}
+	
+	private byte[] compactar(List<Lancamento> lancamentos) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		
+		try (DataOutputStream saida = new DataOutputStream(new GZIPOutputStream(bytes))) {
+			saida.writeByte(VERSAO_FORMATO);
+			saida.writeInt(lancamentos.size());
+			
+			for (Lancamento lancamento : lancamentos) {
+				saida.writeLong(lancamento.getId());
+				escreverTexto(saida, lancamento.getDescricao());
+				saida.writeShort(lancamento.getAno());
+				saida.writeByte(lancamento.getMes());
+				escreverTexto(saida, lancamento.getValor().toPlainString());
+				escreverTexto(saida, lancamento.getMoeda());
+				escreverTexto(saida, lancamento.getTipo().name());
+				escreverTexto(saida, lancamento.getStatus() == null ? null : lancamento.getStatus().name());
+				saida.writeLong(lancamento.getDataCadastro() == null ? Long.MIN_VALUE : lancamento.getDataCadastro().toEpochDay());
+				saida.writeLong(lancamento.getCategoria() == null ? -1 : lancamento.getCategoria().getId());
+				saida.writeLong(lancamento.getIdContrapartida() == null ? -1 : lancamento.getIdContrapartida());
+				saida.writeLong(lancamento.getDataExclusao().toInstant(ZoneOffset.UTC).toEpochMilli());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		return bytes.toByteArray();
+	}
+	
+	private List<Lancamento> descompactar(ArquivoLancamento arquivo) {
+		Usuario usuario = Usuario.builder().id(arquivo.getIdUsuario()).build();
+		
+		try (DataInputStream entrada = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(arquivo.getConteudo())))) {
+			int versao = entrada.readByte();
+			if (versao != VERSAO_FORMATO && versao != VERSAO_ORDINAIS) {
+				throw new IllegalStateException("Formato de arquivo desconhecido: " + versao);
+			}
+			
+			int quantidade = entrada.readInt();
+			List<Lancamento> lancamentos = new ArrayList<>(quantidade);
+			
+			for (int i = 0; i < quantidade; i++) {
+				Lancamento lancamento = Lancamento.builder()
+						.id(entrada.readLong())
+						.usuario(usuario)
+						.descricao(lerTexto(entrada))
+						.ano((int) entrada.readShort())
+						.mes((int) entrada.readByte())
+						.valor(new BigDecimal(lerTexto(entrada)))
+						.build();
+				
+				if (versao == VERSAO_ORDINAIS) {
+					lancamento.setTipo(TipoLancamento.values()[entrada.readByte()]);
+					int status = entrada.readByte();
+					lancamento.setStatus(status < 0 ? null : StatusLancamento.values()[status]);
+				} else {
+					lancamento.setMoeda(lerTexto(entrada));
+					lancamento.setTipo(TipoLancamento.valueOf(lerTexto(entrada)));
+					String status = lerTexto(entrada);
+					lancamento.setStatus(status == null ? null : StatusLancamento.valueOf(status));
+				}
+				
+				long dataCadastro = entrada.readLong();
+				lancamento.setDataCadastro(dataCadastro == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(dataCadastro));
+				
+				long idCategoria = entrada.readLong();
+				lancamento.setCategoria(idCategoria < 0 ? null : Categoria.builder().id(idCategoria).build());
+				
+				if (versao != VERSAO_ORDINAIS) {
+					long idContrapartida = entrada.readLong();
+					lancamento.setIdContrapartida(idContrapartida < 0 ? null : idContrapartida);
+				}
+				
+				lancamento.setDataExclusao(LocalDateTime.ofInstant(Instant.ofEpochMilli(entrada.readLong()), ZoneOffset.UTC));
+				lancamentos.add(lancamento);
+			}
+			return lancamentos;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+		saida.writeBoolean(texto != null);
+		if (texto != null) {
+			saida.writeUTF(texto);
+		}
+	}
+	
+	private String lerTexto(DataInputStream entrada) throws IOException {
+		return entrada.readBoolean() ? entrada.readUTF() : null;
+	}
+
+}
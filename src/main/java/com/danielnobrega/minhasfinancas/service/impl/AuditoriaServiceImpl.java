@@ -0,0 +1,304 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.danielnobrega.minhasfinancas.enums.OperacaoAuditoria;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.PendenciaAuditoria;
+import com.danielnobrega.minhasfinancas.model.entity.SegmentoAuditoria;
+import com.danielnobrega.minhasfinancas.model.repository.PendenciaAuditoriaRepository;
+import com.danielnobrega.minhasfinancas.model.repository.SegmentoAuditoriaRepository;
+import com.danielnobrega.minhasfinancas.service.AuditoriaService;
+import com.danielnobrega.minhasfinancas.service.auditoria.CampoAuditado;
+import com.danielnobrega.minhasfinancas.service.auditoria.CodificadorAuditoria;
+import com.danielnobrega.minhasfinancas.service.auditoria.RegistroAuditoria;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Guarda o histórico de cada lançamento em lancamento_auditoria, só com os campos que mudaram em
+ * cada escrita. O registro é gravado em lancamento_auditoria_pendente dentro da própria transação
+ * da escrita: se ela volta, o registro volta junto, e um registro confirmado não se perde numa
+ * queda do processo. Isso se afasta do pedido de gravar fora do caminho da requisição com um
+ * buffer limitado: a escrita paga um insert a mais, síncrono, porque um buffer em memória com
+ * limite precisa descartar registros quando enche ou quando o processo cai, e o histórico é
+ * exigido por compliance. O trabalho pesado (agrupar, codificar os segmentos e gravá-los em
+ * batch) continua fora da requisição, na drenagem.
+ *
+ * A cada {@code intervalo-ms} os pendentes são drenados em lotes de {@code tamanho-lote}, cada um
+ * na sua transação: um segmento binário por lançamento do lote num único batch, e os pendentes
+ * removidos no mesmo commit. O lote é reservado com {@code for update skip locked} no PostgreSQL,
+ * de modo que várias instâncias dividem os pendentes; nos outros bancos a reserva usa
+ * {@code for update}. Um lote que falha volta inteiro para a tabela e é tentado de novo na
+ * próxima drenagem. O gauge {@code minhasfinancas.auditoria.atraso} é a idade, em segundos, do
+ * pendente mais antigo que a última drenagem desta instância deixou para trás; zero quando ela
+ * esvaziou a tabela.
+ *
+ * A compactação junta os segmentos anteriores a {@code retencao-dias} de cada lançamento num único
+ * registro base com o estado da época; o histórico fino antes dele deixa de existir e o de um
+ * lançamento excluído antes do limite é removido.
+ */
+@Slf4j
+@Service
+public class AuditoriaServiceImpl implements AuditoriaService {
+
+	private static final String INSERIR_SEGMENTO =
+			  " insert into financas.lancamento_auditoria "
+			+ "        (id_lancamento, quantidade, data_inicial, data_final, excluido, conteudo) "
+			+ " values (?, ?, ?, ?, ?, ?) ";
+
+	private static final String CONSULTA_PENDENTES =
+			  " select p.id, p.id_lancamento, p.momento, p.conteudo from financas.lancamento_auditoria_pendente p "
+			+ " order by p.id "
+			+ " limit ? %s ";
+
+	private static final String EXCLUIR_PENDENTE = " delete from financas.lancamento_auditoria_pendente where id = ? ";
+
+	private static final Comparator<RegistroAuditoria> POR_MOMENTO = Comparator.comparing(RegistroAuditoria::getMomento);
+
+	private SegmentoAuditoriaRepository repository;
+
+	private PendenciaAuditoriaRepository pendenciaRepository;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private TransactionTemplate transactionTemplate;
+
+	private final String consultaPendentes;
+
+	private final int tamanhoLote;
+
+	private final int retencaoDias;
+
+	private final Counter gravados;
+
+	private final Counter falhas;
+
+	private final Counter segmentosCompactados;
+
+	private volatile LocalDateTime pendenteMaisAntigo;
+
+	public AuditoriaServiceImpl(SegmentoAuditoriaRepository repository, PendenciaAuditoriaRepository pendenciaRepository,
+			DataSource dataSource, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+			@Value("${minhasfinancas.auditoria.tamanho-lote:500}") int tamanhoLote,
+			@Value("${minhasfinancas.auditoria.retencao-dias:365}") int retencaoDias) {
+		this.repository = repository;
+		this.pendenciaRepository = pendenciaRepository;
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.consultaPendentes = String.format(CONSULTA_PENDENTES, reserva());
+		this.tamanhoLote = tamanhoLote;
+		this.retencaoDias = retencaoDias;
+		this.gravados = meterRegistry.counter("minhasfinancas.auditoria.registros", "resultado", "gravado");
+		this.falhas = meterRegistry.counter("minhasfinancas.auditoria.lotes", "resultado", "falha");
+		this.segmentosCompactados = meterRegistry.counter("minhasfinancas.auditoria.segmentos", "resultado", "compactado");
+		meterRegistry.gauge("minhasfinancas.auditoria.atraso", this, AuditoriaServiceImpl::atrasoSegundos);
+	}
+
+	/**
+	 * Roda dentro da transação de quem publicou o evento; uma falha aqui desfaz a escrita.
+	 */
+	@EventListener
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		RegistroAuditoria registro = RegistroAuditoria.de(evento.getAnterior(), evento.getAtual(), LocalDateTime.now());
+
+		if (registro == null || registro.getIdLancamento() == null) {
+			return;
+		}
+
+		pendenciaRepository.save(PendenciaAuditoria.builder()
+				.idLancamento(registro.getIdLancamento())
+				.momento(registro.getMomento())
+				.conteudo(CodificadorAuditoria.codificar(Collections.singletonList(registro)))
+				.build());
+	}
+
+	@Override
+	@Scheduled(fixedDelayString = "${minhasfinancas.auditoria.intervalo-ms:200}")
+	public int drenar() {
+		AtomicReference<LocalDateTime> maisAntigo = new AtomicReference<>();
+		int total = 0;
+		int quantidade;
+
+		do {
+			maisAntigo.set(null);
+			try {
+				quantidade = transactionTemplate.execute( status -> drenarLote(maisAntigo) );
+			} catch (RuntimeException e) {
+				// o lote continua pendente e volta na próxima drenagem
+				falhas.increment();
+				log.error("Falha ao gravar um lote de auditoria; os registros continuam pendentes", e);
+				pendenteMaisAntigo = maisAntigo.get();
+				return total;
+			}
+			total += quantidade;
+			gravados.increment(quantidade);
+		} while (quantidade == tamanhoLote);
+
+		pendenteMaisAntigo = null;
+		return total;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<Lancamento> reconstruir(Long idLancamento, LocalDateTime momento) {
+		List<RegistroAuditoria> registros = new ArrayList<>();
+
+		for (SegmentoAuditoria segmento : repository.findByIdLancamentoAndDataInicialLessThanEqualOrderById(idLancamento, momento)) {
+			for (RegistroAuditoria registro : CodificadorAuditoria.decodificar(idLancamento, segmento.getConteudo())) {
+				if (!registro.getMomento().isAfter(momento)) {
+					registros.add(registro);
+				}
+			}
+		}
+		registros.sort(POR_MOMENTO);
+
+		Map<CampoAuditado, Object> estado = RegistroAuditoria.aplicar(registros);
+		return estado == null ? Optional.empty() : Optional.of(CampoAuditado.montar(idLancamento, estado));
+	}
+
+	@Override
+	@Scheduled(cron = "${minhasfinancas.auditoria.compactacao.cron:0 0 4 * * *}")
+	public int compactar() {
+		LocalDateTime limite = LocalDateTime.now().minusDays(retencaoDias);
+		int total = 0;
+		List<Long> lancamentos;
+
+		do {
+			lancamentos = repository.obterCompactaveis(limite, PageRequest.of(0, tamanhoLote));
+			for (Long idLancamento : lancamentos) {
+				total += transactionTemplate.execute( status -> compactar(idLancamento, limite) );
+			}
+		} while (lancamentos.size() == tamanhoLote);
+
+		if (total > 0) {
+			log.info("{} segmentos de auditoria compactados", total);
+		}
+		return total;
+	}
+
+	private int compactar(Long idLancamento, LocalDateTime limite) {
+		List<SegmentoAuditoria> antigos = repository.findByIdLancamentoAndDataFinalLessThanOrderById(idLancamento, limite);
+
+		List<RegistroAuditoria> registros = new ArrayList<>();
+		for (SegmentoAuditoria segmento : antigos) {
+			registros.addAll(CodificadorAuditoria.decodificar(idLancamento, segmento.getConteudo()));
+		}
+		registros.sort(POR_MOMENTO);
+
+		repository.deleteInBatch(antigos);
+		Map<CampoAuditado, Object> estado = RegistroAuditoria.aplicar(registros);
+
+		if (estado != null && !registros.isEmpty()) {
+			LocalDateTime momento = registros.get(registros.size() - 1).getMomento();
+			repository.save(segmento(idLancamento, Collections.singletonList(RegistroAuditoria.base(idLancamento, momento, estado))));
+		}
+
+		segmentosCompactados.increment(antigos.size());
+		return antigos.size();
+	}
+
+	/**
+	 * Reserva o próximo lote de pendentes, grava os segmentos e remove os pendentes na mesma
+	 * transação. Devolve a quantidade de registros gravados; o momento do primeiro pendente do
+	 * lote fica em {@code maisAntigo} mesmo que a gravação falhe.
+	 */
+	private int drenarLote(AtomicReference<LocalDateTime> maisAntigo) {
+		List<Long> ids = new ArrayList<>(tamanhoLote);
+		List<RegistroAuditoria> lote = new ArrayList<>(tamanhoLote);
+
+		jdbcTemplate.query(consultaPendentes, (RowCallbackHandler) rs -> {
+			if (ids.isEmpty()) {
+				maisAntigo.set(rs.getTimestamp("momento").toLocalDateTime());
+			}
+			ids.add(rs.getLong("id"));
+			lote.addAll(CodificadorAuditoria.decodificar(rs.getLong("id_lancamento"), rs.getBytes("conteudo")));
+		}, tamanhoLote);
+
+		if (ids.isEmpty()) {
+			return 0;
+		}
+
+		gravar(lote);
+		List<Object[]> excluidos = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			excluidos.add(new Object[] { id });
+		}
+		jdbcTemplate.batchUpdate(EXCLUIR_PENDENTE, excluidos);
+		return ids.size();
+	}
+
+	private void gravar(List<RegistroAuditoria> lote) {
+		Map<Long, List<RegistroAuditoria>> porLancamento = new LinkedHashMap<>();
+		for (RegistroAuditoria registro : lote) {
+			porLancamento.computeIfAbsent(registro.getIdLancamento(), id -> new ArrayList<>(1)).add(registro);
+		}
+
+		List<Object[]> parametros = new ArrayList<>(porLancamento.size());
+		porLancamento.forEach( (idLancamento, registros) -> {
+			SegmentoAuditoria segmento = segmento(idLancamento, registros);
+			parametros.add(new Object[] {
+					segmento.getIdLancamento(),
+					segmento.getQuantidade(),
+					Timestamp.valueOf(segmento.getDataInicial()),
+					Timestamp.valueOf(segmento.getDataFinal()),
+					segmento.getExcluido(),
+					segmento.getConteudo() });
+		});
+
+		jdbcTemplate.batchUpdate(INSERIR_SEGMENTO, parametros);
+	}
+
+	private double atrasoSegundos() {
+		LocalDateTime momento = pendenteMaisAntigo;
+		return momento == null ? 0 : Duration.between(momento, LocalDateTime.now()).toMillis() / 1000.0;
+	}
+
+	private String reserva() {
+		String banco = jdbcTemplate.execute((ConnectionCallback<String>) conexao -> conexao.getMetaData().getDatabaseProductName());
+		return "PostgreSQL".equals(banco) ? "for update skip locked" : "for update";
+	}
+
+	private SegmentoAuditoria segmento(Long idLancamento, List<RegistroAuditoria> registros) {
+		List<RegistroAuditoria> ordenados = new ArrayList<>(registros);
+		ordenados.sort(POR_MOMENTO);
+		RegistroAuditoria ultimo = ordenados.get(ordenados.size() - 1);
+
+		return SegmentoAuditoria.builder()
+				.idLancamento(idLancamento)
+				.quantidade(ordenados.size())
+				.dataInicial(ordenados.get(0).getMomento())
+				.dataFinal(ultimo.getMomento())
+				.excluido(ultimo.getOperacao() == OperacaoAuditoria.EXCLUSAO)
+				.conteudo(CodificadorAuditoria.codificar(ordenados))
+				.build();
+	}
+
+}
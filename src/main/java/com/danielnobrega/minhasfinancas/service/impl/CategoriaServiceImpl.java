@@ -0,0 +1,143 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Categoria;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.repository.CategoriaRepository;
+import com.danielnobrega.minhasfinancas.service.CategoriaService;
+
+@Service
+public class CategoriaServiceImpl implements CategoriaService {
+	
+	private static final int FLAGS_REGRA = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+
+	private CategoriaRepository repository;
+	
+	/** Regras compiladas, separadas por usuário e globais. Nulo até o primeiro uso ou após alteração. */
+	private volatile IndiceRegras regras;
+
+	public CategoriaServiceImpl(CategoriaRepository repository) {
+		this.repository = repository;
+	}
+
+	@Override
+	@Transactional
+	public Categoria salvar(Categoria categoria) {
+		if (categoria.getNome() == null || categoria.getNome().trim().isEmpty()) {
+			throw new RegraNegocioException("Informe um NOME para a categoria");
+		}
+		
+		if (categoria.getPadraoDescricao() != null) {
+			try {
+				Pattern.compile(categoria.getPadraoDescricao(), FLAGS_REGRA);
+			} catch (PatternSyntaxException e) {
+				throw new RegraNegocioException("Informe um PADRÃO de descrição válido");
+			}
+		}
+		
+		Categoria salva = repository.save(categoria);
+		regras = null;
+		return salva;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<Categoria> obterPorId(Long id) {
+		return repository.findById(id);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Categoria> obterCategoriasDoUsuario(Long idUsuario) {
+		return repository.obterCategoriasDoUsuario(idUsuario);
+	}
+
+	@Override
+	public void categorizar(Lancamento lancamento) {
+		if (lancamento.getCategoria() != null || lancamento.getDescricao() == null) {
+			return;
+		}
+		
+		Long idUsuario = lancamento.getUsuario() == null ? null : lancamento.getUsuario().getId();
+		IndiceRegras indice = obterRegras();
+		
+		Categoria categoria = primeiraQueCasa(indice.porUsuario.getOrDefault(idUsuario, Collections.emptyList()), lancamento.getDescricao());
+		if (categoria == null) {
+			categoria = primeiraQueCasa(indice.globais, lancamento.getDescricao());
+		}
+		if (categoria != null) {
+			lancamento.setCategoria(categoria);
+		}
+	}
+	
+	private Categoria primeiraQueCasa(List<RegraCategoria> regras, String descricao) {
+		for (RegraCategoria regra : regras) {
+			if (regra.padrao.matcher(descricao).find()) {
+				return regra.categoria;
+			}
+		}
+		return null;
+	}
+
+	private IndiceRegras obterRegras() {
+		IndiceRegras atuais = regras;
+		if (atuais == null) {
+			synchronized (this) {
+				atuais = regras;
+				if (atuais == null) {
+					atuais = new IndiceRegras(repository.obterCategoriasComRegra());
+					regras = atuais;
+				}
+			}
+		}
+		return atuais;
+	}
+	
+	/**
+	 * Regras indexadas pelo id do usuário dono, mais a lista das globais, de modo que categorizar
+	 * um lançamento só avalia as expressões que podem valer para ele. A ordem da consulta é mantida
+	 * dentro de cada lista.
+	 */
+	private static class IndiceRegras {
+		
+		final Map<Long, List<RegraCategoria>> porUsuario = new HashMap<>();
+		final List<RegraCategoria> globais = new ArrayList<>();
+		
+		IndiceRegras(List<Categoria> categorias) {
+			for (Categoria categoria : categorias) {
+				RegraCategoria regra = new RegraCategoria(categoria);
+				if (regra.idUsuario == null) {
+					globais.add(regra);
+				} else {
+					porUsuario.computeIfAbsent(regra.idUsuario, id -> new ArrayList<>()).add(regra);
+				}
+			}
+		}
+	}
+	
+	private static class RegraCategoria {
+		
+		final Pattern padrao;
+		final Long idUsuario;
+		final Categoria categoria;
+		
+		RegraCategoria(Categoria categoria) {
+			this.padrao = Pattern.compile(categoria.getPadraoDescricao(), FLAGS_REGRA);
+			this.idUsuario = categoria.getUsuario() == null ? null : categoria.getUsuario().getId();
+			this.categoria = categoria;
+		}
+	}
+
+}
@@ -0,0 +1,210 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Cotacao;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoSaldo;
+import com.danielnobrega.minhasfinancas.model.projection.SaldoMoeda;
+import com.danielnobrega.minhasfinancas.model.repository.CotacaoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.SaldoMensalRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.cotacao.ConversorMoeda;
+import com.danielnobrega.minhasfinancas.service.cotacao.SaldoConsolidado;
+import com.danielnobrega.minhasfinancas.service.cotacao.TabelaCotacoes;
+
+/**
+ * Mantém em memória a tabela de cotações inteira, num retrato imutável trocado de uma vez a cada
+ * recarga. As leituras só leem a referência volátil, sem trava; a recarga monta o retrato novo
+ * ao lado e publica com uma escrita. A primeira consulta carrega a tabela, as cotações
+ * registradas por aqui recarregam na hora e o agendamento traz as registradas por outras
+ * instâncias.
+ *
+ * Os fechamentos de saldo_mensal guardam valores já convertidos. Uma cotação registrada vale
+ * para todo mês que termina a partir da data dela, então registrar uma apaga os fechamentos
+ * desse mês em diante dos usuários com lançamentos numa das duas moedas; eles são refeitos
+ * com as cotações novas pela próxima consulta ou pelo recálculo.
+ */
+@Service
+public class CotacaoServiceImpl implements CotacaoService {
+
+	private CotacaoRepository repository;
+
+	private UsuarioRepository usuarioRepository;
+
+	private SaldoMensalRepository saldoMensalRepository;
+
+	private final AtomicLong versoes = new AtomicLong();
+
+	private volatile TabelaCotacoes tabela;
+
+	public CotacaoServiceImpl(CotacaoRepository repository, UsuarioRepository usuarioRepository,
+			SaldoMensalRepository saldoMensalRepository) {
+		this.repository = repository;
+		this.usuarioRepository = usuarioRepository;
+		this.saldoMensalRepository = saldoMensalRepository;
+	}
+
+	@Override
+	@Transactional
+	public List<Cotacao> registrar(List<Cotacao> cotacoes) {
+		for (Cotacao cotacao : cotacoes) {
+			validar(cotacao);
+		}
+
+		List<Cotacao> gravadas = new ArrayList<>(cotacoes.size());
+		for (Cotacao cotacao : cotacoes) {
+			Cotacao existente = repository
+					.findByDataAndMoedaOrigemAndMoedaDestino(cotacao.getData(), cotacao.getMoedaOrigem(), cotacao.getMoedaDestino())
+					.orElse(cotacao);
+			existente.setTaxa(cotacao.getTaxa());
+			gravadas.add(repository.save(existente));
+			saldoMensalRepository.invalidarComMoedaAPartirDe(Arrays.asList(cotacao.getMoedaOrigem(), cotacao.getMoedaDestino()),
+					cotacao.getData().getYear(), cotacao.getData().getMonthValue());
+		}
+
+		recarregar();
+		return gravadas;
+	}
+
+	@Override
+	@Scheduled(cron = "${minhasfinancas.cotacao.recarga.cron:0 */15 * * * *}")
+	public void recarregar() {
+		List<Cotacao> cotacoes = repository.listarOrdenadas();
+		tabela = new TabelaCotacoes(versoes.incrementAndGet(), cotacoes);
+	}
+
+	@Override
+	public long obterVersao() {
+		return obterTabela().getVersao();
+	}
+
+	@Override
+	public ConversorMoeda conversorPara(String moedaBase) {
+		TabelaCotacoes retrato = obterTabela();
+		String destino = moedaBase == null ? MOEDA_PADRAO : moedaBase;
+
+		return (valor, moeda, ano, mes) -> {
+			BigDecimal taxa = retrato.taxa(moeda, destino, YearMonth.of(ano, mes).atEndOfMonth());
+			if (taxa == null) {
+				throw semCotacao(moeda, destino, ano, mes);
+			}
+			return valor.multiply(taxa).setScale(2, RoundingMode.HALF_EVEN);
+		};
+	}
+
+	@Override
+	public BigDecimal obterTaxa(String moeda, String moedaBase, int ano, int mes) {
+		String destino = moedaBase == null ? MOEDA_PADRAO : moedaBase;
+		BigDecimal taxa = obterTabela().taxa(moeda, destino, YearMonth.of(ano, mes).atEndOfMonth());
+		if (taxa == null) {
+			throw semCotacao(moeda, destino, ano, mes);
+		}
+		return taxa;
+	}
+
+	@Override
+	public String obterMoedaBase(Long idUsuario) {
+		String moedaBase = usuarioRepository.obterMoedaBase(idUsuario);
+		return moedaBase == null ? MOEDA_PADRAO : moedaBase;
+	}
+
+	@Override
+	public BigDecimal valorNaMoedaBase(Lancamento lancamento) {
+		if (lancamento.getMoeda() == null) {
+			return lancamento.getValor();
+		}
+
+		String moedaBase = obterMoedaBase(lancamento.getUsuario().getId());
+		if (lancamento.getMoeda().equals(moedaBase)) {
+			return lancamento.getValor();
+		}
+		return conversorPara(moedaBase).converter(lancamento.getValor(), lancamento.getMoeda(), lancamento.getAno(), lancamento.getMes());
+	}
+
+	@Override
+	public ResumoSaldo consolidar(List<SaldoMoeda> parciais, String moedaBase) {
+		BigDecimal receitas = BigDecimal.ZERO;
+		BigDecimal despesas = BigDecimal.ZERO;
+		BigDecimal saldo = BigDecimal.ZERO;
+		ConversorMoeda conversor = null;
+
+		for (SaldoMoeda parcial : parciais) {
+			if (parcial.getMoeda() == null) {
+				receitas = receitas.add(parcial.getReceitas());
+				despesas = despesas.add(parcial.getDespesas());
+				saldo = saldo.add(parcial.getSaldo());
+				continue;
+			}
+
+			if (conversor == null) {
+				conversor = conversorPara(moedaBase);
+			}
+			int ano = parcial.getAno();
+			int mes = parcial.getMes();
+			receitas = receitas.add(conversor.converter(parcial.getReceitas(), parcial.getMoeda(), ano, mes));
+			despesas = despesas.add(conversor.converter(parcial.getDespesas(), parcial.getMoeda(), ano, mes));
+			saldo = saldo.add(conversor.converter(parcial.getSaldo(), parcial.getMoeda(), ano, mes));
+		}
+
+		return new SaldoConsolidado(receitas, despesas, saldo);
+	}
+
+	@Override
+	public void validarConversao(String moeda, String moedaBase, int ano, int mes) {
+		if (moeda == null) {
+			return;
+		}
+
+		String destino = moedaBase == null ? MOEDA_PADRAO : moedaBase;
+		if (obterTabela().taxa(moeda, destino, YearMonth.of(ano, mes).atEndOfMonth()) == null) {
+			throw semCotacao(moeda, destino, ano, mes);
+		}
+	}
+
+	private TabelaCotacoes obterTabela() {
+		TabelaCotacoes atual = tabela;
+		if (atual != null) {
+			return atual;
+		}
+
+		synchronized (this) {
+			if (tabela == null) {
+				recarregar();
+			}
+			return tabela;
+		}
+	}
+
+	private void validar(Cotacao cotacao) {
+		if (cotacao.getData() == null) {
+			throw new RegraNegocioException("Informe a DATA da cotação");
+		}
+
+		if (!TabelaCotacoes.codigoValido(cotacao.getMoedaOrigem()) || !TabelaCotacoes.codigoValido(cotacao.getMoedaDestino())
+				|| cotacao.getMoedaOrigem().equals(cotacao.getMoedaDestino())) {
+			throw new RegraNegocioException("Informe duas MOEDAS diferentes no padrão ISO 4217");
+		}
+
+		if (cotacao.getTaxa() == null || cotacao.getTaxa().signum() < 1) {
+			throw new RegraNegocioException("Informe uma TAXA válida");
+		}
+	}
+
+	private static RegraNegocioException semCotacao(String moeda, String destino, int ano, int mes) {
+		return new RegraNegocioException(String.format("Não há cotação de %s para %s até %02d/%d", moeda, destino, mes, ano));
+	}
+
+}
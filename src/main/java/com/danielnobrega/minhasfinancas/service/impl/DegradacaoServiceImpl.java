@@ -0,0 +1,204 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import com.danielnobrega.minhasfinancas.exceptions.BancoIndisponivelException;
+import com.danielnobrega.minhasfinancas.service.DegradacaoService;
+import com.danielnobrega.minhasfinancas.service.degradacao.Dependencia;
+import com.danielnobrega.minhasfinancas.service.degradacao.Disjuntor;
+import com.danielnobrega.minhasfinancas.service.degradacao.Resultado;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Protege as leituras de saldo e busca quando o banco está lento. Cada dependência tem timeout e
+ * disjuntor próprios (ver {@link Dependencia}). Um endpoint com {@code concorrencia} configurada
+ * só ocupa até esse número de threads com consultas ao banco; acima disso a requisição espera no
+ * máximo {@code espera-concorrencia} milissegundos por uma vaga. Sem a propriedade o endpoint não
+ * tem limite próprio; valem só as threads de cada dependência e o pool de conexões.
+ *
+ * O último valor de cada consulta bem-sucedida fica guardado. Se o banco não puder responder ou o
+ * endpoint estiver sem vagas, esse valor é devolvido como obsoleto, desde que não seja mais velho
+ * que {@code idade-maxima}; sem ele, a BancoIndisponivelException chega ao resource. Com o
+ * disjuntor meio aberto só a sondagem vai ao banco, e é ela que atualiza o valor guardado.
+ *
+ * Os limites são lidos de {@code minhasfinancas.degradacao.<dependencia ou endpoint>.*}.
+ */
+@Service
+public class DegradacaoServiceImpl implements DegradacaoService {
+
+	private static final String PREFIXO = "minhasfinancas.degradacao.";
+
+	private final Environment environment;
+
+	private final MeterRegistry meterRegistry;
+
+	private final long esperaConcorrencia;
+
+	private final long idadeMaxima;
+
+	private final Map<String, Dependencia> dependencias = new ConcurrentHashMap<>();
+
+	private final Map<String, Optional<Semaphore>> compartimentos = new ConcurrentHashMap<>();
+
+	private final Map<Chave, Entrada> ultimos;
+
+	public DegradacaoServiceImpl(Environment environment, MeterRegistry meterRegistry,
+			@Value("${minhasfinancas.degradacao.espera-concorrencia:50}") long esperaConcorrencia,
+			@Value("${minhasfinancas.degradacao.idade-maxima:3600000}") long idadeMaxima,
+			@Value("${minhasfinancas.degradacao.max-entradas:10000}") int maxEntradas) {
+		this.environment = environment;
+		this.meterRegistry = meterRegistry;
+		this.esperaConcorrencia = esperaConcorrencia;
+		this.idadeMaxima = idadeMaxima;
+		this.ultimos = Collections.synchronizedMap(new LinkedHashMap<Chave, Entrada>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Chave, Entrada> maisAntiga) {
+				return size() > maxEntradas;
+			}
+		});
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		dependencias.values().forEach(Dependencia::encerrar);
+	}
+
+	@Override
+	public <T> T chamar(String dependencia, Supplier<T> chamada) {
+		return dependencias.computeIfAbsent(dependencia, this::criarDependencia).executar(chamada);
+	}
+
+	@Override
+	public <T> Resultado<T> consultar(String endpoint, Object chave, Supplier<T> consulta) {
+		Semaphore compartimento = compartimentos.computeIfAbsent(endpoint,
+				nome -> Optional.ofNullable(environment.getProperty(PREFIXO + nome + ".concorrencia", Integer.class))
+								.map(Semaphore::new))
+				.orElse(null);
+		Chave chaveEntrada = new Chave(endpoint, chave);
+
+		if (compartimento != null && !ocupar(compartimento)) {
+			meterRegistry.counter("minhasfinancas.degradacao.concorrencia", "endpoint", endpoint, "resultado", "rejeitada").increment();
+			return obsoleto(endpoint, chaveEntrada,
+					new BancoIndisponivelException("Limite de consultas simultâneas atingido em " + endpoint));
+		}
+
+		try {
+			T valor = consulta.get();
+			if (valor != null) {
+				ultimos.put(chaveEntrada, new Entrada(valor, System.currentTimeMillis()));
+			}
+			contar(endpoint, "atual");
+			return Resultado.atual(valor);
+		} catch (BancoIndisponivelException e) {
+			return obsoleto(endpoint, chaveEntrada, e);
+		} finally {
+			if (compartimento != null) {
+				compartimento.release();
+			}
+		}
+	}
+
+	public Disjuntor.Estado obterEstado(String dependencia) {
+		Dependencia existente = dependencias.get(dependencia);
+		return existente == null ? Disjuntor.Estado.FECHADO : existente.getEstado();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Resultado<T> obsoleto(String endpoint, Chave chave, BancoIndisponivelException causa) {
+		Entrada entrada = ultimos.get(chave);
+		long idade = entrada == null ? 0 : System.currentTimeMillis() - entrada.momento;
+
+		if (entrada == null || idade > idadeMaxima) {
+			contar(endpoint, "indisponivel");
+			throw causa;
+		}
+
+		contar(endpoint, "obsoleta");
+		return Resultado.obsoleto((T) entrada.valor, TimeUnit.MILLISECONDS.toSeconds(idade));
+	}
+
+	private boolean ocupar(Semaphore compartimento) {
+		try {
+			return compartimento.tryAcquire(esperaConcorrencia, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private Dependencia criarDependencia(String nome) {
+		Disjuntor disjuntor = new Disjuntor(
+				propriedade(nome, "limite-falhas", 5),
+				propriedade(nome, "tempo-aberto", 10000L),
+				System::currentTimeMillis);
+		return new Dependencia(nome, propriedade(nome, "threads", 10), propriedade(nome, "timeout", 2000L), disjuntor,
+				meterRegistry);
+	}
+
+	private <V> V propriedade(String nome, String chave, V padrao) {
+		@SuppressWarnings("unchecked")
+		Class<V> tipo = (Class<V>) padrao.getClass();
+		return environment.getProperty(PREFIXO + nome + "." + chave, tipo, padrao);
+	}
+
+	private void contar(String endpoint, String resultado) {
+		meterRegistry.counter("minhasfinancas.degradacao.respostas", "endpoint", endpoint, "resultado", resultado).increment();
+	}
+
+	private static final class Chave {
+
+		private final String endpoint;
+
+		private final Object valor;
+
+		private Chave(String endpoint, Object valor) {
+			this.endpoint = endpoint;
+			this.valor = valor;
+		}
+
+		@Override
+		public boolean equals(Object outro) {
+			if (!(outro instanceof Chave)) {
+				return false;
+			}
+			Chave chave = (Chave) outro;
+			return endpoint.equals(chave.endpoint) && Objects.equals(valor, chave.valor);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * endpoint.hashCode() + Objects.hashCode(valor);
+		}
+	}
+
+	private static final class Entrada {
+
+		private final Object valor;
+
+		private final long momento;
+
+		private Entrada(Object valor, long momento) {
+			this.valor = valor;
+			this.momento = momento;
+		}
+	}
+
+}
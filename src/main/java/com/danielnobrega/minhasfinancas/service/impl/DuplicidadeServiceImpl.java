@@ -0,0 +1,363 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.danielnobrega.minhasfinancas.enums.PoliticaDuplicidade;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoLancamento;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.DuplicidadeService;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import com.danielnobrega.minhasfinancas.sharding.ShardContexto;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Detecta lançamentos possivelmente duplicados no momento da inclusão. Cada usuário ativo tem
+ * um índice em memória agrupado por (valor, ano, mes); a descrição normalizada só é comparada
+ * com os poucos candidatos do mesmo grupo, limitados a {@code maxCandidatos}.
+ *
+ * Como no AnaliticoServiceImpl, uma escrita confirmada durante a carga de um índice invalida o
+ * resultado dela: a verificação que disparou a carga usa o índice, mas ele não é guardado. A
+ * memória é limitada pelo total de entradas em {@code max-entradas}; acima dele os usuários
+ * verificados há mais tempo são descartados.
+ */
+@Service
+public class DuplicidadeServiceImpl implements DuplicidadeService {
+
+	private LancamentoRepository repository;
+	
+	private UsuarioRepository usuarioRepository;
+	
+	private PoliticaDuplicidade politica;
+	
+	private int maxCandidatos;
+	
+	private double similaridadeMinima;
+	
+	private int paralelismo;
+	
+	private long maxEntradas;
+	
+	private final LinkedHashMap<Long, IndiceUsuario> indices = new LinkedHashMap<>(16, 0.75f, true);
+	
+	private final Map<Long, List<Carga>> cargas = new HashMap<>();
+
+	public DuplicidadeServiceImpl(LancamentoRepository repository, UsuarioRepository usuarioRepository,
+			@Value("${minhasfinancas.duplicidade.politica:SINALIZAR}") PoliticaDuplicidade politica,
+			@Value("${minhasfinancas.duplicidade.max-entradas:1000000}") long maxEntradas,
+			@Value("${minhasfinancas.duplicidade.max-candidatos:32}") int maxCandidatos,
+			@Value("${minhasfinancas.duplicidade.similaridade-minima:0.85}") double similaridadeMinima,
+			@Value("${minhasfinancas.duplicidade.paralelismo:4}") int paralelismo) {
+		this.repository = repository;
+		this.usuarioRepository = usuarioRepository;
+		this.politica = politica;
+		this.maxCandidatos = maxCandidatos;
+		this.similaridadeMinima = similaridadeMinima;
+		this.paralelismo = paralelismo;
+		this.maxEntradas = maxEntradas;
+	}
+
+	@Override
+	public void verificar(Lancamento lancamento) {
+		if (lancamento.getUsuario() == null || lancamento.getUsuario().getId() == null || lancamento.getValor() == null
+				|| lancamento.getAno() == null || lancamento.getMes() == null || lancamento.getDescricao() == null) {
+			return;
+		}
+		
+		IndiceUsuario indice = obterIndice(lancamento.getUsuario().getId());
+		
+		if (indice.possuiSemelhante(chave(lancamento.getValor(), lancamento.getAno(), lancamento.getMes()), 
+				normalizar(lancamento.getDescricao()))) {
+			if (politica == PoliticaDuplicidade.REJEITAR) {
+				throw new RegraNegocioException("Lançamento possivelmente duplicado");
+			}
+			lancamento.setPossivelDuplicata(true);
+		}
+	}
+
+	@Override
+	public Map<Long, List<List<Long>>> varrer(List<Long> idsUsuarios) {
+		List<Long> ids = idsUsuarios == null || idsUsuarios.isEmpty() ? usuarioRepository.listarIds() : idsUsuarios;
+		ForkJoinPool pool = new ForkJoinPool(paralelismo);
+		String shard = ShardContexto.obter();
+		
+		try {
+			return pool.submit( () -> ids.parallelStream()
+										 .collect(Collectors.toMap(Function.identity(), 
+												 id -> ShardContexto.executar(shard, () -> varrerUsuario(id)))) ).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		Lancamento anterior = evento.getAnterior();
+		Lancamento atual = evento.getAtual();
+		
+		if (anterior != null) {
+			IndiceUsuario indice = indiceEmUso(anterior.getUsuario().getId());
+			if (indice != null) {
+				indice.remover(anterior.getId(), chave(anterior.getValor(), anterior.getAno(), anterior.getMes()));
+			}
+		}
+		
+		if (atual != null) {
+			IndiceUsuario indice = indiceEmUso(atual.getUsuario().getId());
+			if (indice != null) {
+				indice.adicionar(chave(atual.getValor(), atual.getAno(), atual.getMes()), 
+						new Entrada(atual.getId(), normalizar(atual.getDescricao())));
+			}
+		}
+	}
+
+	private List<List<Long>> varrerUsuario(Long idUsuario) {
+		Map<Chave, List<List<Entrada>>> grupos = new HashMap<>();
+		
+		for (ResumoLancamento resumo : repository.obterResumosPorUsuario(idUsuario)) {
+			Entrada entrada = new Entrada(resumo.getId(), normalizar(resumo.getDescricao()));
+			List<List<Entrada>> doBalde = grupos.computeIfAbsent(chave(resumo.getValor(), resumo.getAno(), resumo.getMes()), 
+					c -> new ArrayList<>());
+			
+			List<Entrada> grupo = doBalde.stream()
+										 .limit(maxCandidatos)
+										 .filter( g -> semelhantes(g.get(0).descricao, entrada.descricao) )
+										 .findFirst()
+										 .orElse(null);
+			if (grupo == null) {
+				grupo = new ArrayList<>();
+				doBalde.add(grupo);
+			}
+			grupo.add(entrada);
+		}
+		
+		return grupos.values().stream()
+					 .flatMap(List::stream)
+					 .filter( grupo -> grupo.size() > 1 )
+					 .map( grupo -> grupo.stream().map( e -> e.id ).sorted().collect(Collectors.toList()) )
+					 .collect(Collectors.toList());
+	}
+
+	private IndiceUsuario obterIndice(Long idUsuario) {
+		Carga carga = new Carga();
+		
+		synchronized (indices) {
+			IndiceUsuario indice = indices.get(idUsuario);
+			if (indice != null) {
+				return indice;
+			}
+			cargas.computeIfAbsent(idUsuario, id -> new ArrayList<>(1)).add(carga);
+		}
+		
+		IndiceUsuario carregado;
+		try {
+			carregado = carregar(idUsuario);
+		} finally {
+			synchronized (indices) {
+				List<Carga> doUsuario = cargas.get(idUsuario);
+				doUsuario.remove(carga);
+				if (doUsuario.isEmpty()) {
+					cargas.remove(idUsuario);
+				}
+			}
+		}
+		
+		synchronized (indices) {
+			if (carga.invalidada) {
+				return carregado;
+			}
+			
+			IndiceUsuario existente = indices.get(idUsuario);
+			if (existente != null) {
+				return existente;
+			}
+			
+			indices.put(idUsuario, carregado);
+			descartarExcedentes();
+		}
+		return carregado;
+	}
+	
+	private IndiceUsuario carregar(Long idUsuario) {
+		IndiceUsuario carregado = new IndiceUsuario();
+		for (ResumoLancamento resumo : repository.obterResumosPorUsuario(idUsuario)) {
+			carregado.adicionar(chave(resumo.getValor(), resumo.getAno(), resumo.getMes()), 
+					new Entrada(resumo.getId(), normalizar(resumo.getDescricao())));
+		}
+		return carregado;
+	}
+	
+	/**
+	 * Devolve o índice do usuário, se estiver carregado, e invalida as cargas em andamento dele.
+	 */
+	private IndiceUsuario indiceEmUso(Long idUsuario) {
+		synchronized (indices) {
+			List<Carga> doUsuario = cargas.get(idUsuario);
+			if (doUsuario != null) {
+				for (Carga carga : doUsuario) {
+					carga.invalidada = true;
+				}
+			}
+			return indices.get(idUsuario);
+		}
+	}
+	
+	private void descartarExcedentes() {
+		long total = 0;
+		for (IndiceUsuario indice : indices.values()) {
+			total += indice.tamanho();
+		}
+		
+		Iterator<IndiceUsuario> maisAntigos = indices.values().iterator();
+		while (total > maxEntradas && indices.size() > 1 && maisAntigos.hasNext()) {
+			total -= maisAntigos.next().tamanho();
+			maisAntigos.remove();
+		}
+	}
+	
+	private boolean semelhantes(String a, String b) {
+		if (a.equals(b)) {
+			return true;
+		}
+		
+		int maior = Math.max(a.length(), b.length());
+		return 1.0 - (double) distancia(a, b) / maior >= similaridadeMinima;
+	}
+
+	private static Chave chave(BigDecimal valor, Integer ano, Integer mes) {
+		long centavos = valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+		return new Chave(centavos, ano, mes);
+	}
+	
+	private static String normalizar(String descricao) {
+		if (descricao == null) {
+			return "";
+		}
+		
+		String semAcentos = Normalizer.normalize(descricao, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+		return semAcentos.toLowerCase().replaceAll("[^a-z0-9]+", " ").trim();
+	}
+	
+	/** Distância de Levenshtein com duas linhas, sem alocar a matriz completa. */
+	private static int distancia(String a, String b) {
+		int[] anterior = new int[b.length() + 1];
+		int[] atual = new int[b.length() + 1];
+		
+		for (int j = 0; j <= b.length(); j++) {
+			anterior[j] = j;
+		}
+		
+		for (int i = 1; i <= a.length(); i++) {
+			atual[0] = i;
+			for (int j = 1; j <= b.length(); j++) {
+				int custo = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				atual[j] = Math.min(Math.min(atual[j - 1] + 1, anterior[j] + 1), anterior[j - 1] + custo);
+			}
+			int[] troca = anterior;
+			anterior = atual;
+			atual = troca;
+		}
+		
+		return anterior[b.length()];
+	}
+	
+	@EqualsAndHashCode
+	@RequiredArgsConstructor
+	private static class Chave {
+		
+		private final long centavos;
+		private final Integer ano;
+		private final Integer mes;
+	}
+	
+	private static final class Carga {
+		
+		private boolean invalidada;
+		
+	}
+	
+	@RequiredArgsConstructor
+	private static class Entrada {
+		
+		private final Long id;
+		private final String descricao;
+	}
+	
+	private class IndiceUsuario {
+		
+		private final Map<Chave, List<Entrada>> baldes = new HashMap<>();
+		
+		private int entradas;
+		
+		synchronized int tamanho() {
+			return entradas;
+		}
+		
+		synchronized boolean possuiSemelhante(Chave chave, String descricao) {
+			List<Entrada> candidatos = baldes.get(chave);
+			if (candidatos == null) {
+				return false;
+			}
+			
+			for (Entrada candidato : candidatos) {
+				if (semelhantes(candidato.descricao, descricao)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		synchronized void adicionar(Chave chave, Entrada entrada) {
+			List<Entrada> candidatos = baldes.computeIfAbsent(chave, c -> new ArrayList<>());
+			candidatos.add(entrada);
+			entradas++;
+			if (candidatos.size() > maxCandidatos) {
+				candidatos.remove(0);
+				entradas--;
+			}
+		}
+		
+		synchronized void remover(Long id, Chave chave) {
+			List<Entrada> candidatos = baldes.get(chave);
+			if (candidatos == null) {
+				return;
+			}
+			
+			for (Iterator<Entrada> it = candidatos.iterator(); it.hasNext();) {
+				if (it.next().id.equals(id)) {
+					it.remove();
+					entradas--;
+				}
+			}
+			if (candidatos.isEmpty()) {
+				baldes.remove(chave);
+			}
+		}
+	}
+
+}
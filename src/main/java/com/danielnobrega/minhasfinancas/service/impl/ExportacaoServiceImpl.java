@@ -0,0 +1,183 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.danielnobrega.minhasfinancas.enums.FormatoExportacao;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.ExportacaoService;
+
+/**
+ * Escreve o histórico do usuário linha a linha enquanto percorre o cursor do banco, sem
+ * montar a lista de lançamentos em memória. A leitura roda dentro de uma transação somente
+ * leitura porque o driver do PostgreSQL só respeita o fetch size com autocommit desligado.
+ *
+ * Os valores saem na moeda em que foram lançados, com a moeda em cada linha. No OFX a moeda
+ * base do usuário é o CURDEF e os lançamentos em outra moeda levam o agregado CURRENCY com a
+ * cotação do mês de competência.
+ */
+@Service
+public class ExportacaoServiceImpl implements ExportacaoService {
+	
+	private static final String CONSULTA = 
+			  " select l.id, l.descricao, l.ano, l.mes, l.valor, l.moeda, l.tipo, l.status, l.data_cadastro "
+			+ " from financas.lancamento l "
+			+ " where l.id_usuario = ? and l.data_exclusao is null "
+			+ " order by l.ano, l.mes, l.id ";
+	
+	private static final DateTimeFormatter DATA_OFX = DateTimeFormatter.BASIC_ISO_DATE;
+
+	private CotacaoService cotacaoService;
+	
+	private JdbcTemplate jdbcTemplate;
+	
+	private TransactionTemplate transactionTemplate;
+	
+	public ExportacaoServiceImpl(CotacaoService cotacaoService, DataSource dataSource, PlatformTransactionManager transactionManager,
+			@Value("${minhasfinancas.exportacao.fetch-size:1000}") int fetchSize) {
+		this.cotacaoService = cotacaoService;
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.jdbcTemplate.setFetchSize(fetchSize);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+	}
+
+	@Override
+	public void exportar(Long idUsuario, FormatoExportacao formato, OutputStream saida) throws IOException {
+		Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+		
+		try {
+			transactionTemplate.execute( status -> {
+				String moedaBase = cotacaoService.obterMoedaBase(idUsuario);
+				escrever(escritor, formato == FormatoExportacao.OFX 
+						? cabecalhoOfx(moedaBase) 
+						: "id,descricao,ano,mes,valor,moeda,tipo,status,data_cadastro\n");
+				// envia o cabeçalho antes da primeira linha chegar do banco
+				descarregar(escritor);
+				
+				jdbcTemplate.query(CONSULTA, rs -> {
+					escrever(escritor, formato == FormatoExportacao.OFX ? linhaOfx(rs, moedaBase) : linhaCsv(rs, moedaBase));
+				}, idUsuario);
+				
+				if (formato == FormatoExportacao.OFX) {
+					escrever(escritor, rodapeOfx());
+				}
+				return null;
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		
+		escritor.flush();
+	}
+	
+	private String linhaCsv(ResultSet rs, String moedaBase) throws SQLException {
+		StringBuilder linha = new StringBuilder(96);
+		linha.append(rs.getLong("id")).append(',')
+			 .append(campoCsv(rs.getString("descricao"))).append(',')
+			 .append(rs.getInt("ano")).append(',')
+			 .append(rs.getInt("mes")).append(',')
+			 .append(rs.getBigDecimal("valor").toPlainString()).append(',')
+			 .append(rs.getString("moeda") == null ? moedaBase : rs.getString("moeda")).append(',')
+			 .append(rs.getString("tipo")).append(',')
+			 .append(rs.getString("status")).append(',');
+		
+		LocalDate dataCadastro = rs.getObject("data_cadastro", LocalDate.class);
+		if (dataCadastro != null) {
+			linha.append(dataCadastro);
+		}
+		
+		return linha.append('\n').toString();
+	}
+	
+	private String campoCsv(String valor) {
+		if (valor == null) {
+			return "";
+		}
+		
+		if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+			return valor;
+		}
+		
+		return '"' + valor.replace("\"", "\"\"") + '"';
+	}
+	
+	private String cabecalhoOfx(String moedaBase) {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			 + "<?OFX OFXHEADER=\"200\" VERSION=\"220\" SECURITY=\"NONE\" OLDFILEUID=\"NONE\" NEWFILEUID=\"NONE\"?>\n"
+			 + "<OFX><BANKMSGSRSV1><STMTTRNRS><TRNUID>0</TRNUID>"
+			 + "<STATUS><CODE>0</CODE><SEVERITY>INFO</SEVERITY></STATUS>"
+			 + "<STMTRS><CURDEF>" + moedaBase + "</CURDEF><BANKTRANLIST>\n";
+	}
+	
+	private String linhaOfx(ResultSet rs, String moedaBase) throws SQLException {
+		TipoLancamento tipo = TipoLancamento.valueOf(rs.getString("tipo"));
+		boolean receita = tipo.isEntrada();
+		BigDecimal valor = rs.getBigDecimal("valor");
+		LocalDate competencia = LocalDate.of(rs.getInt("ano"), rs.getInt("mes"), 1);
+		String moeda = rs.getString("moeda");
+		String moedaOfx = "";
+		if (moeda != null && !moeda.equals(moedaBase)) {
+			BigDecimal taxa = cotacaoService.obterTaxa(moeda, moedaBase, competencia.getYear(), competencia.getMonthValue());
+			moedaOfx = "<CURRENCY><CURRATE>" + taxa.stripTrailingZeros().toPlainString() + "</CURRATE>"
+					 + "<CURSYM>" + moeda + "</CURSYM></CURRENCY>";
+		}
+		
+		return "<STMTTRN>"
+			 + "<TRNTYPE>" + (tipo.isTransferencia() ? "XFER" : receita ? "CREDIT" : "DEBIT") + "</TRNTYPE>"
+			 + "<DTPOSTED>" + competencia.format(DATA_OFX) + "</DTPOSTED>"
+			 + "<TRNAMT>" + (receita ? valor : valor.negate()).toPlainString() + "</TRNAMT>"
+			 + "<FITID>" + rs.getLong("id") + "</FITID>"
+			 + "<MEMO>" + textoXml(rs.getString("descricao")) + "</MEMO>"
+			 + moedaOfx
+			 + "</STMTTRN>\n";
+	}
+	
+	private String rodapeOfx() {
+		return "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n";
+	}
+	
+	private String textoXml(String valor) {
+		if (valor == null) {
+			return "";
+		}
+		
+		return valor.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+	
+	private void escrever(Writer escritor, String texto) {
+		try {
+			escritor.write(texto);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private void descarregar(Writer escritor) {
+		try {
+			escritor.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.GastoCategoriaMensal;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.projection.GastoMoeda;
+import com.danielnobrega.minhasfinancas.model.repository.GastoCategoriaMensalRepository;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.GastoCategoriaService;
+import com.danielnobrega.minhasfinancas.service.cotacao.ConversorMoeda;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+
+@Service
+public class GastoCategoriaServiceImpl implements GastoCategoriaService {
+
+	private GastoCategoriaMensalRepository repository;
+	
+	private CotacaoService cotacaoService;
+	
+	private TransactionTemplate transactionTemplate;
+
+	public GastoCategoriaServiceImpl(GastoCategoriaMensalRepository repository, CotacaoService cotacaoService,
+			PlatformTransactionManager transactionManager) {
+		this.repository = repository;
+		this.cotacaoService = cotacaoService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<GastoCategoriaMensal> obterGastosPorCategoria(Long idUsuario, Integer ano, Integer mes) {
+		return repository.findByIdUsuarioAndAnoAndMes(idUsuario, ano, mes);
+	}
+
+	@Override
+	@Transactional
+	public void reconstruir(Long idUsuario) {
+		String moedaBase = cotacaoService.obterMoedaBase(idUsuario);
+		repository.removerDoUsuario(idUsuario);
+		repository.reconstruirDoUsuario(idUsuario, moedaBase);
+		
+		ConversorMoeda conversor = cotacaoService.conversorPara(moedaBase);
+		for (GastoMoeda gasto : repository.obterGastosEmOutraMoeda(idUsuario, moedaBase)) {
+			BigDecimal valor = conversor.converter(gasto.getTotal(), gasto.getMoeda(), gasto.getAno(), gasto.getMes());
+			if (repository.acumular(idUsuario, gasto.getIdCategoria(), gasto.getAno(), gasto.getMes(), valor) == 0) {
+				repository.save(GastoCategoriaMensal.builder()
+								.idUsuario(idUsuario)
+								.idCategoria(gasto.getIdCategoria())
+								.ano(gasto.getAno())
+								.mes(gasto.getMes())
+								.total(valor)
+								.build());
+			}
+		}
+	}
+	
+	@EventListener
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		if (evento.getAnterior() != null) {
+			acumular(evento.getAnterior(), -1);
+		}
+		
+		if (evento.getAtual() != null) {
+			acumular(evento.getAtual(), 1);
+		}
+	}
+
+	private void acumular(Lancamento lancamento, int sinal) {
+		if (lancamento.getTipo() != TipoLancamento.DESPESA || lancamento.getValor() == null) {
+			return;
+		}
+		
+		Long idUsuario = lancamento.getUsuario().getId();
+		Long idCategoria = lancamento.getCategoria() == null ? GastoCategoriaMensal.SEM_CATEGORIA : lancamento.getCategoria().getId();
+		BigDecimal valorNaMoedaBase = cotacaoService.valorNaMoedaBase(lancamento);
+		BigDecimal valor = sinal < 0 ? valorNaMoedaBase.negate() : valorNaMoedaBase;
+		
+		if (repository.acumular(idUsuario, idCategoria, lancamento.getAno(), lancamento.getMes(), valor) > 0) {
+			return;
+		}
+		
+		criarZerado(idUsuario, idCategoria, lancamento.getAno(), lancamento.getMes());
+		repository.acumular(idUsuario, idCategoria, lancamento.getAno(), lancamento.getMes(), valor);
+	}
+	
+	/**
+	 * Cria a linha do mês com total zero numa transação própria. Se duas escritas chegam juntas ao
+	 * primeiro gasto do mês, a segunda esbarra em uk_gasto_categoria_mensal só nessa transação, sem
+	 * abortar a do lançamento, e as duas acumulam depois sobre a mesma linha. Uma linha zerada que
+	 * sobra quando a escrita original é desfeita não altera nenhum total.
+	 */
+	private void criarZerado(Long idUsuario, Long idCategoria, Integer ano, Integer mes) {
+		try {
+			transactionTemplate.execute( status -> repository.saveAndFlush(GastoCategoriaMensal.builder()
+																.idUsuario(idUsuario)
+																.idCategoria(idCategoria)
+																.ano(ano)
+																.mes(mes)
+																.total(BigDecimal.ZERO)
+																.build()) );
+		} catch (DataIntegrityViolationException e) {
+			// outra escrita criou a linha primeiro
+		}
+	}
+
+}
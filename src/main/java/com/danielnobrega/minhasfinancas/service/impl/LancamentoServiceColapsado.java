@@ -0,0 +1,218 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoSaldo;
+import com.danielnobrega.minhasfinancas.service.LancamentoService;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Fica na frente do LancamentoServiceImpl e faz chamadas idênticas e simultâneas de saldo e de
+ * busca compartilharem uma única execução: a primeira consulta o banco e as demais aguardam o
+ * mesmo resultado, sem abrir transação própria. Só chamadas em andamento são compartilhadas; nada
+ * fica guardado depois que a execução termina.
+ *
+ * As listas compartilhadas nunca saem diretamente: cada chamador recebe a sua cópia, que não
+ * pode ser alterada.
+ *
+ * Depois do commit de uma escrita as chamadas em andamento do usuário deixam de ser oferecidas,
+ * para que quem chegar depois da escrita não receba um resultado calculado antes dela. Acima de
+ * {@code max-chamadas} chaves em andamento as novas chamadas executam diretamente.
+ */
+@Service
+@Primary
+public class LancamentoServiceColapsado implements LancamentoService {
+
+	private static final String SALDO = "saldo";
+
+	private static final String BUSCA = "busca";
+
+	private static final String CAMPOS = "campos";
+
+	private LancamentoServiceImpl delegado;
+
+	private int maxChamadas;
+
+	private final ConcurrentHashMap<Chave, CompletableFuture<Object>> emAndamento = new ConcurrentHashMap<>();
+
+	private final Contadores saldo;
+
+	private final Contadores busca;
+
+	public LancamentoServiceColapsado(LancamentoServiceImpl delegado, MeterRegistry meterRegistry,
+			@Value("${minhasfinancas.colapso.max-chamadas:1000}") int maxChamadas) {
+		this.delegado = delegado;
+		this.maxChamadas = maxChamadas;
+		this.saldo = new Contadores(meterRegistry, SALDO);
+		this.busca = new Contadores(meterRegistry, BUSCA);
+	}
+
+	@Override
+	public BigDecimal obterSaldoPorUsuario(Long id) {
+		return executar(new Chave(id, SALDO, null), saldo, () -> delegado.obterSaldoPorUsuario(id));
+	}
+
+	@Override
+	public List<Lancamento> buscar(FiltroLancamento filtro) {
+		return copia(executar(new Chave(filtro.getIdUsuario(), BUSCA, filtro.toBuilder().build()), busca,
+				() -> delegado.buscar(filtro)));
+	}
+
+	@Override
+	public List<Map<String, Object>> buscarCampos(FiltroLancamento filtro) {
+		return copia(executar(new Chave(filtro.getIdUsuario(), CAMPOS, filtro.toBuilder().build()), busca,
+				() -> delegado.buscarCampos(filtro)));
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		invalidar(evento.getAnterior());
+		invalidar(evento.getAtual());
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T executar(Chave chave, Contadores contadores, Supplier<T> execucao) {
+		if (chave.idUsuario == null || emAndamento.size() >= maxChamadas) {
+			contadores.diretas.increment();
+			return execucao.get();
+		}
+
+		CompletableFuture<Object> nova = new CompletableFuture<>();
+		CompletableFuture<Object> existente = emAndamento.putIfAbsent(chave, nova);
+
+		if (existente != null) {
+			contadores.colapsadas.increment();
+			return (T) aguardar(existente);
+		}
+
+		contadores.executadas.increment();
+		try {
+			T resultado = execucao.get();
+			nova.complete(resultado);
+			return resultado;
+		} catch (RuntimeException | Error e) {
+			nova.completeExceptionally(e);
+			throw e;
+		} finally {
+			emAndamento.remove(chave, nova);
+		}
+	}
+
+	private static <T> List<T> copia(List<T> compartilhada) {
+		return Collections.unmodifiableList(new ArrayList<>(compartilhada));
+	}
+
+	private Object aguardar(CompletableFuture<Object> chamada) {
+		try {
+			return chamada.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private void invalidar(Lancamento lancamento) {
+		if (lancamento == null || lancamento.getUsuario() == null || lancamento.getUsuario().getId() == null) {
+			return;
+		}
+
+		Long idUsuario = lancamento.getUsuario().getId();
+		emAndamento.keySet().removeIf( chave -> idUsuario.equals(chave.idUsuario) );
+	}
+
+	@Override
+	public Lancamento salvar(Lancamento lancamento) {
+		return delegado.salvar(lancamento);
+	}
+
+	@Override
+	public Lancamento atualizar(Lancamento lancamento) {
+		return delegado.atualizar(lancamento);
+	}
+
+	@Override
+	public List<Lancamento> transferir(Lancamento saida, Long idUsuarioDestino) {
+		return delegado.transferir(saida, idUsuarioDestino);
+	}
+
+	@Override
+	public void deletar(Lancamento lancamento) {
+		delegado.deletar(lancamento);
+	}
+
+	@Override
+	public void atualizarStatus(Lancamento lancamento, StatusLancamento status) {
+		delegado.atualizarStatus(lancamento, status);
+	}
+
+	@Override
+	public void validar(Lancamento lancamento) {
+		delegado.validar(lancamento);
+	}
+
+	@Override
+	public Optional<Lancamento> obterPorId(Long id) {
+		return delegado.obterPorId(id);
+	}
+
+	@Override
+	public ResumoSaldo obterResumoSaldo(Long idUsuario, boolean somenteEfetivados, Integer ano, Integer mes) {
+		return delegado.obterResumoSaldo(idUsuario, somenteEfetivados, ano, mes);
+	}
+
+	@EqualsAndHashCode
+	@RequiredArgsConstructor
+	private static class Chave {
+
+		private final Long idUsuario;
+
+		private final String operacao;
+
+		private final Object argumento;
+
+	}
+
+	private static class Contadores {
+
+		private final Counter executadas;
+
+		private final Counter colapsadas;
+
+		private final Counter diretas;
+
+		Contadores(MeterRegistry meterRegistry, String operacao) {
+			this.executadas = meterRegistry.counter("minhasfinancas.colapso.requisicoes", "operacao", operacao, "resultado", "executada");
+			this.colapsadas = meterRegistry.counter("minhasfinancas.colapso.requisicoes", "operacao", operacao, "resultado", "colapsada");
+			this.diretas = meterRegistry.counter("minhasfinancas.colapso.requisicoes", "operacao", operacao, "resultado", "direta");
+		}
+
+	}
+
+}
@@ -1,38 +1,106 @@
 package com.danielnobrega.minhasfinancas.service.impl;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
-import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
 import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.exceptions.ErroValidacao;
 import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
 import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoSaldo;
 import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.AnaliticoService;
+import com.danielnobrega.minhasfinancas.service.CategoriaService;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.DuplicidadeService;
 import com.danielnobrega.minhasfinancas.service.LancamentoService;
+import com.danielnobrega.minhasfinancas.service.cotacao.TabelaCotacoes;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
 
 @Service
 public class LancamentoServiceImpl implements LancamentoService{
 
+	private static final int ANO_LIMITE = 9999;
+	
+	private static final ErroValidacao DESCRICAO_INVALIDA = new ErroValidacao("descricao", "INVALIDO", "Informe uma DESCRIÇÃO válida");
+	
+	private static final ErroValidacao MES_INVALIDO = new ErroValidacao("mes", "INVALIDO", "Informe um MÊS válido");
+	
+	private static final ErroValidacao ANO_INVALIDO = new ErroValidacao("ano", "INVALIDO", "Informe um ANO válido");
+	
+	private static final ErroValidacao USUARIO_OBRIGATORIO = new ErroValidacao("usuario", "OBRIGATORIO", "Informe um Usuário");
+	
+	private static final ErroValidacao VALOR_INVALIDO = new ErroValidacao("valor", "INVALIDO", "Informe um VALOR válido");
+	
+	private static final ErroValidacao TIPO_OBRIGATORIO = new ErroValidacao("tipo", "OBRIGATORIO", "Informe um TIPO de Lançamento");
+	
+	private static final ErroValidacao MOEDA_INVALIDA = new ErroValidacao("moeda", "INVALIDO", "Informe uma MOEDA no padrão ISO 4217");
+	
+	private static final ErroValidacao TRANSFERENCIA_AVULSA = new ErroValidacao("tipo", "INVALIDO", "Registre transferências informando origem e destino");
+	
+	private static final ErroValidacao TRANSFERENCIA_INALTERAVEL = new ErroValidacao("tipo", "INVALIDO", "Transferências não podem ser alteradas. Exclua e registre novamente");
+	
+	private static final ErroValidacao DESTINO_OBRIGATORIO = new ErroValidacao("destino", "OBRIGATORIO", "Informe o Usuário de destino");
+	
+	private static final ErroValidacao DESTINO_INVALIDO = new ErroValidacao("destino", "INVALIDO", "Informe um Usuário de destino diferente do de origem");
+
 	private LancamentoRepository repository;
 	
-	public LancamentoServiceImpl(LancamentoRepository repository) {
+	private UsuarioRepository usuarioRepository;
+	
+	private CategoriaService categoriaService;
+	
+	private DuplicidadeService duplicidadeService;
+	
+	private CotacaoService cotacaoService;
+	
+	private ApplicationEventPublisher publisher;
+	
+	private Optional<AnaliticoService> analiticoService;
+	
+	public LancamentoServiceImpl(LancamentoRepository repository, UsuarioRepository usuarioRepository, 
+			CategoriaService categoriaService, DuplicidadeService duplicidadeService, CotacaoService cotacaoService,
+			ApplicationEventPublisher publisher, Optional<AnaliticoService> analiticoService) {
 		this.repository = repository;
+		this.usuarioRepository = usuarioRepository;
+		this.categoriaService = categoriaService;
+		this.duplicidadeService = duplicidadeService;
+		this.cotacaoService = cotacaoService;
+		this.publisher = publisher;
+		this.analiticoService = analiticoService;
 	}
 
 	@Override
 	@Transactional 	
 	public Lancamento salvar(Lancamento lancamento) {
 		validar(lancamento);
+		if (lancamento.getTipo().isTransferencia()) {
+			throw new RegraNegocioException(Collections.singletonList(TRANSFERENCIA_AVULSA));
+		}
+		validarConversao(lancamento);
+		duplicidadeService.verificar(lancamento);
+		categoriaService.categorizar(lancamento);
 		lancamento.setStatus(StatusLancamento.PENDENTE);
-		return repository.save(lancamento);
+		lancamento.setDataCadastro(LocalDate.now());
+		Lancamento salvo = repository.save(lancamento);
+		publisher.publishEvent(new LancamentoAlteradoEvent(null, salvo));
+		return salvo;
 	}
 
 	@Override
@@ -40,30 +108,148 @@ public class LancamentoServiceImpl implements LancamentoService{
 	public Lancamento atualizar(Lancamento lancamento) {
 		Objects.requireNonNull(lancamento.getId());
 		validar(lancamento);
-		return repository.save(lancamento);
+		Lancamento anterior = repository.findById(lancamento.getId())
+										.map( entity -> entity.toBuilder().build() )
+										.orElse(null);
+		if (lancamento.getTipo().isTransferencia() || (anterior != null && anterior.getIdContrapartida() != null)) {
+			throw new RegraNegocioException(Collections.singletonList(TRANSFERENCIA_INALTERAVEL));
+		}
+		validarConversao(lancamento);
+		categoriaService.categorizar(lancamento);
+		// a data de cadastro é do servidor e não muda: o DTO não a traz e o save gravaria null
+		if (anterior != null) {
+			lancamento.setDataCadastro(anterior.getDataCadastro());
+		}
+		Lancamento atualizado = repository.save(lancamento);
+		publisher.publishEvent(new LancamentoAlteradoEvent(anterior, atualizado));
+		return atualizado;
 	}
 
+	/**
+	 * Grava as duas pernas da transferência na mesma transação. Os usuários envolvidos são travados
+	 * sempre do menor para o maior id, e as pernas são gravadas e publicadas nessa mesma ordem:
+	 * transferências simultâneas em sentidos opostos esperam uma pela outra em vez de se travarem,
+	 * e os ouvintes que mantêm dados por usuário também recebem os usuários em ordem.
+	 */
 	@Override
 	@Transactional
-	public void deletar(Lancamento lancamento) {
-		Objects.requireNonNull(lancamento.getId());
-		repository.delete(lancamento);
+	public List<Lancamento> transferir(Lancamento saida, Long idUsuarioDestino) {
+		saida.setTipo(TipoLancamento.TRANSFERENCIA_SAIDA);
+		validar(saida);
+		
+		if (idUsuarioDestino == null) {
+			throw new RegraNegocioException(Collections.singletonList(DESTINO_OBRIGATORIO));
+		}
+		
+		if (idUsuarioDestino.equals(saida.getUsuario().getId())) {
+			throw new RegraNegocioException(Collections.singletonList(DESTINO_INVALIDO));
+		}
+		
+		saida.setId(null);
+		saida.setStatus(StatusLancamento.EFETIVADO);
+		saida.setCategoria(null);
+		saida.setDataCadastro(LocalDate.now());
+		Lancamento entrada = saida.toBuilder()
+				.tipo(TipoLancamento.TRANSFERENCIA_ENTRADA)
+				.usuario(Usuario.builder().id(idUsuarioDestino).build())
+				.build();
+		
+		List<Lancamento> pernas = emOrdemDeUsuario(saida, entrada);
+		bloquearUsuarios(pernas);
+
+		// sem moeda, a saída está na moeda base de quem envia; a entrada precisa dizer isso
+		// explicitamente, senão seria lida na moeda base do destino
+		String moeda = saida.getMoeda() != null ? saida.getMoeda() 
+				: saida.getUsuario().getMoedaBase() != null ? saida.getUsuario().getMoedaBase() 
+				: CotacaoService.MOEDA_PADRAO;
+		for (Lancamento perna : pernas) {
+			perna.setMoeda(moeda);
+		}
+		for (Lancamento perna : pernas) {
+			cotacaoService.validarConversao(perna.getMoeda(), perna.getUsuario().getMoedaBase(), perna.getAno(), perna.getMes());
+		}
+		for (Lancamento perna : pernas) {
+			repository.save(perna);
+		}
+		saida.setIdContrapartida(entrada.getId());
+		entrada.setIdContrapartida(saida.getId());
+		
+		for (Lancamento perna : pernas) {
+			publisher.publishEvent(new LancamentoAlteradoEvent(null, perna));
+		}
+		return Arrays.asList(saida, entrada);
 	}
 
 	@Override
-	@Transactional(readOnly = true)
-	public List<Lancamento> buscar(Lancamento lancamento) {
-		Example example = Example.of(lancamento, ExampleMatcher.matching()
-													.withIgnoreCase()
-													.withStringMatcher(StringMatcher.CONTAINING));
+	@Transactional
+	public void deletar(Lancamento lancamento) {
+		Objects.requireNonNull(lancamento.getId());
+		Lancamento contrapartida = lancamento.getIdContrapartida() == null 
+				? null 
+				: repository.findById(lancamento.getIdContrapartida()).orElse(null);
 		
+		if (contrapartida == null) {
+			repository.marcarExcluido(lancamento.getId(), LocalDateTime.now());
+			publisher.publishEvent(new LancamentoAlteradoEvent(lancamento, null));
+			return;
+		}
 		
+		// as duas pernas de uma transferência saem juntas, com as mesmas travas de transferir
+		List<Lancamento> pernas = emOrdemDeUsuario(lancamento, contrapartida);
+		bloquearUsuarios(pernas);
+		LocalDateTime dataExclusao = LocalDateTime.now();
 		
+		for (Lancamento perna : pernas) {
+			repository.marcarExcluido(perna.getId(), dataExclusao);
+		}
+		for (Lancamento perna : pernas) {
+			publisher.publishEvent(new LancamentoAlteradoEvent(perna, null));
+		}
+	}
+	
+	private List<Lancamento> emOrdemDeUsuario(Lancamento uma, Lancamento outra) {
+		return uma.getUsuario().getId() <= outra.getUsuario().getId() 
+				? Arrays.asList(uma, outra) 
+				: Arrays.asList(outra, uma);
+	}
+	
+	private void bloquearUsuarios(List<Lancamento> pernas) {
+		for (Lancamento perna : pernas) {
+			Usuario usuario = usuarioRepository.bloquear(perna.getUsuario().getId())
+					.orElseThrow( () -> new RegraNegocioException("Usuário não encontrado para o Id informado") );
+			perna.setUsuario(usuario);
+		}
+	}
+
+	/**
+	 * Um lançamento em moeda estrangeira só é aceito se já houver cotação dela para a moeda base
+	 * do usuário no mês de competência; do contrário o saldo do usuário deixaria de poder ser
+	 * calculado. Lançamentos na moeda base não consultam nada.
+	 */
+	private void validarConversao(Lancamento lancamento) {
+		if (lancamento.getMoeda() == null) {
+			return;
+		}
 		
-		return repository.findAll(example);
+		Usuario usuario = usuarioRepository.findById(lancamento.getUsuario().getId())
+				.orElseThrow( () -> new RegraNegocioException("Usuário não encontrado para o Id informado") );
+		cotacaoService.validarConversao(lancamento.getMoeda(), usuario.getMoedaBase(), lancamento.getAno(), lancamento.getMes());
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Lancamento> buscar(FiltroLancamento filtro) {
+		return repository.buscar(filtro);
 	}
 
 	@Override
+	@Transactional(readOnly = true)
+	public List<Map<String, Object>> buscarCampos(FiltroLancamento filtro) {
+		return repository.buscarCampos(filtro);
+	}
+
+	@Override
+	@Transactional
 	public void atualizarStatus(Lancamento lancamento, StatusLancamento status) {
 		lancamento.setStatus(status);
 		atualizar(lancamento);
@@ -72,33 +258,64 @@ public class LancamentoServiceImpl implements LancamentoService{
 
 	@Override
 	public void validar(Lancamento lancamento) {
-		if (lancamento.getDescricao() == null || lancamento.getDescricao().trim().equals("")) {
-			throw new RegraNegocioException("Informe uma DESCRIÇÃO válida");
+		List<ErroValidacao> erros = null;
+		
+		if (emBranco(lancamento.getDescricao())) {
+			erros = adicionar(erros, DESCRICAO_INVALIDA);
 		}
 		
 		if (lancamento.getMes() == null || lancamento.getMes() < 1 || lancamento.getMes() > 12) {
-			throw new RegraNegocioException("Informe um MÊS válido");
+			erros = adicionar(erros, MES_INVALIDO);
 		}
 		
-		if (lancamento.getAno() == null || lancamento.getAno().toString().length() != 4 ) {
-			throw new RegraNegocioException("Informe um ANO válido");
+		if (lancamento.getAno() == null || lancamento.getAno() < 1000 || lancamento.getAno() > ANO_LIMITE) {
+			erros = adicionar(erros, ANO_INVALIDO);
 		}
 		
 		if (lancamento.getUsuario() == null || lancamento.getUsuario().getId() == null ) {
-			throw new RegraNegocioException("Informe um Usuário");
+			erros = adicionar(erros, USUARIO_OBRIGATORIO);
 		}
 		
-		if (lancamento.getValor() == null || lancamento.getValor().compareTo(BigDecimal.ZERO) < 1 ) {
-			throw new RegraNegocioException("Informe um VALOR válido");
+		if (lancamento.getValor() == null || lancamento.getValor().signum() < 1 ) {
+			erros = adicionar(erros, VALOR_INVALIDO);
 		}
 		
 		if (lancamento.getTipo() == null ) {
-			throw new RegraNegocioException("Informe um TIPO de Lançamento");
+			erros = adicionar(erros, TIPO_OBRIGATORIO);
+		}
+		
+		if (lancamento.getMoeda() != null && !TabelaCotacoes.codigoValido(lancamento.getMoeda())) {
+			erros = adicionar(erros, MOEDA_INVALIDA);
 		}
 		
+		if (erros != null) {
+			throw new RegraNegocioException(erros);
+		}
+	}
+	
+	private static List<ErroValidacao> adicionar(List<ErroValidacao> erros, ErroValidacao erro) {
+		if (erros == null) {
+			erros = new ArrayList<>(4);
+		}
+		erros.add(erro);
+		return erros;
+	}
+	
+	private static boolean emBranco(String texto) {
+		if (texto == null) {
+			return true;
+		}
+		
+		for (int i = 0; i < texto.length(); i++) {
+			if (texto.charAt(i) > ' ') {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Optional<Lancamento> obterPorId(Long id) {
 		return repository.findById(id);
 	}
@@ -106,17 +323,25 @@ public class LancamentoServiceImpl implements LancamentoService{
 	@Override
 	@Transactional(readOnly = true)
 	public BigDecimal obterSaldoPorUsuario(Long id) {
-		BigDecimal receitas = repository.obterSaldoPorTipoLancamentoEUsuario(id, TipoLancamento.RECEITA);
-		BigDecimal despesas = repository.obterSaldoPorTipoLancamentoEUsuario(id, TipoLancamento.DESPESA);
-		
-		if (receitas == null) {
-			receitas = BigDecimal.ZERO;
+		return obterResumoSaldo(id, false, null, null).getSaldo();
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public ResumoSaldo obterResumoSaldo(Long idUsuario, boolean somenteEfetivados, Integer ano, Integer mes) {
+		if (ano == null) {
+			ano = ANO_LIMITE;
+			mes = 12;
+		} else if (mes == null) {
+			mes = 12;
 		}
 		
-		if (despesas == null) {
-			despesas = BigDecimal.ZERO;
+		if (analiticoService.isPresent()) {
+			return analiticoService.get().obterResumoSaldo(idUsuario, somenteEfetivados, ano, mes);
 		}
-		return receitas.subtract(despesas);
+		
+		String moedaBase = cotacaoService.obterMoedaBase(idUsuario);
+		return cotacaoService.consolidar(repository.obterSaldosPorMoeda(idUsuario, moedaBase, somenteEfetivados, ano, mes), moedaBase);
 	}
 
 }
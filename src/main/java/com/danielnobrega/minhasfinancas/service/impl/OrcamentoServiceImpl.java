@@ -0,0 +1,243 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.danielnobrega.minhasfinancas.enums.TipoAlertaOrcamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.AlertaOrcamento;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Orcamento;
+import com.danielnobrega.minhasfinancas.model.repository.AlertaOrcamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.GastoCategoriaMensalRepository;
+import com.danielnobrega.minhasfinancas.model.repository.OrcamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.OrcamentoService;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mantém o gasto de cada orçamento dentro da transação da escrita de lançamento: a variação
+ * líquida da escrita é somada na linha do orçamento e o total é relido na mesma transação. Como
+ * a linha fica bloqueada até o commit, cada escrita vê o total anterior exato e uma travessia de
+ * limite é percebida por uma única escrita, sem recalcular a soma do mês.
+ *
+ * A escrita bloqueia o usuário antes de ler os orçamentos do período, e a definição de um
+ * orçamento novo bloqueia o mesmo usuário antes de somar os gastos já lançados. Assim uma escrita
+ * concorrente ou entra na soma inicial ou encontra o orçamento já criado, nunca nenhum dos dois.
+ *
+ * O alerta é gravado na própria transação da escrita que atravessou o limite, de modo que só
+ * existe se a escrita for confirmada e não se perde sob carga; o registro em log vem depois do
+ * commit.
+ */
+@Slf4j
+@Service
+public class OrcamentoServiceImpl implements OrcamentoService {
+
+	private static final BigDecimal CEM = BigDecimal.valueOf(100);
+
+	private OrcamentoRepository repository;
+
+	private AlertaOrcamentoRepository alertaRepository;
+
+	private GastoCategoriaMensalRepository gastoRepository;
+
+	private UsuarioRepository usuarioRepository;
+
+	private CotacaoService cotacaoService;
+
+	private ApplicationEventPublisher publisher;
+
+	private final Counter alertasRegistrados;
+
+	public OrcamentoServiceImpl(OrcamentoRepository repository, AlertaOrcamentoRepository alertaRepository,
+			GastoCategoriaMensalRepository gastoRepository, UsuarioRepository usuarioRepository, CotacaoService cotacaoService,
+			ApplicationEventPublisher publisher, MeterRegistry meterRegistry) {
+		this.repository = repository;
+		this.alertaRepository = alertaRepository;
+		this.gastoRepository = gastoRepository;
+		this.usuarioRepository = usuarioRepository;
+		this.cotacaoService = cotacaoService;
+		this.publisher = publisher;
+		this.alertasRegistrados = meterRegistry.counter("minhasfinancas.orcamento.alertas", "resultado", "registrado");
+	}
+
+	@Override
+	@Transactional
+	public Orcamento definir(Orcamento orcamento) {
+		validar(orcamento);
+
+		if (!usuarioRepository.bloquear(orcamento.getIdUsuario()).isPresent()) {
+			throw new RegraNegocioException("Usuário não encontrado");
+		}
+
+		Orcamento existente = repository.findByIdUsuarioAndAnoAndMes(orcamento.getIdUsuario(), orcamento.getAno(), orcamento.getMes())
+				.stream()
+				.filter( o -> Objects.equals(o.getIdCategoria(), orcamento.getIdCategoria()) )
+				.findFirst()
+				.orElse(null);
+
+		if (existente != null) {
+			existente.setLimite(orcamento.getLimite());
+			existente.setPercentualAviso(orcamento.getPercentualAviso());
+			return repository.save(existente);
+		}
+
+		BigDecimal gasto = orcamento.getIdCategoria() == null
+				? gastoRepository.somarTotal(orcamento.getIdUsuario(), orcamento.getAno(), orcamento.getMes())
+				: gastoRepository.somarTotalDaCategoria(orcamento.getIdUsuario(), orcamento.getIdCategoria(), orcamento.getAno(), orcamento.getMes());
+		orcamento.setId(null);
+		orcamento.setGasto(gasto);
+		return repository.save(orcamento);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Orcamento> obterOrcamentos(Long idUsuario, Integer ano, Integer mes) {
+		return repository.findByIdUsuarioAndAnoAndMes(idUsuario, ano, mes);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<AlertaOrcamento> obterAlertas(Long idUsuario) {
+		return alertaRepository.findByIdUsuarioOrderByIdDesc(idUsuario);
+	}
+
+	@EventListener
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		bloquearUsuarios(evento.getAnterior(), evento.getAtual());
+		Map<List<Object>, List<Orcamento>> orcamentosDoPeriodo = new HashMap<>();
+		Map<Long, Orcamento> orcamentos = new HashMap<>();
+		Map<Long, BigDecimal> variacoes = new TreeMap<>();
+
+		acumular(evento.getAnterior(), -1, orcamentosDoPeriodo, orcamentos, variacoes);
+		acumular(evento.getAtual(), 1, orcamentosDoPeriodo, orcamentos, variacoes);
+
+		variacoes.forEach( (id, valor) -> {
+			if (valor.signum() != 0) {
+				aplicar(orcamentos.get(id), valor);
+			}
+		});
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoEmitirAlerta(AlertaOrcamento alerta) {
+		alertasRegistrados.increment();
+		log.info("Orçamento {} do usuário {} atingiu {} de {} ({})", alerta.getIdOrcamento(), alerta.getIdUsuario(),
+				alerta.getGasto(), alerta.getLimite(), alerta.getTipo());
+	}
+
+	/** Bloqueia os usuários da escrita em ordem de id, a mesma em qualquer transação. */
+	private void bloquearUsuarios(Lancamento anterior, Lancamento atual) {
+		TreeSet<Long> ids = new TreeSet<>();
+		for (Lancamento lancamento : Arrays.asList(anterior, atual)) {
+			if (lancamento != null && lancamento.getUsuario() != null && lancamento.getUsuario().getId() != null) {
+				ids.add(lancamento.getUsuario().getId());
+			}
+		}
+		ids.forEach(usuarioRepository::bloquear);
+	}
+
+	private void acumular(Lancamento lancamento, int sinal, Map<List<Object>, List<Orcamento>> orcamentosDoPeriodo,
+			Map<Long, Orcamento> orcamentos, Map<Long, BigDecimal> variacoes) {
+		if (lancamento == null || lancamento.getTipo() != TipoLancamento.DESPESA || lancamento.getValor() == null) {
+			return;
+		}
+
+		Long idUsuario = lancamento.getUsuario().getId();
+		Long idCategoria = lancamento.getCategoria() == null ? null : lancamento.getCategoria().getId();
+
+		List<Orcamento> doPeriodo = orcamentosDoPeriodo.computeIfAbsent(
+				Arrays.asList(idUsuario, lancamento.getAno(), lancamento.getMes()),
+				chave -> repository.findByIdUsuarioAndAnoAndMes(idUsuario, lancamento.getAno(), lancamento.getMes()));
+		if (doPeriodo.isEmpty()) {
+			return;
+		}
+
+		// os limites estão na moeda base, como os totais de gasto_categoria_mensal
+		BigDecimal valorNaMoedaBase = cotacaoService.valorNaMoedaBase(lancamento);
+		BigDecimal valor = sinal < 0 ? valorNaMoedaBase.negate() : valorNaMoedaBase;
+
+		for (Orcamento orcamento : doPeriodo) {
+			if (orcamento.getIdCategoria() == null || orcamento.getIdCategoria().equals(idCategoria)) {
+				orcamentos.put(orcamento.getId(), orcamento);
+				variacoes.merge(orcamento.getId(), valor, BigDecimal::add);
+			}
+		}
+	}
+
+	private void aplicar(Orcamento orcamento, BigDecimal valor) {
+		repository.acumular(orcamento.getId(), valor);
+		BigDecimal depois = repository.obterGasto(orcamento.getId());
+		BigDecimal antes = depois.subtract(valor);
+
+		if (orcamento.getPercentualAviso() != null) {
+			BigDecimal aviso = orcamento.getLimite()
+					.multiply(BigDecimal.valueOf(orcamento.getPercentualAviso()))
+					.divide(CEM, 2, RoundingMode.HALF_UP);
+			verificar(orcamento, TipoAlertaOrcamento.AVISO, aviso, antes, depois);
+		}
+
+		verificar(orcamento, TipoAlertaOrcamento.LIMITE, orcamento.getLimite(), antes, depois);
+	}
+
+	private void verificar(Orcamento orcamento, TipoAlertaOrcamento tipo, BigDecimal limite, BigDecimal antes, BigDecimal depois) {
+		if (antes.compareTo(limite) >= 0 || depois.compareTo(limite) < 0) {
+			return;
+		}
+
+		publisher.publishEvent(alertaRepository.save(AlertaOrcamento.builder()
+									.idOrcamento(orcamento.getId())
+									.idUsuario(orcamento.getIdUsuario())
+									.idCategoria(orcamento.getIdCategoria())
+									.ano(orcamento.getAno())
+									.mes(orcamento.getMes())
+									.tipo(tipo)
+									.limite(limite)
+									.gasto(depois)
+									.dataAlerta(LocalDateTime.now())
+									.build()));
+	}
+
+	private void validar(Orcamento orcamento) {
+		if (orcamento.getIdUsuario() == null) {
+			throw new RegraNegocioException("Informe um Usuário");
+		}
+
+		if (orcamento.getMes() == null || orcamento.getMes() < 1 || orcamento.getMes() > 12) {
+			throw new RegraNegocioException("Informe um MÊS válido");
+		}
+
+		if (orcamento.getAno() == null || orcamento.getAno().toString().length() != 4) {
+			throw new RegraNegocioException("Informe um ANO válido");
+		}
+
+		if (orcamento.getLimite() == null || orcamento.getLimite().signum() < 1) {
+			throw new RegraNegocioException("Informe um LIMITE válido");
+		}
+
+		if (orcamento.getPercentualAviso() != null && (orcamento.getPercentualAviso() < 1 || orcamento.getPercentualAviso() > 99)) {
+			throw new RegraNegocioException("O percentual de aviso deve estar entre 1 e 99");
+		}
+	}
+
+}
@@ -0,0 +1,239 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.danielnobrega.minhasfinancas.enums.MetodoProjecao;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.projection.TotalMensal;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.ProjecaoService;
+import com.danielnobrega.minhasfinancas.service.VersaoDadosService;
+import com.danielnobrega.minhasfinancas.service.cotacao.ConversorMoeda;
+import com.danielnobrega.minhasfinancas.service.projecao.PontoProjecao;
+import com.danielnobrega.minhasfinancas.service.projecao.Projecao;
+
+/**
+ * Projeta o saldo a partir da série mensal de receitas e despesas do usuário, obtida numa única
+ * consulta agregada por (ano, mes, tipo, moeda) que conta pendentes e efetivados e ignora
+ * cancelados; os totais em outras moedas são convertidos para a moeda base pela cotação do mês.
+ * A série fica em memória junto com a versão dos dados e a das cotações lidas antes da consulta;
+ * a próxima escrita do usuário ou recarga das cotações muda a versão e a série é recarregada no
+ * pedido seguinte.
+ *
+ * Na média móvel cada mês futuro recebe a média dos {@code janela} meses anteriores ao de
+ * referência; na sazonal, a média do mesmo mês nos anos anteriores, ou a média móvel quando não
+ * há histórico desse mês. Lançamentos já registrados num mês futuro prevalecem sobre a
+ * estimativa quando forem maiores.
+ */
+@Service
+public class ProjecaoServiceImpl implements ProjecaoService {
+
+	private static final int MAX_MESES = 60;
+
+	private static final BigDecimal ZERO = BigDecimal.ZERO.setScale(2);
+
+	private LancamentoRepository repository;
+
+	private VersaoDadosService versaoDadosService;
+
+	private CotacaoService cotacaoService;
+
+	private final Map<Long, Serie> series;
+
+	public ProjecaoServiceImpl(LancamentoRepository repository, VersaoDadosService versaoDadosService,
+			CotacaoService cotacaoService, @Value("${minhasfinancas.projecao.max-usuarios:1000}") int maxUsuarios) {
+		this.repository = repository;
+		this.versaoDadosService = versaoDadosService;
+		this.cotacaoService = cotacaoService;
+		this.series = Collections.synchronizedMap(new LinkedHashMap<Long, Serie>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Serie> eldest) {
+				return size() > maxUsuarios;
+			}
+		});
+	}
+
+	@Override
+	public Projecao projetar(Long idUsuario, Integer ano, Integer mes, int meses, MetodoProjecao metodo, int janela) {
+		if (meses < 1 || meses > MAX_MESES) {
+			throw new RegraNegocioException("Informe de 1 a " + MAX_MESES + " meses de projeção");
+		}
+
+		if (janela < 1 || janela > MAX_MESES) {
+			throw new RegraNegocioException("Informe uma janela de 1 a " + MAX_MESES + " meses");
+		}
+
+		if (mes == null || mes < 1 || mes > 12 || ano == null) {
+			throw new RegraNegocioException("Informe um mês de referência válido");
+		}
+
+		Serie serie = obterSerie(idUsuario);
+		int referencia = ano * 12 + mes - 1;
+		BigDecimal saldoAtual = serie.saldoAte(referencia);
+		BigDecimal[] media = serie.media(referencia - janela, referencia - 1);
+
+		BigDecimal saldo = saldoAtual;
+		List<PontoProjecao> pontos = new ArrayList<>(meses);
+		for (int periodo = referencia + 1; periodo <= referencia + meses; periodo++) {
+			BigDecimal[] estimativa = metodo == MetodoProjecao.SAZONAL ? serie.sazonal(periodo, referencia) : null;
+			if (estimativa == null) {
+				estimativa = media;
+			}
+
+			int i = serie.indice(periodo);
+			BigDecimal receitas = i < 0 ? estimativa[0] : serie.receitas[i].max(estimativa[0]);
+			BigDecimal despesas = i < 0 ? estimativa[1] : serie.despesas[i].max(estimativa[1]);
+			saldo = saldo.add(receitas).subtract(despesas);
+			pontos.add(new PontoProjecao(periodo / 12, periodo % 12 + 1, receitas, despesas, saldo));
+		}
+
+		return new Projecao(ano, mes, metodo, saldoAtual, pontos);
+	}
+
+	private Serie obterSerie(Long idUsuario) {
+		String versao = versaoDadosService.obter(idUsuario).getEtag() + "-" + cotacaoService.obterVersao();
+		Serie serie = series.get(idUsuario);
+
+		if (serie == null || !serie.versao.equals(versao)) {
+			String moedaBase = cotacaoService.obterMoedaBase(idUsuario);
+			List<TotalMensal> totais = repository.obterTotaisMensais(idUsuario, moedaBase);
+			ConversorMoeda conversor = cotacaoService.conversorPara(moedaBase);
+			serie = new Serie(versao, totais, conversor);
+			series.put(idUsuario, serie);
+		}
+		return serie;
+	}
+
+	/**
+	 * Totais mensais em vetores ordenados pelo período ({@code ano * 12 + mes - 1}), com o saldo
+	 * acumulado de cada mês para responder o saldo atual por busca binária.
+	 */
+	private static final class Serie {
+
+		private final String versao;
+
+		private final int[] periodos;
+
+		private final BigDecimal[] receitas;
+
+		private final BigDecimal[] despesas;
+
+		private final BigDecimal[] acumulado;
+
+		Serie(String versao, List<TotalMensal> totais, ConversorMoeda conversor) {
+			this.versao = versao;
+
+			int n = 0;
+			int[] periodos = new int[totais.size()];
+			BigDecimal[] receitas = new BigDecimal[totais.size()];
+			BigDecimal[] despesas = new BigDecimal[totais.size()];
+
+			for (TotalMensal total : totais) {
+				int periodo = total.getAno() * 12 + total.getMes() - 1;
+				if (n == 0 || periodos[n - 1] != periodo) {
+					periodos[n] = periodo;
+					receitas[n] = ZERO;
+					despesas[n] = ZERO;
+					n++;
+				}
+
+				if (total.getTipo() == null) {
+					continue;
+				}
+
+				BigDecimal valor = total.getMoeda() == null 
+						? total.getTotal() 
+						: conversor.converter(total.getTotal(), total.getMoeda(), total.getAno(), total.getMes());
+
+				if (TipoLancamento.valueOf(total.getTipo()).isEntrada()) {
+					receitas[n - 1] = receitas[n - 1].add(valor);
+				} else {
+					despesas[n - 1] = despesas[n - 1].add(valor);
+				}
+			}
+
+			this.periodos = Arrays.copyOf(periodos, n);
+			this.receitas = Arrays.copyOf(receitas, n);
+			this.despesas = Arrays.copyOf(despesas, n);
+			this.acumulado = new BigDecimal[n];
+
+			BigDecimal saldo = BigDecimal.ZERO;
+			for (int i = 0; i < n; i++) {
+				saldo = saldo.add(this.receitas[i]).subtract(this.despesas[i]);
+				acumulado[i] = saldo;
+			}
+		}
+
+		int indice(int periodo) {
+			return Arrays.binarySearch(periodos, periodo);
+		}
+
+		BigDecimal saldoAte(int periodo) {
+			int i = indice(periodo);
+			int ultimo = i >= 0 ? i : -i - 2;
+			return ultimo < 0 ? BigDecimal.ZERO : acumulado[ultimo];
+		}
+
+		BigDecimal[] media(int inicio, int fim) {
+			BigDecimal somaReceitas = BigDecimal.ZERO;
+			BigDecimal somaDespesas = BigDecimal.ZERO;
+
+			int i = indice(inicio);
+			for (i = i >= 0 ? i : -i - 1; i < periodos.length && periodos[i] <= fim; i++) {
+				somaReceitas = somaReceitas.add(receitas[i]);
+				somaDespesas = somaDespesas.add(despesas[i]);
+			}
+
+			BigDecimal meses = BigDecimal.valueOf(fim - inicio + 1);
+			return new BigDecimal[] {
+					somaReceitas.divide(meses, 2, RoundingMode.HALF_EVEN),
+					somaDespesas.divide(meses, 2, RoundingMode.HALF_EVEN) };
+		}
+
+		BigDecimal[] sazonal(int periodo, int referencia) {
+			if (periodos.length == 0) {
+				return null;
+			}
+
+			BigDecimal somaReceitas = BigDecimal.ZERO;
+			BigDecimal somaDespesas = BigDecimal.ZERO;
+			int anos = 0;
+
+			for (int anterior = periodo - 12; anterior >= periodos[0]; anterior -= 12) {
+				if (anterior > referencia) {
+					continue;
+				}
+
+				int i = indice(anterior);
+				if (i >= 0) {
+					somaReceitas = somaReceitas.add(receitas[i]);
+					somaDespesas = somaDespesas.add(despesas[i]);
+				}
+				anos++;
+			}
+
+			if (anos == 0) {
+				return null;
+			}
+
+			BigDecimal divisor = BigDecimal.valueOf(anos);
+			return new BigDecimal[] {
+					somaReceitas.divide(divisor, 2, RoundingMode.HALF_EVEN),
+					somaDespesas.divide(divisor, 2, RoundingMode.HALF_EVEN) };
+		}
+
+	}
+
+}
@@ -0,0 +1,338 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.danielnobrega.minhasfinancas.model.entity.CheckpointProcessamento;
+import com.danielnobrega.minhasfinancas.model.repository.CheckpointProcessamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.RecalculoSaldoService;
+import com.danielnobrega.minhasfinancas.service.cotacao.ConversorMoeda;
+import com.danielnobrega.minhasfinancas.sharding.ShardContexto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recalcula os fechamentos mensais de todos os usuários em partições de ids consecutivos,
+ * processadas em paralelo com no máximo {@code maxConexoes} partições usando o banco ao mesmo
+ * tempo. Cada partição lê os totais por (usuario, ano, mes, moeda) numa única consulta agregada
+ * e grava o saldo acumulado de cada mês em saldo_mensal. O checkpoint guarda o maior id até o
+ * qual todas as partições terminaram, permitindo retomar uma execução interrompida.
+ *
+ * Antes de ler os totais, a partição bloqueia as linhas de usuario do seu intervalo. Uma escrita
+ * bloqueia o usuário antes de invalidar os fechamentos dele (SaldoMensalServiceImpl), então ela
+ * ou já foi confirmada e entra nos totais, ou só invalida depois que os fechamentos recalculados
+ * foram gravados.
+ *
+ * Os totais vêm também por moeda e cada um é convertido para a moeda base do usuário pela
+ * cotação do seu mês de competência, como faz a consulta do saldo sem fechamento; a moeda base
+ * vem junto com a trava do usuário.
+ */
+@Slf4j
+@Service
+public class RecalculoSaldoServiceImpl implements RecalculoSaldoService {
+	
+	private static final String CONSULTA_TOTAIS = 
+			  " select l.id_usuario, l.ano, l.mes, l.moeda, "
+			+ "        coalesce(sum(case when l.tipo in ('RECEITA', 'TRANSFERENCIA_ENTRADA') then l.valor "
+			+ "                          when l.tipo in ('DESPESA', 'TRANSFERENCIA_SAIDA') then -l.valor else 0 end), 0) as saldo "
+			+ " from financas.lancamento l "
+			+ " where l.id_usuario between ? and ? "
+			+ "   and l.data_exclusao is null "
+			+ "   and (l.ano < ? or (l.ano = ? and l.mes <= ?)) "
+			+ " group by l.id_usuario, l.ano, l.mes, l.moeda "
+			+ " order by l.id_usuario, l.ano, l.mes ";
+	
+	private static final String BLOQUEAR_USUARIOS = 
+			  " select u.id, u.moeda_base from financas.usuario u where u.id between ? and ? order by u.id for update ";
+	
+	private static final String REMOVER_FECHAMENTOS = 
+			  " delete from financas.saldo_mensal where id_usuario between ? and ? "
+			+ " and (ano < ? or (ano = ? and mes <= ?)) ";
+	
+	private static final String INSERIR_FECHAMENTO = 
+			  " insert into financas.saldo_mensal (id_usuario, ano, mes, saldo, data_fechamento) values (?, ?, ?, ?, ?) ";
+
+	private UsuarioRepository usuarioRepository;
+	
+	private CheckpointProcessamentoRepository checkpointRepository;
+	
+	private CotacaoService cotacaoService;
+	
+	private JdbcTemplate jdbcTemplate;
+	
+	private TransactionTemplate transactionTemplate;
+	
+	private int tamanhoParticao;
+	
+	private int paralelismo;
+	
+	private int maxConexoes;
+	
+	private final Counter usuariosProcessados;
+	
+	private final Counter gruposLidos;
+	
+	private final Timer tempoParticao;
+	
+	private final ExecutorService segundoPlano = Executors.newSingleThreadExecutor();
+
+	public RecalculoSaldoServiceImpl(UsuarioRepository usuarioRepository, CheckpointProcessamentoRepository checkpointRepository,
+			CotacaoService cotacaoService, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+			@Value("${minhasfinancas.recalculo.tamanho-particao:500}") int tamanhoParticao,
+			@Value("${minhasfinancas.recalculo.paralelismo:4}") int paralelismo,
+			@Value("${minhasfinancas.recalculo.max-conexoes:2}") int maxConexoes) {
+		this.usuarioRepository = usuarioRepository;
+		this.checkpointRepository = checkpointRepository;
+		this.cotacaoService = cotacaoService;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.tamanhoParticao = tamanhoParticao;
+		this.paralelismo = paralelismo;
+		this.maxConexoes = maxConexoes;
+		this.usuariosProcessados = meterRegistry.counter("minhasfinancas.recalculo.usuarios");
+		this.gruposLidos = meterRegistry.counter("minhasfinancas.recalculo.grupos");
+		this.tempoParticao = meterRegistry.timer("minhasfinancas.recalculo.particao");
+	}
+
+	@Override
+	public CheckpointProcessamento executar(String nome, Integer ano, Integer mes) {
+		CheckpointProcessamento checkpoint = checkpointRepository.findById(nome)
+				.filter( c -> !Boolean.TRUE.equals(c.getConcluido()) && ano.equals(c.getAno()) && mes.equals(c.getMes()) )
+				.orElseGet( () -> CheckpointProcessamento.builder()
+										.nome(nome)
+										.ano(ano)
+										.mes(mes)
+										.ultimoIdUsuario(0l)
+										.usuariosProcessados(0l)
+										.gruposLidos(0l)
+										.inicio(LocalDateTime.now())
+										.build() );
+		checkpoint.setConcluido(false);
+		checkpoint.setFim(null);
+		checkpointRepository.save(checkpoint);
+		
+		Progresso progresso = new Progresso(checkpoint);
+		ExecutorService pool = Executors.newFixedThreadPool(paralelismo);
+		Semaphore conexoes = new Semaphore(maxConexoes);
+		List<Future<?>> tarefas = new ArrayList<>();
+		long inicio = System.nanoTime();
+		
+		try {
+			long ultimoId = checkpoint.getUltimoIdUsuario();
+			int sequencia = 0;
+			List<Long> ids = usuarioRepository.listarIdsAPartirDe(ultimoId, PageRequest.of(0, tamanhoParticao));
+			
+			while (!ids.isEmpty()) {
+				Particao particao = new Particao(sequencia++, ids.get(0), ids.get(ids.size() - 1), ids.size());
+				tarefas.add(pool.submit(ShardContexto.propagar( () -> processar(particao, ano, mes, conexoes, progresso) )));
+				ultimoId = particao.ultimoId;
+				ids = usuarioRepository.listarIdsAPartirDe(ultimoId, PageRequest.of(0, tamanhoParticao));
+			}
+			
+			for (Future<?> tarefa : tarefas) {
+				tarefa.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Recálculo interrompido", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Falha no recálculo " + nome + ", retomável a partir do usuário " 
+					+ checkpoint.getUltimoIdUsuario(), e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		
+		checkpoint.setConcluido(true);
+		checkpoint.setFim(LocalDateTime.now());
+		checkpointRepository.save(checkpoint);
+		
+		double segundos = (System.nanoTime() - inicio) / 1e9;
+		log.info("Recálculo {} concluído: {} usuários, {} grupos em {} s ({} usuários/s)", nome, checkpoint.getUsuariosProcessados(),
+				checkpoint.getGruposLidos(), String.format("%.1f", segundos), String.format("%.0f", checkpoint.getUsuariosProcessados() / Math.max(segundos, 0.001)));
+		return checkpoint;
+	}
+
+	@Override
+	public void executarEmSegundoPlano(String nome, Integer ano, Integer mes) {
+		segundoPlano.submit(ShardContexto.propagar( () -> {
+			try {
+				executar(nome, ano, mes);
+			} catch (RuntimeException e) {
+				log.error("Recálculo {} falhou", nome, e);
+			}
+		}));
+	}
+
+	@Override
+	public Optional<CheckpointProcessamento> obterSituacao(String nome) {
+		return checkpointRepository.findById(nome);
+	}
+	
+	@PreDestroy
+	public void encerrar() {
+		segundoPlano.shutdownNow();
+	}
+
+	private void processar(Particao particao, Integer ano, Integer mes, Semaphore conexoes, Progresso progresso) {
+		long grupos;
+		
+		conexoes.acquireUninterruptibly();
+		try {
+			grupos = tempoParticao.record( () -> transactionTemplate.execute( status -> recalcular(particao, ano, mes) ) );
+		} finally {
+			conexoes.release();
+		}
+		
+		usuariosProcessados.increment(particao.usuarios);
+		gruposLidos.increment(grupos);
+		progresso.concluir(particao, grupos);
+	}
+
+	private long recalcular(Particao particao, Integer ano, Integer mes) {
+		Date hoje = Date.valueOf(LocalDate.now());
+		List<Object[]> fechamentos = new ArrayList<>();
+		Acumulador acumulador = new Acumulador(ano, mes, hoje, fechamentos);
+		
+		Map<Long, String> moedasBase = new HashMap<>();
+		jdbcTemplate.query(BLOQUEAR_USUARIOS, rs -> {
+			moedasBase.put(rs.getLong(1), rs.getString(2) == null ? CotacaoService.MOEDA_PADRAO : rs.getString(2));
+		}, particao.primeiroId, particao.ultimoId);
+		
+		Map<String, ConversorMoeda> conversores = new HashMap<>();
+		jdbcTemplate.query(CONSULTA_TOTAIS, rs -> {
+			long idUsuario = rs.getLong(1);
+			int anoGrupo = rs.getInt(2);
+			int mesGrupo = rs.getInt(3);
+			String moeda = rs.getString(4);
+			BigDecimal saldo = rs.getBigDecimal(5);
+			
+			String moedaBase = moedasBase.getOrDefault(idUsuario, CotacaoService.MOEDA_PADRAO);
+			if (moeda != null && !moeda.equals(moedaBase)) {
+				saldo = conversores.computeIfAbsent(moedaBase, cotacaoService::conversorPara).converter(saldo, moeda, anoGrupo, mesGrupo);
+			}
+			acumulador.adicionar(idUsuario, anoGrupo, mesGrupo, saldo);
+		}, particao.primeiroId, particao.ultimoId, ano, ano, mes);
+		acumulador.encerrarUsuario();
+		
+		jdbcTemplate.update(REMOVER_FECHAMENTOS, particao.primeiroId, particao.ultimoId, ano, ano, mes);
+		jdbcTemplate.batchUpdate(INSERIR_FECHAMENTO, fechamentos);
+		
+		return acumulador.grupos;
+	}
+	
+	@RequiredArgsConstructor
+	private static class Particao {
+		
+		private final int sequencia;
+		private final long primeiroId;
+		private final long ultimoId;
+		private final int usuarios;
+	}
+	
+	/**
+	 * Percorre os grupos ordenados por usuário e mês acumulando o saldo de cada usuário. As
+	 * moedas de um mesmo mês chegam em grupos seguidos e somam no mesmo fechamento.
+	 */
+	@RequiredArgsConstructor
+	private static class Acumulador {
+		
+		private final int ano;
+		private final int mes;
+		private final Date dataFechamento;
+		private final List<Object[]> fechamentos;
+		
+		private Long usuarioAtual;
+		private BigDecimal saldo;
+		private Object[] ultimoFechamento;
+		private boolean mesFinalGravado;
+		private long grupos;
+		
+		void adicionar(long idUsuario, int anoGrupo, int mesGrupo, BigDecimal saldoGrupo) {
+			if (usuarioAtual == null || usuarioAtual != idUsuario) {
+				encerrarUsuario();
+				usuarioAtual = idUsuario;
+				saldo = BigDecimal.ZERO;
+				ultimoFechamento = null;
+				mesFinalGravado = false;
+			}
+			
+			grupos++;
+			saldo = saldo.add(saldoGrupo);
+			if (ultimoFechamento != null && ultimoFechamento[1].equals(anoGrupo) && ultimoFechamento[2].equals(mesGrupo)) {
+				ultimoFechamento[3] = saldo;
+				return;
+			}
+			
+			ultimoFechamento = new Object[] { idUsuario, anoGrupo, mesGrupo, saldo, dataFechamento };
+			fechamentos.add(ultimoFechamento);
+			mesFinalGravado = anoGrupo == ano && mesGrupo == mes;
+		}
+		
+		void encerrarUsuario() {
+			if (usuarioAtual != null && !mesFinalGravado) {
+				fechamentos.add(new Object[] { usuarioAtual, ano, mes, saldo, dataFechamento });
+			}
+		}
+	}
+	
+	/**
+	 * Avança o checkpoint somente até a última partição de uma sequência contígua concluída,
+	 * já que as partições terminam fora de ordem.
+	 */
+	private class Progresso {
+		
+		private final CheckpointProcessamento checkpoint;
+		private final TreeMap<Integer, Particao> concluidas = new TreeMap<>();
+		private int proxima;
+		
+		Progresso(CheckpointProcessamento checkpoint) {
+			this.checkpoint = checkpoint;
+		}
+		
+		synchronized void concluir(Particao particao, long grupos) {
+			concluidas.put(particao.sequencia, particao);
+			checkpoint.setGruposLidos(checkpoint.getGruposLidos() + grupos);
+			
+			boolean avancou = false;
+			while (concluidas.containsKey(proxima)) {
+				Particao contigua = concluidas.remove(proxima++);
+				checkpoint.setUltimoIdUsuario(contigua.ultimoId);
+				checkpoint.setUsuariosProcessados(checkpoint.getUsuariosProcessados() + contigua.usuarios);
+				avancou = true;
+			}
+			
+			if (avancou) {
+				checkpointRepository.save(checkpoint);
+			}
+		}
+	}
+
+}
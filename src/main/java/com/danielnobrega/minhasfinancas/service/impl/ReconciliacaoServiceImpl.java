@@ -0,0 +1,193 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.danielnobrega.minhasfinancas.enums.CriterioVencimento;
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.service.ReconciliacaoService;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import com.danielnobrega.minhasfinancas.service.reconciliacao.ExecucaoReconciliacao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Leva para {@code status-destino} (EFETIVADO ou CANCELADO) os lançamentos que continuam
+ * PENDENTE depois de vencidos: pela competência, quando ano/mês fica antes do mês atual menos
+ * {@code carencia-meses}, ou pelo cadastro, quando a data de cadastro tem mais de
+ * {@code carencia-dias}. Transferências ficam de fora, porque as duas pernas só mudam juntas.
+ *
+ * A tabela é percorrida por id em lotes de {@code tamanho-lote}, cada um na sua transação. O lote
+ * é reservado com {@code for update skip locked} no PostgreSQL, de modo que várias instâncias
+ * rodando ao mesmo tempo dividem os pendentes sem processar a mesma linha duas vezes; nos outros
+ * bancos a reserva usa {@code for update} e uma instância espera a outra. Cada alteração publica
+ * o LancamentoAlteradoEvent, como uma atualização de status feita pela API.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "minhasfinancas.reconciliacao.habilitado", havingValue = "true")
+public class ReconciliacaoServiceImpl implements ReconciliacaoService {
+
+	private static final String CONSULTA_PENDENTES =
+			  " select l.id from financas.lancamento l "
+			+ " where l.status = 'PENDENTE' "
+			+ "   and l.data_exclusao is null "
+			+ "   and l.id_contrapartida is null "
+			+ "   and l.id > ? "
+			+ "   and %s "
+			+ " order by l.id "
+			+ " limit ? %s ";
+
+	private static final String VENCIDO_POR_COMPETENCIA = "(l.ano < ? or (l.ano = ? and l.mes < ?))";
+
+	private static final String VENCIDO_POR_CADASTRO = "l.data_cadastro < ?";
+
+	private LancamentoRepository repository;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private TransactionTemplate transactionTemplate;
+
+	private ApplicationEventPublisher publisher;
+
+	private StatusLancamento statusDestino;
+
+	private CriterioVencimento criterio;
+
+	private int carenciaMeses;
+
+	private int carenciaDias;
+
+	private int tamanhoLote;
+
+	private final Counter processados;
+
+	private final Counter lotes;
+
+	private final Timer tempoExecucao;
+
+	private final AtomicInteger ultimaExecucao = new AtomicInteger();
+
+	public ReconciliacaoServiceImpl(LancamentoRepository repository, DataSource dataSource,
+			PlatformTransactionManager transactionManager, ApplicationEventPublisher publisher, MeterRegistry meterRegistry,
+			@Value("${minhasfinancas.reconciliacao.status-destino:EFETIVADO}") StatusLancamento statusDestino,
+			@Value("${minhasfinancas.reconciliacao.criterio:COMPETENCIA}") CriterioVencimento criterio,
+			@Value("${minhasfinancas.reconciliacao.carencia-meses:1}") int carenciaMeses,
+			@Value("${minhasfinancas.reconciliacao.carencia-dias:30}") int carenciaDias,
+			@Value("${minhasfinancas.reconciliacao.tamanho-lote:500}") int tamanhoLote) {
+		if (statusDestino == StatusLancamento.PENDENTE) {
+			throw new IllegalArgumentException("A reconciliação só pode levar lançamentos para EFETIVADO ou CANCELADO");
+		}
+		this.repository = repository;
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.publisher = publisher;
+		this.statusDestino = statusDestino;
+		this.criterio = criterio;
+		this.carenciaMeses = carenciaMeses;
+		this.carenciaDias = carenciaDias;
+		this.tamanhoLote = tamanhoLote;
+		this.processados = meterRegistry.counter("minhasfinancas.reconciliacao.lancamentos", "status", statusDestino.name());
+		this.lotes = meterRegistry.counter("minhasfinancas.reconciliacao.lotes");
+		this.tempoExecucao = meterRegistry.timer("minhasfinancas.reconciliacao.execucao");
+		meterRegistry.gauge("minhasfinancas.reconciliacao.ultima-execucao", ultimaExecucao);
+	}
+
+	@Override
+	@Scheduled(cron = "${minhasfinancas.reconciliacao.cron:0 0 3 * * *}")
+	public ExecucaoReconciliacao reconciliar() {
+		long inicio = System.nanoTime();
+		String consulta = String.format(CONSULTA_PENDENTES,
+				criterio == CriterioVencimento.CADASTRO ? VENCIDO_POR_CADASTRO : VENCIDO_POR_COMPETENCIA,
+				reserva());
+		List<Object> corte = corte();
+
+		long cursor = 0;
+		int total = 0;
+		int quantidadeLotes = 0;
+		List<Long> lote;
+
+		do {
+			long depoisDe = cursor;
+			lote = transactionTemplate.execute( status -> reconciliarLote(consulta, corte, depoisDe) );
+			if (!lote.isEmpty()) {
+				cursor = lote.get(lote.size() - 1);
+				total += lote.size();
+				quantidadeLotes++;
+				lotes.increment();
+				processados.increment(lote.size());
+			}
+		} while (lote.size() == tamanhoLote);
+
+		long duracao = System.nanoTime() - inicio;
+		tempoExecucao.record(duracao, TimeUnit.NANOSECONDS);
+		ultimaExecucao.set(total);
+
+		if (total > 0) {
+			log.info("{} lançamentos pendentes vencidos passaram para {} em {} lotes", total, statusDestino, quantidadeLotes);
+		}
+		return new ExecucaoReconciliacao(statusDestino, quantidadeLotes, total, TimeUnit.NANOSECONDS.toMillis(duracao));
+	}
+
+	/**
+	 * Reserva o próximo lote depois do cursor e muda o status de cada lançamento dele. A lista
+	 * devolvida vem em ordem de id; o último é o cursor do lote seguinte.
+	 */
+	private List<Long> reconciliarLote(String consulta, List<Object> corte, long depoisDe) {
+		List<Object> parametros = new ArrayList<>(corte.size() + 2);
+		parametros.add(depoisDe);
+		parametros.addAll(corte);
+		parametros.add(tamanhoLote);
+
+		List<Long> ids = jdbcTemplate.queryForList(consulta, Long.class, parametros.toArray());
+		if (ids.isEmpty()) {
+			return ids;
+		}
+
+		for (Lancamento lancamento : repository.findAllById(ids)) {
+			Lancamento anterior = lancamento.toBuilder().build();
+			lancamento.setStatus(statusDestino);
+			publisher.publishEvent(new LancamentoAlteradoEvent(anterior, lancamento));
+		}
+		repository.flush();
+		return ids;
+	}
+
+	private List<Object> corte() {
+		if (criterio == CriterioVencimento.CADASTRO) {
+			return Collections.singletonList(Date.valueOf(LocalDate.now().minusDays(carenciaDias)));
+		}
+		YearMonth mes = YearMonth.now().minusMonths(carenciaMeses);
+		return Arrays.asList(mes.getYear(), mes.getYear(), mes.getMonthValue());
+	}
+
+	private String reserva() {
+		String banco = jdbcTemplate.execute((ConnectionCallback<String>) conexao -> conexao.getMetaData().getDatabaseProductName());
+		return "PostgreSQL".equals(banco) ? "for update skip locked" : "for update";
+	}
+
+}
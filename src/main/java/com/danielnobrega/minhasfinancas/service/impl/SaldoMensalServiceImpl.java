@@ -0,0 +1,162 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.SaldoMensal;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.SaldoMensalRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.SaldoMensalService;
+import com.danielnobrega.minhasfinancas.service.agendamento.ExecucaoExclusiva;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+
+/**
+ * Fechamentos mensais de saldo por usuário. O fechamento agendado do mês anterior roda em uma
+ * única instância, e cada usuário é fechado na sua própria transação.
+ */
+@Service
+public class SaldoMensalServiceImpl implements SaldoMensalService {
+
+	private SaldoMensalRepository repository;
+	
+	private LancamentoRepository lancamentoRepository;
+	
+	private UsuarioRepository usuarioRepository;
+	
+	private CotacaoService cotacaoService;
+	
+	private TransactionTemplate transactionTemplate;
+	
+	private ExecucaoExclusiva execucaoExclusiva;
+	
+	private Duration duracaoMaxima;
+
+	public SaldoMensalServiceImpl(SaldoMensalRepository repository, LancamentoRepository lancamentoRepository, 
+			UsuarioRepository usuarioRepository, CotacaoService cotacaoService, PlatformTransactionManager transactionManager,
+			ExecucaoExclusiva execucaoExclusiva,
+			@Value("${minhasfinancas.saldo-mensal.fechamento.duracao-maxima-minutos:120}") long duracaoMaximaMinutos) {
+		this.repository = repository;
+		this.lancamentoRepository = lancamentoRepository;
+		this.usuarioRepository = usuarioRepository;
+		this.cotacaoService = cotacaoService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.execucaoExclusiva = execucaoExclusiva;
+		this.duracaoMaxima = Duration.ofMinutes(duracaoMaximaMinutos);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public BigDecimal obterSaldoAte(Long idUsuario, Integer ano, Integer mes) {
+		SaldoMensal fechamento = obterUltimoFechamento(idUsuario, ano, mes);
+		String moedaBase = cotacaoService.obterMoedaBase(idUsuario);
+		
+		if (fechamento == null) {
+			return cotacaoService.consolidar(lancamentoRepository.obterSaldosPorMoeda(idUsuario, moedaBase, false, ano, mes), moedaBase)
+					.getSaldo();
+		}
+		
+		if (fechamento.getAno().equals(ano) && fechamento.getMes().equals(mes)) {
+			return fechamento.getSaldo();
+		}
+		
+		BigDecimal delta = cotacaoService.consolidar(lancamentoRepository.obterSaldosPorMoedaEntrePeriodos(idUsuario, moedaBase, false, 
+				fechamento.getAno(), fechamento.getMes(), ano, mes), moedaBase).getSaldo();
+		
+		return fechamento.getSaldo().add(delta);
+	}
+
+	@Override
+	@Transactional
+	public SaldoMensal fecharMes(Long idUsuario, Integer ano, Integer mes) {
+		usuarioRepository.bloquear(idUsuario);
+		SaldoMensal fechamento = obterUltimoFechamento(idUsuario, ano, mes);
+		
+		if (fechamento != null && fechamento.getAno().equals(ano) && fechamento.getMes().equals(mes)) {
+			return fechamento;
+		}
+		
+		BigDecimal saldo = obterSaldoAte(idUsuario, ano, mes);
+		
+		return repository.save(SaldoMensal.builder()
+							.idUsuario(idUsuario)
+							.ano(ano)
+							.mes(mes)
+							.saldo(saldo)
+							.dataFechamento(LocalDate.now())
+							.build());
+	}
+
+	@Override
+	public void fecharMes(Integer ano, Integer mes) {
+		// chamada interna não passa pelo proxy: a transação de cada usuário é aberta aqui
+		for (Long idUsuario : usuarioRepository.listarIds()) {
+			transactionTemplate.execute( status -> fecharMes(idUsuario, ano, mes) );
+		}
+	}
+	
+	@Scheduled(cron = "${minhasfinancas.saldo-mensal.fechamento.cron:0 0 1 1 * *}")
+	public void fecharMesAnterior() {
+		YearMonth mesAnterior = YearMonth.now().minusMonths(1);
+		execucaoExclusiva.executar("fechamento-saldo-mensal", duracaoMaxima, 
+				() -> fecharMes(mesAnterior.getYear(), mesAnterior.getMonthValue()));
+	}
+	
+	@EventListener
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		Lancamento anterior = evento.getAnterior();
+		Lancamento atual = evento.getAtual();
+		
+		if (anterior != null && atual != null && !alteraSaldo(anterior, atual)) {
+			return;
+		}
+		
+		if (anterior != null) {
+			invalidar(anterior);
+		}
+		
+		if (atual != null) {
+			invalidar(atual);
+		}
+	}
+	
+	/**
+	 * Bloqueia o usuário até o fim da transação da escrita antes de remover os fechamentos, para
+	 * que um fechamento ou recálculo que leu os totais sem esta escrita não grave depois dela.
+	 */
+	private void invalidar(Lancamento lancamento) {
+		usuarioRepository.bloquear(lancamento.getUsuario().getId());
+		repository.invalidarAPartirDe(lancamento.getUsuario().getId(), lancamento.getAno(), lancamento.getMes());
+	}
+
+	private SaldoMensal obterUltimoFechamento(Long idUsuario, Integer ano, Integer mes) {
+		List<SaldoMensal> fechamentos = repository.obterFechamentosAte(idUsuario, ano, mes, PageRequest.of(0, 1));
+		return fechamentos.isEmpty() ? null : fechamentos.get(0);
+	}
+	
+	private boolean alteraSaldo(Lancamento anterior, Lancamento atual) {
+		return !Objects.equals(anterior.getUsuario().getId(), atual.getUsuario().getId())
+				|| !Objects.equals(anterior.getAno(), atual.getAno())
+				|| !Objects.equals(anterior.getMes(), atual.getMes())
+				|| !Objects.equals(anterior.getTipo(), atual.getTipo())
+				|| !Objects.equals(anterior.getMoeda(), atual.getMoeda())
+				|| anterior.getValor() == null || atual.getValor() == null
+				|| anterior.getValor().compareTo(atual.getValor()) != 0;
+	}
+
+}
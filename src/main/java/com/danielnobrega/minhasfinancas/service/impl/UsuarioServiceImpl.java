@@ -1,9 +1,12 @@
 package com.danielnobrega.minhasfinancas.service.impl;
 
 
+import java.util.Locale;
 import java.util.Optional;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,10 +15,13 @@ import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
 import com.danielnobrega.minhasfinancas.model.entity.Usuario;
 import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
 import com.danielnobrega.minhasfinancas.service.UsuarioService;
+import com.danielnobrega.minhasfinancas.service.cotacao.TabelaCotacoes;
 
 @Service
 public class UsuarioServiceImpl implements UsuarioService {
 
+	private static final String EMAIL_EXISTENTE = "Ja Existe um usuário cadastrado com esse email";
+
 	private UsuarioRepository usuarioRepository;
 
 	@Autowired
@@ -25,8 +31,9 @@ public class UsuarioServiceImpl implements UsuarioService {
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Usuario autenticar(String email, String senha) {
-		Optional<Usuario> usuario = usuarioRepository.findByEmail(email);
+		Optional<Usuario> usuario = usuarioRepository.findByEmail(Usuario.normalizarEmail(email));
 		
 		if (!usuario.isPresent()) {
 			throw new ErroAutenticacao("Usuário não encontrado");
@@ -42,23 +49,47 @@ public class UsuarioServiceImpl implements UsuarioService {
 	@Override
 	@Transactional
 	public Usuario salvarUsuario(Usuario usuario) {
-		validarEmail(usuario.getEmail());
-		return usuarioRepository.save(usuario);
+		if (usuario.getMoedaBase() != null && !TabelaCotacoes.codigoValido(usuario.getMoedaBase())) {
+			throw new RegraNegocioException("Informe uma MOEDA base no padrão ISO 4217");
+		}
+		
+		// a unicidade do email fica com a restrição do banco: o id é IDENTITY, então o insert sai 
+		// aqui e dois cadastros simultâneos não passam juntos por uma verificação prévia
+		try {
+			return usuarioRepository.save(usuario);
+		} catch (DataIntegrityViolationException e) {
+			if (violouEmailUnico(e)) {
+				throw new RegraNegocioException(EMAIL_EXISTENTE);
+			}
+			throw e;
+		}
 	}
 
 	@Override
 	public void validarEmail(String email) {
-		boolean existe = usuarioRepository.existsByEmail(email);
+		boolean existe = usuarioRepository.existsByEmail(Usuario.normalizarEmail(email));
 		
 		if (existe) {
-			throw new RegraNegocioException("Ja Existe um usuário cadastrado com esse email");
+			throw new RegraNegocioException(EMAIL_EXISTENTE);
 		}
 		
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Optional<Usuario> obterPorId(Long id) {
 		return usuarioRepository.findById(id);
 	}
+	
+	private static boolean violouEmailUnico(DataIntegrityViolationException e) {
+		String restricao = e.getCause() instanceof ConstraintViolationException 
+				? ((ConstraintViolationException) e.getCause()).getConstraintName() 
+				: null;
+		
+		if (restricao == null) {
+			restricao = e.getMostSpecificCause().getMessage();
+		}
+		return restricao != null && restricao.toLowerCase(Locale.ROOT).contains(Usuario.UK_EMAIL);
+	}
 
 }
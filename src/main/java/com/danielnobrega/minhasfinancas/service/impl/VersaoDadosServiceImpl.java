@@ -0,0 +1,48 @@
+package com.danielnobrega.minhasfinancas.service.impl;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.service.VersaoDadosService;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import com.danielnobrega.minhasfinancas.service.versao.ArmazenamentoVersao;
+import com.danielnobrega.minhasfinancas.service.versao.VersaoDados;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Mantém a versão dos dados de cada usuário, usada como etag pelos endpoints de leitura.
+ * A versão só avança depois do commit: avançá-la antes permitiria que uma leitura concorrente
+ * associasse a versão nova aos dados antigos.
+ */
+@Service
+@RequiredArgsConstructor
+public class VersaoDadosServiceImpl implements VersaoDadosService {
+	
+	private final ArmazenamentoVersao armazenamento;
+
+	@Override
+	public VersaoDados obter(Long idUsuario) {
+		return armazenamento.obter(idUsuario);
+	}
+	
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		Long anterior = idUsuario(evento.getAnterior());
+		Long atual = idUsuario(evento.getAtual());
+		
+		if (anterior != null) {
+			armazenamento.incrementar(anterior);
+		}
+		
+		if (atual != null && !atual.equals(anterior)) {
+			armazenamento.incrementar(atual);
+		}
+	}
+	
+	private Long idUsuario(Lancamento lancamento) {
+		return lancamento == null || lancamento.getUsuario() == null ? null : lancamento.getUsuario().getId();
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.danielnobrega.minhasfinancas.service.projecao;
+
+import java.math.BigDecimal;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public final class PontoProjecao {
+	
+	private final Integer ano;
+	
+	private final Integer mes;
+	
+	private final BigDecimal receitas;
+	
+	private final BigDecimal despesas;
+	
+	private final BigDecimal saldo;
+
+}
@@ -0,0 +1,29 @@
+package com.danielnobrega.minhasfinancas.service.projecao;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.danielnobrega.minhasfinancas.enums.MetodoProjecao;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Saldo projetado mês a mês a partir do mês de referência. {@code saldoAtual} é o saldo até o
+ * mês de referência, inclusive, contando lançamentos pendentes e efetivados.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class Projecao {
+	
+	private final Integer ano;
+	
+	private final Integer mes;
+	
+	private final MetodoProjecao metodo;
+	
+	private final BigDecimal saldoAtual;
+	
+	private final List<PontoProjecao> pontos;
+
+}
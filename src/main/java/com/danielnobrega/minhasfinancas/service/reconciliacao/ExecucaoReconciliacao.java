@@ -0,0 +1,24 @@
+package com.danielnobrega.minhasfinancas.service.reconciliacao;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Resultado de uma execução da reconciliação: quantos lançamentos pendentes esta instância
+ * levou para {@code statusDestino}, em quantos lotes e em quanto tempo.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class ExecucaoReconciliacao {
+
+	private final StatusLancamento statusDestino;
+
+	private final int lotes;
+
+	private final int processados;
+
+	private final long duracaoMillis;
+
+}
@@ -0,0 +1,13 @@
+package com.danielnobrega.minhasfinancas.service.versao;
+
+/**
+ * Guarda a versão dos dados de cada usuário. Com mais de uma instância da aplicação o
+ * armazenamento precisa ser compartilhado entre elas, senão uma instância responderia 304
+ * para dados alterados por outra.
+ */
+public interface ArmazenamentoVersao {
+
+	VersaoDados obter(Long idUsuario);
+	
+	void incrementar(Long idUsuario);
+}
@@ -0,0 +1,61 @@
+package com.danielnobrega.minhasfinancas.service.versao;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.danielnobrega.minhasfinancas.model.entity.VersaoUsuario;
+import com.danielnobrega.minhasfinancas.model.repository.VersaoUsuarioRepository;
+
+/**
+ * Versões na tabela versao_usuario, compartilhada por todas as instâncias. A leitura é uma
+ * busca pela chave primária, sem tocar em lancamento. Usuários que ainda não tiveram escrita
+ * registrada ficam sem data de alteração conhecida.
+ */
+@Component
+@ConditionalOnProperty(name = "minhasfinancas.versao.armazenamento", havingValue = "banco")
+public class ArmazenamentoVersaoBanco implements ArmazenamentoVersao {
+	
+	private static final VersaoDados INICIAL = new VersaoDados("b-0", -1);
+	
+	private VersaoUsuarioRepository repository;
+	
+	private TransactionTemplate transactionTemplate;
+	
+	public ArmazenamentoVersaoBanco(VersaoUsuarioRepository repository, PlatformTransactionManager transactionManager) {
+		this.repository = repository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	@Override
+	public VersaoDados obter(Long idUsuario) {
+		return repository.findById(idUsuario)
+				.map( v -> new VersaoDados("b-" + v.getVersao(), v.getDataAlteracao()) )
+				.orElse(INICIAL);
+	}
+
+	@Override
+	public void incrementar(Long idUsuario) {
+		long agora = System.currentTimeMillis();
+		
+		if (atualizar(idUsuario, agora)) {
+			return;
+		}
+		
+		try {
+			transactionTemplate.execute( status -> repository.saveAndFlush(new VersaoUsuario(idUsuario, 1l, agora)) );
+		} catch (DataIntegrityViolationException e) {
+			// outra instância criou o registro primeiro
+			atualizar(idUsuario, agora);
+		}
+	}
+	
+	private boolean atualizar(Long idUsuario, long agora) {
+		return transactionTemplate.execute( status -> repository.incrementar(idUsuario, agora) > 0 );
+	}
+
+}
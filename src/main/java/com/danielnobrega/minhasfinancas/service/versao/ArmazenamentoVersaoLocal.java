@@ -0,0 +1,50 @@
+package com.danielnobrega.minhasfinancas.service.versao;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Versões em memória, para uma única instância ou desenvolvimento. O instante de criação entra
+ * na etag para que, após um reinício, versões recomeçadas do zero não coincidam com etags
+ * emitidas antes dele; pelo mesmo motivo usuários sem alteração conhecida usam esse instante
+ * como data de alteração.
+ */
+@Component
+@ConditionalOnProperty(name = "minhasfinancas.versao.armazenamento", havingValue = "local", matchIfMissing = true)
+public class ArmazenamentoVersaoLocal implements ArmazenamentoVersao {
+	
+	private final ConcurrentMap<Long, Registro> versoes = new ConcurrentHashMap<>();
+	
+	private final long inicio = System.currentTimeMillis();
+	
+	private final String prefixo = Long.toString(inicio, 36) + "-";
+	
+	private final Registro inicial = new Registro(0, inicio);
+
+	@Override
+	public VersaoDados obter(Long idUsuario) {
+		Registro registro = versoes.getOrDefault(idUsuario, inicial);
+		return new VersaoDados(prefixo + registro.versao, registro.dataAlteracao);
+	}
+
+	@Override
+	public void incrementar(Long idUsuario) {
+		versoes.compute(idUsuario, (id, atual) -> {
+			Registro base = atual == null ? inicial : atual;
+			return new Registro(base.versao + 1, Math.max(System.currentTimeMillis(), base.dataAlteracao));
+		});
+	}
+	
+	@RequiredArgsConstructor
+	private static final class Registro {
+		
+		private final long versao;
+		private final long dataAlteracao;
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.danielnobrega.minhasfinancas.service.versao;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Versão dos dados de um usuário. A etag identifica a versão de forma única dentro do
+ * armazenamento que a gerou; a data de alteração alimenta o Last-Modified. Quando a requisição
+ * traz If-None-Match o If-Modified-Since é ignorado, então quem manda a etag não recebe 304 com
+ * dados antigos depois de duas escritas no mesmo segundo.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class VersaoDados {
+	
+	private final String etag;
+	
+	private final long dataAlteracao;
+
+}
@@ -0,0 +1,58 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Anel de hash consistente que sugere o shard de uma chave (o email normalizado do usuário).
+ * Cada shard ocupa {@code nosVirtuais} posições no anel, então um anel com um shard a mais só
+ * muda o destino das chaves vizinhas às novas posições. O anel só decide onde um usuário novo
+ * é cadastrado e para onde o rebalanceamento o leva; o shard em que ele está de fato fica no
+ * DiretorioUsuarios. É imutável: mudar os shards exige reiniciar com a nova configuração.
+ */
+public class AnelHashConsistente {
+
+	private final NavigableMap<Long, String> anel = new TreeMap<>();
+
+	public AnelHashConsistente(Collection<String> shards, int nosVirtuais) {
+		if (shards.isEmpty()) {
+			throw new IllegalArgumentException("Nenhum shard configurado");
+		}
+		
+		for (String shard : shards) {
+			for (int i = 0; i < nosVirtuais; i++) {
+				anel.put(hash(shard + "#" + i), shard);
+			}
+		}
+	}
+	
+	public String obterShard(String chave) {
+		Map.Entry<Long, String> entrada = anel.ceilingEntry(hash("usuario:" + chave));
+		return entrada != null ? entrada.getValue() : anel.firstEntry().getValue();
+	}
+	
+	public Set<String> getShards() {
+		return Collections.unmodifiableSet(new TreeSet<>(anel.values()));
+	}
+	
+	static long hash(String chave) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(chave.getBytes(StandardCharsets.UTF_8));
+			long hash = 0;
+			for (int i = 0; i < 8; i++) {
+				hash = (hash << 8) | (digest[i] & 0xFF);
+			}
+			return hash;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
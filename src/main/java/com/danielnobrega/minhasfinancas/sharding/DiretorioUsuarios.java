@@ -0,0 +1,70 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.util.List;
+import java.util.Optional;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Diretório compartilhado por todas as instâncias com o shard de cada usuário, na tabela
+ * financas.usuario_shard do shard padrão:
+ *
+ * <pre>
+ * create table financas.usuario_shard (
+ *     id_usuario bigint primary key,
+ *     shard varchar(50) not null,
+ *     em_migracao boolean default false not null
+ * );
+ * </pre>
+ *
+ * Como o diretório é lido a cada requisição, uma migração vale para todas as instâncias assim
+ * que é gravada, sem reinício.
+ */
+public class DiretorioUsuarios {
+
+	private static final String CONSULTA = "select shard, em_migracao from financas.usuario_shard where id_usuario = ?";
+	
+	private static final String INCLUSAO = "insert into financas.usuario_shard (id_usuario, shard, em_migracao) values (?, ?, false)";
+	
+	private static final String MARCACAO = "update financas.usuario_shard set em_migracao = ? where id_usuario = ?";
+	
+	private static final String MUDANCA = "update financas.usuario_shard set shard = ?, em_migracao = false where id_usuario = ?";
+	
+	private final JdbcTemplate jdbcTemplate;
+	
+	public DiretorioUsuarios(DataSource shardPadrao) {
+		this.jdbcTemplate = new JdbcTemplate(shardPadrao);
+	}
+	
+	public Optional<Localizacao> obter(Long idUsuario) {
+		List<Localizacao> encontradas = jdbcTemplate.query(CONSULTA, 
+				(rs, linha) -> new Localizacao(rs.getString("shard"), rs.getBoolean("em_migracao")), idUsuario);
+		return encontradas.stream().findFirst();
+	}
+	
+	/**
+	 * Registra o usuário no shard se ele ainda não estiver no diretório. Devolve a localização
+	 * gravada, que é a de outra instância quando ela registrou o usuário primeiro.
+	 */
+	public Localizacao registrar(Long idUsuario, String shard) {
+		try {
+			jdbcTemplate.update(INCLUSAO, idUsuario, shard);
+			return new Localizacao(shard, false);
+		} catch (DuplicateKeyException e) {
+			return obter(idUsuario).orElseThrow( () -> e );
+		}
+	}
+	
+	public void marcarMigracao(Long idUsuario, boolean emMigracao) {
+		jdbcTemplate.update(MARCACAO, emMigracao, idUsuario);
+	}
+	
+	public void mover(Long idUsuario, String shard) {
+		if (jdbcTemplate.update(MUDANCA, shard, idUsuario) == 0) {
+			throw new IllegalStateException("Usuário " + idUsuario + " não está no diretório de shards");
+		}
+	}
+}
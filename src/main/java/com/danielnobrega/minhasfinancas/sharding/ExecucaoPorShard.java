@@ -0,0 +1,45 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Executa operações que não pertencem a um usuário (cotações, processamentos em lote,
+ * varreduras) em cada shard, com o ShardContexto definido. Os shards são percorridos em
+ * sequência e a falha em um deles interrompe os seguintes; por isso as operações replicadas
+ * precisam ser idempotentes, para que a repetição complete os shards que faltaram.
+ */
+public class ExecucaoPorShard {
+
+	private final List<String> shards;
+
+	private final LocalizadorShard localizador;
+
+	public ExecucaoPorShard(Collection<String> shards, LocalizadorShard localizador) {
+		this.shards = new ArrayList<>(shards);
+		this.localizador = localizador;
+	}
+
+	public <T> Map<String, T> emCadaShard(Supplier<T> operacao) {
+		Map<String, T> resultados = new LinkedHashMap<>();
+		for (String shard : shards) {
+			resultados.put(shard, ShardContexto.executar(shard, operacao));
+		}
+		return resultados;
+	}
+
+	/**
+	 * Executa a operação uma vez por shard, só com os usuários que estão nele.
+	 */
+	public <T> Map<String, T> porUsuarios(Collection<Long> idsUsuarios, Function<List<Long>, T> operacao) {
+		Map<String, T> resultados = new LinkedHashMap<>();
+		localizador.agruparPorShard(idsUsuarios).forEach( (shard, ids) ->
+			resultados.put(shard, ShardContexto.executar(shard, () -> operacao.apply(ids))) );
+		return resultados;
+	}
+}
@@ -0,0 +1,67 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Reserva a cada shard uma faixa própria de ids, avançando as colunas identity das tabelas
+ * para o início dela. Com faixas disjuntas os ids são únicos entre os shards: o lançamento de
+ * uma URL é encontrado em um único shard e a migração copia as linhas sem trocar os ids.
+ */
+final class FaixaIds {
+
+	static final List<String> TABELAS = Arrays.asList(
+			"financas.usuario",
+			"financas.categoria",
+			"financas.lancamento",
+			"financas.orcamento",
+			"financas.alerta_orcamento",
+			"financas.saldo_mensal",
+			"financas.gasto_categoria_mensal",
+			"financas.lancamento_arquivo",
+			"financas.lancamento_auditoria",
+			"financas.lancamento_auditoria_pendente",
+			"financas.cotacao");
+
+	private FaixaIds() {
+	}
+
+	/**
+	 * Avança os ids do shard para {@code inicio} e falha se algum já passou de {@code fim},
+	 * o início da faixa seguinte.
+	 */
+	static void reservar(String shard, DataSource dataSource, long inicio, long fim) {
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		String banco = jdbc.execute((ConnectionCallback<String>) conexao -> conexao.getMetaData().getDatabaseProductName());
+
+		for (String tabela : TABELAS) {
+			Long maior = jdbc.queryForObject("select max(id) from " + tabela, Long.class);
+			if (maior != null && maior >= fim) {
+				throw new IllegalStateException("Os ids de " + tabela + " no shard " + shard + " chegaram a " + maior
+						+ ", fora da faixa que termina em " + fim);
+			}
+
+			if ("PostgreSQL".equals(banco)) {
+				String sequencia = jdbc.queryForObject("select pg_get_serial_sequence(?, 'id')", String.class, tabela);
+				if (sequencia == null) {
+					throw new IllegalStateException("A coluna id de " + tabela + " no shard " + shard + " não usa sequência");
+				}
+				Long ultimo = jdbc.queryForObject("select last_value from " + sequencia, Long.class);
+				if (ultimo < inicio) {
+					jdbc.queryForObject("select setval(cast(? as regclass), ?, false)", Long.class, sequencia, inicio);
+				}
+			} else if ("H2".equals(banco)) {
+				if (maior == null || maior < inicio) {
+					jdbc.execute("alter table " + tabela + " alter column id restart with " + inicio);
+				}
+			} else {
+				throw new IllegalStateException("Faixas de ids por shard não são suportadas no banco " + banco);
+			}
+		}
+	}
+}
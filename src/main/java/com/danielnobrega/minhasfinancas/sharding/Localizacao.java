@@ -0,0 +1,17 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Shard em que os dados de um usuário estão e se ele está no fim de uma migração, quando as
+ * escritas dele são recusadas.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class Localizacao {
+
+	private final String shard;
+	
+	private final boolean emMigracao;
+}
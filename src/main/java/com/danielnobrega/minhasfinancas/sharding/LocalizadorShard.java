@@ -0,0 +1,119 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Descobre o shard dos dados de uma requisição. O diretório responde pelo usuário; um usuário
+ * ainda fora dele (anterior ao diretório ou que ainda não fez nenhuma requisição) é procurado
+ * em todos os shards e registrado onde for encontrado. Lançamentos e emails são procurados nos
+ * shards e resolvidos pelo usuário a que pertencem, então uma cópia que ficou para trás numa
+ * migração interrompida não desvia a requisição.
+ */
+public class LocalizadorShard {
+
+	private static final String USUARIO = "select count(*) from financas.usuario where id = ?";
+
+	private static final String USUARIO_DO_LANCAMENTO = "select id_usuario from financas.lancamento where id = ?";
+
+	private static final String HISTORICO_DO_LANCAMENTO = "select count(*) from financas.lancamento_auditoria where id_lancamento = ?";
+
+	private static final String USUARIO_DO_EMAIL = "select id from financas.usuario where email = ?";
+
+	private final Map<String, JdbcTemplate> shards = new LinkedHashMap<>();
+
+	private final String shardPadrao;
+
+	private final AnelHashConsistente anel;
+
+	private final DiretorioUsuarios diretorio;
+
+	public LocalizadorShard(Map<String, ? extends DataSource> shards, String shardPadrao, AnelHashConsistente anel,
+			DiretorioUsuarios diretorio) {
+		shards.forEach( (nome, dataSource) -> this.shards.put(nome, new JdbcTemplate(dataSource)) );
+		this.shardPadrao = shardPadrao;
+		this.anel = anel;
+		this.diretorio = diretorio;
+	}
+
+	/**
+	 * Localização do usuário; um usuário que não existe em nenhum shard fica no shard padrão,
+	 * onde a consulta não encontra nada e a validação responde como sem sharding.
+	 */
+	public Localizacao porUsuario(Long idUsuario) {
+		if (idUsuario == null) {
+			return new Localizacao(shardPadrao, false);
+		}
+		return diretorio.obter(idUsuario).orElseGet( () -> registrar(idUsuario) );
+	}
+
+	public Localizacao porLancamento(Long idLancamento) {
+		Set<Long> usuarios = new LinkedHashSet<>();
+		shards.values().forEach( jdbc -> usuarios.addAll(jdbc.queryForList(USUARIO_DO_LANCAMENTO, Long.class, idLancamento)) );
+
+		if (usuarios.size() > 1) {
+			throw new IllegalStateException("Lançamento " + idLancamento + " existe em mais de um shard com usuários diferentes: "
+					+ "as faixas de ids dos shards se sobrepõem");
+		}
+		return usuarios.isEmpty() ? peloHistorico(idLancamento) : porUsuario(usuarios.iterator().next());
+	}
+
+	/**
+	 * Shard do usuário com o email informado (já normalizado) ou, se não houver nenhum, o shard
+	 * em que o anel cadastraria um usuário novo com ele.
+	 */
+	public String porEmail(String email) {
+		for (JdbcTemplate jdbc : shards.values()) {
+			List<Long> ids = jdbc.queryForList(USUARIO_DO_EMAIL, Long.class, email);
+			if (!ids.isEmpty()) {
+				return porUsuario(ids.get(0)).getShard();
+			}
+		}
+		return anel.obterShard(email);
+	}
+
+	public Map<String, List<Long>> agruparPorShard(Collection<Long> idsUsuarios) {
+		Map<String, List<Long>> grupos = new LinkedHashMap<>();
+		for (Long idUsuario : idsUsuarios) {
+			grupos.computeIfAbsent(porUsuario(idUsuario).getShard(), shard -> new ArrayList<>()).add(idUsuario);
+		}
+		return grupos;
+	}
+
+	/** Um lançamento excluído só continua no histórico de auditoria do shard do usuário. */
+	private Localizacao peloHistorico(Long idLancamento) {
+		for (Map.Entry<String, JdbcTemplate> shard : shards.entrySet()) {
+			if (shard.getValue().queryForObject(HISTORICO_DO_LANCAMENTO, Integer.class, idLancamento) > 0) {
+				return new Localizacao(shard.getKey(), false);
+			}
+		}
+		return new Localizacao(shardPadrao, false);
+	}
+
+	private Localizacao registrar(Long idUsuario) {
+		List<String> encontrados = new ArrayList<>(1);
+		shards.forEach( (nome, jdbc) -> {
+			if (jdbc.queryForObject(USUARIO, Integer.class, idUsuario) > 0) {
+				encontrados.add(nome);
+			}
+		});
+
+		if (encontrados.isEmpty()) {
+			return new Localizacao(shardPadrao, false);
+		}
+		if (encontrados.size() > 1) {
+			throw new IllegalStateException("Usuário " + idUsuario + " existe nos shards " + encontrados
+					+ " e não está no diretório");
+		}
+		return diretorio.registrar(idUsuario, encontrados.get(0));
+	}
+}
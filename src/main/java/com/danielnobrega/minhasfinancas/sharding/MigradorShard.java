@@ -0,0 +1,383 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Move os dados de um usuário entre shards sem tirá-lo do ar. A cópia em lotes roda com o
+ * usuário ativo. Depois o diretório o marca em migração, o que faz as escritas novas dele
+ * receberem 503, e a migração espera {@code espera} para que as escritas já admitidas
+ * terminem. A fase final roda numa transação da origem que trava a linha do usuário e as
+ * linhas dele, recopia os lotes que mudaram, aponta o diretório para o destino e remove os
+ * dados da origem; as escritas de lançamentos travam a mesma linha do usuário, então nenhuma
+ * delas confirma na origem depois da recópia.
+ *
+ * Os ids são preservados, o que depende das faixas de ids disjuntas entre os shards (FaixaIds).
+ * Se um id já existir no destino a migração falha, desfaz a cópia parcial e mantém o usuário na
+ * origem. Usuários com transferências para outros usuários não são migrados, pois as duas pernas
+ * precisam ficar no mesmo shard. O histórico de auditoria de lançamentos já excluídos fica na
+ * origem: ele só é ligado ao usuário pelo lançamento.
+ */
+@Slf4j
+public class MigradorShard {
+
+	private static final String DO_USUARIO = "id_usuario = ?";
+
+	private static final String DOS_LANCAMENTOS = "id_lancamento in (select l.id from financas.lancamento l where l.id_usuario = ?)";
+
+	/** Em ordem de inclusão; a remoção percorre a lista ao contrário. */
+	private static final List<Tabela> TABELAS = Arrays.asList(
+			new Tabela("financas.usuario", "id", "id = ?", true),
+			new Tabela("financas.categoria", "id", DO_USUARIO, true),
+			new Tabela("financas.lancamento", "id", DO_USUARIO, false),
+			new Tabela("financas.orcamento", "id", DO_USUARIO, false),
+			new Tabela("financas.alerta_orcamento", "id", DO_USUARIO, false),
+			new Tabela("financas.saldo_mensal", "id", DO_USUARIO, false),
+			new Tabela("financas.gasto_categoria_mensal", "id", DO_USUARIO, false),
+			new Tabela("financas.lancamento_arquivo", "id", DO_USUARIO, false),
+			new Tabela("financas.versao_usuario", "id_usuario", DO_USUARIO, false),
+			new Tabela("financas.lancamento_auditoria", "id", DOS_LANCAMENTOS, false),
+			new Tabela("financas.lancamento_auditoria_pendente", "id", DOS_LANCAMENTOS, false));
+
+	private static final String TRANSFERENCIAS = "select distinct c.id_usuario from financas.lancamento l "
+											   + "join financas.lancamento c on c.id = l.id_contrapartida "
+											   + "where l.id_usuario = ? and c.id_usuario <> ?";
+
+	private final Map<String, ? extends DataSource> shards;
+
+	private final AnelHashConsistente anel;
+
+	private final DiretorioUsuarios diretorio;
+
+	private final LocalizadorShard localizador;
+
+	private final int tamanhoLote;
+
+	private final long espera;
+
+	public MigradorShard(Map<String, ? extends DataSource> shards, AnelHashConsistente anel, DiretorioUsuarios diretorio,
+			LocalizadorShard localizador, int tamanhoLote, long espera) {
+		this.shards = shards;
+		this.anel = anel;
+		this.diretorio = diretorio;
+		this.localizador = localizador;
+		this.tamanhoLote = tamanhoLote;
+		this.espera = espera;
+	}
+
+	public ResultadoMigracao migrarUsuario(Long idUsuario, String destino) {
+		DataSource dataSourceDestino = dataSource(destino);
+		Localizacao localizacao = localizador.porUsuario(idUsuario);
+		String origem = localizacao.getShard();
+		DataSource dataSourceOrigem = dataSource(origem);
+		JdbcTemplate jdbcOrigem = new JdbcTemplate(dataSourceOrigem);
+		JdbcTemplate jdbcDestino = new JdbcTemplate(dataSourceDestino);
+
+		if (jdbcOrigem.queryForObject("select count(*) from financas.usuario where id = ?", Integer.class, idUsuario) == 0) {
+			throw new IllegalArgumentException("Usuário não encontrado: " + idUsuario);
+		}
+		if (origem.equals(destino)) {
+			return new ResultadoMigracao(origem, destino, 0, 0);
+		}
+		if (localizacao.isEmMigracao()) {
+			throw new IllegalStateException("Usuário " + idUsuario + " já está em migração");
+		}
+		verificarTransferencias(jdbcOrigem, idUsuario);
+
+		AtomicBoolean movido = new AtomicBoolean();
+		boolean marcado = false;
+		int copiados;
+		int recopiados;
+		try {
+			copiados = sincronizar(jdbcOrigem, jdbcDestino, idUsuario);
+
+			diretorio.marcarMigracao(idUsuario, true);
+			marcado = true;
+			aguardarEscritasAdmitidas();
+
+			TransactionTemplate transacao = new TransactionTemplate(new DataSourceTransactionManager(dataSourceOrigem));
+			recopiados = transacao.execute( status -> {
+				bloquear(jdbcOrigem, idUsuario, origem);
+				verificarTransferencias(jdbcOrigem, idUsuario);
+				int escritos = sincronizar(jdbcOrigem, jdbcDestino, idUsuario);
+				diretorio.mover(idUsuario, destino);
+				movido.set(true);
+				remover(jdbcOrigem, idUsuario);
+				return escritos;
+			});
+		} catch (RuntimeException e) {
+			if (movido.get()) {
+				log.error("Usuário {} já aponta para o shard {}, mas os dados dele não foram removidos de {}", idUsuario, destino, origem, e);
+				throw e;
+			}
+			desfazer(jdbcDestino, idUsuario, marcado, destino);
+			throw e;
+		}
+
+		log.info("Usuário {} migrado de {} para {}: {} linhas copiadas, {} recopiadas na sincronização final",
+				idUsuario, origem, destino, copiados, recopiados);
+		return new ResultadoMigracao(origem, destino, copiados, recopiados);
+	}
+
+	/**
+	 * Leva para o shard indicado pelo anel cada usuário que está em outro, por exemplo depois
+	 * de um shard ser incluído na configuração. Usuários que não podem ser migrados ficam onde
+	 * estão e são informados no log.
+	 */
+	public List<ResultadoMigracao> rebalancear() {
+		List<ResultadoMigracao> resultados = new ArrayList<>();
+		String consulta = "select id, email from financas.usuario where id > ? order by id limit " + tamanhoLote;
+
+		for (Map.Entry<String, ? extends DataSource> shard : shards.entrySet()) {
+			JdbcTemplate jdbc = new JdbcTemplate(shard.getValue());
+			List<Map<String, Object>> usuarios = jdbc.queryForList(consulta, 0l);
+
+			while (!usuarios.isEmpty()) {
+				for (Map<String, Object> usuario : usuarios) {
+					Long idUsuario = ((Number) usuario.get("id")).longValue();
+					String alvo = anel.obterShard((String) usuario.get("email"));
+
+					if (!alvo.equals(shard.getKey()) && shard.getKey().equals(localizador.porUsuario(idUsuario).getShard())) {
+						try {
+							resultados.add(migrarUsuario(idUsuario, alvo));
+						} catch (RuntimeException e) {
+							log.warn("Usuário {} continua no shard {}: {}", idUsuario, shard.getKey(), e.getMessage());
+						}
+					}
+				}
+
+				long ultimoId = ((Number) usuarios.get(usuarios.size() - 1).get("id")).longValue();
+				usuarios = jdbc.queryForList(consulta, ultimoId);
+			}
+		}
+		return resultados;
+	}
+
+	private void verificarTransferencias(JdbcTemplate origem, Long idUsuario) {
+		List<Long> outros = origem.queryForList(TRANSFERENCIAS, Long.class, idUsuario, idUsuario);
+		if (!outros.isEmpty()) {
+			throw new IllegalStateException("Usuário " + idUsuario + " tem transferências com os usuários " + outros
+					+ ", que ficariam em outro shard");
+		}
+	}
+
+	private void aguardarEscritasAdmitidas() {
+		try {
+			Thread.sleep(espera);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Migração interrompida", e);
+		}
+	}
+
+	/**
+	 * Trava o usuário e as linhas dele na origem e confirma que nenhuma outra migração o levou
+	 * enquanto esta esperava a trava.
+	 */
+	private void bloquear(JdbcTemplate origem, Long idUsuario, String shardOrigem) {
+		if (origem.queryForList("select id from financas.usuario where id = ? for update", Long.class, idUsuario).isEmpty()) {
+			throw new IllegalStateException("Usuário " + idUsuario + " foi removido durante a migração");
+		}
+
+		Localizacao atual = diretorio.obter(idUsuario).orElse(null);
+		if (atual == null || !shardOrigem.equals(atual.getShard())) {
+			throw new IllegalStateException("Usuário " + idUsuario + " foi migrado por outra execução");
+		}
+
+		for (Tabela tabela : TABELAS.subList(1, TABELAS.size())) {
+			origem.queryForList("select " + tabela.chave + " from " + tabela.nome + " where " + tabela.doUsuario + " for update",
+					Long.class, idUsuario);
+		}
+	}
+
+	/**
+	 * Deixa o destino igual à origem, tabela por tabela, recopiando só as linhas que diferem.
+	 * Devolve a quantidade de linhas escritas no destino.
+	 */
+	private int sincronizar(JdbcTemplate origem, JdbcTemplate destino, Long idUsuario) {
+		int escritos = 0;
+		Map<Tabela, List<Long>> removerAoFinal = new LinkedHashMap<>();
+
+		for (Tabela tabela : TABELAS) {
+			escritos += sincronizar(origem, destino, tabela, idUsuario, removerAoFinal);
+		}
+
+		List<Tabela> referenciadas = new ArrayList<>(removerAoFinal.keySet());
+		Collections.reverse(referenciadas);
+		for (Tabela tabela : referenciadas) {
+			excluir(destino, tabela, removerAoFinal.get(tabela));
+		}
+		return escritos;
+	}
+
+	private int sincronizar(JdbcTemplate origem, JdbcTemplate destino, Tabela tabela, Long idUsuario,
+			Map<Tabela, List<Long>> removerAoFinal) {
+		String consultaLote = "select * from " + tabela.nome + " where " + tabela.doUsuario + " and " + tabela.chave + " > ?"
+							+ " order by " + tabela.chave + " limit " + tamanhoLote;
+		String consultaDestino = "select * from " + tabela.nome + " where " + tabela.doUsuario
+							   + " and " + tabela.chave + " > ? and " + tabela.chave + " <= ?";
+
+		long ultimo = 0;
+		int escritos = 0;
+		List<Long> sobras = new ArrayList<>();
+		List<Map<String, Object>> lote = origem.queryForList(consultaLote, idUsuario, ultimo);
+
+		while (!lote.isEmpty()) {
+			long limite = tabela.chave(lote.get(lote.size() - 1));
+			Map<Long, Map<String, Object>> noDestino = new LinkedHashMap<>();
+			destino.queryForList(consultaDestino, idUsuario, ultimo, limite).forEach( linha -> noDestino.put(tabela.chave(linha), linha) );
+
+			List<Map<String, Object>> inclusoes = new ArrayList<>();
+			List<Map<String, Object>> alteracoes = new ArrayList<>();
+			for (Map<String, Object> linha : lote) {
+				Map<String, Object> copia = noDestino.remove(tabela.chave(linha));
+				if (copia == null) {
+					inclusoes.add(linha);
+				} else if (!iguais(linha, copia)) {
+					alteracoes.add(linha);
+				}
+			}
+
+			sobras.addAll(noDestino.keySet());
+			if (!tabela.referenciada) {
+				excluir(destino, tabela, sobras);
+				sobras.clear();
+			}
+			inserir(destino, tabela, inclusoes);
+			atualizar(destino, tabela, alteracoes);
+			escritos += inclusoes.size() + alteracoes.size();
+
+			ultimo = limite;
+			lote = origem.queryForList(consultaLote, idUsuario, ultimo);
+		}
+
+		sobras.addAll(destino.queryForList("select " + tabela.chave + " from " + tabela.nome + " where " + tabela.doUsuario
+				+ " and " + tabela.chave + " > ?", Long.class, idUsuario, ultimo));
+		if (tabela.referenciada) {
+			removerAoFinal.put(tabela, sobras);
+		} else {
+			excluir(destino, tabela, sobras);
+		}
+		return escritos;
+	}
+
+	private void remover(JdbcTemplate jdbc, Long idUsuario) {
+		List<Tabela> inversa = new ArrayList<>(TABELAS);
+		Collections.reverse(inversa);
+		for (Tabela tabela : inversa) {
+			jdbc.update("delete from " + tabela.nome + " where " + tabela.doUsuario, idUsuario);
+		}
+	}
+
+	private void desfazer(JdbcTemplate destino, Long idUsuario, boolean marcado, String shardDestino) {
+		try {
+			remover(destino, idUsuario);
+		} catch (RuntimeException e) {
+			log.warn("Não foi possível remover a cópia parcial do usuário {} do shard {}", idUsuario, shardDestino, e);
+		}
+		if (marcado) {
+			diretorio.marcarMigracao(idUsuario, false);
+		}
+	}
+
+	private void inserir(JdbcTemplate destino, Tabela tabela, List<Map<String, Object>> linhas) {
+		if (linhas.isEmpty()) {
+			return;
+		}
+
+		List<String> colunas = new ArrayList<>(linhas.get(0).keySet());
+		String sql = "insert into " + tabela.nome + " (" + String.join(", ", colunas) + ") values ("
+				   + String.join(", ", Collections.nCopies(colunas.size(), "?")) + ")";
+		destino.batchUpdate(sql, valores(linhas, colunas));
+	}
+
+	private void atualizar(JdbcTemplate destino, Tabela tabela, List<Map<String, Object>> linhas) {
+		if (linhas.isEmpty()) {
+			return;
+		}
+
+		List<String> colunas = linhas.get(0).keySet().stream()
+									 .filter( coluna -> !coluna.equalsIgnoreCase(tabela.chave) )
+									 .collect(Collectors.toList());
+		String sql = "update " + tabela.nome + " set " + colunas.stream().map( coluna -> coluna + " = ?" ).collect(Collectors.joining(", "))
+				   + " where " + tabela.chave + " = ?";
+		colunas.add(tabela.chave);
+		destino.batchUpdate(sql, valores(linhas, colunas));
+	}
+
+	private void excluir(JdbcTemplate destino, Tabela tabela, List<Long> chaves) {
+		if (chaves.isEmpty()) {
+			return;
+		}
+
+		destino.batchUpdate("delete from " + tabela.nome + " where " + tabela.chave + " = ?",
+				chaves.stream().map( chave -> new Object[] { chave } ).collect(Collectors.toList()));
+	}
+
+	private static List<Object[]> valores(List<Map<String, Object>> linhas, List<String> colunas) {
+		return linhas.stream()
+					 .map( linha -> colunas.stream().map(linha::get).toArray() )
+					 .collect(Collectors.toList());
+	}
+
+	/** Compara coluna a coluna; arrays de bytes não se comparam com equals. */
+	private static boolean iguais(Map<String, Object> linha, Map<String, Object> copia) {
+		for (Map.Entry<String, Object> coluna : linha.entrySet()) {
+			if (!Objects.deepEquals(coluna.getValue(), copia.get(coluna.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private DataSource dataSource(String shard) {
+		DataSource dataSource = shards.get(shard);
+		if (dataSource == null) {
+			throw new IllegalArgumentException("Shard desconhecido: " + shard);
+		}
+		return dataSource;
+	}
+
+	@RequiredArgsConstructor
+	private static final class Tabela {
+
+		private final String nome;
+		private final String chave;
+		private final String doUsuario;
+
+		/** Referenciada por chave estrangeira de outra tabela do usuário: só é limpa ao final. */
+		private final boolean referenciada;
+
+		long chave(Map<String, Object> linha) {
+			return ((Number) linha.get(chave)).longValue();
+		}
+	}
+
+	@Getter
+	@AllArgsConstructor
+	public static class ResultadoMigracao {
+
+		private final String origem;
+		private final String destino;
+		private final int linhasCopiadas;
+		private final int linhasRecopiadas;
+	}
+}
@@ -0,0 +1,26 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * A requisição não pode ser atendida no shard dos dados dela: o usuário está no fim de uma
+ * migração ou a operação envolveria usuários de shards diferentes.
+ */
+public class RoteamentoRecusadoException extends RuntimeException {
+
+	private final HttpStatus status;
+
+	public RoteamentoRecusadoException(HttpStatus status, String mensagem) {
+		super(mensagem, null, false, false);
+		this.status = status;
+	}
+
+	public HttpStatus getStatus() {
+		return status;
+	}
+
+	static RoteamentoRecusadoException emMigracao() {
+		return new RoteamentoRecusadoException(HttpStatus.SERVICE_UNAVAILABLE,
+				"Os dados do usuário estão sendo movidos de shard; tente novamente em instantes");
+	}
+}
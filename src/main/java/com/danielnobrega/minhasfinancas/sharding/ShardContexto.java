@@ -0,0 +1,52 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * Guarda na thread corrente o shard escolhido para a requisição. Precisa ser definido antes
+ * da abertura da transação, pois a conexão é obtida no início dela.
+ */
+public final class ShardContexto {
+
+	private static final ThreadLocal<String> SHARD_ATUAL = new ThreadLocal<>();
+
+	private ShardContexto() {
+	}
+	
+	public static String obter() {
+		return SHARD_ATUAL.get();
+	}
+	
+	public static void definir(String shard) {
+		SHARD_ATUAL.set(shard);
+	}
+	
+	public static void limpar() {
+		SHARD_ATUAL.remove();
+	}
+	
+	public static <T> T executar(String shard, Supplier<T> operacao) {
+		String anterior = SHARD_ATUAL.get();
+		SHARD_ATUAL.set(shard);
+		try {
+			return operacao.get();
+		} finally {
+			if (anterior == null) {
+				SHARD_ATUAL.remove();
+			} else {
+				SHARD_ATUAL.set(anterior);
+			}
+		}
+	}
+	
+	/**
+	 * Envolve a tarefa para que rode, em outra thread, no shard da thread que a criou.
+	 */
+	public static Runnable propagar(Runnable tarefa) {
+		String shard = SHARD_ATUAL.get();
+		return () -> executar(shard, () -> {
+			tarefa.run();
+			return null;
+		});
+	}
+}
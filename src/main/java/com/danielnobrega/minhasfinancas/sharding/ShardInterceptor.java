@@ -0,0 +1,108 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Escolhe o shard da requisição pelo usuário do parâmetro {@code usuario}, do caminho
+ * {@code /api/usuarios/{id}} ou do lançamento de {@code /api/lancamentos/{id}}. As requisições
+ * que trazem o usuário no corpo seguem sem shard para o ShardRequestBodyAdvice, e as operações
+ * globais (cotações, processamentos, varredura de duplicidades, administração dos shards) são
+ * executadas pelos resources em cada shard. O que não se encaixa em nenhum caso é recusado em
+ * vez de ir para o shard padrão, onde leria ou gravaria dados de outro shard. Escritas de um
+ * usuário no fim de uma migração recebem 503.
+ */
+@RequiredArgsConstructor
+public class ShardInterceptor extends HandlerInterceptorAdapter {
+
+	private static final List<String> GLOBAIS = Arrays.asList(
+			"/api/cotacoes", "/api/processamentos", "/api/lancamentos/duplicidades", "/api/shards");
+
+	private final LocalizadorShard localizador;
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+		ShardContexto.limpar();
+		String padrao = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		if (padrao == null) {
+			padrao = request.getRequestURI();
+		}
+
+		if (GLOBAIS.stream().anyMatch(padrao::startsWith)) {
+			return true;
+		}
+
+		Long idUsuario = numero(request.getParameter("usuario"));
+		Localizacao localizacao = null;
+		if (idUsuario != null) {
+			localizacao = localizador.porUsuario(idUsuario);
+		} else if (padrao.startsWith("/api/usuarios/{id}")) {
+			idUsuario = numero(variavel(request, "id"));
+			localizacao = idUsuario == null ? null : localizador.porUsuario(idUsuario);
+		} else if (padrao.startsWith("/api/lancamentos/{id}")) {
+			Long idLancamento = numero(variavel(request, "id"));
+			localizacao = idLancamento == null ? null : localizador.porLancamento(idLancamento);
+		} else if (recebeCorpoRoteavel(handler)) {
+			return true;
+		}
+
+		if (localizacao == null) {
+			response.sendError(HttpStatus.NOT_IMPLEMENTED.value(),
+					"Operação indisponível com sharding habilitado: a requisição não identifica o usuário");
+			return false;
+		}
+
+		if (localizacao.isEmMigracao() && !"GET".equals(request.getMethod())) {
+			response.setHeader(HttpHeaders.RETRY_AFTER, "10");
+			response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), RoteamentoRecusadoException.emMigracao().getMessage());
+			return false;
+		}
+
+		ShardContexto.definir(localizacao.getShard());
+		return true;
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		// a exportação continua em outra thread com o próprio contexto; esta volta ao pool do servidor
+		ShardContexto.limpar();
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		ShardContexto.limpar();
+	}
+
+	private static boolean recebeCorpoRoteavel(Object handler) {
+		return handler instanceof HandlerMethod && Arrays.stream(((HandlerMethod) handler).getMethodParameters())
+				.anyMatch( parametro -> parametro.hasParameterAnnotation(RequestBody.class)
+									 && ShardRequestBodyAdvice.roteavel(parametro.getParameterType()) );
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String variavel(HttpServletRequest request, String nome) {
+		Map<String, String> variaveis = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+		return variaveis == null ? null : variaveis.get(nome);
+	}
+
+	private static Long numero(String valor) {
+		try {
+			return valor == null ? null : Long.valueOf(valor);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
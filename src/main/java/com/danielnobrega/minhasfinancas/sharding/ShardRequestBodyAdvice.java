@@ -0,0 +1,104 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import com.danielnobrega.minhasfinancas.api.dto.CategoriaDTO;
+import com.danielnobrega.minhasfinancas.api.dto.LancamentoDTO;
+import com.danielnobrega.minhasfinancas.api.dto.OrcamentoDTO;
+import com.danielnobrega.minhasfinancas.api.dto.TransferenciaDTO;
+import com.danielnobrega.minhasfinancas.api.dto.UsuarioDTO;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Escolhe o shard das requisições que identificam o usuário só no corpo: inclusões de
+ * lançamentos, categorias e orçamentos, transferências, cadastro e autenticação. Roda depois do
+ * ShardInterceptor e antes do resource abrir a transação; quando o interceptor já escolheu o
+ * shard pelo caminho, o corpo não muda a escolha.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "minhasfinancas.sharding.habilitado", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardRequestBodyAdvice extends RequestBodyAdviceAdapter {
+
+	private static final List<Class<?>> ROTEAVEIS = Arrays.asList(
+			LancamentoDTO.class, TransferenciaDTO.class, CategoriaDTO.class, OrcamentoDTO.class, UsuarioDTO.class);
+
+	private final LocalizadorShard localizador;
+
+	static boolean roteavel(Class<?> tipo) {
+		return ROTEAVEIS.contains(tipo);
+	}
+
+	@Override
+	public boolean supports(MethodParameter parametro, Type tipo, Class<? extends HttpMessageConverter<?>> conversor) {
+		return roteavel(parametro.getParameterType());
+	}
+
+	@Override
+	public Object afterBodyRead(Object corpo, HttpInputMessage mensagem, MethodParameter parametro, Type tipo,
+			Class<? extends HttpMessageConverter<?>> conversor) {
+		if (ShardContexto.obter() == null) {
+			ShardContexto.definir(escolherShard(corpo));
+		}
+		return corpo;
+	}
+
+	@ExceptionHandler(RoteamentoRecusadoException.class)
+	public ResponseEntity recusar(RoteamentoRecusadoException e) {
+		ResponseEntity.BodyBuilder resposta = ResponseEntity.status(e.getStatus());
+		if (e.getStatus() == HttpStatus.SERVICE_UNAVAILABLE) {
+			resposta.header(HttpHeaders.RETRY_AFTER, "10");
+		}
+		return resposta.body(e.getMessage());
+	}
+
+	String escolherShard(Object corpo) {
+		if (corpo instanceof UsuarioDTO) {
+			return localizador.porEmail(Usuario.normalizarEmail(((UsuarioDTO) corpo).getEmail()));
+		}
+
+		Long idUsuario = null;
+		if (corpo instanceof LancamentoDTO) {
+			idUsuario = ((LancamentoDTO) corpo).getUsuario();
+		} else if (corpo instanceof TransferenciaDTO) {
+			idUsuario = ((TransferenciaDTO) corpo).getUsuario();
+		} else if (corpo instanceof CategoriaDTO) {
+			idUsuario = ((CategoriaDTO) corpo).getUsuario();
+		} else if (corpo instanceof OrcamentoDTO) {
+			idUsuario = ((OrcamentoDTO) corpo).getUsuario();
+		}
+
+		Localizacao localizacao = localizador.porUsuario(idUsuario);
+		if (localizacao.isEmMigracao()) {
+			throw RoteamentoRecusadoException.emMigracao();
+		}
+
+		if (corpo instanceof TransferenciaDTO && ((TransferenciaDTO) corpo).getDestino() != null) {
+			Long idDestino = ((TransferenciaDTO) corpo).getDestino();
+			Localizacao destino = localizador.porUsuario(idDestino);
+			if (destino.isEmMigracao()) {
+				throw RoteamentoRecusadoException.emMigracao();
+			}
+			if (!destino.getShard().equals(localizacao.getShard())) {
+				throw new RoteamentoRecusadoException(HttpStatus.CONFLICT,
+						"Transferências entre usuários de shards diferentes não são suportadas");
+			}
+		}
+		return localizacao.getShard();
+	}
+}
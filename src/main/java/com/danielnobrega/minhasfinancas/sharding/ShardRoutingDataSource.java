@@ -0,0 +1,12 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return ShardContexto.obter();
+	}
+
+}
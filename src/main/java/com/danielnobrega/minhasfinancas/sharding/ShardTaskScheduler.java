@@ -0,0 +1,74 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Executa cada tarefa agendada uma vez em cada shard, com o ShardContexto definido, em vez de
+ * deixá-la sem contexto no shard padrão. A falha em um shard não impede os seguintes.
+ */
+@Slf4j
+public class ShardTaskScheduler extends ThreadPoolTaskScheduler {
+
+	private static final long serialVersionUID = 1L;
+	
+	private final List<String> shards;
+	
+	public ShardTaskScheduler(Collection<String> shards) {
+		this.shards = new ArrayList<>(shards);
+	}
+	
+	@Override
+	public ScheduledFuture<?> schedule(Runnable tarefa, Trigger trigger) {
+		return super.schedule(porShard(tarefa), trigger);
+	}
+	
+	@Override
+	public ScheduledFuture<?> schedule(Runnable tarefa, Date inicio) {
+		return super.schedule(porShard(tarefa), inicio);
+	}
+	
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable tarefa, Date inicio, long periodo) {
+		return super.scheduleAtFixedRate(porShard(tarefa), inicio, periodo);
+	}
+	
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable tarefa, long periodo) {
+		return super.scheduleAtFixedRate(porShard(tarefa), periodo);
+	}
+	
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable tarefa, Date inicio, long intervalo) {
+		return super.scheduleWithFixedDelay(porShard(tarefa), inicio, intervalo);
+	}
+	
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable tarefa, long intervalo) {
+		return super.scheduleWithFixedDelay(porShard(tarefa), intervalo);
+	}
+	
+	Runnable porShard(Runnable tarefa) {
+		return () -> {
+			for (String shard : shards) {
+				try {
+					ShardContexto.executar(shard, () -> {
+						tarefa.run();
+						return null;
+					});
+				} catch (RuntimeException e) {
+					log.error("Tarefa agendada falhou no shard {}", shard, e);
+				}
+			}
+		};
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Roteamento por shard, desligado por padrão. O shard de cada usuário fica no
+ * DiretorioUsuarios, no shard padrão, e é resolvido pelo ShardInterceptor e pelo
+ * ShardRequestBodyAdvice; as tarefas agendadas e as operações globais rodam uma vez em cada
+ * shard. Na partida cada shard recebe a faixa de ids de {@code inicio-ids} até o início da
+ * faixa seguinte, o que mantém os ids únicos entre os shards e permite migrar usuários com o
+ * MigradorShard sem trocar ids.
+ */
+@Configuration
+@ConditionalOnProperty(name = "minhasfinancas.sharding.habilitado", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig implements WebMvcConfigurer, DisposableBean {
+
+	private final ShardingProperties properties;
+
+	private final Map<String, HikariDataSource> shards = new LinkedHashMap<>();
+
+	public ShardingConfig(ShardingProperties properties) {
+		this.properties = properties;
+		if (!properties.getShards().containsKey(properties.getShardPadrao())) {
+			throw new IllegalStateException("minhasfinancas.sharding.shard-padrao deve ser um dos shards configurados");
+		}
+
+		properties.getShards().forEach( (nome, shard) -> {
+			HikariDataSource dataSource = new HikariDataSource();
+			dataSource.setPoolName("shard-" + nome);
+			dataSource.setJdbcUrl(shard.getUrl());
+			dataSource.setUsername(shard.getUsername());
+			dataSource.setPassword(shard.getPassword());
+			dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+			shards.put(nome, dataSource);
+		});
+		reservarFaixasDeIds();
+	}
+
+	@Bean
+	@Primary
+	public DataSource dataSource() {
+		ShardRoutingDataSource routing = new ShardRoutingDataSource();
+		routing.setTargetDataSources(new HashMap<>(shards));
+		routing.setDefaultTargetDataSource(shards.get(properties.getShardPadrao()));
+		routing.setLenientFallback(false);
+		return routing;
+	}
+
+	@Bean
+	public AnelHashConsistente anelHashConsistente() {
+		return new AnelHashConsistente(shards.keySet(), properties.getNosVirtuais());
+	}
+
+	@Bean
+	public DiretorioUsuarios diretorioUsuarios() {
+		return new DiretorioUsuarios(shards.get(properties.getShardPadrao()));
+	}
+
+	@Bean
+	public LocalizadorShard localizadorShard() {
+		return new LocalizadorShard(shards, properties.getShardPadrao(), anelHashConsistente(), diretorioUsuarios());
+	}
+
+	@Bean
+	public ExecucaoPorShard execucaoPorShard() {
+		return new ExecucaoPorShard(shards.keySet(), localizadorShard());
+	}
+
+	@Bean
+	public MigradorShard migradorShard() {
+		return new MigradorShard(shards, anelHashConsistente(), diretorioUsuarios(), localizadorShard(),
+				properties.getTamanhoLoteMigracao(), properties.getEsperaMigracaoMs());
+	}
+
+	@Bean
+	public TaskScheduler taskScheduler() {
+		ShardTaskScheduler scheduler = new ShardTaskScheduler(shards.keySet());
+		scheduler.setThreadNamePrefix("agendamento-");
+		return scheduler;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new ShardInterceptor(localizadorShard()))
+				.addPathPatterns("/api/**");
+	}
+
+	@Override
+	public void destroy() {
+		shards.values().forEach(HikariDataSource::close);
+	}
+
+	private void reservarFaixasDeIds() {
+		properties.getShards().forEach( (nome, shard) -> {
+			long fim = properties.getShards().values().stream()
+								 .mapToLong(ShardingProperties.Shard::getInicioIds)
+								 .filter( inicio -> inicio > shard.getInicioIds() )
+								 .min()
+								 .orElse(Long.MAX_VALUE);
+			if (properties.getShards().values().stream().filter( outro -> outro.getInicioIds() == shard.getInicioIds() ).count() > 1) {
+				throw new IllegalStateException("Os shards precisam de faixas de ids distintas: configure "
+						+ "minhasfinancas.sharding.shards." + nome + ".inicio-ids");
+			}
+			FaixaIds.reservar(nome, shards.get(nome), shard.getInicioIds(), fim);
+		});
+	}
+}
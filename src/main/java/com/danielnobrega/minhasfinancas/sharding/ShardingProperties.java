@@ -0,0 +1,38 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "minhasfinancas.sharding")
+public class ShardingProperties {
+
+	private boolean habilitado;
+	
+	private int nosVirtuais = 160;
+	
+	private String shardPadrao;
+	
+	private Map<String, Shard> shards = new LinkedHashMap<>();
+	
+	private int tamanhoLoteMigracao = 1000;
+	
+	/** Tempo para as escritas admitidas antes de a migração marcar o usuário terminarem. */
+	private long esperaMigracaoMs = 5000;
+	
+	@Data
+	public static class Shard {
+		
+		private String url;
+		private String username;
+		private String password;
+		private int maximumPoolSize = 10;
+		
+		/** Primeiro id gerado neste shard; as faixas dos shards não podem se sobrepor. */
+		private long inicioIds = 1;
+	}
+}
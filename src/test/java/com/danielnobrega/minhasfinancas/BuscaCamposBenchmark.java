@@ -0,0 +1,127 @@
+package com.danielnobrega.minhasfinancas;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.danielnobrega.minhasfinancas.enums.CampoLancamento;
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.impl.LancamentoServiceImpl;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compara a busca de lançamentos devolvendo entidades com a busca por campos, numa seleção
+ * estreita e numa com todos os campos, da consulta até o JSON. Sobe a aplicação sem servidor
+ * web sobre um H2 em memória. Rodar com
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.danielnobrega.minhasfinancas.BuscaCamposBenchmark}
+ * e usar {@code -prof gc} pela linha de comando do JMH para acompanhar a alocação por operação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuscaCamposBenchmark {
+
+	private static final int LANCAMENTOS = 1000;
+
+	ConfigurableApplicationContext contexto;
+
+	LancamentoServiceImpl service;
+
+	ObjectMapper mapper;
+
+	FiltroLancamento completo;
+
+	FiltroLancamento estreito;
+
+	FiltroLancamento largo;
+
+	@Setup
+	public void setUp() {
+		contexto = new SpringApplicationBuilder(MinhasfinancasApplication.class)
+				.profiles("test")
+				.properties("spring.main.web-application-type=none",
+							"spring.datasource.url=jdbc:h2:mem:buscacampos;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas")
+				.run();
+		service = contexto.getBean(LancamentoServiceImpl.class);
+		mapper = contexto.getBean(ObjectMapper.class);
+
+		Usuario usuario = contexto.getBean(UsuarioRepository.class)
+				.save(Usuario.builder().nome("usuario").email("benchmark@email.com").senha("senha").build());
+
+		List<Lancamento> lancamentos = new ArrayList<>(LANCAMENTOS);
+		for (int i = 0; i < LANCAMENTOS; i++) {
+			lancamentos.add(Lancamento.builder()
+					.descricao("Lançamento " + i)
+					.ano(2015 + i % 6)
+					.mes(1 + i % 12)
+					.valor(BigDecimal.valueOf(i, 2))
+					.tipo(i % 3 == 0 ? TipoLancamento.RECEITA : TipoLancamento.DESPESA)
+					.status(StatusLancamento.values()[i % StatusLancamento.values().length])
+					.dataCadastro(LocalDate.of(2020, 1, 1))
+					.usuario(usuario)
+					.build());
+		}
+		contexto.getBean(LancamentoRepository.class).saveAll(lancamentos);
+
+		completo = FiltroLancamento.builder().idUsuario(usuario.getId()).limite(LANCAMENTOS).build();
+		estreito = completo.toBuilder()
+				.campos(EnumSet.of(CampoLancamento.DESCRICAO, CampoLancamento.VALOR, CampoLancamento.STATUS))
+				.build();
+		largo = completo.toBuilder().campos(EnumSet.allOf(CampoLancamento.class)).build();
+	}
+
+	@TearDown
+	public void tearDown() {
+		contexto.close();
+	}
+
+	@Benchmark
+	public byte[] buscarEntidades() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(service.buscar(completo));
+	}
+
+	@Benchmark
+	public byte[] buscarCamposEstreito() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(service.buscarCampos(estreito));
+	}
+
+	@Benchmark
+	public byte[] buscarCamposLargo() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(service.buscarCampos(largo));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(BuscaCamposBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
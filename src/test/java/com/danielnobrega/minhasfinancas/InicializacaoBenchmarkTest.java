@@ -0,0 +1,55 @@
+package com.danielnobrega.minhasfinancas;
+
+import java.util.Map;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import com.danielnobrega.minhasfinancas.api.dto.UsuarioDTO;
+
+/**
+ * Mede o tempo entre a chamada ao SpringApplication e o primeiro 200 em
+ * /api/usuarios/{id}/saldo no profile fast-start. O limite padrão de 15 s fica acima do que a
+ * subida sobre H2 leva numa máquina de build comum e pode ser ajustado com
+ * -Dminhasfinancas.benchmark.inicializacao.limite-ms.
+ */
+public class InicializacaoBenchmarkTest {
+	
+	static final long LIMITE_MS = Long.getLong("minhasfinancas.benchmark.inicializacao.limite-ms", 15000);
+
+	@Test
+	public void deveResponderOSaldoDentroDoLimiteDeInicializacao() {
+		long inicio = System.nanoTime();
+		
+		ConfigurableApplicationContext contexto = new SpringApplicationBuilder(MinhasfinancasApplication.class)
+				.profiles("test", "fast-start")
+				.properties("server.port=0", 
+							"spring.datasource.url=jdbc:h2:mem:inicializacao;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas")
+				.run();
+		
+		try {
+			long pronto = System.nanoTime();
+			String api = "http://localhost:" + ((ServletWebServerApplicationContext) contexto).getWebServer().getPort() + "/api/usuarios";
+			RestTemplate rest = new RestTemplate();
+			
+			UsuarioDTO dto = UsuarioDTO.builder().nome("usuario").email("inicializacao@email.com").senha("senha").build();
+			Map<?, ?> usuario = rest.postForObject(api, dto, Map.class);
+			ResponseEntity<String> saldo = rest.getForEntity(api + "/{id}/saldo", String.class, usuario.get("id"));
+			
+			long decorrido = (System.nanoTime() - inicio) / 1_000_000;
+			
+			Assertions.assertThat(saldo.getStatusCode()).isEqualTo(HttpStatus.OK);
+			Assertions.assertThat(decorrido)
+					  .as("primeiro 200 em /saldo (contexto pronto em %d ms)", (pronto - inicio) / 1_000_000)
+					  .isLessThan(LIMITE_MS);
+		} finally {
+			contexto.close();
+		}
+	}
+}
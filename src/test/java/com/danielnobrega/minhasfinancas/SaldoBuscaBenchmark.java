@@ -0,0 +1,130 @@
+package com.danielnobrega.minhasfinancas;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.danielnobrega.minhasfinancas.enums.OrdenacaoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoSaldo;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.impl.LancamentoServiceImpl;
+
+/**
+ * Mede o saldo e a busca de um usuário com muitos lançamentos: o saldo total, o saldo só dos
+ * efetivados até um mês, a busca de um mês e a busca de um ano ordenada por valor com limite.
+ * Chama o LancamentoServiceImpl direto, sem o colapso de chamadas, para medir as consultas. Sobe
+ * a aplicação sem servidor web sobre um H2 em memória. Rodar com
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.danielnobrega.minhasfinancas.SaldoBuscaBenchmark}
+ * e variar o volume com {@code -p lancamentos=...} pela linha de comando do JMH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaldoBuscaBenchmark {
+
+	@Param({ "10000", "100000" })
+	int lancamentos;
+
+	ConfigurableApplicationContext contexto;
+
+	LancamentoServiceImpl service;
+
+	Long idUsuario;
+
+	FiltroLancamento mes;
+
+	FiltroLancamento ano;
+
+	@Setup
+	public void setUp() {
+		contexto = new SpringApplicationBuilder(MinhasfinancasApplication.class)
+				.profiles("test")
+				.properties("spring.main.web-application-type=none",
+							"spring.datasource.url=jdbc:h2:mem:saldobusca;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas")
+				.run();
+		service = contexto.getBean(LancamentoServiceImpl.class);
+
+		idUsuario = contexto.getBean(UsuarioRepository.class)
+				.save(Usuario.builder().nome("usuario").email("saldo-benchmark@email.com").senha("senha").build())
+				.getId();
+
+		Random random = new Random(42);
+		List<Object[]> linhas = new ArrayList<>(lancamentos);
+		for (int i = 0; i < lancamentos; i++) {
+			boolean receita = random.nextInt(5) == 0;
+			linhas.add(new Object[] { "Lançamento " + i, 2011 + random.nextInt(10), 1 + random.nextInt(12), idUsuario,
+					BigDecimal.valueOf(receita ? 1000 + random.nextInt(9000) : 10 + random.nextInt(900)),
+					Date.valueOf(LocalDate.of(2020, 1, 1)),
+					receita ? "RECEITA" : "DESPESA",
+					random.nextBoolean() ? "EFETIVADO" : "PENDENTE" });
+		}
+		new JdbcTemplate(contexto.getBean(DataSource.class))
+				.batchUpdate("insert into financas.lancamento (descricao, ano, mes, id_usuario, valor, data_cadastro, tipo, status) "
+						+ "values (?, ?, ?, ?, ?, ?, ?, ?)", linhas);
+
+		mes = FiltroLancamento.builder().idUsuario(idUsuario).anoInicial(2018).mesInicial(6).anoFinal(2018).mesFinal(6).build();
+		ano = FiltroLancamento.builder().idUsuario(idUsuario).anoInicial(2018).anoFinal(2018)
+				.ordenacao(OrdenacaoLancamento.VALOR).decrescente(true).limite(100).build();
+	}
+
+	@TearDown
+	public void tearDown() {
+		contexto.close();
+	}
+
+	@Benchmark
+	public BigDecimal obterSaldo() {
+		return service.obterSaldoPorUsuario(idUsuario);
+	}
+
+	@Benchmark
+	public ResumoSaldo obterSaldoEfetivadoAteOMes() {
+		return service.obterResumoSaldo(idUsuario, true, 2018, 6);
+	}
+
+	@Benchmark
+	public List<Lancamento> buscarUmMes() {
+		return service.buscar(mes);
+	}
+
+	@Benchmark
+	public List<Lancamento> buscarUmAnoPorValorComLimite() {
+		return service.buscar(ano);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(SaldoBuscaBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
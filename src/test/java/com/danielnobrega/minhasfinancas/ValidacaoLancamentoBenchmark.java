@@ -0,0 +1,87 @@
+package com.danielnobrega.minhasfinancas;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.service.impl.LancamentoServiceImpl;
+
+/**
+ * Mede LancamentoServiceImpl.validar com entradas válidas e inválidas. Rodar com
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.danielnobrega.minhasfinancas.ValidacaoLancamentoBenchmark}
+ * e usar {@code -prof gc} pela linha de comando do JMH para acompanhar a alocação por operação.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidacaoLancamentoBenchmark {
+	
+	LancamentoServiceImpl service;
+	
+	Lancamento valido;
+	
+	Lancamento invalido;
+	
+	@Setup
+	public void setUp() {
+		service = new LancamentoServiceImpl(null, null, null, null, null, null, Optional.empty());
+		
+		valido = Lancamento.builder()
+				.descricao("Salário")
+				.mes(1)
+				.ano(2020)
+				.valor(BigDecimal.TEN)
+				.tipo(TipoLancamento.RECEITA)
+				.usuario(Usuario.builder().id(1l).build())
+				.build();
+		
+		invalido = Lancamento.builder()
+				.descricao("  ")
+				.mes(13)
+				.ano(20)
+				.valor(BigDecimal.ZERO)
+				.build();
+	}
+	
+	@Benchmark
+	public Lancamento validarLancamentoValido() {
+		service.validar(valido);
+		return valido;
+	}
+	
+	@Benchmark
+	public Object validarLancamentoInvalido() {
+		try {
+			service.validar(invalido);
+			return null;
+		} catch (RegraNegocioException e) {
+			return e.getErros();
+		}
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ValidacaoLancamentoBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -1,5 +1,11 @@
 package com.danielnobrega.minhasfinancas.api.resources;
 
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
@@ -7,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -16,11 +23,21 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import com.danielnobrega.minhasfinancas.api.dto.UsuarioDTO;
+import com.danielnobrega.minhasfinancas.enums.MetodoProjecao;
+import com.danielnobrega.minhasfinancas.exceptions.BancoIndisponivelException;
 import com.danielnobrega.minhasfinancas.exceptions.ErroAutenticacao;
 import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
 import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.DegradacaoService;
 import com.danielnobrega.minhasfinancas.service.LancamentoService;
+import com.danielnobrega.minhasfinancas.service.ProjecaoService;
+import com.danielnobrega.minhasfinancas.service.SaldoMensalService;
 import com.danielnobrega.minhasfinancas.service.UsuarioService;
+import com.danielnobrega.minhasfinancas.service.VersaoDadosService;
+import com.danielnobrega.minhasfinancas.service.degradacao.Resultado;
+import com.danielnobrega.minhasfinancas.service.projecao.Projecao;
+import com.danielnobrega.minhasfinancas.service.versao.VersaoDados;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RunWith(SpringRunner.class)
@@ -41,6 +58,29 @@ public class UsuarioResourceTest {
 	@MockBean
 	LancamentoService lancamentoService;
 	
+	@MockBean
+	SaldoMensalService saldoMensalService;
+	
+	@MockBean
+	VersaoDadosService versaoDadosService;
+	
+	@MockBean
+	ProjecaoService projecaoService;
+	
+	@MockBean
+	CotacaoService cotacaoService;
+	
+	@MockBean
+	DegradacaoService degradacaoService;
+	
+	@Before
+	public void setUp() {
+		Mockito.when(degradacaoService.chamar(Mockito.anyString(), Mockito.any()))
+			   .thenAnswer( invocacao -> invocacao.<Supplier<?>>getArgument(1).get() );
+		Mockito.when(degradacaoService.consultar(Mockito.anyString(), Mockito.any(), Mockito.any()))
+			   .thenAnswer( invocacao -> Resultado.atual(invocacao.<Supplier<?>>getArgument(2).get()) );
+	}
+	
 	@Test
 	public void deveAutenticarUmUsuario() throws Exception {
 		//cenário
@@ -147,5 +187,101 @@ public class UsuarioResourceTest {
 			.andExpect( MockMvcResultMatchers.status().isBadRequest());
 		
 	}
+	
+	@Test
+	public void deveRetornarOSaldoComEtagDaVersaoDoUsuario() throws Exception {
+		//cenário
+		Mockito.when(versaoDadosService.obter(1l)).thenReturn(new VersaoDados("abc-3", 1577836800000l));
+		Mockito.when(cotacaoService.obterVersao()).thenReturn(2l);
+		Mockito.when(service.obterPorId(1l)).thenReturn(Optional.of(Usuario.builder().id(1l).build()));
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(BigDecimal.TEN);
+		
+		//execução e verificação
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/saldo")).accept(JSON))
+			.andExpect( MockMvcResultMatchers.status().isOk())
+			.andExpect( MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"abc-3-2\""))
+			.andExpect( MockMvcResultMatchers.header().string(HttpHeaders.LAST_MODIFIED, "Wed, 01 Jan 2020 00:00:00 GMT"))
+			.andExpect( MockMvcResultMatchers.content().string("10"));
+	}
+	
+	@Test
+	public void deveRetornarNaoModificadoSemConsultarOSaldoQuandoAVersaoNaoMudou() throws Exception {
+		//cenário
+		Mockito.when(versaoDadosService.obter(1l)).thenReturn(new VersaoDados("abc-3", 1577836800000l));
+		Mockito.when(cotacaoService.obterVersao()).thenReturn(2l);
+		
+		//execução e verificação
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/saldo")).header(HttpHeaders.IF_NONE_MATCH, "\"abc-3-2\""))
+			.andExpect( MockMvcResultMatchers.status().isNotModified());
+		
+		Mockito.verifyZeroInteractions(lancamentoService, saldoMensalService);
+	}
+
+	@Test
+	public void deveIgnorarADataQuandoAEtagMudouNoMesmoSegundo() throws Exception {
+		//cenário
+		Mockito.when(versaoDadosService.obter(1l)).thenReturn(new VersaoDados("abc-4", 1577836800500l));
+		Mockito.when(cotacaoService.obterVersao()).thenReturn(2l);
+		Mockito.when(service.obterPorId(1l)).thenReturn(Optional.of(Usuario.builder().id(1l).build()));
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(BigDecimal.ONE);
+
+		//execução e verificação
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/saldo"))
+					.header(HttpHeaders.IF_NONE_MATCH, "\"abc-3-2\"")
+					.header(HttpHeaders.IF_MODIFIED_SINCE, "Wed, 01 Jan 2020 00:00:00 GMT"))
+			.andExpect( MockMvcResultMatchers.status().isOk())
+			.andExpect( MockMvcResultMatchers.content().string("1"));
+	}
+
+	@Test
+	public void deveRetornarOSaldoObsoletoSemPermitirCacheQuandoOBancoEstaLento() throws Exception {
+		//cenário
+		Mockito.when(versaoDadosService.obter(1l)).thenReturn(new VersaoDados("abc-3", 1577836800000l));
+		Mockito.when(degradacaoService.consultar(Mockito.eq(DegradacaoService.SALDO), Mockito.any(), Mockito.any()))
+			   .thenReturn(Resultado.obsoleto(BigDecimal.TEN, 42));
+		
+		//execução e verificação
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/saldo")).accept(JSON))
+			.andExpect( MockMvcResultMatchers.status().isOk())
+			.andExpect( MockMvcResultMatchers.header().string(HttpHeaders.AGE, "42"))
+			.andExpect( MockMvcResultMatchers.header().string(HttpHeaders.WARNING, "110 - \"Response is Stale\""))
+			.andExpect( MockMvcResultMatchers.header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+			.andExpect( MockMvcResultMatchers.content().string("10"));
+	}
+	
+	@Test
+	public void deveRetornarIndisponivelQuandoNaoHaSaldoAnteriorParaServir() throws Exception {
+		//cenário
+		Mockito.when(versaoDadosService.obter(1l)).thenReturn(new VersaoDados("abc-3", 1577836800000l));
+		Mockito.when(degradacaoService.consultar(Mockito.eq(DegradacaoService.SALDO), Mockito.any(), Mockito.any()))
+			   .thenThrow(new BancoIndisponivelException("disjuntor aberto"));
+		
+		//execução e verificação
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/saldo")).accept(JSON))
+			.andExpect( MockMvcResultMatchers.status().isServiceUnavailable())
+			.andExpect( MockMvcResultMatchers.header().exists(HttpHeaders.RETRY_AFTER));
+	}
+	
+	@Test
+	public void deveRetornarAProjecaoDoMesDeReferenciaInformado() throws Exception {
+		//cenário
+		Mockito.when(versaoDadosService.obter(1l)).thenReturn(new VersaoDados("abc-3", 1577836800000l));
+		Mockito.when(service.obterPorId(1l)).thenReturn(Optional.of(Usuario.builder().id(1l).build()));
+		Mockito.when(projecaoService.projetar(1l, 2020, 6, 12, MetodoProjecao.SAZONAL, 3))
+			   .thenReturn(new Projecao(2020, 6, MetodoProjecao.SAZONAL, BigDecimal.TEN, Collections.emptyList()));
+		
+		//execução e verificação
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/projecao?ano=2020&mes=6&meses=12&metodo=SAZONAL")).accept(JSON))
+			.andExpect( MockMvcResultMatchers.status().isOk())
+			.andExpect( MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"abc-3-0-2020-06\""))
+			.andExpect( MockMvcResultMatchers.jsonPath("saldoAtual").value(10))
+			.andExpect( MockMvcResultMatchers.jsonPath("metodo").value("SAZONAL"));
+	}
 
 }
@@ -0,0 +1,341 @@
+package com.danielnobrega.minhasfinancas.carga;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.danielnobrega.minhasfinancas.MinhasfinancasApplication;
+import com.danielnobrega.minhasfinancas.api.dto.AtualizaStatusDTO;
+import com.danielnobrega.minhasfinancas.api.dto.LancamentoDTO;
+import com.danielnobrega.minhasfinancas.api.dto.UsuarioDTO;
+
+/**
+ * Sobe a aplicação sobre um H2 em memória próprio, semeia usuários e lançamentos e dispara
+ * por um tempo fixo uma mistura de requisições (login, saldo, busca, criação e atualização de
+ * status) a partir de várias threads. Ao final grava p50, p99, vazão e erros por endpoint em
+ * target/carga/resultado.properties e compara com a baseline versionada em
+ * src/test/resources/carga/baseline.properties; sem ela o teste falha. Com
+ * carga.atualizar-baseline=true a execução só confere os erros e grava a medição em
+ * target/carga/baseline.properties, para ser copiada sobre a versionada a partir da máquina em
+ * que a comparação vai rodar.
+ *
+ * Fica fora do build padrão; rodar com {@code mvn test -Pcarga}. Parâmetros por system property:
+ * carga.usuarios, carga.lancamentos-por-usuario, carga.threads, carga.aquecimento-segundos,
+ * carga.duracao-segundos, carga.mix (ex.: login=10,saldo=35,busca=35,criacao=15,status=5),
+ * carga.semente, carga.tolerancia, carga.folga-ms e carga.atualizar-baseline.
+ */
+public class SimulacaoCargaTest {
+
+	static final int USUARIOS = Integer.getInteger("carga.usuarios", 200);
+	static final int LANCAMENTOS_POR_USUARIO = Integer.getInteger("carga.lancamentos-por-usuario", 100);
+	static final int THREADS = Integer.getInteger("carga.threads", 16);
+	static final int AQUECIMENTO_SEGUNDOS = Integer.getInteger("carga.aquecimento-segundos", 5);
+	static final int DURACAO_SEGUNDOS = Integer.getInteger("carga.duracao-segundos", 20);
+	static final String MIX = System.getProperty("carga.mix", "login=10,saldo=35,busca=35,criacao=15,status=5");
+	static final long SEMENTE = Long.getLong("carga.semente", 42);
+	static final double TOLERANCIA = Double.parseDouble(System.getProperty("carga.tolerancia", "0.5"));
+	static final double FOLGA_MS = Double.parseDouble(System.getProperty("carga.folga-ms", "5"));
+	static final boolean ATUALIZAR_BASELINE = Boolean.getBoolean("carga.atualizar-baseline");
+
+	static final String BASELINE = "/carga/baseline.properties";
+	static final Path RESULTADO = Paths.get("target/carga/resultado.properties");
+	static final Path NOVA_BASELINE = Paths.get("target/carga/baseline.properties");
+
+	static final String SENHA = "senha";
+
+	@Test
+	public void deveManterLatenciaEVazaoDentroDaBaseline() throws Exception {
+		Properties baseline = lerBaseline();
+		ConfigurableApplicationContext contexto = new SpringApplicationBuilder(MinhasfinancasApplication.class)
+				.profiles("test")
+				.properties("server.port=0",
+							"spring.datasource.url=jdbc:h2:mem:carga;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas",
+							"logging.level.root=WARN")
+				.run();
+
+		try {
+			Massa massa = semear(new JdbcTemplate(contexto.getBean(DataSource.class)));
+			String api = "http://localhost:" + ((ServletWebServerApplicationContext) contexto).getWebServer().getPort() + "/api";
+
+			executar(api, massa, AQUECIMENTO_SEGUNDOS);
+			Map<String, Amostras> resultado = executar(api, massa, DURACAO_SEGUNDOS);
+
+			Properties medido = relatar(resultado);
+			conferir(medido, baseline);
+		} finally {
+			contexto.close();
+		}
+	}
+
+	private Massa semear(JdbcTemplate jdbc) {
+		Random random = new Random(SEMENTE);
+		List<Object[]> usuarios = new ArrayList<>();
+		for (int u = 0; u < USUARIOS; u++) {
+			usuarios.add(new Object[] { "usuario " + u, "carga" + u + "@email.com", SENHA });
+		}
+		jdbc.batchUpdate("insert into financas.usuario (nome, email, senha) values (?, ?, ?)", usuarios);
+
+		Massa massa = new Massa();
+		massa.usuarios = jdbc.queryForList("select id from financas.usuario where email like 'carga%' order by id", Long.class);
+
+		String[] descricoes = { "Salário", "Mercado", "Aluguel", "Energia", "Internet", "Farmácia", "Restaurante", "Combustível" };
+		List<Object[]> lancamentos = new ArrayList<>();
+		for (Long idUsuario : massa.usuarios) {
+			for (int i = 0; i < LANCAMENTOS_POR_USUARIO; i++) {
+				boolean receita = random.nextInt(5) == 0;
+				lancamentos.add(new Object[] {
+						descricoes[receita ? 0 : 1 + random.nextInt(descricoes.length - 1)] + " " + i,
+						2018 + random.nextInt(3), 1 + random.nextInt(12), idUsuario,
+						receita ? 1000 + random.nextInt(9000) : 10 + random.nextInt(900),
+						Date.valueOf(LocalDate.now()),
+						receita ? "RECEITA" : "DESPESA",
+						random.nextBoolean() ? "EFETIVADO" : "PENDENTE" });
+			}
+		}
+		jdbc.batchUpdate("insert into financas.lancamento (descricao, ano, mes, id_usuario, valor, data_cadastro, tipo, status) "
+				+ "values (?, ?, ?, ?, ?, ?, ?, ?)", lancamentos);
+
+		massa.lancamentos = jdbc.queryForList("select id from financas.lancamento order by id", Long.class);
+		return massa;
+	}
+
+	private Map<String, Amostras> executar(String api, Massa massa, int segundos) throws InterruptedException {
+		Map<String, Integer> pesos = lerMix();
+		String[] sorteio = pesos.entrySet().stream()
+				.flatMap( e -> Collections.nCopies(e.getValue(), e.getKey()).stream() )
+				.toArray(String[]::new);
+
+		RestTemplate rest = new RestTemplate();
+		long fim = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		List<Map<String, Amostras>> porThread = new ArrayList<>();
+
+		for (int t = 0; t < THREADS; t++) {
+			Map<String, Amostras> amostras = new HashMap<>();
+			porThread.add(amostras);
+			Random random = new Random(SEMENTE + t);
+
+			pool.submit( () -> {
+				while (System.nanoTime() < fim) {
+					String operacao = sorteio[random.nextInt(sorteio.length)];
+					Amostras medicoes = amostras.computeIfAbsent(operacao, k -> new Amostras());
+					long inicio = System.nanoTime();
+					try {
+						requisitar(rest, api, operacao, massa, random);
+						medicoes.adicionar(System.nanoTime() - inicio);
+					} catch (RestClientException e) {
+						medicoes.erros++;
+					}
+				}
+			});
+		}
+
+		pool.shutdown();
+		pool.awaitTermination(segundos + 60, TimeUnit.SECONDS);
+
+		Map<String, Amostras> total = new LinkedHashMap<>();
+		for (String operacao : pesos.keySet()) {
+			Amostras consolidado = new Amostras();
+			porThread.forEach( amostras -> consolidado.juntar(amostras.get(operacao)) );
+			consolidado.segundos = segundos;
+			total.put(operacao, consolidado);
+		}
+		return total;
+	}
+
+	private void requisitar(RestTemplate rest, String api, String operacao, Massa massa, Random random) {
+		int indice = random.nextInt(massa.usuarios.size());
+		Long idUsuario = massa.usuarios.get(indice);
+
+		switch (operacao) {
+		case "login":
+			rest.postForObject(api + "/usuarios/autenticar",
+					UsuarioDTO.builder().email("carga" + indice + "@email.com").senha(SENHA).build(), String.class);
+			break;
+		case "saldo":
+			rest.getForObject(api + "/usuarios/{id}/saldo", String.class, idUsuario);
+			break;
+		case "busca":
+			rest.getForObject(api + "/lancamentos?usuario={id}&ano={ano}&mes={mes}", String.class,
+					idUsuario, 2018 + random.nextInt(3), 1 + random.nextInt(12));
+			break;
+		case "criacao":
+			rest.postForObject(api + "/lancamentos", LancamentoDTO.builder()
+					.descricao("Carga " + random.nextInt(1_000_000))
+					.ano(2020)
+					.mes(1 + random.nextInt(12))
+					.valor(BigDecimal.valueOf(1 + random.nextInt(500)))
+					.usuario(idUsuario)
+					.tipo("DESPESA")
+					.build(), String.class);
+			break;
+		case "status":
+			Long idLancamento = massa.lancamentos.get(random.nextInt(massa.lancamentos.size()));
+			rest.put(api + "/lancamentos/{id}/atualiza-status",
+					new AtualizaStatusDTO(random.nextBoolean() ? "EFETIVADO" : "CANCELADO"), idLancamento);
+			break;
+		default:
+			throw new IllegalArgumentException("Operação desconhecida no mix: " + operacao);
+		}
+	}
+
+	private Map<String, Integer> lerMix() {
+		Map<String, Integer> pesos = new LinkedHashMap<>();
+		for (String item : MIX.split(",")) {
+			String[] partes = item.trim().split("=");
+			pesos.put(partes[0].trim(), Integer.valueOf(partes[1].trim()));
+		}
+		return pesos;
+	}
+
+	private Properties relatar(Map<String, Amostras> resultado) throws IOException {
+		Properties medido = new Properties();
+
+		resultado.forEach( (operacao, amostras) -> {
+			amostras.ordenar();
+			double p50 = amostras.percentil(0.50) / 1e6;
+			double p99 = amostras.percentil(0.99) / 1e6;
+			double vazao = amostras.quantidade / (double) amostras.segundos;
+
+			medido.setProperty(operacao + ".p50-ms", String.format(Locale.ROOT, "%.2f", p50));
+			medido.setProperty(operacao + ".p99-ms", String.format(Locale.ROOT, "%.2f", p99));
+			medido.setProperty(operacao + ".rps", String.format(Locale.ROOT, "%.1f", vazao));
+			medido.setProperty(operacao + ".erros", String.valueOf(amostras.erros));
+		});
+
+		Files.createDirectories(RESULTADO.getParent());
+		try (Writer saida = Files.newBufferedWriter(RESULTADO, StandardCharsets.UTF_8)) {
+			medido.store(saida, "Resultado da simulação de carga");
+		}
+
+		if (ATUALIZAR_BASELINE) {
+			try (Writer saida = Files.newBufferedWriter(NOVA_BASELINE, StandardCharsets.UTF_8)) {
+				medido.store(saida, "Baseline da simulação de carga (" + USUARIOS + " usuários, " + LANCAMENTOS_POR_USUARIO
+						+ " lançamentos por usuário, " + THREADS + " threads, mix " + MIX + ")");
+			}
+		}
+		return medido;
+	}
+
+	/** Vazia ao atualizar a baseline, quando só os erros são conferidos. */
+	private Properties lerBaseline() throws IOException {
+		Properties baseline = new Properties();
+		if (ATUALIZAR_BASELINE) {
+			return baseline;
+		}
+
+		InputStream recurso = SimulacaoCargaTest.class.getResourceAsStream(BASELINE);
+		Assertions.assertThat(recurso)
+				  .as("baseline %s ausente: gere com -Dcarga.atualizar-baseline=true e copie %s para src/test/resources%s",
+					  BASELINE, NOVA_BASELINE, BASELINE)
+				  .isNotNull();
+		try (Reader entrada = new InputStreamReader(recurso, StandardCharsets.UTF_8)) {
+			baseline.load(entrada);
+		}
+		return baseline;
+	}
+
+	private void conferir(Properties medido, Properties baseline) {
+		List<String> regressoes = new ArrayList<>();
+		for (String chave : medido.stringPropertyNames()) {
+			String operacao = chave.substring(0, chave.indexOf('.'));
+			double valor = Double.parseDouble(medido.getProperty(chave));
+
+			if (chave.endsWith(".erros")) {
+				long total = Math.round(Double.parseDouble(medido.getProperty(operacao + ".rps")) * DURACAO_SEGUNDOS);
+				if (valor > Math.max(1, total * 0.01)) {
+					regressoes.add(String.format("%s: %.0f erros", operacao, valor));
+				}
+				continue;
+			}
+
+			if (baseline.getProperty(chave) == null) {
+				continue;
+			}
+			double referencia = Double.parseDouble(baseline.getProperty(chave));
+
+			if (chave.endsWith(".rps") && valor < referencia * (1 - TOLERANCIA)) {
+				regressoes.add(String.format("%s: %.1f req/s, baseline %.1f", chave, valor, referencia));
+			} else if (chave.endsWith("-ms") && valor > referencia * (1 + TOLERANCIA) + FOLGA_MS) {
+				regressoes.add(String.format("%s: %.2f ms, baseline %.2f", chave, valor, referencia));
+			}
+		}
+
+		Assertions.assertThat(regressoes).as("regressões em relação a %s", BASELINE).isEmpty();
+	}
+
+	static class Massa {
+		List<Long> usuarios;
+		List<Long> lancamentos;
+	}
+
+	/** Latências em nanossegundos de uma operação, acumuladas sem sincronização por uma única thread. */
+	static class Amostras {
+
+		long[] valores = new long[1024];
+		int quantidade;
+		long erros;
+		int segundos;
+
+		void adicionar(long valor) {
+			if (quantidade == valores.length) {
+				valores = Arrays.copyOf(valores, quantidade * 2);
+			}
+			valores[quantidade++] = valor;
+		}
+
+		void juntar(Amostras outras) {
+			if (outras == null) {
+				return;
+			}
+			for (int i = 0; i < outras.quantidade; i++) {
+				adicionar(outras.valores[i]);
+			}
+			erros += outras.erros;
+		}
+
+		void ordenar() {
+			Arrays.sort(valores, 0, quantidade);
+		}
+
+		long percentil(double p) {
+			if (quantidade == 0) {
+				return 0;
+			}
+			return valores[Math.min(quantidade - 1, (int) Math.ceil(p * quantidade) - 1)];
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.danielnobrega.minhasfinancas.enums.CampoLancamento;
+import com.danielnobrega.minhasfinancas.enums.OrdenacaoLancamento;
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.danielnobrega.minhasfinancas.model.repository.SqlCapturado")
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+public class LancamentoRepositoryBuscaTest {
+	
+	@Autowired
+	LancamentoRepository repository;
+	
+	@Autowired
+	TestEntityManager entityManager;
+	
+	Usuario usuario;
+	
+	@Before
+	public void setUp() {
+		usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		
+		persistir("Salário", 2019, 11, 5000, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO);
+		persistir("Mercado 50% off", 2019, 12, 350, TipoLancamento.DESPESA, StatusLancamento.PENDENTE);
+		persistir("MERCADO central", 2020, 1, 420, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO);
+		persistir("Aluguel", 2020, 2, 1200, TipoLancamento.DESPESA, StatusLancamento.PENDENTE);
+		persistir("Salário", 2020, 3, 5000, TipoLancamento.RECEITA, StatusLancamento.PENDENTE);
+		entityManager.flush();
+		entityManager.clear();
+		SqlCapturado.limpar();
+	}
+	
+	@Test
+	public void deveFiltrarSomentePeloUsuarioOrdenandoPeloIndice() {
+		List<Lancamento> resultado = buscar(filtro());
+		
+		assertThat(resultado).extracting(Lancamento::getMes).containsExactly(11, 12, 1, 2, 3);
+		assertThat(ultimaConsulta())
+			.contains("where ( data_exclusao is null) and id_usuario=?")
+			.endsWith("order by ano asc, mes asc, id asc")
+			.doesNotContain("lower(")
+			.doesNotContain("limit");
+	}
+	
+	@Test
+	public void deveUsarIgualdadeDeAnoEMesParaUmUnicoMes() {
+		List<Lancamento> resultado = buscar(filtro().anoInicial(2020).mesInicial(2).anoFinal(2020).mesFinal(2));
+		
+		assertThat(resultado).extracting(Lancamento::getDescricao).containsExactly("Aluguel");
+		assertThat(ultimaConsulta()).contains("id_usuario=? and ano=? and mes=?");
+	}
+	
+	@Test
+	public void deveUsarIntervaloDeMesesDentroDeUmMesmoAno() {
+		List<Lancamento> resultado = buscar(filtro().anoInicial(2020).mesInicial(1).anoFinal(2020).mesFinal(2));
+		
+		assertThat(resultado).hasSize(2);
+		assertThat(ultimaConsulta()).contains("ano=? and (mes between ? and ?)");
+	}
+	
+	@Test
+	public void deveUsarIntervaloDeAnoComMesResidualQuandoOPeriodoAtravessaAnos() {
+		List<Lancamento> resultado = buscar(filtro().anoInicial(2019).mesInicial(12).anoFinal(2020).mesFinal(2));
+		
+		assertThat(resultado).extracting(Lancamento::getMes).containsExactly(12, 1, 2);
+		assertThat(ultimaConsulta())
+			.contains("(ano between ? and ?)")
+			.contains("(ano>? or mes>=?)")
+			.contains("(ano<? or mes<=?)");
+	}
+	
+	@Test
+	public void deveOmitirOMesQuandoOPeriodoCobreAnosInteiros() {
+		List<Lancamento> resultado = buscar(filtro().anoInicial(2020));
+		
+		assertThat(resultado).hasSize(3);
+		assertThat(ultimaConsulta()).contains("ano>=?").doesNotContain("mes>=?").doesNotContain("mes<=?");
+	}
+	
+	@Test
+	public void deveCompararADescricaoSemDiferenciarMaiusculasEscapandoCuringas() {
+		assertThat(buscar(filtro().descricao("mercado"))).hasSize(2);
+		assertThat(ultimaConsulta()).contains("lower(descricao) like ? escape ?");
+		
+		assertThat(buscar(filtro().descricao("50%"))).extracting(Lancamento::getDescricao).containsExactly("Mercado 50% off");
+	}
+	
+	@Test
+	public void deveFiltrarTipoStatusEFaixaDeValor() {
+		List<Lancamento> resultado = buscar(filtro()
+				.tipo(TipoLancamento.DESPESA)
+				.status(StatusLancamento.PENDENTE)
+				.valorMinimo(BigDecimal.valueOf(300))
+				.valorMaximo(BigDecimal.valueOf(1000)));
+		
+		assertThat(resultado).extracting(Lancamento::getDescricao).containsExactly("Mercado 50% off");
+		assertThat(ultimaConsulta())
+			.contains("tipo=?")
+			.contains("status=?")
+			.contains("(valor between ? and ?)");
+		
+		buscar(filtro().valorMinimo(BigDecimal.valueOf(1000)));
+		assertThat(ultimaConsulta()).contains("valor>=?").doesNotContain("between");
+	}
+	
+	@Test
+	public void deveOrdenarELimitarComDesempatePorId() {
+		List<Lancamento> resultado = buscar(filtro().ordenacao(OrdenacaoLancamento.VALOR).decrescente(true).limite(2));
+		
+		assertThat(resultado).extracting(Lancamento::getValor)
+							 .usingElementComparator(BigDecimal::compareTo)
+							 .containsExactly(BigDecimal.valueOf(5000), BigDecimal.valueOf(5000));
+		assertThat(resultado.get(0).getId()).isGreaterThan(resultado.get(1).getId());
+		assertThat(ultimaConsulta()).contains("order by valor desc, id desc limit ?");
+	}
+	
+	@Test
+	public void deveSelecionarSomenteAsColunasDosCamposPedidos() {
+		List<Map<String, Object>> resultado = repository.buscarCampos(filtro()
+				.status(StatusLancamento.EFETIVADO)
+				.campos(CampoLancamento.selecionar("valor, DESCRICAO,categoria"))
+				.build());
+		
+		assertThat(resultado).extracting( linha -> linha.get("descricao") ).containsExactly("Salário", "MERCADO central");
+		assertThat(resultado.get(0)).containsOnlyKeys("descricao", "valor", "categoria");
+		
+		String colunas = ultimaConsulta().substring(0, ultimaConsulta().indexOf(" from "));
+		assertThat(colunas)
+			.contains("descricao")
+			.contains("valor")
+			.contains("id_categoria")
+			.doesNotContain("data_cadastro")
+			.doesNotContain("id_usuario");
+		assertThat(ultimaConsulta()).doesNotContain(" join ").endsWith("order by ano asc, mes asc, id asc");
+	}
+	
+	@Test
+	public void deveDevolverAsReferenciasSoComOIdNaBuscaPorCampos() {
+		List<Map<String, Object>> resultado = repository.buscarCampos(filtro()
+				.campos(EnumSet.of(CampoLancamento.ID, CampoLancamento.USUARIO))
+				.limite(1)
+				.build());
+		
+		assertThat(resultado).hasSize(1);
+		assertThat(resultado.get(0).get("usuario")).isEqualTo(Collections.singletonMap("id", usuario.getId()));
+		assertThat(ultimaConsulta()).doesNotContain(" join ");
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void deveRecusarCampoDesconhecido() {
+		CampoLancamento.selecionar("descricao,senha");
+	}
+	
+	private String ultimaConsulta() {
+		return SqlCapturado.ultimo("financas.lancamento");
+	}
+	
+	private FiltroLancamento.FiltroLancamentoBuilder filtro() {
+		return FiltroLancamento.builder().idUsuario(usuario.getId());
+	}
+	
+	private List<Lancamento> buscar(FiltroLancamento.FiltroLancamentoBuilder filtro) {
+		return repository.buscar(filtro.build());
+	}
+	
+	private void persistir(String descricao, int ano, int mes, int valor, TipoLancamento tipo, StatusLancamento status) {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setDescricao(descricao);
+		lancamento.setAno(ano);
+		lancamento.setMes(mes);
+		lancamento.setValor(BigDecimal.valueOf(valor));
+		lancamento.setTipo(tipo);
+		lancamento.setStatus(status);
+		entityManager.persist(lancamento);
+	}
+}
@@ -2,7 +2,9 @@ package com.danielnobrega.minhasfinancas.model.repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.*;
 import org.junit.Test;
@@ -19,6 +21,10 @@ import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
 import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
 import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
 import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoSaldo;
+import com.danielnobrega.minhasfinancas.model.projection.SaldoMoeda;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.cotacao.SaldoConsolidado;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -92,6 +98,80 @@ public class LancamentoRepositoryTest {
 		
 	}
 
+	@Test
+	public void deveObterResumoDoSaldoPorUsuario() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		persistirLancamento(usuario, 2020, 1, 100, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO);
+		persistirLancamento(usuario, 2020, 2, 30, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO);
+		persistirLancamento(usuario, 2020, 3, 50, TipoLancamento.RECEITA, StatusLancamento.PENDENTE);
+		persistirLancamento(usuario, 2021, 1, 5, TipoLancamento.DESPESA, StatusLancamento.PENDENTE);
+		entityManager.flush();
+		
+		ResumoSaldo resumo = emMoedaBase(repository.obterSaldosPorMoeda(usuario.getId(), CotacaoService.MOEDA_PADRAO, false, 9999, 12));
+		
+		assertThat(resumo.getReceitas()).isEqualByComparingTo("150");
+		assertThat(resumo.getDespesas()).isEqualByComparingTo("35");
+		assertThat(resumo.getSaldo()).isEqualByComparingTo("115");
+		
+		resumo = emMoedaBase(repository.obterSaldosPorMoeda(usuario.getId(), CotacaoService.MOEDA_PADRAO, true, 9999, 12));
+		
+		assertThat(resumo.getSaldo()).isEqualByComparingTo("70");
+		
+		resumo = emMoedaBase(repository.obterSaldosPorMoeda(usuario.getId(), CotacaoService.MOEDA_PADRAO, false, 2020, 2));
+		
+		assertThat(resumo.getReceitas()).isEqualByComparingTo("100");
+		assertThat(resumo.getDespesas()).isEqualByComparingTo("30");
+	}
+	
+	@Test
+	public void deveRetornarSaldoZeradoParaUsuarioSemLancamentos() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		
+		ResumoSaldo resumo = emMoedaBase(repository.obterSaldosPorMoeda(usuario.getId(), CotacaoService.MOEDA_PADRAO, false, 9999, 12));
+		
+		assertThat(resumo.getSaldo()).isEqualByComparingTo("0");
+	}
+	
+	@Test
+	public void deveCalcularSaldoDeUsuarioComMuitosLancamentos() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Random random = new Random(42);
+		BigDecimal esperado = BigDecimal.ZERO;
+		
+		for (int i = 0; i < 5000; i++) {
+			TipoLancamento tipo = random.nextBoolean() ? TipoLancamento.RECEITA : TipoLancamento.DESPESA;
+			Lancamento lancamento = persistirLancamento(usuario, 2000 + random.nextInt(20), 1 + random.nextInt(12), 
+					1 + random.nextInt(1000), tipo, StatusLancamento.PENDENTE);
+			esperado = tipo == TipoLancamento.RECEITA ? esperado.add(lancamento.getValor()) : esperado.subtract(lancamento.getValor());
+		}
+		entityManager.flush();
+		entityManager.clear();
+		
+		ResumoSaldo resumo = emMoedaBase(repository.obterSaldosPorMoeda(usuario.getId(), CotacaoService.MOEDA_PADRAO, false, 9999, 12));
+		
+		assertThat(resumo.getSaldo()).isEqualByComparingTo(esperado);
+	}
+
+	private static ResumoSaldo emMoedaBase(List<SaldoMoeda> parciais) {
+		assertThat(parciais.size()).isLessThanOrEqualTo(1);
+		if (parciais.isEmpty()) {
+			return new SaldoConsolidado(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+		}
+		assertThat(parciais.get(0).getMoeda()).isNull();
+		return parciais.get(0);
+	}
+
+	private Lancamento persistirLancamento(Usuario usuario, int ano, int mes, int valor, TipoLancamento tipo, StatusLancamento status) {
+		Lancamento lancamento = criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setAno(ano);
+		lancamento.setMes(mes);
+		lancamento.setValor(BigDecimal.valueOf(valor));
+		lancamento.setTipo(tipo);
+		lancamento.setStatus(status);
+		return entityManager.persist(lancamento);
+	}
+
 	private Lancamento criarEPersistirLancamento() {
 		Lancamento lancamento = criarLancamento();
 		entityManager.persist(lancamento);
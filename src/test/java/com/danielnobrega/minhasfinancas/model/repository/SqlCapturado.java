@@ -0,0 +1,34 @@
+package com.danielnobrega.minhasfinancas.model.repository;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * StatementInspector de teste que guarda o SQL gerado pelo Hibernate, sem os aliases das tabelas.
+ */
+public class SqlCapturado implements StatementInspector {
+	
+	private static final List<String> COMANDOS = new CopyOnWriteArrayList<>();
+
+	@Override
+	public String inspect(String sql) {
+		COMANDOS.add(sql.replaceAll("\\b\\w+\\d+_\\.", "").replaceAll("\\s+", " ").trim());
+		return sql;
+	}
+	
+	public static void limpar() {
+		COMANDOS.clear();
+	}
+	
+	public static String ultimo(String tabela) {
+		for (int i = COMANDOS.size() - 1; i >= 0; i--) {
+			if (COMANDOS.get(i).contains(" from " + tabela + " ")) {
+				return COMANDOS.get(i);
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,210 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Cotacao;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoSaldo;
+import com.danielnobrega.minhasfinancas.model.repository.CotacaoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.analitico.ResumoAnalitico;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import com.danielnobrega.minhasfinancas.service.impl.AnaliticoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.impl.CotacaoServiceImpl;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+		"minhasfinancas.analitico.habilitado=true",
+		"minhasfinancas.analitico.max-linhas=8"
+})
+@Import({ AnaliticoServiceImpl.class, CotacaoServiceImpl.class, RecalculoSaldoServiceTest.Metricas.class })
+public class AnaliticoServiceTest {
+
+	@Autowired
+	AnaliticoServiceImpl service;
+
+	@Autowired
+	CotacaoServiceImpl cotacaoService;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	CotacaoRepository cotacaoRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = criarUsuario("analitico@email.com");
+
+		lancar(usuario, 2020, 1, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, "1000.00", "Salário");
+		lancar(usuario, 2020, 1, TipoLancamento.DESPESA, StatusLancamento.PENDENTE, "200.50", "Mercado Central");
+		lancar(usuario, 2020, 2, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, "300.00", "mercado do bairro");
+		lancar(usuario, 2020, 3, TipoLancamento.RECEITA, StatusLancamento.PENDENTE, "150.00", "Freela");
+		lancar(usuario, 2021, 1, TipoLancamento.DESPESA, StatusLancamento.CANCELADO, "50.00", "Mercado");
+	}
+
+	@After
+	public void tearDown() {
+		lancamentoRepository.deleteAll();
+		usuarioRepository.deleteAll();
+		cotacaoRepository.deleteAll();
+	}
+
+	@Test
+	public void deveResumirComOsMesmosCriteriosDaBusca() {
+		ResumoAnalitico resumo = service.resumir(FiltroLancamento.builder()
+				.idUsuario(usuario.getId())
+				.descricao(" MERCADO ")
+				.anoInicial(2020)
+				.anoFinal(2020)
+				.build(), false);
+
+		Assertions.assertThat(resumo.getQuantidade()).isEqualTo(2);
+		Assertions.assertThat(resumo.getDespesas()).isEqualByComparingTo("500.50");
+		Assertions.assertThat(resumo.getReceitas()).isEqualByComparingTo("0");
+		Assertions.assertThat(resumo.getPeriodos()).isNull();
+	}
+
+	@Test
+	public void deveQuebrarOResumoPorMes() {
+		ResumoAnalitico resumo = service.resumir(FiltroLancamento.builder()
+				.idUsuario(usuario.getId())
+				.tipo(TipoLancamento.DESPESA)
+				.build(), true);
+
+		Assertions.assertThat(resumo.getPeriodos())
+				  .extracting( p -> p.getAno(), p -> p.getMes(), p -> p.getDespesas().toPlainString() )
+				  .containsExactly(
+						  Assertions.tuple(2020, 1, "200.50"),
+						  Assertions.tuple(2020, 2, "300.00"),
+						  Assertions.tuple(2021, 1, "50.00"));
+	}
+
+	@Test
+	public void deveCalcularOMesmoSaldoDaConsultaNoBanco() {
+		for (boolean somenteEfetivados : new boolean[] { false, true }) {
+			ResumoSaldo esperado = cotacaoService.consolidar(lancamentoRepository.obterSaldosPorMoeda(usuario.getId(), 
+					CotacaoService.MOEDA_PADRAO, somenteEfetivados, 2020, 2), CotacaoService.MOEDA_PADRAO);
+			ResumoSaldo resumo = service.obterResumoSaldo(usuario.getId(), somenteEfetivados, 2020, 2);
+
+			Assertions.assertThat(resumo.getReceitas()).isEqualByComparingTo(esperado.getReceitas());
+			Assertions.assertThat(resumo.getDespesas()).isEqualByComparingTo(esperado.getDespesas());
+			Assertions.assertThat(resumo.getSaldo()).isEqualByComparingTo(esperado.getSaldo());
+		}
+	}
+
+	@Test
+	public void deveConverterAsOutrasMoedasComoAConsultaNoBanco() {
+		cotacaoService.registrar(Arrays.asList(
+				Cotacao.builder().data(LocalDate.of(2020, 1, 1)).moedaOrigem("USD").moedaDestino("BRL").taxa(new BigDecimal("4.00")).build(),
+				Cotacao.builder().data(LocalDate.of(2020, 2, 15)).moedaOrigem("USD").moedaDestino("BRL").taxa(new BigDecimal("4.50")).build()));
+		lancar(usuario, 2020, 1, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, "10.00", "Assinatura", "USD");
+		lancar(usuario, 2020, 2, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, "10.00", "Assinatura", "USD");
+		lancar(usuario, 2020, 2, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, "100.00", "Reembolso", "BRL");
+
+		ResumoSaldo esperado = cotacaoService.consolidar(lancamentoRepository.obterSaldosPorMoeda(usuario.getId(), 
+				CotacaoService.MOEDA_PADRAO, false, 9999, 12), CotacaoService.MOEDA_PADRAO);
+		ResumoAnalitico resumo = service.resumir(FiltroLancamento.builder().idUsuario(usuario.getId()).build(), true);
+
+		// 599.50 + 100.00 em BRL, menos 10 USD a 4.00 em janeiro e 10 USD a 4.50 em fevereiro
+		Assertions.assertThat(esperado.getSaldo()).isEqualByComparingTo("614.50");
+		Assertions.assertThat(resumo.getSaldo()).isEqualByComparingTo(esperado.getSaldo());
+		Assertions.assertThat(resumo.getDespesas()).isEqualByComparingTo(esperado.getDespesas());
+		Assertions.assertThat(resumo.getPeriodos())
+				  .extracting( p -> p.getMes(), p -> p.getDespesas().toPlainString() )
+				  .startsWith(Assertions.tuple(1, "240.50"), Assertions.tuple(2, "345.00"));
+	}
+
+	@Test
+	public void deveAcompanharAsEscritasDepoisDeCarregado() {
+		Assertions.assertThat(service.obterResumoSaldo(usuario.getId(), false, 9999, 12).getSaldo()).isEqualByComparingTo("599.50");
+
+		Lancamento incluido = lancar(usuario, 2020, 4, TipoLancamento.RECEITA, StatusLancamento.PENDENTE, "100.00", "Bônus");
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(null, incluido));
+		Assertions.assertThat(service.obterResumoSaldo(usuario.getId(), false, 9999, 12).getSaldo()).isEqualByComparingTo("699.50");
+
+		Lancamento alterado = lancamentoRepository.save(incluido.toBuilder().valor(new BigDecimal("40.00")).build());
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(incluido, alterado));
+		Assertions.assertThat(service.obterResumoSaldo(usuario.getId(), false, 9999, 12).getSaldo()).isEqualByComparingTo("639.50");
+
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(alterado, null));
+		Assertions.assertThat(service.obterResumoSaldo(usuario.getId(), false, 9999, 12).getSaldo()).isEqualByComparingTo("599.50");
+	}
+
+	@Test
+	public void deveDescartarOUsuarioMenosRecenteAoPassarDoLimiteDeLinhas() {
+		FiltroLancamento filtro = FiltroLancamento.builder().idUsuario(usuario.getId()).build();
+		Assertions.assertThat(service.resumir(filtro, false).getQuantidade()).isEqualTo(5);
+
+		// sem evento: só aparece se o ledger for carregado de novo
+		lancar(usuario, 2020, 5, TipoLancamento.DESPESA, StatusLancamento.PENDENTE, "10.00", "Café");
+		Assertions.assertThat(service.resumir(filtro, false).getQuantidade()).isEqualTo(5);
+
+		Usuario outro = criarUsuario("analitico-outro@email.com");
+		for (int mes = 1; mes <= 4; mes++) {
+			lancar(outro, 2020, mes, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, "10.00", "Aluguel");
+		}
+		Assertions.assertThat(service.resumir(FiltroLancamento.builder().idUsuario(outro.getId()).build(), false).getQuantidade())
+				  .isEqualTo(4);
+
+		Assertions.assertThat(service.resumir(filtro, false).getQuantidade()).isEqualTo(6);
+	}
+
+	private Usuario criarUsuario(String email) {
+		return usuarioRepository.save(Usuario.builder().nome("usuario").email(email).senha("senha").build());
+	}
+
+	private Lancamento lancar(Usuario dono, int ano, int mes, TipoLancamento tipo, StatusLancamento status, String valor,
+			String descricao) {
+		return lancar(dono, ano, mes, tipo, status, valor, descricao, null);
+	}
+
+	private Lancamento lancar(Usuario dono, int ano, int mes, TipoLancamento tipo, StatusLancamento status, String valor,
+			String descricao, String moeda) {
+		return lancamentoRepository.save(Lancamento.builder()
+				.descricao(descricao)
+				.ano(ano)
+				.mes(mes)
+				.valor(new BigDecimal(valor))
+				.moeda(moeda)
+				.tipo(tipo)
+				.status(status)
+				.dataCadastro(LocalDate.now())
+				.usuario(dono)
+				.build());
+	}
+
+}
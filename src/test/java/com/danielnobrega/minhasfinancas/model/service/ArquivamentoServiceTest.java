@@ -0,0 +1,114 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.agendamento.ExecucaoExclusiva;
+import com.danielnobrega.minhasfinancas.service.impl.ArquivamentoServiceImpl;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ ArquivamentoServiceImpl.class, ExecucaoExclusiva.class })
+public class ArquivamentoServiceTest {
+
+	@Autowired
+	ArquivamentoServiceImpl service;
+	
+	@Autowired
+	LancamentoRepository repository;
+	
+	@Autowired
+	TestEntityManager entityManager;
+	
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	
+	Usuario usuario;
+	
+	Lancamento ativo;
+	
+	Lancamento excluidoHaMuitoTempo;
+	
+	Lancamento excluidoRecentemente;
+	
+	@Before
+	public void setUp() {
+		usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		ativo = persistir("Salário", 5000, TipoLancamento.RECEITA);
+		excluidoHaMuitoTempo = persistir("Mercado \"do bairro\"", 350, TipoLancamento.DESPESA);
+		excluidoRecentemente = persistir("Aluguel", 1200, TipoLancamento.DESPESA);
+		excluidoHaMuitoTempo.setMoeda("USD");
+		excluidoHaMuitoTempo.setIdContrapartida(ativo.getId());
+		entityManager.flush();
+		
+		repository.marcarExcluido(excluidoHaMuitoTempo.getId(), LocalDateTime.now().minusDays(45));
+		repository.marcarExcluido(excluidoRecentemente.getId(), LocalDateTime.now().minusDays(1));
+		entityManager.clear();
+	}
+	
+	@Test
+	public void deveIgnorarLancamentosExcluidosNasConsultasENoSaldo() {
+		Assertions.assertThat(repository.findById(excluidoRecentemente.getId())).isEmpty();
+		Assertions.assertThat(repository.findById(ativo.getId())).isPresent();
+		Assertions.assertThat(repository.obterSaldosPorMoeda(usuario.getId(), CotacaoService.MOEDA_PADRAO, false, 9999, 12).get(0).getSaldo())
+				  .isEqualByComparingTo(BigDecimal.valueOf(5000));
+	}
+	
+	@Test
+	public void deveArquivarSomenteOsExcluidosForaDaRetencao() {
+		int arquivados = service.arquivar();
+		
+		Assertions.assertThat(arquivados).isEqualTo(1);
+		Assertions.assertThat(jdbcTemplate.queryForList("select id from financas.lancamento where id_usuario = ?", Long.class, usuario.getId()))
+				  .containsExactlyInAnyOrder(ativo.getId(), excluidoRecentemente.getId());
+		
+		List<Lancamento> arquivo = service.obterArquivados(usuario.getId());
+		
+		Assertions.assertThat(arquivo).hasSize(1);
+		Lancamento arquivado = arquivo.get(0);
+		Assertions.assertThat(arquivado.getId()).isEqualTo(excluidoHaMuitoTempo.getId());
+		Assertions.assertThat(arquivado.getDescricao()).isEqualTo("Mercado \"do bairro\"");
+		Assertions.assertThat(arquivado.getValor()).isEqualByComparingTo(BigDecimal.valueOf(350));
+		Assertions.assertThat(arquivado.getMoeda()).isEqualTo("USD");
+		Assertions.assertThat(arquivado.getIdContrapartida()).isEqualTo(ativo.getId());
+		Assertions.assertThat(arquivado.getTipo()).isEqualTo(TipoLancamento.DESPESA);
+		Assertions.assertThat(arquivado.getStatus()).isEqualTo(excluidoHaMuitoTempo.getStatus());
+		Assertions.assertThat(arquivado.getDataCadastro()).isEqualTo(excluidoHaMuitoTempo.getDataCadastro());
+		Assertions.assertThat(arquivado.getDataExclusao()).isNotNull();
+		
+		Assertions.assertThat(service.arquivar()).isZero();
+	}
+	
+	private Lancamento persistir(String descricao, int valor, TipoLancamento tipo) {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setDescricao(descricao);
+		lancamento.setValor(BigDecimal.valueOf(valor));
+		lancamento.setTipo(tipo);
+		return entityManager.persist(lancamento);
+	}
+}
@@ -0,0 +1,233 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.danielnobrega.minhasfinancas.enums.OperacaoAuditoria;
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.PendenciaAuditoria;
+import com.danielnobrega.minhasfinancas.model.entity.SegmentoAuditoria;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.PendenciaAuditoriaRepository;
+import com.danielnobrega.minhasfinancas.model.repository.SegmentoAuditoriaRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.auditoria.CampoAuditado;
+import com.danielnobrega.minhasfinancas.service.auditoria.CodificadorAuditoria;
+import com.danielnobrega.minhasfinancas.service.auditoria.RegistroAuditoria;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import com.danielnobrega.minhasfinancas.service.impl.AuditoriaServiceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+		"minhasfinancas.auditoria.intervalo-ms=600000",
+		"minhasfinancas.auditoria.retencao-dias=0"
+})
+@Import({ AuditoriaServiceImpl.class, RecalculoSaldoServiceTest.Metricas.class })
+public class AuditoriaServiceTest {
+
+	@Autowired
+	AuditoriaServiceImpl service;
+
+	@Autowired
+	SegmentoAuditoriaRepository segmentoRepository;
+
+	@Autowired
+	PendenciaAuditoriaRepository pendenciaRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario").email("auditoria@email.com").senha("senha").build());
+	}
+
+	@After
+	public void tearDown() {
+		pendenciaRepository.deleteAll();
+		segmentoRepository.deleteAll();
+		lancamentoRepository.deleteAll();
+		usuarioRepository.deleteAll();
+	}
+
+	@Test
+	public void deveReconstruirOLancamentoEmCadaMomento() throws Exception {
+		LocalDateTime antesDaInclusao = instante();
+		Lancamento incluido = incluir("Aluguel", "1000.00");
+		LocalDateTime depoisDaInclusao = instante();
+		Lancamento alterado = alterar(incluido, incluido.toBuilder().valor(new BigDecimal("1100.00")).status(StatusLancamento.EFETIVADO).build());
+		LocalDateTime depoisDaAlteracao = instante();
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(alterado, null));
+		Assertions.assertThat(service.drenar()).isEqualTo(3);
+
+		Assertions.assertThat(service.reconstruir(incluido.getId(), antesDaInclusao)).isEmpty();
+		Assertions.assertThat(service.reconstruir(incluido.getId(), depoisDaInclusao).get())
+				  .extracting( l -> l.getDescricao(), l -> l.getValor().toPlainString(), l -> l.getStatus(), l -> l.getUsuario().getId() )
+				  .containsExactly("Aluguel", "1000.00", StatusLancamento.PENDENTE, usuario.getId());
+		Assertions.assertThat(service.reconstruir(incluido.getId(), depoisDaAlteracao).get())
+				  .extracting( l -> l.getDescricao(), l -> l.getValor().toPlainString(), l -> l.getStatus() )
+				  .containsExactly("Aluguel", "1100.00", StatusLancamento.EFETIVADO);
+		Assertions.assertThat(service.reconstruir(incluido.getId(), instante())).isEmpty();
+	}
+
+	@Test
+	public void deveGravarSomenteOsCamposAlterados() throws Exception {
+		Lancamento incluido = incluir("Internet", "99.90");
+		alterar(incluido, incluido.toBuilder().valor(new BigDecimal("99.9")).build());
+		alterar(incluido, incluido.toBuilder().descricao("Internet fibra").build());
+		service.drenar();
+
+		List<RegistroAuditoria> registros = registros(incluido.getId());
+
+		Assertions.assertThat(registros).extracting( RegistroAuditoria::getOperacao )
+				  .containsExactly(OperacaoAuditoria.INCLUSAO, OperacaoAuditoria.ALTERACAO);
+		Assertions.assertThat(registros.get(1).getCampos()).containsOnlyKeys(CampoAuditado.DESCRICAO);
+		Assertions.assertThat(registros.get(1).getCampos().get(CampoAuditado.DESCRICAO)).isEqualTo("Internet fibra");
+	}
+
+	@Test
+	public void deveCompactarOsSegmentosAntigosMantendoOEstadoFinal() throws Exception {
+		Lancamento mantido = incluir("Mercado", "300.00");
+		service.drenar();
+		alterar(mantido, mantido.toBuilder().valor(new BigDecimal("350.00")).build());
+		service.drenar();
+		Lancamento excluido = incluir("Cinema", "40.00");
+		service.drenar();
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(excluido, null));
+		service.drenar();
+		Thread.sleep(5);
+
+		Assertions.assertThat(service.compactar()).isEqualTo(4);
+
+		List<SegmentoAuditoria> restantes = segmentoRepository.findAll();
+		Assertions.assertThat(restantes).hasSize(1);
+		Assertions.assertThat(restantes.get(0).getIdLancamento()).isEqualTo(mantido.getId());
+		Assertions.assertThat(registros(mantido.getId())).extracting( RegistroAuditoria::getOperacao ).containsExactly(OperacaoAuditoria.BASE);
+		Assertions.assertThat(service.reconstruir(mantido.getId(), instante()).get().getValor()).isEqualByComparingTo("350.00");
+		Assertions.assertThat(service.reconstruir(excluido.getId(), instante())).isEmpty();
+
+		Assertions.assertThat(service.compactar()).isZero();
+	}
+
+	@Test
+	public void naoDeveManterORegistroDeUmaEscritaDesfeita() throws Exception {
+		TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+		transacao.execute( status -> {
+			Lancamento lancamento = lancamentoRepository.save(novoLancamento("Padaria", "12.00"));
+			service.aoAlterarLancamento(new LancamentoAlteradoEvent(null, lancamento));
+			status.setRollbackOnly();
+			return null;
+		});
+
+		Assertions.assertThat(pendenciaRepository.count()).isZero();
+		Assertions.assertThat(service.drenar()).isZero();
+		Assertions.assertThat(segmentoRepository.count()).isZero();
+	}
+
+	@Test
+	public void deveManterPendenteOLoteQueFalhouEGravarNaDrenagemSeguinte() throws Exception {
+		Lancamento incluido = incluir("Farmácia", "45.00");
+		PendenciaAuditoria pendencia = pendenciaRepository.findAll().get(0);
+		byte[] conteudo = pendencia.getConteudo();
+		pendencia.setConteudo(new byte[] { 99 });
+		pendenciaRepository.save(pendencia);
+
+		Assertions.assertThat(service.drenar()).isZero();
+		Assertions.assertThat(pendenciaRepository.count()).isEqualTo(1);
+		Assertions.assertThat(segmentoRepository.count()).isZero();
+		Assertions.assertThat(atraso()).isPositive();
+
+		pendencia.setConteudo(conteudo);
+		pendenciaRepository.save(pendencia);
+
+		Assertions.assertThat(service.drenar()).isEqualTo(1);
+		Assertions.assertThat(pendenciaRepository.count()).isZero();
+		Assertions.assertThat(atraso()).isZero();
+		Assertions.assertThat(registros(incluido.getId())).extracting( RegistroAuditoria::getOperacao ).containsExactly(OperacaoAuditoria.INCLUSAO);
+	}
+
+	private double atraso() {
+		return meterRegistry.get("minhasfinancas.auditoria.atraso").gauge().value();
+	}
+
+	private Lancamento incluir(String descricao, String valor) throws InterruptedException {
+		Lancamento lancamento = lancamentoRepository.save(novoLancamento(descricao, valor));
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(null, lancamento));
+		Thread.sleep(5);
+		return lancamento;
+	}
+
+	private Lancamento novoLancamento(String descricao, String valor) {
+		return Lancamento.builder()
+				.descricao(descricao)
+				.ano(2020)
+				.mes(1)
+				.valor(new BigDecimal(valor))
+				.tipo(TipoLancamento.DESPESA)
+				.status(StatusLancamento.PENDENTE)
+				.dataCadastro(LocalDate.now())
+				.usuario(usuario)
+				.build();
+	}
+
+	private Lancamento alterar(Lancamento anterior, Lancamento atual) throws InterruptedException {
+		Lancamento salvo = lancamentoRepository.save(atual);
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(anterior, salvo));
+		Thread.sleep(5);
+		return salvo;
+	}
+
+	private List<RegistroAuditoria> registros(Long idLancamento) {
+		return segmentoRepository.findByIdLancamentoAndDataInicialLessThanEqualOrderById(idLancamento, instante()).stream()
+				.flatMap( s -> CodificadorAuditoria.decodificar(idLancamento, s.getConteudo()).stream() )
+				.collect(Collectors.toList());
+	}
+
+	private LocalDateTime instante() throws InterruptedException {
+		LocalDateTime agora = LocalDateTime.now();
+		Thread.sleep(5);
+		return agora;
+	}
+
+}
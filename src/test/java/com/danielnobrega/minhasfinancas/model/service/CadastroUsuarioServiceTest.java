@@ -0,0 +1,97 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.impl.UsuarioServiceImpl;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(UsuarioServiceImpl.class)
+public class CadastroUsuarioServiceTest {
+
+	private static final int CADASTROS = 8;
+
+	private static final String[] VARIACOES = { "novo@email.com", "Novo@Email.com", " NOVO@EMAIL.COM", "novo@EMAIL.com " };
+
+	@Autowired
+	UsuarioServiceImpl service;
+
+	@Autowired
+	UsuarioRepository repository;
+
+	@After
+	public void tearDown() {
+		repository.deleteAll();
+	}
+
+	@Test
+	public void deveGravarOEmailNormalizadoEAutenticarComQualquerCaixa() {
+		Usuario salvo = service.salvarUsuario(Usuario.builder().nome("usuario").email("  Fulano@Email.COM ").senha("senha").build());
+
+		Assertions.assertThat(repository.findById(salvo.getId()).get().getEmail()).isEqualTo("fulano@email.com");
+		Assertions.assertThat(service.autenticar("FULANO@email.com", "senha").getId()).isEqualTo(salvo.getId());
+	}
+
+	@Test
+	public void deveCadastrarUmUnicoUsuarioSobCadastrosSimultaneosDoMesmoEmail() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(CADASTROS);
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Future<Usuario>> cadastros = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < CADASTROS; i++) {
+				String email = VARIACOES[i % VARIACOES.length];
+				cadastros.add(pool.submit(() -> {
+					largada.await();
+					return service.salvarUsuario(Usuario.builder().nome("usuario").email(email).senha("senha").build());
+				}));
+			}
+			largada.countDown();
+
+			int sucessos = 0;
+			for (Future<Usuario> cadastro : cadastros) {
+				try {
+					cadastro.get(30, TimeUnit.SECONDS);
+					sucessos++;
+				} catch (ExecutionException e) {
+					Assertions.assertThat(e.getCause())
+							  .isInstanceOf(RegraNegocioException.class)
+							  .hasMessage("Ja Existe um usuário cadastrado com esse email");
+				}
+			}
+			Assertions.assertThat(sucessos).isEqualTo(1);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		Assertions.assertThat(repository.findAll()).extracting(Usuario::getEmail).containsExactly("novo@email.com");
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Categoria;
+import com.danielnobrega.minhasfinancas.model.entity.GastoCategoriaMensal;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import com.danielnobrega.minhasfinancas.service.impl.CategoriaServiceImpl;
+import com.danielnobrega.minhasfinancas.service.impl.CotacaoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.impl.GastoCategoriaServiceImpl;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({CategoriaServiceImpl.class, GastoCategoriaServiceImpl.class, CotacaoServiceImpl.class})
+public class CategoriaServiceTest {
+	
+	@Autowired
+	CategoriaServiceImpl service;
+	
+	@Autowired
+	GastoCategoriaServiceImpl gastoService;
+	
+	@Autowired
+	TestEntityManager entityManager;
+	
+	Usuario usuario;
+	
+	Categoria mercado;
+	
+	Categoria transporte;
+	
+	@Before
+	public void setUp() {
+		usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		mercado = service.salvar(Categoria.builder().nome("Mercado").padraoDescricao("supermercado|padaria").build());
+		transporte = service.salvar(Categoria.builder().nome("Transporte").padraoDescricao("uber|posto").build());
+	}
+	
+	@Test
+	public void deveCategorizarPelaDescricao() {
+		Lancamento lancamento = criarLancamento("Compra no SUPERMERCADO do bairro", 10);
+		
+		service.categorizar(lancamento);
+		
+		Assertions.assertThat(lancamento.getCategoria()).isEqualTo(mercado);
+	}
+	
+	@Test
+	public void deveDarPreferenciaARegraDoUsuario() {
+		Categoria carro = service.salvar(Categoria.builder().nome("Carro").padraoDescricao("posto").usuario(usuario).build());
+		Lancamento lancamento = criarLancamento("Posto Ipiranga", 10);
+		
+		service.categorizar(lancamento);
+		
+		Assertions.assertThat(lancamento.getCategoria()).isEqualTo(carro);
+	}
+	
+	@Test
+	public void naoDeveAlterarCategoriaInformada() {
+		Lancamento lancamento = criarLancamento("Uber para o mercado", 10);
+		lancamento.setCategoria(mercado);
+		
+		service.categorizar(lancamento);
+		
+		Assertions.assertThat(lancamento.getCategoria()).isEqualTo(mercado);
+	}
+	
+	@Test
+	public void deveRejeitarPadraoInvalido() {
+		Throwable erro = Assertions.catchThrowable( () -> service.salvar(Categoria.builder().nome("Quebrada").padraoDescricao("(").build()) );
+		
+		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um PADRÃO de descrição válido");
+	}
+	
+	@Test
+	public void deveManterOsGastosPorCategoriaIncrementalmente() {
+		Lancamento compra = criarLancamento("Padaria", 30);
+		service.categorizar(compra);
+		Lancamento corrida = criarLancamento("Uber", 20);
+		service.categorizar(corrida);
+		Lancamento outro = criarLancamento("Presente", 5);
+		Lancamento feira = criarLancamento("Supermercado", 70);
+		service.categorizar(feira);
+		
+		gastoService.aoAlterarLancamento(new LancamentoAlteradoEvent(null, compra));
+		gastoService.aoAlterarLancamento(new LancamentoAlteradoEvent(null, corrida));
+		gastoService.aoAlterarLancamento(new LancamentoAlteradoEvent(null, outro));
+		gastoService.aoAlterarLancamento(new LancamentoAlteradoEvent(null, feira));
+		
+		Lancamento corridaAlterada = corrida.toBuilder().categoria(mercado).valor(BigDecimal.valueOf(25)).build();
+		gastoService.aoAlterarLancamento(new LancamentoAlteradoEvent(corrida, corridaAlterada));
+		gastoService.aoAlterarLancamento(new LancamentoAlteradoEvent(outro, null));
+		entityManager.clear();
+		
+		List<GastoCategoriaMensal> gastos = gastoService.obterGastosPorCategoria(usuario.getId(), 2020, 6);
+		
+		Assertions.assertThat(gastos)
+				  .extracting(GastoCategoriaMensal::getIdCategoria, gasto -> gasto.getTotal().intValue())
+				  .containsExactlyInAnyOrder(
+						  Assertions.tuple(mercado.getId(), 125), 
+						  Assertions.tuple(transporte.getId(), 0), 
+						  Assertions.tuple(GastoCategoriaMensal.SEM_CATEGORIA, 0));
+	}
+
+	private Lancamento criarLancamento(String descricao, int valor) {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setDescricao(descricao);
+		lancamento.setTipo(TipoLancamento.DESPESA);
+		lancamento.setValor(BigDecimal.valueOf(valor));
+		return lancamento;
+	}
+}
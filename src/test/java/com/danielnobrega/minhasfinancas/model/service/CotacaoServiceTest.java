@@ -0,0 +1,139 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Cotacao;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoSaldo;
+import com.danielnobrega.minhasfinancas.model.repository.CotacaoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.cotacao.ConversorMoeda;
+import com.danielnobrega.minhasfinancas.service.impl.CotacaoServiceImpl;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(CotacaoServiceImpl.class)
+public class CotacaoServiceTest {
+
+	@Autowired
+	CotacaoServiceImpl service;
+
+	@Autowired
+	CotacaoRepository cotacaoRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@After
+	public void tearDown() {
+		lancamentoRepository.deleteAll();
+		usuarioRepository.deleteAll();
+		cotacaoRepository.deleteAll();
+		service.recarregar();
+	}
+
+	@Test
+	public void deveUsarAUltimaCotacaoAteOFimDoMesDeCompetencia() {
+		service.registrar(Arrays.asList(
+				cotacao(LocalDate.of(2020, 1, 10), "USD", "BRL", "5.00"),
+				cotacao(LocalDate.of(2020, 3, 1), "USD", "BRL", "5.50")));
+
+		ConversorMoeda conversor = service.conversorPara(null);
+
+		Assertions.assertThat(conversor.converter(BigDecimal.TEN, "USD", 2020, 2)).isEqualByComparingTo("50.00");
+		Assertions.assertThat(conversor.converter(BigDecimal.TEN, "USD", 2020, 3)).isEqualByComparingTo("55.00");
+		Assertions.assertThat(conversor.converter(BigDecimal.TEN, "BRL", 2019, 1)).isEqualByComparingTo("10.00");
+		Assertions.catchThrowableOfType(() -> conversor.converter(BigDecimal.TEN, "USD", 2019, 12), RegraNegocioException.class);
+	}
+
+	@Test
+	public void deveUsarOInversoDoParContrarioQuandoNaoHaCotacaoDireta() {
+		service.registrar(Collections.singletonList(cotacao(LocalDate.of(2020, 1, 1), "EUR", "BRL", "5.00")));
+
+		Assertions.assertThat(service.conversorPara("EUR").converter(new BigDecimal("100.00"), "BRL", 2020, 1))
+				  .isEqualByComparingTo("20.00");
+	}
+
+	@Test
+	public void deveManterORetratoDoConversorAoRegistrarNovasCotacoes() {
+		service.registrar(Collections.singletonList(cotacao(LocalDate.of(2020, 1, 1), "USD", "BRL", "5.00")));
+		long versao = service.obterVersao();
+		ConversorMoeda anterior = service.conversorPara("BRL");
+
+		service.registrar(Collections.singletonList(cotacao(LocalDate.of(2020, 1, 1), "USD", "BRL", "6.00")));
+
+		Assertions.assertThat(service.obterVersao()).isGreaterThan(versao);
+		Assertions.assertThat(cotacaoRepository.count()).isEqualTo(1);
+		Assertions.assertThat(anterior.converter(BigDecimal.ONE, "USD", 2020, 1)).isEqualByComparingTo("5.00");
+		Assertions.assertThat(service.conversorPara("BRL").converter(BigDecimal.ONE, "USD", 2020, 1)).isEqualByComparingTo("6.00");
+	}
+
+	@Test
+	public void deveConsolidarOSaldoNaMoedaBaseDoUsuario() {
+		service.registrar(Collections.singletonList(cotacao(LocalDate.of(2020, 1, 1), "USD", "BRL", "5.00")));
+		Usuario usuario = usuarioRepository.save(Usuario.builder().nome("usuario").email("cotacao@email.com").senha("senha").moedaBase("USD").build());
+		lancar(usuario, 2020, 1, TipoLancamento.RECEITA, "100.00", "BRL");
+		lancar(usuario, 2020, 2, TipoLancamento.RECEITA, "10.00", "USD");
+		lancar(usuario, 2020, 2, TipoLancamento.DESPESA, "5.00", null);
+
+		ResumoSaldo resumo = service.consolidar(lancamentoRepository.obterSaldosPorMoeda(usuario.getId(), "USD", false, 9999, 12), "USD");
+
+		Assertions.assertThat(resumo.getReceitas()).isEqualByComparingTo("30.00");
+		Assertions.assertThat(resumo.getDespesas()).isEqualByComparingTo("5.00");
+		Assertions.assertThat(resumo.getSaldo()).isEqualByComparingTo("25.00");
+	}
+
+	@Test
+	public void naoDeveRegistrarCotacaoDeUmaMoedaParaElaMesma() {
+		Assertions.catchThrowableOfType(
+				() -> service.registrar(Collections.singletonList(cotacao(LocalDate.of(2020, 1, 1), "BRL", "BRL", "1.00"))),
+				RegraNegocioException.class);
+	}
+
+	private static Cotacao cotacao(LocalDate data, String origem, String destino, String taxa) {
+		return Cotacao.builder().data(data).moedaOrigem(origem).moedaDestino(destino).taxa(new BigDecimal(taxa)).build();
+	}
+
+	private void lancar(Usuario dono, int ano, int mes, TipoLancamento tipo, String valor, String moeda) {
+		lancamentoRepository.save(Lancamento.builder()
+				.descricao("Lançamento")
+				.ano(ano)
+				.mes(mes)
+				.valor(new BigDecimal(valor))
+				.moeda(moeda)
+				.tipo(tipo)
+				.status(StatusLancamento.EFETIVADO)
+				.dataCadastro(LocalDate.now())
+				.usuario(dono)
+				.build());
+	}
+
+}
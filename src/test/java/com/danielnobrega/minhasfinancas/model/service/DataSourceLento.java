@@ -0,0 +1,64 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * DataSource de teste que demora {@link #atrasar(long)} milissegundos para entregar cada conexão,
+ * simulando um banco lento. É aplicado sobre o DataSource da aplicação por {@link #envolver()}.
+ */
+public class DataSourceLento extends DelegatingDataSource {
+
+	private static final AtomicLong ATRASO = new AtomicLong();
+
+	public DataSourceLento(DataSource alvo) {
+		super(alvo);
+	}
+
+	public static void atrasar(long milissegundos) {
+		ATRASO.set(milissegundos);
+	}
+
+	public static BeanPostProcessor envolver() {
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String nome) {
+				return bean instanceof DataSource && !(bean instanceof DataSourceLento) ? new DataSourceLento((DataSource) bean) : bean;
+			}
+		};
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		esperar();
+		return super.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String usuario, String senha) throws SQLException {
+		esperar();
+		return super.getConnection(usuario, senha);
+	}
+
+	private void esperar() throws SQLException {
+		long atraso = ATRASO.get();
+		if (atraso <= 0) {
+			return;
+		}
+
+		try {
+			Thread.sleep(atraso);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Conexão interrompida", e);
+		}
+	}
+
+}
@@ -0,0 +1,245 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.exceptions.BancoIndisponivelException;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.degradacao.Dependencia;
+import com.danielnobrega.minhasfinancas.service.degradacao.Disjuntor;
+import com.danielnobrega.minhasfinancas.service.degradacao.Resultado;
+import com.danielnobrega.minhasfinancas.service.impl.DegradacaoServiceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+		"minhasfinancas.degradacao.lento.timeout=200",
+		"minhasfinancas.degradacao.lento.limite-falhas=100",
+		"minhasfinancas.degradacao.instavel.timeout=100",
+		"minhasfinancas.degradacao.instavel.limite-falhas=2",
+		"minhasfinancas.degradacao.instavel.tempo-aberto=300",
+		"minhasfinancas.degradacao.limitada.concorrencia=1",
+		"minhasfinancas.degradacao.espera-concorrencia=20"
+})
+@Import({ DegradacaoServiceImpl.class, RecalculoSaldoServiceTest.Metricas.class, DegradacaoServiceTest.BancoLento.class })
+public class DegradacaoServiceTest {
+
+	@TestConfiguration
+	static class BancoLento {
+
+		@Bean
+		static BeanPostProcessor dataSourceLento() {
+			return DataSourceLento.envolver();
+		}
+	}
+
+	@Autowired
+	DegradacaoServiceImpl service;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	ExecutorService pool = Executors.newSingleThreadExecutor();
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario").email("degradacao@email.com").senha("senha").build());
+		lancamentoRepository.save(Lancamento.builder()
+				.descricao("Salário")
+				.ano(2020)
+				.mes(1)
+				.valor(new BigDecimal("100.00"))
+				.tipo(TipoLancamento.RECEITA)
+				.status(StatusLancamento.EFETIVADO)
+				.usuario(usuario)
+				.build());
+	}
+
+	@After
+	public void tearDown() {
+		DataSourceLento.atrasar(0);
+		pool.shutdownNow();
+		lancamentoRepository.deleteAll();
+		usuarioRepository.deleteAll();
+	}
+
+	@Test
+	public void deveServirOUltimoSaldoQuandoOBancoNaoRespondeATempo() {
+		Supplier<BigDecimal> saldo = () -> service.chamar("lento",
+				() -> lancamentoRepository.obterSaldosPorMoeda(usuario.getId(), CotacaoService.MOEDA_PADRAO, false, 9999, 12).get(0).getSaldo());
+		double timeoutsAntes = chamadas("lento", "timeout");
+
+		Resultado<BigDecimal> atual = service.consultar("saldo-lento", usuario.getId(), saldo);
+		Assertions.assertThat(atual.isObsoleto()).isFalse();
+		Assertions.assertThat(atual.getValor()).isEqualByComparingTo("100.00");
+
+		DataSourceLento.atrasar(2000);
+		long inicio = System.currentTimeMillis();
+		Resultado<BigDecimal> obsoleto = service.consultar("saldo-lento", usuario.getId(), saldo);
+
+		Assertions.assertThat(System.currentTimeMillis() - inicio).isLessThan(2000);
+		Assertions.assertThat(obsoleto.isObsoleto()).isTrue();
+		Assertions.assertThat(obsoleto.getValor()).isEqualByComparingTo("100.00");
+		Assertions.assertThat(obsoleto.getIdadeSegundos()).isGreaterThanOrEqualTo(0);
+		Assertions.assertThat(chamadas("lento", "timeout")).isEqualTo(timeoutsAntes + 1);
+		Assertions.assertThat(respostas("saldo-lento", "obsoleta")).isEqualTo(1);
+	}
+
+	@Test
+	public void deveDevolverASondagemInterrompidaSemContarFalha() {
+		Disjuntor disjuntor = new Disjuntor(1, 0, System::currentTimeMillis);
+		Dependencia dependencia = new Dependencia("interrompida", 2, 5000, disjuntor, meterRegistry);
+		disjuntor.falha();
+
+		try {
+			Thread.currentThread().interrupt();
+			Throwable erro = Assertions.catchThrowable( () -> dependencia.executar( () -> 1 ) );
+
+			Assertions.assertThat(erro).isInstanceOf(BancoIndisponivelException.class);
+			Assertions.assertThat(Thread.interrupted()).isTrue();
+			Assertions.assertThat(disjuntor.getEstado()).isEqualTo(Disjuntor.Estado.ABERTO);
+			Assertions.assertThat(chamadas("interrompida", "falha")).isZero();
+			Assertions.assertThat(chamadas("interrompida", "interrompida")).isEqualTo(1);
+
+			Assertions.assertThat(dependencia.executar( () -> 1 )).isEqualTo(1);
+			Assertions.assertThat(disjuntor.getEstado()).isEqualTo(Disjuntor.Estado.FECHADO);
+		} finally {
+			Thread.interrupted();
+			dependencia.encerrar();
+		}
+	}
+
+	@Test
+	public void deveAbrirODisjuntorEFecharDepoisDeUmaSondagemBemSucedida() throws Exception {
+		Supplier<Long> contagem = () -> service.chamar("instavel", () -> lancamentoRepository.count());
+
+		DataSourceLento.atrasar(2000);
+		for (int i = 0; i < 2; i++) {
+			Assertions.catchThrowableOfType(contagem::get, BancoIndisponivelException.class);
+		}
+		Assertions.assertThat(service.obterEstado("instavel")).isEqualTo(Disjuntor.Estado.ABERTO);
+
+		long inicio = System.currentTimeMillis();
+		Assertions.catchThrowableOfType(contagem::get, BancoIndisponivelException.class);
+		Assertions.assertThat(System.currentTimeMillis() - inicio).isLessThan(100);
+		Assertions.assertThat(chamadas("instavel", "bloqueada")).isEqualTo(1);
+
+		DataSourceLento.atrasar(0);
+		Thread.sleep(350);
+		Assertions.assertThat(contagem.get()).isEqualTo(1l);
+		Assertions.assertThat(service.obterEstado("instavel")).isEqualTo(Disjuntor.Estado.FECHADO);
+	}
+
+	@Test
+	public void deveLimitarAsConsultasSimultaneasDoEndpoint() throws Exception {
+		Assertions.assertThat(service.consultar("limitada", 1, () -> "anterior").getValor()).isEqualTo("anterior");
+
+		CountDownLatch ocupado = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		Future<?> emAndamento = pool.submit(() -> service.consultar("limitada", 2, () -> {
+			ocupado.countDown();
+			try {
+				liberar.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "lenta";
+		}));
+		Assertions.assertThat(ocupado.await(5, TimeUnit.SECONDS)).isTrue();
+
+		Resultado<String> obsoleto = service.consultar("limitada", 1, () -> "nova");
+		Assertions.assertThat(obsoleto.isObsoleto()).isTrue();
+		Assertions.assertThat(obsoleto.getValor()).isEqualTo("anterior");
+		Assertions.assertThat(Assertions.catchThrowable(() -> service.consultar("limitada", 3, () -> "nova")))
+				  .isInstanceOf(BancoIndisponivelException.class);
+		Assertions.assertThat(meterRegistry.counter("minhasfinancas.degradacao.concorrencia", "endpoint", "limitada", "resultado", "rejeitada").count())
+				  .isEqualTo(2);
+
+		liberar.countDown();
+		emAndamento.get(5, TimeUnit.SECONDS);
+		Assertions.assertThat(service.consultar("limitada", 1, () -> "nova").isObsoleto()).isFalse();
+	}
+
+	@Test
+	public void naoDeveContarRegraDeNegocioComoFalhaDoBanco() {
+		for (int i = 0; i < 10; i++) {
+			Assertions.catchThrowableOfType(() -> service.<Object>chamar("regras", () -> {
+				throw new RegraNegocioException("Usuário não encontrado");
+			}), RegraNegocioException.class);
+		}
+
+		Assertions.assertThat(service.obterEstado("regras")).isEqualTo(Disjuntor.Estado.FECHADO);
+		Assertions.assertThat(chamadas("regras", "falha")).isZero();
+	}
+
+	@Test
+	public void deveContarSoErrosDeAcessoADadosComoFalhaDoBanco() {
+		for (int i = 0; i < 10; i++) {
+			Assertions.catchThrowableOfType(() -> service.<Object>chamar("erros", () -> {
+				throw new IllegalStateException("estado inválido");
+			}), IllegalStateException.class);
+		}
+		Assertions.assertThat(service.obterEstado("erros")).isEqualTo(Disjuntor.Estado.FECHADO);
+		Assertions.assertThat(chamadas("erros", "falha")).isZero();
+
+		BancoIndisponivelException erro = Assertions.catchThrowableOfType(() -> service.<Object>chamar("erros", () -> {
+			throw new QueryTimeoutException("cancelada");
+		}), BancoIndisponivelException.class);
+		Assertions.assertThat(erro).hasCauseInstanceOf(QueryTimeoutException.class);
+		Assertions.assertThat(chamadas("erros", "falha")).isEqualTo(1);
+	}
+
+	private double chamadas(String dependencia, String resultado) {
+		return meterRegistry.counter("minhasfinancas.degradacao.chamadas", "dependencia", dependencia, "resultado", resultado).count();
+	}
+
+	private double respostas(String endpoint, String resultado) {
+		return meterRegistry.counter("minhasfinancas.degradacao.respostas", "endpoint", endpoint, "resultado", resultado).count();
+	}
+
+}
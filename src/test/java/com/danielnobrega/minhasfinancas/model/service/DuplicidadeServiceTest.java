@@ -0,0 +1,180 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.danielnobrega.minhasfinancas.enums.PoliticaDuplicidade;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.projection.ResumoLancamento;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import com.danielnobrega.minhasfinancas.service.impl.DuplicidadeServiceImpl;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+public class DuplicidadeServiceTest {
+	
+	@SpyBean
+	DuplicidadeServiceImpl service;
+	
+	@MockBean
+	LancamentoRepository repository;
+	
+	@MockBean
+	UsuarioRepository usuarioRepository;
+	
+	@Before
+	public void setUp() {
+		Mockito.when(repository.obterResumosPorUsuario(1l)).thenReturn(Arrays.asList(
+				resumo(10l, "Supermercado Extra", "152.30"),
+				resumo(11l, "Conta de Luz", "90.00"),
+				resumo(12l, "Supermercado EXTRA.", "152.30"),
+				resumo(13l, "Farmácia São João", "40.00")));
+	}
+	
+	@Test
+	public void deveSinalizarLancamentoComMesmaDescricaoNormalizada() {
+		Lancamento lancamento = criarLancamento("  supermercado   extra ", "152.3");
+		
+		service.verificar(lancamento);
+		
+		Assertions.assertThat(lancamento.getPossivelDuplicata()).isTrue();
+	}
+	
+	@Test
+	public void deveSinalizarLancamentoComDescricaoSemelhante() {
+		Lancamento lancamento = criarLancamento("Farmacia Sao Joao.", "40");
+		
+		service.verificar(lancamento);
+		
+		Assertions.assertThat(lancamento.getPossivelDuplicata()).isTrue();
+	}
+	
+	@Test
+	public void naoDeveSinalizarLancamentoComValorOuDescricaoDiferentes() {
+		Lancamento outroValor = criarLancamento("Conta de Luz", "91.00");
+		Lancamento outraDescricao = criarLancamento("Conta de Agua", "90.00");
+		
+		service.verificar(outroValor);
+		service.verificar(outraDescricao);
+		
+		Assertions.assertThat(outroValor.getPossivelDuplicata()).isNull();
+		Assertions.assertThat(outraDescricao.getPossivelDuplicata()).isNull();
+	}
+	
+	@Test
+	public void deveConsiderarLancamentosIncluidosAposOCarregamentoDoIndice() {
+		Usuario usuario = Usuario.builder().id(3l).build();
+		Mockito.when(repository.obterResumosPorUsuario(3l)).thenReturn(Collections.emptyList());
+		Lancamento primeiro = criarLancamento("Aluguel", "1500");
+		primeiro.setUsuario(usuario);
+		service.verificar(primeiro);
+		
+		Lancamento aluguel = criarLancamento("Aluguel", "1500");
+		aluguel.setUsuario(usuario);
+		aluguel.setId(20l);
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(null, aluguel));
+		
+		Lancamento repetido = criarLancamento("ALUGUEL", "1500");
+		repetido.setUsuario(usuario);
+		service.verificar(repetido);
+		
+		Assertions.assertThat(primeiro.getPossivelDuplicata()).isNull();
+		Assertions.assertThat(repetido.getPossivelDuplicata()).isTrue();
+		Mockito.verify(repository, Mockito.times(1)).obterResumosPorUsuario(3l);
+	}
+	
+	@Test
+	public void naoDeveGuardarIndiceCarregadoDuranteUmaEscrita() {
+		Usuario usuario = Usuario.builder().id(4l).build();
+		Lancamento aluguel = criarLancamento("Aluguel", "1500");
+		aluguel.setUsuario(usuario);
+		aluguel.setId(30l);
+		Mockito.when(repository.obterResumosPorUsuario(4l)).thenAnswer( invocacao -> {
+			service.aoAlterarLancamento(new LancamentoAlteradoEvent(null, aluguel));
+			return Collections.emptyList();
+		}).thenReturn(Collections.singletonList(resumo(30l, "Aluguel", "1500")));
+		
+		Lancamento primeiro = criarLancamento("Condominio", "400");
+		primeiro.setUsuario(usuario);
+		service.verificar(primeiro);
+		
+		Lancamento repetido = criarLancamento("ALUGUEL", "1500");
+		repetido.setUsuario(usuario);
+		service.verificar(repetido);
+		
+		Assertions.assertThat(repetido.getPossivelDuplicata()).isTrue();
+		Mockito.verify(repository, Mockito.times(2)).obterResumosPorUsuario(4l);
+	}
+	
+	@Test
+	public void deveDescartarOsIndicesMaisAntigosAcimaDoLimiteDeEntradas() {
+		DuplicidadeServiceImpl limitado = new DuplicidadeServiceImpl(repository, usuarioRepository, 
+				PoliticaDuplicidade.SINALIZAR, 4, 32, 0.85, 2);
+		Mockito.when(repository.obterResumosPorUsuario(5l)).thenReturn(Collections.singletonList(resumo(40l, "Academia", "99.90")));
+		Lancamento doOutroUsuario = criarLancamento("Academia", "99.90");
+		doOutroUsuario.setUsuario(Usuario.builder().id(5l).build());
+		
+		limitado.verificar(criarLancamento("Conta de Luz", "90.00"));
+		limitado.verificar(doOutroUsuario);
+		limitado.verificar(criarLancamento("Conta de Luz", "90.00"));
+		
+		Mockito.verify(repository, Mockito.times(2)).obterResumosPorUsuario(1l);
+	}
+	
+	@Test
+	public void deveRejeitarQuandoAPoliticaForRejeitar() {
+		DuplicidadeServiceImpl rejeitando = new DuplicidadeServiceImpl(repository, usuarioRepository, 
+				PoliticaDuplicidade.REJEITAR, 100, 32, 0.85, 2);
+		
+		Throwable erro = Assertions.catchThrowable( () -> rejeitando.verificar(criarLancamento("Supermercado Extra", "152.30")) );
+		
+		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Lançamento possivelmente duplicado");
+	}
+	
+	@Test
+	public void deveAgruparDuplicidadesNaVarredura() {
+		Mockito.when(usuarioRepository.listarIds()).thenReturn(Arrays.asList(1l, 2l));
+		Mockito.when(repository.obterResumosPorUsuario(2l)).thenReturn(Collections.emptyList());
+		
+		Map<Long, List<List<Long>>> resultado = service.varrer(null);
+		
+		Assertions.assertThat(resultado.get(1l)).containsExactly(Arrays.asList(10l, 12l));
+		Assertions.assertThat(resultado.get(2l)).isEmpty();
+	}
+
+	private Lancamento criarLancamento(String descricao, String valor) {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(Usuario.builder().id(1l).build());
+		lancamento.setDescricao(descricao);
+		lancamento.setValor(new BigDecimal(valor));
+		return lancamento;
+	}
+	
+	private ResumoLancamento resumo(Long id, String descricao, String valor) {
+		return new ResumoLancamento() {
+			public Long getId() { return id; }
+			public String getDescricao() { return descricao; }
+			public Integer getAno() { return 2020; }
+			public Integer getMes() { return 6; }
+			public BigDecimal getValor() { return new BigDecimal(valor); }
+		};
+	}
+}
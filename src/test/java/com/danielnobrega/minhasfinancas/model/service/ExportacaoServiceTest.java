@@ -0,0 +1,114 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.danielnobrega.minhasfinancas.enums.FormatoExportacao;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Cotacao;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import com.danielnobrega.minhasfinancas.service.impl.CotacaoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.impl.ExportacaoServiceImpl;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ ExportacaoServiceImpl.class, CotacaoServiceImpl.class })
+public class ExportacaoServiceTest {
+
+	@Autowired
+	ExportacaoServiceImpl service;
+	
+	@Autowired
+	CotacaoServiceImpl cotacaoService;
+	
+	@Autowired
+	TestEntityManager entityManager;
+	
+	Usuario usuario;
+	
+	@Before
+	public void setUp() {
+		usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		
+		persistir("Salário", 2020, 1, 5000, TipoLancamento.RECEITA);
+		persistir("Mercado, feira \"orgânica\"", 2020, 1, 350, TipoLancamento.DESPESA);
+		persistir("Aluguel <apto>", 2020, 2, 1200, TipoLancamento.DESPESA);
+		entityManager.flush();
+	}
+	
+	@Test
+	public void deveExportarCsvNaOrdemDeCompetenciaEscapandoAsAspas() throws Exception {
+		String[] linhas = exportar(FormatoExportacao.CSV).split("\n");
+		
+		Assertions.assertThat(linhas).hasSize(4);
+		Assertions.assertThat(linhas[0]).isEqualTo("id,descricao,ano,mes,valor,moeda,tipo,status,data_cadastro");
+		Assertions.assertThat(linhas[1]).contains(",Salário,2020,1,5000.00,BRL,RECEITA,");
+		Assertions.assertThat(linhas[2]).contains(",\"Mercado, feira \"\"orgânica\"\"\",2020,1,350.00,BRL,DESPESA,");
+		Assertions.assertThat(linhas[3]).contains(",Aluguel <apto>,2020,2,1200.00,BRL,DESPESA,");
+	}
+	
+	@Test
+	public void deveExportarOfxComDebitosNegativos() throws Exception {
+		String ofx = exportar(FormatoExportacao.OFX);
+		
+		Assertions.assertThat(ofx).startsWith("<?xml").endsWith("</OFX>\n");
+		Assertions.assertThat(ofx.split("<STMTTRN>")).hasSize(4);
+		Assertions.assertThat(ofx).contains("<TRNTYPE>CREDIT</TRNTYPE><DTPOSTED>20200101</DTPOSTED><TRNAMT>5000.00</TRNAMT>");
+		Assertions.assertThat(ofx).contains("<TRNAMT>-1200.00</TRNAMT>");
+		Assertions.assertThat(ofx).contains("<MEMO>Aluguel &lt;apto&gt;</MEMO>");
+	}
+	
+	@Test
+	public void deveExportarAMoedaDeCadaLancamento() throws Exception {
+		entityManager.persist(Cotacao.builder().data(LocalDate.of(2020, 1, 1)).moedaOrigem("USD").moedaDestino("BRL")
+				.taxa(new BigDecimal("5.25")).build());
+		Lancamento assinatura = persistir("Assinatura", 2020, 3, 10, TipoLancamento.DESPESA);
+		assinatura.setMoeda("USD");
+		entityManager.flush();
+		cotacaoService.recarregar();
+		
+		Assertions.assertThat(exportar(FormatoExportacao.CSV)).contains(",Assinatura,2020,3,10.00,USD,DESPESA,");
+		
+		String ofx = exportar(FormatoExportacao.OFX);
+		Assertions.assertThat(ofx).contains("<CURDEF>BRL</CURDEF>");
+		Assertions.assertThat(ofx).contains("<MEMO>Assinatura</MEMO><CURRENCY><CURRATE>5.25</CURRATE><CURSYM>USD</CURSYM></CURRENCY>");
+		Assertions.assertThat(ofx).contains("<MEMO>Salário</MEMO></STMTTRN>");
+	}
+	
+	private String exportar(FormatoExportacao formato) throws Exception {
+		ByteArrayOutputStream saida = new ByteArrayOutputStream();
+		service.exportar(usuario.getId(), formato, saida);
+		return new String(saida.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	private Lancamento persistir(String descricao, int ano, int mes, int valor, TipoLancamento tipo) {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setDescricao(descricao);
+		lancamento.setAno(ano);
+		lancamento.setMes(mes);
+		lancamento.setValor(BigDecimal.valueOf(valor));
+		lancamento.setTipo(tipo);
+		return entityManager.persist(lancamento);
+	}
+}
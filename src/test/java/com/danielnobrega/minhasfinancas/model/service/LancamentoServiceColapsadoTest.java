@@ -0,0 +1,162 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import com.danielnobrega.minhasfinancas.service.impl.LancamentoServiceColapsado;
+import com.danielnobrega.minhasfinancas.service.impl.LancamentoServiceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@Import({ LancamentoServiceColapsado.class, RecalculoSaldoServiceTest.Metricas.class })
+public class LancamentoServiceColapsadoTest {
+
+	private static final int CHAMADAS = 8;
+
+	@Autowired
+	LancamentoServiceColapsado service;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	@MockBean
+	LancamentoServiceImpl delegado;
+
+	ExecutorService pool = Executors.newFixedThreadPool(CHAMADAS);
+
+	@After
+	public void encerrar() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void deveCompartilharUmaExecucaoEntreChamadasSimultaneasDoMesmoSaldo() throws Exception {
+		CountDownLatch liberar = new CountDownLatch(1);
+		Mockito.when(delegado.obterSaldoPorUsuario(1l)).thenAnswer( invocacao -> {
+			liberar.await();
+			return BigDecimal.TEN;
+		});
+		double colapsadasAntes = contador("saldo", "colapsada");
+
+		List<Future<BigDecimal>> chamadas = new ArrayList<>();
+		for (int i = 0; i < CHAMADAS; i++) {
+			chamadas.add(pool.submit(() -> service.obterSaldoPorUsuario(1l)));
+		}
+		aguardarColapsadas("saldo", colapsadasAntes + CHAMADAS - 1);
+		liberar.countDown();
+
+		for (Future<BigDecimal> chamada : chamadas) {
+			Assertions.assertThat(chamada.get(5, TimeUnit.SECONDS)).isEqualTo(BigDecimal.TEN);
+		}
+		Mockito.verify(delegado, Mockito.times(1)).obterSaldoPorUsuario(1l);
+	}
+
+	@Test
+	public void deveExecutarNovamenteDepoisDeUmaEscritaDoUsuario() throws Exception {
+		CountDownLatch liberar = new CountDownLatch(1);
+		Mockito.when(delegado.obterSaldoPorUsuario(2l))
+			.thenAnswer( invocacao -> {
+				liberar.await();
+				return BigDecimal.ONE;
+			})
+			.thenReturn(BigDecimal.TEN);
+
+		Future<BigDecimal> anterior = pool.submit(() -> service.obterSaldoPorUsuario(2l));
+		Mockito.verify(delegado, Mockito.timeout(5000)).obterSaldoPorUsuario(2l);
+
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(null, lancamentoDoUsuario(2l)));
+		BigDecimal posterior = service.obterSaldoPorUsuario(2l);
+		liberar.countDown();
+
+		Assertions.assertThat(posterior).isEqualTo(BigDecimal.TEN);
+		Assertions.assertThat(anterior.get(5, TimeUnit.SECONDS)).isEqualTo(BigDecimal.ONE);
+		Mockito.verify(delegado, Mockito.times(2)).obterSaldoPorUsuario(2l);
+	}
+
+	@Test
+	public void deveRepassarOErroDaExecucaoParaTodasAsChamadas() throws Exception {
+		CountDownLatch liberar = new CountDownLatch(1);
+		Mockito.when(delegado.obterSaldoPorUsuario(3l)).thenAnswer( invocacao -> {
+			liberar.await();
+			throw new RegraNegocioException("Falha ao obter saldo");
+		});
+		double colapsadasAntes = contador("saldo", "colapsada");
+
+		List<Future<BigDecimal>> chamadas = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			chamadas.add(pool.submit(() -> service.obterSaldoPorUsuario(3l)));
+		}
+		aguardarColapsadas("saldo", colapsadasAntes + 1);
+		liberar.countDown();
+
+		for (Future<BigDecimal> chamada : chamadas) {
+			Assertions.assertThatThrownBy(() -> chamada.get(5, TimeUnit.SECONDS))
+				.hasCauseInstanceOf(RegraNegocioException.class);
+		}
+		Mockito.verify(delegado, Mockito.times(1)).obterSaldoPorUsuario(3l);
+	}
+
+	@Test
+	public void deveEntregarUmaCopiaImutavelDaBuscaParaCadaChamada() throws Exception {
+		CountDownLatch liberar = new CountDownLatch(1);
+		FiltroLancamento filtro = FiltroLancamento.builder().idUsuario(4l).build();
+		List<Lancamento> compartilhada = new ArrayList<>(Arrays.asList(lancamentoDoUsuario(4l), lancamentoDoUsuario(4l)));
+		Mockito.when(delegado.buscar(filtro)).thenAnswer( invocacao -> {
+			liberar.await();
+			return compartilhada;
+		});
+		double colapsadasAntes = contador("busca", "colapsada");
+
+		Future<List<Lancamento>> primeira = pool.submit(() -> service.buscar(filtro));
+		Future<List<Lancamento>> segunda = pool.submit(() -> service.buscar(filtro));
+		aguardarColapsadas("busca", colapsadasAntes + 1);
+		liberar.countDown();
+
+		List<Lancamento> resultado = primeira.get(5, TimeUnit.SECONDS);
+		Assertions.assertThat(resultado).isNotSameAs(segunda.get(5, TimeUnit.SECONDS)).isNotSameAs(compartilhada).hasSize(2);
+		Assertions.assertThatThrownBy(() -> resultado.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+		Mockito.verify(delegado, Mockito.times(1)).buscar(filtro);
+	}
+
+	private double contador(String operacao, String resultado) {
+		return meterRegistry.counter("minhasfinancas.colapso.requisicoes", "operacao", operacao, "resultado", resultado).count();
+	}
+
+	private void aguardarColapsadas(String operacao, double esperado) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5000;
+		while (contador(operacao, "colapsada") < esperado && System.currentTimeMillis() < limite) {
+			Thread.sleep(5);
+		}
+		Assertions.assertThat(contador(operacao, "colapsada")).isEqualTo(esperado);
+	}
+
+	private static Lancamento lancamentoDoUsuario(Long idUsuario) {
+		return Lancamento.builder().usuario(Usuario.builder().id(idUsuario).build()).build();
+	}
+
+}
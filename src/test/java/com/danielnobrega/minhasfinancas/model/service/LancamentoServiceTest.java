@@ -1,6 +1,7 @@
 package com.danielnobrega.minhasfinancas.model.service;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -11,17 +12,22 @@ import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
-import org.springframework.data.domain.Example;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
 import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.exceptions.ErroValidacao;
 import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
 import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
 import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.filtro.FiltroLancamento;
 import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
 import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.CategoriaService;
+import com.danielnobrega.minhasfinancas.service.CotacaoService;
+import com.danielnobrega.minhasfinancas.service.DuplicidadeService;
 import com.danielnobrega.minhasfinancas.service.impl.LancamentoServiceImpl;
 
 @RunWith(SpringRunner.class)
@@ -33,6 +39,18 @@ public class LancamentoServiceTest {
 
 	@MockBean
 	LancamentoRepository repository;
+	
+	@MockBean
+	UsuarioRepository usuarioRepository;
+	
+	@MockBean
+	CategoriaService categoriaService;
+	
+	@MockBean
+	DuplicidadeService duplicidadeService;
+	
+	@MockBean
+	CotacaoService cotacaoService;
 
 	@Test
 	public void deveSalvarUmLancamento() {
@@ -62,6 +80,17 @@ public class LancamentoServiceTest {
 		Mockito.verify(repository, Mockito.never()).save(lancamentoASalvar);
 	}
 
+	@Test
+	public void naoDeveSalvarUmaPernaDeTransferenciaAvulsa() {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setTipo(TipoLancamento.TRANSFERENCIA_SAIDA);
+
+		RegraNegocioException erro = Assertions.catchThrowableOfType(() -> service.salvar(lancamento), RegraNegocioException.class);
+
+		Assertions.assertThat(erro.getErros()).extracting(ErroValidacao::getCampo).containsExactly("tipo");
+		Mockito.verify(repository, Mockito.never()).save(lancamento);
+	}
+
 	@Test
 	public void deveAtualizarUmLancamento() {
 		Lancamento lancamentoSalvo = LancamentoRepositoryTest.criarLancamento();
@@ -91,7 +120,8 @@ public class LancamentoServiceTest {
 
 		service.deletar(lancamento);
 
-		Mockito.verify(repository).delete(lancamento);
+		Mockito.verify(repository).marcarExcluido(Mockito.eq(1l), Mockito.any(LocalDateTime.class));
+		Mockito.verify(repository, Mockito.never()).delete(lancamento);
 	}
 
 	@Test
@@ -100,7 +130,7 @@ public class LancamentoServiceTest {
 
 		Assertions.catchThrowableOfType(() -> service.deletar(lancamento), NullPointerException.class);
 
-		Mockito.verify(repository, Mockito.never()).delete(lancamento);
+		Mockito.verify(repository, Mockito.never()).marcarExcluido(Mockito.any(), Mockito.any());
 	}
 
 	@Test
@@ -108,10 +138,12 @@ public class LancamentoServiceTest {
 		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
 		lancamento.setId(1l);
 
+		FiltroLancamento filtro = FiltroLancamento.builder().idUsuario(4l).build();
+
 		List<Lancamento> lista = Arrays.asList(lancamento);
-		Mockito.when(repository.findAll(Mockito.any(Example.class))).thenReturn(lista);
+		Mockito.when(repository.buscar(filtro)).thenReturn(lista);
 
-		List<Lancamento> resultado = service.buscar(lancamento);
+		List<Lancamento> resultado = service.buscar(filtro);
 
 		Assertions.assertThat(resultado).isNotEmpty().hasSize(1).contains(lancamento);
 	}
@@ -235,4 +267,21 @@ public class LancamentoServiceTest {
 		
 		
 	}
+	
+	@Test
+	public void deveReportarTodosOsCamposInvalidosDeUmaVez() {
+		Lancamento lancamento = Lancamento.builder().descricao("   ").mes(2).ano(123).valor(BigDecimal.ONE).build();
+		
+		RegraNegocioException erro = Assertions.catchThrowableOfType( () -> service.validar(lancamento), RegraNegocioException.class);
+		
+		Assertions.assertThat(erro).hasMessage("Informe uma DESCRIÇÃO válida");
+		Assertions.assertThat(erro.getStackTrace()).isEmpty();
+		Assertions.assertThat(erro.getErros())
+				  .extracting(ErroValidacao::getCampo, ErroValidacao::getCodigo)
+				  .containsExactly(
+						  Assertions.tuple("descricao", "INVALIDO"),
+						  Assertions.tuple("ano", "INVALIDO"),
+						  Assertions.tuple("usuario", "OBRIGATORIO"),
+						  Assertions.tuple("tipo", "OBRIGATORIO"));
+	}
 }
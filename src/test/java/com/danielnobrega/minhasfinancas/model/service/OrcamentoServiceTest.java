@@ -0,0 +1,224 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.danielnobrega.minhasfinancas.enums.TipoAlertaOrcamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.AlertaOrcamento;
+import com.danielnobrega.minhasfinancas.model.entity.Categoria;
+import com.danielnobrega.minhasfinancas.model.entity.GastoCategoriaMensal;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Orcamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.AlertaOrcamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.GastoCategoriaMensalRepository;
+import com.danielnobrega.minhasfinancas.model.repository.OrcamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import com.danielnobrega.minhasfinancas.service.impl.CotacaoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.impl.OrcamentoServiceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ OrcamentoServiceImpl.class, CotacaoServiceImpl.class, RecalculoSaldoServiceTest.Metricas.class })
+public class OrcamentoServiceTest {
+
+	private static final Long ID_CATEGORIA = 7l;
+
+	@Autowired
+	OrcamentoServiceImpl service;
+
+	@Autowired
+	OrcamentoRepository repository;
+
+	@Autowired
+	AlertaOrcamentoRepository alertaRepository;
+
+	@Autowired
+	GastoCategoriaMensalRepository gastoRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	Long idUsuario;
+
+	@Before
+	public void setUp() {
+		idUsuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario()).getId();
+	}
+
+	@After
+	public void tearDown() {
+		alertaRepository.deleteAll();
+		repository.deleteAll();
+		gastoRepository.deleteAll();
+		usuarioRepository.deleteAll();
+	}
+
+	@Test
+	public void deveIniciarOGastoDoOrcamentoComAsDespesasJaLancadas() {
+		gastoRepository.save(gasto(ID_CATEGORIA, "120.00"));
+		gastoRepository.save(gasto(GastoCategoriaMensal.SEM_CATEGORIA, "30.00"));
+
+		Orcamento total = service.definir(orcamento(null, "1000.00", 80));
+		Orcamento categoria = service.definir(orcamento(ID_CATEGORIA, "500.00", null));
+		Orcamento redefinido = service.definir(orcamento(ID_CATEGORIA, "600.00", 50));
+
+		Assertions.assertThat(total.getGasto()).isEqualByComparingTo("150.00");
+		Assertions.assertThat(categoria.getGasto()).isEqualByComparingTo("120.00");
+		Assertions.assertThat(redefinido.getId()).isEqualTo(categoria.getId());
+		Assertions.assertThat(repository.findById(categoria.getId()).get())
+				  .extracting(Orcamento::getLimite, Orcamento::getPercentualAviso, Orcamento::getGasto)
+				  .containsExactly(new BigDecimal("600.00"), 50, new BigDecimal("120.00"));
+	}
+
+	@Test
+	public void deveAlertarUmaUnicaVezCadaTravessiaSobEscritasParalelas() throws Exception {
+		Orcamento total = service.definir(orcamento(null, "1000.00", 80));
+		Orcamento categoria = service.definir(orcamento(ID_CATEGORIA, "500.00", null));
+		double registradosAntes = meterRegistry.counter("minhasfinancas.orcamento.alertas", "resultado", "registrado").count();
+
+		int threads = 8;
+		int escritasPorThread = 50;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Future<?>> tarefas = new ArrayList<>();
+		TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+
+		for (int t = 0; t < threads; t++) {
+			Long idCategoria = t % 2 == 0 ? ID_CATEGORIA : null;
+			tarefas.add(pool.submit(() -> {
+				largada.await();
+				for (int i = 0; i < escritasPorThread; i++) {
+					transacao.execute( status -> {
+						service.aoAlterarLancamento(new LancamentoAlteradoEvent(null, despesa(idCategoria, "5.00")));
+						return null;
+					});
+				}
+				return null;
+			}));
+		}
+		largada.countDown();
+		for (Future<?> tarefa : tarefas) {
+			tarefa.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+
+		Assertions.assertThat(repository.findById(total.getId()).get().getGasto()).isEqualByComparingTo("2000.00");
+		Assertions.assertThat(repository.findById(categoria.getId()).get().getGasto()).isEqualByComparingTo("1000.00");
+		Assertions.assertThat(meterRegistry.counter("minhasfinancas.orcamento.alertas", "resultado", "registrado").count() - registradosAntes)
+				  .isEqualTo(3);
+
+		List<AlertaOrcamento> alertas = alertas();
+		Assertions.assertThat(alertas)
+				  .extracting(AlertaOrcamento::getIdOrcamento, AlertaOrcamento::getTipo)
+				  .containsExactlyInAnyOrder(
+						  Assertions.tuple(total.getId(), TipoAlertaOrcamento.AVISO),
+						  Assertions.tuple(total.getId(), TipoAlertaOrcamento.LIMITE),
+						  Assertions.tuple(categoria.getId(), TipoAlertaOrcamento.LIMITE));
+		Assertions.assertThat(alertas)
+				  .filteredOn( a -> a.getTipo() == TipoAlertaOrcamento.LIMITE )
+				  .allMatch( a -> a.getGasto().compareTo(a.getLimite()) >= 0
+						  		&& a.getGasto().subtract(new BigDecimal("5.00")).compareTo(a.getLimite()) < 0 );
+	}
+
+	@Test
+	public void naoDeveAlertarQuandoAVariacaoLiquidaDoOrcamentoForNula() throws Exception {
+		Orcamento total = service.definir(orcamento(null, "100.00", null));
+		Lancamento anterior = despesa(ID_CATEGORIA, "150.00");
+		Lancamento atual = despesa(null, "150.00");
+		TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+
+		transacao.execute( status -> {
+			service.aoAlterarLancamento(new LancamentoAlteradoEvent(null, anterior));
+			return null;
+		});
+		transacao.execute( status -> {
+			service.aoAlterarLancamento(new LancamentoAlteradoEvent(anterior, atual));
+			return null;
+		});
+
+		Assertions.assertThat(repository.findById(total.getId()).get().getGasto()).isEqualByComparingTo("150.00");
+		Assertions.assertThat(alertas()).hasSize(1);
+	}
+
+	@Test(expected = DataIntegrityViolationException.class)
+	public void naoDevePermitirDoisOrcamentosTotaisNoMesmoMes() {
+		repository.saveAndFlush(orcamento(null, "100.00", null));
+		repository.saveAndFlush(orcamento(null, "200.00", null));
+	}
+
+	private List<AlertaOrcamento> alertas() {
+		return alertaRepository.findByIdUsuarioOrderByIdDesc(idUsuario);
+	}
+
+	private Orcamento orcamento(Long idCategoria, String limite, Integer percentualAviso) {
+		return Orcamento.builder()
+				.idUsuario(idUsuario)
+				.idCategoria(idCategoria)
+				.ano(2020)
+				.mes(3)
+				.limite(new BigDecimal(limite))
+				.percentualAviso(percentualAviso)
+				.build();
+	}
+
+	private GastoCategoriaMensal gasto(Long idCategoria, String total) {
+		return GastoCategoriaMensal.builder()
+				.idUsuario(idUsuario)
+				.idCategoria(idCategoria)
+				.ano(2020)
+				.mes(3)
+				.total(new BigDecimal(total))
+				.build();
+	}
+
+	private Lancamento despesa(Long idCategoria, String valor) {
+		return Lancamento.builder()
+				.usuario(Usuario.builder().id(idUsuario).build())
+				.categoria(idCategoria == null ? null : Categoria.builder().id(idCategoria).build())
+				.ano(2020)
+				.mes(3)
+				.valor(new BigDecimal(valor))
+				.tipo(TipoLancamento.DESPESA)
+				.build();
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.danielnobrega.minhasfinancas.enums.MetodoProjecao;
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.VersaoDadosService;
+import com.danielnobrega.minhasfinancas.service.impl.CotacaoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.impl.ProjecaoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.projecao.Projecao;
+import com.danielnobrega.minhasfinancas.service.versao.VersaoDados;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ ProjecaoServiceImpl.class, CotacaoServiceImpl.class })
+public class ProjecaoServiceTest {
+
+	@Autowired
+	ProjecaoServiceImpl service;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@MockBean
+	VersaoDadosService versaoDadosService;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario").email("projecao@email.com").senha("senha").build());
+		Mockito.when(versaoDadosService.obter(usuario.getId())).thenReturn(new VersaoDados("v-1", 0));
+
+		for (int mes = 1; mes <= 6; mes++) {
+			lancar(2020, mes, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, "1000.00");
+		}
+		for (int mes = 3; mes <= 5; mes++) {
+			lancar(2020, mes, TipoLancamento.DESPESA, StatusLancamento.PENDENTE, "600.00");
+		}
+		lancar(2019, 7, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO, "300.00");
+		lancar(2020, 4, TipoLancamento.DESPESA, StatusLancamento.CANCELADO, "5000.00");
+		lancar(2020, 8, TipoLancamento.DESPESA, StatusLancamento.PENDENTE, "900.00");
+	}
+
+	@After
+	public void tearDown() {
+		lancamentoRepository.deleteAll();
+		usuarioRepository.deleteAll();
+	}
+
+	@Test
+	public void deveProjetarPelaMediaMovelIncluindoPendentesERegistradosNoFuturo() {
+		Projecao projecao = service.projetar(usuario.getId(), 2020, 6, 3, MetodoProjecao.MEDIA_MOVEL, 3);
+
+		Assertions.assertThat(projecao.getSaldoAtual()).isEqualByComparingTo("3900.00");
+		Assertions.assertThat(projecao.getPontos())
+				  .extracting( p -> p.getMes(), p -> p.getDespesas().toPlainString(), p -> p.getSaldo().toPlainString() )
+				  .containsExactly(
+						  Assertions.tuple(7, "600.00", "4300.00"),
+						  Assertions.tuple(8, "900.00", "4400.00"),
+						  Assertions.tuple(9, "600.00", "4800.00"));
+	}
+
+	@Test
+	public void deveProjetarPeloMesmoMesDoAnoAnterior() {
+		Projecao projecao = service.projetar(usuario.getId(), 2020, 6, 2, MetodoProjecao.SAZONAL, 3);
+
+		Assertions.assertThat(projecao.getPontos())
+				  .extracting( p -> p.getReceitas().toPlainString(), p -> p.getDespesas().toPlainString(), p -> p.getSaldo().toPlainString() )
+				  .containsExactly(
+						  Assertions.tuple("0.00", "300.00", "3600.00"),
+						  Assertions.tuple("0.00", "900.00", "2700.00"));
+	}
+
+	@Test
+	public void deveReaproveitarASerieAteAVersaoDosDadosMudar() {
+		service.projetar(usuario.getId(), 2020, 6, 1, MetodoProjecao.MEDIA_MOVEL, 3);
+		lancar(2020, 6, TipoLancamento.RECEITA, StatusLancamento.PENDENTE, "100.00");
+
+		Assertions.assertThat(service.projetar(usuario.getId(), 2020, 6, 1, MetodoProjecao.MEDIA_MOVEL, 3).getSaldoAtual())
+				  .isEqualByComparingTo("3900.00");
+
+		Mockito.when(versaoDadosService.obter(usuario.getId())).thenReturn(new VersaoDados("v-2", 0));
+
+		Assertions.assertThat(service.projetar(usuario.getId(), 2020, 6, 1, MetodoProjecao.MEDIA_MOVEL, 3).getSaldoAtual())
+				  .isEqualByComparingTo("4000.00");
+	}
+
+	@Test(expected = RegraNegocioException.class)
+	public void deveRejeitarHorizonteForaDoLimite() {
+		service.projetar(usuario.getId(), 2020, 6, 61, MetodoProjecao.MEDIA_MOVEL, 3);
+	}
+
+	private void lancar(int ano, int mes, TipoLancamento tipo, StatusLancamento status, String valor) {
+		lancamentoRepository.save(Lancamento.builder()
+				.descricao("lancamento")
+				.ano(ano)
+				.mes(mes)
+				.valor(new BigDecimal(valor))
+				.tipo(tipo)
+				.status(status)
+				.dataCadastro(LocalDate.now())
+				.usuario(usuario)
+				.build());
+	}
+
+}
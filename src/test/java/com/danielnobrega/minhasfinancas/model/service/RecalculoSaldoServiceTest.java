@@ -0,0 +1,223 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.CheckpointProcessamento;
+import com.danielnobrega.minhasfinancas.model.entity.Cotacao;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.SaldoMensal;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.CheckpointProcessamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.CotacaoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.SaldoMensalRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.impl.CotacaoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.impl.RecalculoSaldoServiceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+		"minhasfinancas.recalculo.tamanho-particao=3",
+		"minhasfinancas.recalculo.paralelismo=3",
+		"minhasfinancas.recalculo.max-conexoes=2"
+})
+@Import({ RecalculoSaldoServiceImpl.class, CotacaoServiceImpl.class, RecalculoSaldoServiceTest.Metricas.class })
+public class RecalculoSaldoServiceTest {
+	
+	@TestConfiguration
+	static class Metricas {
+		
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	RecalculoSaldoServiceImpl service;
+	
+	@Autowired
+	UsuarioRepository usuarioRepository;
+	
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+	
+	@Autowired
+	SaldoMensalRepository saldoMensalRepository;
+	
+	@Autowired
+	CheckpointProcessamentoRepository checkpointRepository;
+	
+	@Autowired
+	CotacaoRepository cotacaoRepository;
+	
+	@Autowired
+	CotacaoServiceImpl cotacaoService;
+	
+	@Autowired
+	MeterRegistry meterRegistry;
+	
+	List<Usuario> usuarios = new ArrayList<>();
+	
+	List<Lancamento> lancamentos = new ArrayList<>();
+	
+	@Before
+	public void setUp() {
+		Random random = new Random(11);
+		
+		for (int u = 0; u < 10; u++) {
+			Usuario usuario = usuarioRepository.save(Usuario.builder()
+					.nome("usuario " + u)
+					.email("recalculo" + u + "@email.com")
+					.senha("senha")
+					.build());
+			usuarios.add(usuario);
+			
+			for (int i = 0; i < 40; i++) {
+				lancamentos.add(lancamentoRepository.save(Lancamento.builder()
+						.descricao("Lancamento " + i)
+						.ano(2018 + random.nextInt(3))
+						.mes(1 + random.nextInt(12))
+						.valor(BigDecimal.valueOf(1 + random.nextInt(500)))
+						.tipo(random.nextBoolean() ? TipoLancamento.RECEITA : TipoLancamento.DESPESA)
+						.status(StatusLancamento.PENDENTE)
+						.dataCadastro(LocalDate.now())
+						.usuario(usuario)
+						.build()));
+			}
+		}
+	}
+	
+	@After
+	public void tearDown() {
+		checkpointRepository.deleteAll();
+		cotacaoRepository.deleteAll();
+		saldoMensalRepository.deleteAll();
+		lancamentoRepository.deleteAll();
+		usuarioRepository.deleteAll();
+	}
+	
+	@Test
+	public void deveGravarOSaldoAcumuladoDeCadaMesDeTodosOsUsuarios() {
+		double processadosAntes = meterRegistry.counter("minhasfinancas.recalculo.usuarios").count();
+		
+		CheckpointProcessamento checkpoint = service.executar("recalculo-teste", 2019, 6);
+		
+		Assertions.assertThat(checkpoint.getConcluido()).isTrue();
+		Assertions.assertThat(checkpoint.getUsuariosProcessados()).isEqualTo(usuarios.size());
+		Assertions.assertThat(checkpoint.getUltimoIdUsuario()).isEqualTo(usuarios.get(usuarios.size() - 1).getId());
+		Assertions.assertThat(meterRegistry.counter("minhasfinancas.recalculo.usuarios").count() - processadosAntes).isEqualTo(usuarios.size());
+		
+		conferirFechamentos(2019, 6);
+	}
+	
+	@Test
+	public void deveRetomarAPartirDoCheckpointDeUmaExecucaoInterrompida() {
+		service.executar("recalculo-teste", 2019, 6);
+		saldoMensalRepository.deleteAll();
+		
+		Usuario ultimoConcluido = usuarios.get(4);
+		checkpointRepository.save(CheckpointProcessamento.builder()
+				.nome("recalculo-interrompido")
+				.ano(2019)
+				.mes(6)
+				.ultimoIdUsuario(ultimoConcluido.getId())
+				.usuariosProcessados(5l)
+				.gruposLidos(0l)
+				.concluido(false)
+				.build());
+		
+		CheckpointProcessamento checkpoint = service.executar("recalculo-interrompido", 2019, 6);
+		
+		Assertions.assertThat(checkpoint.getUsuariosProcessados()).isEqualTo(usuarios.size());
+		Assertions.assertThat(saldoMensalRepository.findAll())
+				  .isNotEmpty()
+				  .allMatch( s -> s.getIdUsuario() > ultimoConcluido.getId() );
+	}
+
+	@Test
+	public void deveConverterOsLancamentosEmOutraMoedaNoMesmoFechamento() {
+		cotacaoService.registrar(Collections.singletonList(Cotacao.builder()
+				.data(LocalDate.of(2019, 1, 1)).moedaOrigem("USD").moedaDestino("BRL").taxa(new BigDecimal("5.00")).build()));
+		Usuario usuario = usuarios.get(0);
+		lancamentos.add(lancamentoRepository.save(Lancamento.builder()
+				.descricao("Salário").ano(2019).mes(3).valor(new BigDecimal("100.00")).tipo(TipoLancamento.RECEITA)
+				.status(StatusLancamento.PENDENTE).dataCadastro(LocalDate.now()).usuario(usuario).build()));
+		lancamentoRepository.save(Lancamento.builder()
+				.descricao("Assinatura").ano(2019).mes(3).valor(new BigDecimal("10.00")).moeda("USD").tipo(TipoLancamento.DESPESA)
+				.status(StatusLancamento.PENDENTE).dataCadastro(LocalDate.now()).usuario(usuario).build());
+		
+		service.executar("recalculo-moeda", 2019, 6);
+		
+		Assertions.assertThat(saldoMensalRepository.findAll())
+				  .filteredOn( s -> s.getIdUsuario().equals(usuario.getId()) && s.getAno() == 2019 && s.getMes() == 3 )
+				  .hasSize(1)
+				  .allSatisfy( s -> Assertions.assertThat(s.getSaldo())
+						  .isEqualByComparingTo(somarAte(usuario.getId(), 2019, 3).subtract(new BigDecimal("50.00"))) );
+		Assertions.assertThat(saldoMensalRepository.findAll())
+				  .filteredOn( s -> s.getIdUsuario().equals(usuario.getId()) && s.getAno() == 2019 && s.getMes() == 6 )
+				  .allSatisfy( s -> Assertions.assertThat(s.getSaldo())
+						  .isEqualByComparingTo(somarAte(usuario.getId(), 2019, 6).subtract(new BigDecimal("50.00"))) );
+	}
+
+	private void conferirFechamentos(int ano, int mes) {
+		List<SaldoMensal> fechamentos = saldoMensalRepository.findAll();
+		
+		for (Usuario usuario : usuarios) {
+			Assertions.assertThat(fechamentos)
+					  .as("fechamento final do usuário %d", usuario.getId())
+					  .anyMatch( s -> s.getIdUsuario().equals(usuario.getId()) && s.getAno() == ano && s.getMes() == mes );
+		}
+		
+		for (SaldoMensal fechamento : fechamentos) {
+			Assertions.assertThat(fechamento.getAno() * 12 + fechamento.getMes()).isLessThanOrEqualTo(ano * 12 + mes);
+			Assertions.assertThat(fechamento.getSaldo())
+					  .as("saldo do usuário %d em %d/%d", fechamento.getIdUsuario(), fechamento.getMes(), fechamento.getAno())
+					  .isEqualByComparingTo(somarAte(fechamento.getIdUsuario(), fechamento.getAno(), fechamento.getMes()));
+		}
+	}
+	
+	private BigDecimal somarAte(Long idUsuario, int ano, int mes) {
+		BigDecimal saldo = BigDecimal.ZERO;
+		for (Lancamento lancamento : lancamentos) {
+			if (lancamento.getUsuario().getId().equals(idUsuario) 
+					&& (lancamento.getAno() < ano || (lancamento.getAno() == ano && lancamento.getMes() <= mes))) {
+				saldo = lancamento.getTipo() == TipoLancamento.RECEITA 
+						? saldo.add(lancamento.getValor()) : saldo.subtract(lancamento.getValor());
+			}
+		}
+		return saldo;
+	}
+}
@@ -0,0 +1,197 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import javax.sql.DataSource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.danielnobrega.minhasfinancas.enums.CriterioVencimento;
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.CategoriaService;
+import com.danielnobrega.minhasfinancas.service.DuplicidadeService;
+import com.danielnobrega.minhasfinancas.service.impl.CotacaoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.impl.LancamentoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.impl.ReconciliacaoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.reconciliacao.ExecucaoReconciliacao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+		"minhasfinancas.reconciliacao.habilitado=true",
+		"minhasfinancas.reconciliacao.tamanho-lote=2"
+})
+@Import({ ReconciliacaoServiceImpl.class, LancamentoServiceImpl.class, CotacaoServiceImpl.class, ReconciliacaoServiceTest.Metricas.class })
+public class ReconciliacaoServiceTest {
+
+	@TestConfiguration
+	static class Metricas {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	ReconciliacaoServiceImpl service;
+
+	@Autowired
+	LancamentoServiceImpl lancamentoService;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	DataSource dataSource;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	ApplicationEventPublisher publisher;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	@MockBean
+	CategoriaService categoriaService;
+
+	@MockBean
+	DuplicidadeService duplicidadeService;
+
+	Usuario usuario;
+
+	YearMonth mesAtual = YearMonth.now();
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario").email("reconciliacao@email.com").senha("senha").build());
+	}
+
+	@After
+	public void tearDown() {
+		lancamentoRepository.deleteAll();
+		usuarioRepository.deleteAll();
+	}
+
+	@Test
+	public void deveEfetivarEmLotesSomenteOsPendentesVencidosPelaCompetencia() {
+		double antes = meterRegistry.counter("minhasfinancas.reconciliacao.lancamentos", "status", "EFETIVADO").count();
+		for (int mes = 1; mes <= 5; mes++) {
+			lancar(YearMonth.of(2019, mes));
+		}
+		Lancamento noMesAtual = lancar(mesAtual);
+		Lancamento cancelado = lancar(YearMonth.of(2019, 6));
+		lancamentoService.atualizarStatus(cancelado, StatusLancamento.CANCELADO);
+		Lancamento perna = lancar(YearMonth.of(2019, 7));
+		perna.setIdContrapartida(perna.getId());
+		lancamentoRepository.save(perna);
+
+		ExecucaoReconciliacao execucao = service.reconciliar();
+
+		Assertions.assertThat(execucao.getProcessados()).isEqualTo(5);
+		Assertions.assertThat(execucao.getLotes()).isEqualTo(3);
+		Assertions.assertThat(execucao.getStatusDestino()).isEqualTo(StatusLancamento.EFETIVADO);
+		Assertions.assertThat(lancamentoRepository.findAll())
+				  .filteredOn( l -> l.getAno() == 2019 && l.getMes() <= 5 )
+				  .hasSize(5)
+				  .allSatisfy( l -> Assertions.assertThat(l.getStatus()).isEqualTo(StatusLancamento.EFETIVADO) );
+		Assertions.assertThat(status(noMesAtual)).isEqualTo(StatusLancamento.PENDENTE);
+		Assertions.assertThat(status(cancelado)).isEqualTo(StatusLancamento.CANCELADO);
+		Assertions.assertThat(status(perna)).isEqualTo(StatusLancamento.PENDENTE);
+		Assertions.assertThat(meterRegistry.counter("minhasfinancas.reconciliacao.lancamentos", "status", "EFETIVADO").count() - antes)
+				  .isEqualTo(5);
+
+		Assertions.assertThat(service.reconciliar().getProcessados()).isZero();
+		Assertions.assertThat(meterRegistry.get("minhasfinancas.reconciliacao.ultima-execucao").gauge().value()).isZero();
+	}
+
+	@Test
+	public void deveCancelarOsPendentesVencidosPelaDataDeCadastro() {
+		ReconciliacaoServiceImpl cancelamento = new ReconciliacaoServiceImpl(lancamentoRepository, dataSource, transactionManager,
+				publisher, meterRegistry, StatusLancamento.CANCELADO, CriterioVencimento.CADASTRO, 1, 30, 10);
+		Lancamento antigo = lancar(mesAtual);
+		Lancamento recente = lancar(YearMonth.of(2019, 1));
+		Assertions.assertThat(dataCadastro(antigo)).isEqualTo(LocalDate.now());
+		envelhecer(antigo, 45);
+		envelhecer(recente, 5);
+		// a edição pelo PUT não traz a data de cadastro e não pode apagá-la
+		lancamentoService.atualizar(antigo.toBuilder().descricao("Conta atrasada").dataCadastro(null).build());
+		Assertions.assertThat(dataCadastro(antigo)).isEqualTo(LocalDate.now().minusDays(45));
+
+		ExecucaoReconciliacao execucao = cancelamento.reconciliar();
+
+		Assertions.assertThat(execucao.getProcessados()).isEqualTo(1);
+		Assertions.assertThat(execucao.getLotes()).isEqualTo(1);
+		Assertions.assertThat(status(antigo)).isEqualTo(StatusLancamento.CANCELADO);
+		Assertions.assertThat(status(recente)).isEqualTo(StatusLancamento.PENDENTE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void naoDeveAceitarPendenteComoDestino() {
+		new ReconciliacaoServiceImpl(lancamentoRepository, dataSource, transactionManager,
+				publisher, meterRegistry, StatusLancamento.PENDENTE, CriterioVencimento.COMPETENCIA, 1, 30, 10);
+	}
+
+	private StatusLancamento status(Lancamento lancamento) {
+		return lancamentoRepository.findById(lancamento.getId()).get().getStatus();
+	}
+
+	private LocalDate dataCadastro(Lancamento lancamento) {
+		return lancamentoRepository.findById(lancamento.getId()).get().getDataCadastro();
+	}
+
+	private void envelhecer(Lancamento lancamento, int dias) {
+		new JdbcTemplate(dataSource).update("update financas.lancamento set data_cadastro = dateadd('DAY', ?, data_cadastro) where id = ?",
+				-dias, lancamento.getId());
+	}
+
+	private Lancamento lancar(YearMonth competencia) {
+		return lancamentoService.salvar(Lancamento.builder()
+				.descricao("Conta")
+				.ano(competencia.getYear())
+				.mes(competencia.getMonthValue())
+				.valor(new BigDecimal("10.00"))
+				.tipo(TipoLancamento.DESPESA)
+				.usuario(usuario)
+				.build());
+	}
+
+}
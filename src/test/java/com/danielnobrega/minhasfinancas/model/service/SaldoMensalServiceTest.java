@@ -0,0 +1,222 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Cotacao;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepositoryTest;
+import com.danielnobrega.minhasfinancas.model.repository.SaldoMensalRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepositoryTest;
+import com.danielnobrega.minhasfinancas.service.agendamento.ExecucaoExclusiva;
+import com.danielnobrega.minhasfinancas.service.event.LancamentoAlteradoEvent;
+import com.danielnobrega.minhasfinancas.service.impl.CotacaoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.impl.SaldoMensalServiceImpl;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Import({ SaldoMensalServiceImpl.class, CotacaoServiceImpl.class, ExecucaoExclusiva.class })
+public class SaldoMensalServiceTest {
+
+	@Autowired
+	SaldoMensalServiceImpl service;
+	
+	@Autowired
+	SaldoMensalRepository repository;
+	
+	@Autowired
+	TestEntityManager entityManager;
+	
+	@Autowired
+	ExecucaoExclusiva execucaoExclusiva;
+	
+	@Autowired
+	CotacaoServiceImpl cotacaoService;
+	
+	Usuario usuario;
+	
+	List<Lancamento> lancamentos = new ArrayList<>();
+	
+	@Before
+	public void setUp() {
+		usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Random random = new Random(7);
+		
+		for (int i = 0; i < 400; i++) {
+			Lancamento lancamento = Lancamento.builder()
+					.descricao("Lancamento " + i)
+					.ano(2018 + random.nextInt(3))
+					.mes(1 + random.nextInt(12))
+					.valor(BigDecimal.valueOf(1 + random.nextInt(500)))
+					.tipo(random.nextBoolean() ? TipoLancamento.RECEITA : TipoLancamento.DESPESA)
+					.status(StatusLancamento.PENDENTE)
+					.dataCadastro(LocalDate.now())
+					.usuario(usuario)
+					.build();
+			lancamentos.add(entityManager.persist(lancamento));
+		}
+		entityManager.flush();
+	}
+	
+	@Test
+	public void deveCalcularSaldoAteOMesIgualASomaDeTodosOsLancamentos() {
+		service.fecharMes(usuario.getId(), 2018, 6);
+		service.fecharMes(usuario.getId(), 2019, 3);
+		service.fecharMes(usuario.getId(), 2019, 12);
+		
+		conferirTodosOsMeses();
+	}
+	
+	@Test
+	public void deveInvalidarSomenteOsFechamentosAfetadosPorAlteracaoRetroativa() {
+		service.fecharMes(usuario.getId(), 2018, 6);
+		service.fecharMes(usuario.getId(), 2019, 3);
+		service.fecharMes(usuario.getId(), 2019, 12);
+		
+		Lancamento lancamento = lancamentos.get(0);
+		Lancamento anterior = lancamento.toBuilder().build();
+		lancamento.setAno(2019);
+		lancamento.setMes(1);
+		lancamento.setValor(lancamento.getValor().add(BigDecimal.valueOf(1000)));
+		entityManager.flush();
+		
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(anterior, lancamento));
+		
+		int afetado = Math.min(anterior.getAno() * 12 + anterior.getMes(), 2019 * 12 + 1);
+		long preservados = Stream.of(2018 * 12 + 6, 2019 * 12 + 3, 2019 * 12 + 12).filter( p -> p < afetado ).count();
+		Assertions.assertThat(repository.findAll())
+				  .hasSize((int) preservados)
+				  .allMatch( s -> s.getAno() * 12 + s.getMes() < afetado );
+		
+		conferirTodosOsMeses();
+		
+		Lancamento excluido = lancamentos.remove(1);
+		entityManager.remove(excluido);
+		entityManager.flush();
+		
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(excluido, null));
+		
+		conferirTodosOsMeses();
+	}
+	
+	@Test
+	public void naoDeveInvalidarFechamentosQuandoSomenteOStatusMudar() {
+		service.fecharMes(usuario.getId(), 2020, 12);
+		
+		Lancamento lancamento = lancamentos.get(0);
+		Lancamento anterior = lancamento.toBuilder().build();
+		lancamento.setStatus(StatusLancamento.EFETIVADO);
+		
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(anterior, lancamento));
+		
+		Assertions.assertThat(repository.count()).isEqualTo(1);
+	}
+
+	@Test
+	public void deveInvalidarOsFechamentosQuandoSomenteAMoedaMudar() {
+		cotacaoService.registrar(Collections.singletonList(cotacao(LocalDate.of(2017, 1, 1), "5.00")));
+		service.fecharMes(usuario.getId(), 2020, 12);
+		
+		Lancamento lancamento = lancamentos.get(0);
+		Lancamento anterior = lancamento.toBuilder().build();
+		lancamento.setMoeda("USD");
+		entityManager.flush();
+		
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(anterior, lancamento));
+		
+		Assertions.assertThat(repository.count()).isZero();
+		BigDecimal diferenca = lancamento.getValor().multiply(new BigDecimal("4"));
+		Assertions.assertThat(service.obterSaldoAte(usuario.getId(), 2020, 12))
+				  .isEqualByComparingTo(lancamento.getTipo() == TipoLancamento.RECEITA 
+						  ? somarAte(2020, 12).add(diferenca) : somarAte(2020, 12).subtract(diferenca));
+	}
+
+	@Test
+	public void deveInvalidarOsFechamentosAfetadosPorUmaCotacaoNova() {
+		cotacaoService.registrar(Collections.singletonList(cotacao(LocalDate.of(2019, 1, 1), "5.00")));
+		Lancamento assinatura = LancamentoRepositoryTest.criarLancamento();
+		assinatura.setUsuario(usuario);
+		assinatura.setAno(2019);
+		assinatura.setMes(6);
+		assinatura.setValor(new BigDecimal("10.00"));
+		assinatura.setMoeda("USD");
+		assinatura.setTipo(TipoLancamento.DESPESA);
+		entityManager.persist(assinatura);
+		entityManager.flush();
+		
+		service.fecharMes(usuario.getId(), 2018, 6);
+		service.fecharMes(usuario.getId(), 2019, 12);
+		Assertions.assertThat(service.obterSaldoAte(usuario.getId(), 2019, 12))
+				  .isEqualByComparingTo(somarAte(2019, 12).subtract(new BigDecimal("50.00")));
+		
+		cotacaoService.registrar(Collections.singletonList(cotacao(LocalDate.of(2019, 3, 1), "6.00")));
+		
+		Assertions.assertThat(repository.findAll())
+				  .extracting( s -> s.getAno() * 12 + s.getMes() )
+				  .containsExactly(2018 * 12 + 6);
+		Assertions.assertThat(service.obterSaldoAte(usuario.getId(), 2019, 12))
+				  .isEqualByComparingTo(somarAte(2019, 12).subtract(new BigDecimal("60.00")));
+	}
+
+	@Test
+	public void naoDeveExecutarATarefaAgendadaEnquantoATravaEstiverOcupada() {
+		AtomicBoolean concorrenteExecutou = new AtomicBoolean(true);
+		
+		boolean executou = execucaoExclusiva.executar("teste-trava", Duration.ofMinutes(5), 
+				() -> concorrenteExecutou.set(execucaoExclusiva.executar("teste-trava", Duration.ofMinutes(5), () -> { })));
+		
+		Assertions.assertThat(executou).isTrue();
+		Assertions.assertThat(concorrenteExecutou).isFalse();
+		Assertions.assertThat(execucaoExclusiva.executar("teste-trava", Duration.ofMinutes(5), () -> { })).isTrue();
+	}
+
+	private Cotacao cotacao(LocalDate data, String taxa) {
+		return Cotacao.builder().data(data).moedaOrigem("USD").moedaDestino("BRL").taxa(new BigDecimal(taxa)).build();
+	}
+
+	private void conferirTodosOsMeses() {
+		for (int ano = 2017; ano <= 2021; ano++) {
+			for (int mes = 1; mes <= 12; mes++) {
+				Assertions.assertThat(service.obterSaldoAte(usuario.getId(), ano, mes))
+						  .as("saldo em %d/%d", mes, ano)
+						  .isEqualByComparingTo(somarAte(ano, mes));
+			}
+		}
+	}
+	
+	private BigDecimal somarAte(int ano, int mes) {
+		BigDecimal saldo = BigDecimal.ZERO;
+		for (Lancamento lancamento : lancamentos) {
+			if (lancamento.getAno() < ano || (lancamento.getAno() == ano && lancamento.getMes() <= mes)) {
+				saldo = lancamento.getTipo() == TipoLancamento.RECEITA 
+						? saldo.add(lancamento.getValor()) : saldo.subtract(lancamento.getValor());
+			}
+		}
+		return saldo;
+	}
+}
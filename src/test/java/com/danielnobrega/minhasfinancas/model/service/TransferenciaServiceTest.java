@@ -0,0 +1,210 @@
+package com.danielnobrega.minhasfinancas.model.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.danielnobrega.minhasfinancas.enums.StatusLancamento;
+import com.danielnobrega.minhasfinancas.enums.TipoLancamento;
+import com.danielnobrega.minhasfinancas.exceptions.RegraNegocioException;
+import com.danielnobrega.minhasfinancas.model.entity.Cotacao;
+import com.danielnobrega.minhasfinancas.model.entity.Lancamento;
+import com.danielnobrega.minhasfinancas.model.entity.Usuario;
+import com.danielnobrega.minhasfinancas.model.repository.CotacaoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.LancamentoRepository;
+import com.danielnobrega.minhasfinancas.model.repository.UsuarioRepository;
+import com.danielnobrega.minhasfinancas.service.CategoriaService;
+import com.danielnobrega.minhasfinancas.service.DuplicidadeService;
+import com.danielnobrega.minhasfinancas.service.impl.CotacaoServiceImpl;
+import com.danielnobrega.minhasfinancas.service.impl.LancamentoServiceImpl;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ LancamentoServiceImpl.class, CotacaoServiceImpl.class })
+public class TransferenciaServiceTest {
+
+	private static final int USUARIOS = 6;
+
+	private static final int THREADS = 8;
+
+	private static final int TRANSFERENCIAS_POR_THREAD = 25;
+
+	private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000.00");
+
+	@Autowired
+	LancamentoServiceImpl service;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	CotacaoRepository cotacaoRepository;
+
+	@Autowired
+	CotacaoServiceImpl cotacaoService;
+
+	@MockBean
+	CategoriaService categoriaService;
+
+	@MockBean
+	DuplicidadeService duplicidadeService;
+
+	List<Long> usuarios = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		for (int i = 0; i < USUARIOS; i++) {
+			Usuario usuario = usuarioRepository.save(Usuario.builder().nome("usuario").email("transferencia" + i + "@email.com").senha("senha").build());
+			usuarios.add(usuario.getId());
+			lancamentoRepository.save(Lancamento.builder()
+					.descricao("Saldo inicial")
+					.ano(2020)
+					.mes(1)
+					.valor(SALDO_INICIAL)
+					.tipo(TipoLancamento.RECEITA)
+					.status(StatusLancamento.EFETIVADO)
+					.usuario(usuario)
+					.build());
+		}
+	}
+
+	@After
+	public void tearDown() {
+		lancamentoRepository.deleteAll();
+		cotacaoRepository.deleteAll();
+		usuarioRepository.deleteAll();
+	}
+
+	@Test
+	public void deveGravarAsDuasPernasLigadas() {
+		List<Lancamento> pernas = service.transferir(saida(usuarios.get(1), "150.00"), usuarios.get(0));
+
+		Lancamento saida = pernas.get(0);
+		Lancamento entrada = pernas.get(1);
+		Assertions.assertThat(saida.getTipo()).isEqualTo(TipoLancamento.TRANSFERENCIA_SAIDA);
+		Assertions.assertThat(entrada.getTipo()).isEqualTo(TipoLancamento.TRANSFERENCIA_ENTRADA);
+		Assertions.assertThat(entrada.getUsuario().getId()).isEqualTo(usuarios.get(0));
+		Assertions.assertThat(lancamentoRepository.findById(saida.getId()).get().getIdContrapartida()).isEqualTo(entrada.getId());
+		Assertions.assertThat(lancamentoRepository.findById(entrada.getId()).get().getIdContrapartida()).isEqualTo(saida.getId());
+
+		Assertions.assertThat(service.obterSaldoPorUsuario(usuarios.get(1))).isEqualByComparingTo("850.00");
+		Assertions.assertThat(service.obterSaldoPorUsuario(usuarios.get(0))).isEqualByComparingTo("1150.00");
+	}
+
+	@Test
+	public void deveLancarAEntradaNaMoedaBaseDeQuemEnvia() {
+		cotacaoService.registrar(Collections.singletonList(Cotacao.builder()
+				.data(LocalDate.of(2020, 1, 1)).moedaOrigem("USD").moedaDestino("BRL").taxa(new BigDecimal("5.00")).build()));
+		Usuario emDolar = usuarioRepository.save(Usuario.builder().nome("usuario").email("transferencia-usd@email.com").senha("senha")
+				.moedaBase("USD").build());
+
+		List<Lancamento> pernas = service.transferir(saida(emDolar.getId(), "10.00"), usuarios.get(0));
+
+		Assertions.assertThat(pernas).extracting(Lancamento::getMoeda).containsOnly("USD");
+		Assertions.assertThat(service.obterSaldoPorUsuario(emDolar.getId())).isEqualByComparingTo("-10.00");
+		Assertions.assertThat(service.obterSaldoPorUsuario(usuarios.get(0))).isEqualByComparingTo("1050.00");
+	}
+
+	@Test
+	public void deveExcluirAsDuasPernasJuntas() {
+		List<Lancamento> pernas = service.transferir(saida(usuarios.get(0), "80.00"), usuarios.get(1));
+
+		service.deletar(lancamentoRepository.findById(pernas.get(1).getId()).get());
+
+		Assertions.assertThat(lancamentoRepository.findById(pernas.get(0).getId())).isEmpty();
+		Assertions.assertThat(lancamentoRepository.findById(pernas.get(1).getId())).isEmpty();
+		Assertions.assertThat(service.obterSaldoPorUsuario(usuarios.get(0))).isEqualByComparingTo(SALDO_INICIAL);
+		Assertions.assertThat(service.obterSaldoPorUsuario(usuarios.get(1))).isEqualByComparingTo(SALDO_INICIAL);
+	}
+
+	@Test
+	public void naoDeveTransferirParaOProprioUsuario() {
+		Assertions.catchThrowableOfType(() -> service.transferir(saida(usuarios.get(0), "10.00"), usuarios.get(0)),
+				RegraNegocioException.class);
+	}
+
+	@Test
+	public void deveManterASomaDosSaldosSobTransferenciasConcorrentes() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Future<?>> tarefas = new ArrayList<>();
+
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				Random aleatorio = new Random(t);
+				tarefas.add(pool.submit(() -> {
+					largada.await();
+					for (int i = 0; i < TRANSFERENCIAS_POR_THREAD; i++) {
+						int origem = aleatorio.nextInt(USUARIOS);
+						int destino = (origem + 1 + aleatorio.nextInt(USUARIOS - 1)) % USUARIOS;
+						service.transferir(saida(usuarios.get(origem), (1 + aleatorio.nextInt(50)) + ".00"), usuarios.get(destino));
+					}
+					return null;
+				}));
+			}
+
+			largada.countDown();
+			for (Future<?> tarefa : tarefas) {
+				tarefa.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		BigDecimal soma = BigDecimal.ZERO;
+		for (Long usuario : usuarios) {
+			soma = soma.add(service.obterSaldoPorUsuario(usuario));
+		}
+		Assertions.assertThat(soma).isEqualByComparingTo(SALDO_INICIAL.multiply(BigDecimal.valueOf(USUARIOS)));
+
+		List<Lancamento> pernas = new ArrayList<>();
+		for (Lancamento lancamento : lancamentoRepository.findAll()) {
+			if (lancamento.getTipo().isTransferencia()) {
+				pernas.add(lancamento);
+			}
+		}
+		Assertions.assertThat(pernas).hasSize(2 * THREADS * TRANSFERENCIAS_POR_THREAD);
+		Assertions.assertThat(pernas).allSatisfy( perna -> Assertions.assertThat(perna.getIdContrapartida()).isNotNull() );
+	}
+
+	private Lancamento saida(Long idUsuario, String valor) {
+		return Lancamento.builder()
+				.descricao("Transferência")
+				.ano(2020)
+				.mes(2)
+				.valor(new BigDecimal(valor))
+				.usuario(Usuario.builder().id(idUsuario).build())
+				.build();
+	}
+
+}
@@ -1,13 +1,16 @@
 package com.danielnobrega.minhasfinancas.model.service;
 
+import java.sql.SQLException;
 import java.util.Optional;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
@@ -82,8 +85,6 @@ public class UsuarioServiceTest {
 	@Test(expected = Test.None.class)
 	public void deveSalvarUsuarioComSucesso() {
 		//cenario
-		Mockito.doNothing().when(service).validarEmail(Mockito.anyString());
-		
 		String email = "email@email.com";
 		String senha = "senha";
 		
@@ -100,18 +101,40 @@ public class UsuarioServiceTest {
 		Assertions.assertThat(usuario.getSenha()).isEqualTo(senha);
 		Assertions.assertThat(usuario.getNome()).isEqualTo("nome");
 		Assertions.assertThat(usuario.getId()).isEqualTo(1l);
+		Mockito.verify(repository, Mockito.never()).existsByEmail(Mockito.anyString());
 	}
 	
-	@Test(expected = RegraNegocioException.class)
+	@Test
 	public void deveLancarErroQuandoEmailJaExistirNaBaseDeDados() {
 		String email = "email@email.com";
 		
 		Usuario usuario = Usuario.builder().email(email).build();
 		
-		Mockito.doThrow(RegraNegocioException.class).when(service).validarEmail(email);
+		Mockito.when(repository.save(usuario)).thenThrow(new DataIntegrityViolationException("email duplicado", 
+				new ConstraintViolationException("email duplicado", new SQLException(), Usuario.UK_EMAIL)));
+
+		Throwable exception = Assertions.catchThrowable(() -> service.salvarUsuario(usuario));
+		
+		Assertions.assertThat(exception).isInstanceOf(RegraNegocioException.class).hasMessage("Ja Existe um usuário cadastrado com esse email");
+	}
+	
+	@Test
+	public void naoDeveConfundirOutraViolacaoComEmailExistente() {
+		Usuario usuario = Usuario.builder().email("email@email.com").build();
+		
+		Mockito.when(repository.save(usuario)).thenThrow(new DataIntegrityViolationException("nome muito longo"));
 
-		service.salvarUsuario(usuario);
+		Throwable exception = Assertions.catchThrowable(() -> service.salvarUsuario(usuario));
+		
+		Assertions.assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+	}
+	
+	@Test
+	public void deveAutenticarComOEmailNormalizado() {
+		Usuario usuario = Usuario.builder().email("email@email.com").senha("senha").id(1l).build();
+		
+		Mockito.when(repository.findByEmail("email@email.com")).thenReturn(Optional.of(usuario));
 		
-		Mockito.verify(repository, Mockito.never()).save(usuario);
+		Assertions.assertThat(service.autenticar("  Email@EMAIL.com ", "senha")).isSameAs(usuario);
 	}
 }
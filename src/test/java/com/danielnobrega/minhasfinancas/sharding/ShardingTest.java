@@ -0,0 +1,374 @@
+package com.danielnobrega.minhasfinancas.sharding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.danielnobrega.minhasfinancas.api.dto.LancamentoDTO;
+import com.danielnobrega.minhasfinancas.api.dto.TransferenciaDTO;
+import com.danielnobrega.minhasfinancas.api.dto.UsuarioDTO;
+import com.danielnobrega.minhasfinancas.sharding.MigradorShard.ResultadoMigracao;
+
+
+public class ShardingTest {
+
+	static final List<String> TABELAS_DO_USUARIO = Arrays.asList("usuario", "categoria", "lancamento", "saldo_mensal",
+			"versao_usuario", "lancamento_auditoria", "lancamento_auditoria_pendente");
+
+	Map<String, DataSource> shards = new LinkedHashMap<>();
+
+	AnelHashConsistente anel;
+
+	DiretorioUsuarios diretorio;
+
+	LocalizadorShard localizador;
+
+	MigradorShard migrador;
+
+	@Before
+	public void setUp() {
+		for (String nome : Arrays.asList("a", "b", "c")) {
+			DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:shard_" + nome + ";DB_CLOSE_DELAY=-1", "sa", "");
+			criarEsquema(new JdbcTemplate(dataSource));
+			shards.put(nome, dataSource);
+		}
+		anel = new AnelHashConsistente(shards.keySet(), 160);
+		diretorio = new DiretorioUsuarios(shards.get("a"));
+		localizador = new LocalizadorShard(shards, "a", anel, diretorio);
+		migrador = new MigradorShard(shards, anel, diretorio, localizador, 2, 0);
+	}
+
+	@After
+	public void tearDown() {
+		shards.values().forEach( dataSource -> new JdbcTemplate(dataSource).execute("drop all objects") );
+	}
+
+	@Test
+	public void deveDistribuirUsuariosDeFormaEquilibradaEntreOsShards() {
+		Map<String, Integer> contagem = new HashMap<>();
+
+		for (long id = 1; id <= 30000; id++) {
+			contagem.merge(anel.obterShard("usuario" + id + "@email.com"), 1, Integer::sum);
+		}
+
+		Assertions.assertThat(contagem).hasSize(3);
+		Assertions.assertThat(contagem.values()).allMatch( total -> total > 8000 && total < 12000 );
+	}
+
+	@Test
+	public void deveMoverSomenteUmaFracaoDosUsuariosQuandoUmShardEIncluido() {
+		AnelHashConsistente comQuatro = new AnelHashConsistente(Arrays.asList("a", "b", "c", "d"), 160);
+
+		int movidos = 0;
+		for (long id = 1; id <= 30000; id++) {
+			String email = "usuario" + id + "@email.com";
+			String depois = comQuatro.obterShard(email);
+			if (!depois.equals(anel.obterShard(email))) {
+				Assertions.assertThat(depois).isEqualTo("d");
+				movidos++;
+			}
+		}
+
+		Assertions.assertThat(movidos).isBetween(5000, 10000);
+	}
+
+	@Test
+	public void deveRotearAConexaoParaOShardDoContexto() {
+		ShardRoutingDataSource routing = new ShardRoutingDataSource();
+		routing.setTargetDataSources(new HashMap<>(shards));
+		routing.setDefaultTargetDataSource(shards.get("a"));
+		routing.afterPropertiesSet();
+		JdbcTemplate jdbc = new JdbcTemplate(routing);
+
+		ShardContexto.executar("b", () -> jdbc.update("insert into financas.usuario (id, nome, email) values (1, 'b', 'b@email.com')"));
+		jdbc.update("insert into financas.usuario (id, nome, email) values (2, 'a', 'a@email.com')");
+
+		Assertions.assertThat(contarUsuarios("b")).isEqualTo(1);
+		Assertions.assertThat(contarUsuarios("a")).isEqualTo(1);
+		Assertions.assertThat(contarUsuarios("c")).isEqualTo(0);
+	}
+
+	@Test
+	public void deveRegistrarNoDiretorioOUsuarioEncontradoNosShards() {
+		inserirUsuario("b", 7l, "sete@email.com");
+
+		Assertions.assertThat(diretorio.obter(7l)).isEmpty();
+		Assertions.assertThat(localizador.porUsuario(7l).getShard()).isEqualTo("b");
+		Assertions.assertThat(diretorio.obter(7l).get().getShard()).isEqualTo("b");
+
+		Assertions.assertThat(localizador.porUsuario(99l).getShard()).isEqualTo("a");
+		Assertions.assertThat(diretorio.obter(99l)).isEmpty();
+	}
+
+	@Test
+	public void deveRecusarRequisicaoQueNaoIdentificaOUsuario() throws Exception {
+		ShardInterceptor interceptor = new ShardInterceptor(localizador);
+		MockHttpServletResponse resposta = new MockHttpServletResponse();
+
+		boolean seguiu = interceptor.preHandle(new MockHttpServletRequest("DELETE", "/api/categorias/10"), resposta, null);
+
+		Assertions.assertThat(seguiu).isFalse();
+		Assertions.assertThat(resposta.getStatus()).isEqualTo(501);
+		Assertions.assertThat(ShardContexto.obter()).isNull();
+	}
+
+	@Test
+	public void deveRotearPeloUsuarioOuPeloLancamentoDaRequisicao() throws Exception {
+		ShardInterceptor interceptor = new ShardInterceptor(localizador);
+		inserirUsuario("b", 7l, "sete@email.com");
+		inserirLancamento("b", 70l, 7l, null);
+
+		MockHttpServletRequest porLancamento = lancamentoPorId("PUT", 70l);
+		Assertions.assertThat(interceptor.preHandle(porLancamento, new MockHttpServletResponse(), null)).isTrue();
+		Assertions.assertThat(ShardContexto.obter()).isEqualTo("b");
+		interceptor.afterCompletion(porLancamento, null, null, null);
+		Assertions.assertThat(ShardContexto.obter()).isNull();
+
+		MockHttpServletRequest porUsuario = new MockHttpServletRequest("GET", "/api/lancamentos");
+		porUsuario.setParameter("usuario", "7");
+		Assertions.assertThat(interceptor.preHandle(porUsuario, new MockHttpServletResponse(), null)).isTrue();
+		Assertions.assertThat(ShardContexto.obter()).isEqualTo("b");
+		interceptor.afterCompletion(porUsuario, null, null, null);
+
+		MockHttpServletRequest global = new MockHttpServletRequest("POST", "/api/cotacoes");
+		Assertions.assertThat(interceptor.preHandle(global, new MockHttpServletResponse(), null)).isTrue();
+		Assertions.assertThat(ShardContexto.obter()).isNull();
+	}
+
+	@Test
+	public void deveRecusarEscritasDeUmUsuarioEmMigracao() throws Exception {
+		ShardInterceptor interceptor = new ShardInterceptor(localizador);
+		inserirUsuario("b", 7l, "sete@email.com");
+		inserirLancamento("b", 70l, 7l, null);
+		diretorio.registrar(7l, "b");
+		diretorio.marcarMigracao(7l, true);
+
+		MockHttpServletResponse resposta = new MockHttpServletResponse();
+		Assertions.assertThat(interceptor.preHandle(lancamentoPorId("DELETE", 70l), resposta, null)).isFalse();
+		Assertions.assertThat(resposta.getStatus()).isEqualTo(503);
+		Assertions.assertThat(resposta.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("10");
+
+		MockHttpServletRequest leitura = new MockHttpServletRequest("GET", "/api/lancamentos");
+		leitura.setParameter("usuario", "7");
+		Assertions.assertThat(interceptor.preHandle(leitura, new MockHttpServletResponse(), null)).isTrue();
+		interceptor.afterCompletion(leitura, null, null, null);
+
+		ShardRequestBodyAdvice advice = new ShardRequestBodyAdvice(localizador);
+		RoteamentoRecusadoException recusa = Assertions.catchThrowableOfType(
+				() -> advice.escolherShard(LancamentoDTO.builder().usuario(7l).build()), RoteamentoRecusadoException.class);
+		Assertions.assertThat(recusa.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	@Test
+	public void deveRotearPeloUsuarioDoCorpoDaRequisicao() {
+		ShardRequestBodyAdvice advice = new ShardRequestBodyAdvice(localizador);
+		inserirUsuario("b", 7l, "sete@email.com");
+		inserirUsuario("c", 8l, "oito@email.com");
+
+		Assertions.assertThat(advice.escolherShard(LancamentoDTO.builder().usuario(7l).build())).isEqualTo("b");
+		Assertions.assertThat(advice.escolherShard(UsuarioDTO.builder().email(" Sete@Email.com").build())).isEqualTo("b");
+		Assertions.assertThat(advice.escolherShard(UsuarioDTO.builder().email("novo@email.com").build()))
+				  .isEqualTo(anel.obterShard("novo@email.com"));
+
+		RoteamentoRecusadoException recusa = Assertions.catchThrowableOfType(
+				() -> advice.escolherShard(TransferenciaDTO.builder().usuario(7l).destino(8l).build()), RoteamentoRecusadoException.class);
+		Assertions.assertThat(recusa.getStatus()).isEqualTo(HttpStatus.CONFLICT);
+	}
+
+	@Test
+	public void deveMigrarTodosOsDadosDoUsuarioParaOutroShard() {
+		popular("a", 7l);
+		inserirUsuario("a", 8l, "oito@email.com");
+		inserirLancamento("a", 80l, 8l, null);
+		Map<String, List<Map<String, Object>>> antes = dadosDoUsuario("a", 7l);
+		// resto de uma tentativa anterior, que a sincronização precisa remover
+		inserirUsuario("b", 7l, "sete@email.com");
+		inserirLancamento("b", 799l, 7l, null);
+
+		ResultadoMigracao resultado = migrador.migrarUsuario(7l, "b");
+
+		Assertions.assertThat(resultado.getOrigem()).isEqualTo("a");
+		Assertions.assertThat(resultado.getLinhasCopiadas()).isGreaterThan(0);
+		Assertions.assertThat(resultado.getLinhasRecopiadas()).isZero();
+		Assertions.assertThat(dadosDoUsuario("b", 7l)).isEqualTo(antes);
+		Assertions.assertThat(dadosDoUsuario("a", 7l).values()).allMatch(List::isEmpty);
+		Assertions.assertThat(contarUsuarios("a")).isEqualTo(1);
+
+		Localizacao localizacao = diretorio.obter(7l).get();
+		Assertions.assertThat(localizacao.getShard()).isEqualTo("b");
+		Assertions.assertThat(localizacao.isEmMigracao()).isFalse();
+		Assertions.assertThat(localizador.porLancamento(71l).getShard()).isEqualTo("b");
+	}
+
+	@Test
+	public void deveManterOUsuarioNaOrigemQuandoUmIdJaExisteNoDestino() {
+		popular("a", 7l);
+		inserirUsuario("b", 9l, "nove@email.com");
+		inserirLancamento("b", 72l, 9l, null);
+		Map<String, List<Map<String, Object>>> antes = dadosDoUsuario("a", 7l);
+
+		Assertions.assertThatThrownBy( () -> migrador.migrarUsuario(7l, "b") ).isInstanceOf(DataIntegrityViolationException.class);
+
+		Assertions.assertThat(dadosDoUsuario("a", 7l)).isEqualTo(antes);
+		Assertions.assertThat(dadosDoUsuario("b", 7l).values()).allMatch(List::isEmpty);
+		Assertions.assertThat(new JdbcTemplate(shards.get("b")).queryForObject(
+				"select id_usuario from financas.lancamento where id = 72", Long.class)).isEqualTo(9l);
+		Assertions.assertThat(diretorio.obter(7l).get().getShard()).isEqualTo("a");
+		Assertions.assertThat(diretorio.obter(7l).get().isEmMigracao()).isFalse();
+	}
+
+	@Test
+	public void naoDeveMigrarUsuarioComTransferenciasParaOutroUsuario() {
+		popular("a", 7l);
+		inserirUsuario("a", 8l, "oito@email.com");
+		inserirLancamento("a", 80l, 8l, 71l);
+		new JdbcTemplate(shards.get("a")).update("update financas.lancamento set id_contrapartida = 80 where id = 71");
+
+		Assertions.assertThatThrownBy( () -> migrador.migrarUsuario(7l, "b") )
+				  .isInstanceOf(IllegalStateException.class)
+				  .hasMessageContaining("transferências");
+		Assertions.assertThat(contarUsuarios("b")).isZero();
+	}
+
+	@Test
+	public void deveReservarUmaFaixaDeIdsPorShard() {
+		FaixaIds.reservar("b", shards.get("b"), 1000000, 2000000);
+		JdbcTemplate jdbc = new JdbcTemplate(shards.get("b"));
+		jdbc.update("insert into financas.usuario (nome, email) values ('b', 'b@email.com')");
+
+		Assertions.assertThat(jdbc.queryForObject("select max(id) from financas.usuario", Long.class)).isEqualTo(1000000l);
+
+		inserirUsuario("c", 5000000l, "c@email.com");
+		Assertions.assertThatThrownBy( () -> FaixaIds.reservar("c", shards.get("c"), 2000000, 3000000) )
+				  .isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void deveExecutarATarefaAgendadaEmCadaShard() {
+		List<String> executados = new ArrayList<>();
+
+		new ShardTaskScheduler(shards.keySet()).porShard( () -> {
+			executados.add(ShardContexto.obter());
+			if ("a".equals(ShardContexto.obter())) {
+				throw new IllegalStateException("falha no shard a");
+			}
+		}).run();
+
+		Assertions.assertThat(executados).containsExactly("a", "b", "c");
+		Assertions.assertThat(ShardContexto.obter()).isNull();
+	}
+
+	@Test
+	public void devePropagarOShardParaATarefaDeOutraThread() throws Exception {
+		List<String> executados = Collections.synchronizedList(new ArrayList<>());
+		Runnable tarefa = ShardContexto.executar("c", () -> ShardContexto.propagar( () -> executados.add(ShardContexto.obter()) ));
+
+		Thread thread = new Thread(tarefa);
+		thread.start();
+		thread.join();
+
+		Assertions.assertThat(executados).containsExactly("c");
+	}
+
+	private MockHttpServletRequest lancamentoPorId(String metodo, Long id) {
+		MockHttpServletRequest request = new MockHttpServletRequest(metodo, "/api/lancamentos/" + id);
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/lancamentos/{id}");
+		request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Collections.singletonMap("id", String.valueOf(id)));
+		return request;
+	}
+
+	private void popular(String shard, Long idUsuario) {
+		JdbcTemplate jdbc = new JdbcTemplate(shards.get(shard));
+		inserirUsuario(shard, idUsuario, "sete@email.com");
+		jdbc.update("insert into financas.categoria (id, nome, id_usuario) values (?, 'Mercado', ?)", idUsuario * 10, idUsuario);
+		for (long id = idUsuario * 10 + 1; id <= idUsuario * 10 + 5; id++) {
+			inserirLancamento(shard, id, idUsuario, null);
+			jdbc.update("insert into financas.lancamento_auditoria (id, id_lancamento, conteudo) values (?, ?, ?)",
+					id, id, new byte[] { 1, 2, (byte) id });
+		}
+		jdbc.update("update financas.lancamento set id_categoria = ? where id_usuario = ?", idUsuario * 10, idUsuario);
+		jdbc.update("insert into financas.lancamento_auditoria_pendente (id, id_lancamento, conteudo) values (?, ?, ?)",
+				idUsuario, idUsuario * 10 + 1, new byte[] { 3 });
+		jdbc.update("insert into financas.saldo_mensal (id, id_usuario, ano, mes, saldo) values (?, ?, 2020, 1, 150.00)", idUsuario, idUsuario);
+		jdbc.update("insert into financas.versao_usuario (id_usuario, versao) values (?, 4)", idUsuario);
+		diretorio.registrar(idUsuario, shard);
+	}
+
+	private void inserirUsuario(String shard, Long id, String email) {
+		new JdbcTemplate(shards.get(shard)).update("insert into financas.usuario (id, nome, email) values (?, 'usuario', ?)", id, email);
+	}
+
+	private void inserirLancamento(String shard, Long id, Long idUsuario, Long idContrapartida) {
+		new JdbcTemplate(shards.get(shard)).update("insert into financas.lancamento (id, descricao, mes, ano, id_usuario, "
+				+ "id_contrapartida, valor, tipo, status) values (?, 'lancamento', 1, 2020, ?, ?, 10.00, 'DESPESA', 'PENDENTE')",
+				id, idUsuario, idContrapartida);
+	}
+
+	private Map<String, List<Map<String, Object>>> dadosDoUsuario(String shard, Long idUsuario) {
+		JdbcTemplate jdbc = new JdbcTemplate(shards.get(shard));
+		Map<String, List<Map<String, Object>>> dados = new LinkedHashMap<>();
+		for (String tabela : TABELAS_DO_USUARIO) {
+			String filtro = tabela.equals("usuario") ? "id = ?"
+						  : tabela.startsWith("lancamento_") ? "id_lancamento in (select id from financas.lancamento where id_usuario = ?)"
+						  : "id_usuario = ?";
+			List<Map<String, Object>> linhas = jdbc.queryForList("select * from financas." + tabela + " where " + filtro
+					+ " order by 1", idUsuario);
+			// arrays de bytes não se comparam com equals
+			linhas.forEach( linha -> linha.replaceAll( (coluna, valor) -> valor instanceof byte[] ? Arrays.toString((byte[]) valor) : valor ) );
+			dados.put(tabela, linhas);
+		}
+		return dados;
+	}
+
+	private int contarUsuarios(String shard) {
+		return new JdbcTemplate(shards.get(shard)).queryForObject("select count(*) from financas.usuario", Integer.class);
+	}
+
+	private void criarEsquema(JdbcTemplate jdbc) {
+		jdbc.execute("create schema if not exists financas");
+		jdbc.execute("create table financas.usuario (id bigint auto_increment primary key, nome varchar(150), email varchar(100) unique, "
+				   + "senha varchar(20))");
+		jdbc.execute("create table financas.categoria (id bigint auto_increment primary key, nome varchar(100), "
+				   + "id_usuario bigint references financas.usuario (id))");
+		jdbc.execute("create table financas.lancamento (id bigint auto_increment primary key, descricao varchar(100), mes integer, "
+				   + "ano integer, id_usuario bigint references financas.usuario (id), id_categoria bigint references financas.categoria (id), "
+				   + "id_contrapartida bigint, valor numeric(16,2), data_cadastro date, tipo varchar(20), status varchar(20))");
+		jdbc.execute("create table financas.orcamento (id bigint auto_increment primary key, id_usuario bigint, ano integer, "
+				   + "mes integer, limite numeric(16,2))");
+		jdbc.execute("create table financas.alerta_orcamento (id bigint auto_increment primary key, id_usuario bigint, "
+				   + "id_orcamento bigint)");
+		jdbc.execute("create table financas.saldo_mensal (id bigint auto_increment primary key, id_usuario bigint, ano integer, "
+				   + "mes integer, saldo numeric(16,2), data_fechamento date, unique (id_usuario, ano, mes))");
+		jdbc.execute("create table financas.gasto_categoria_mensal (id bigint auto_increment primary key, id_usuario bigint, "
+				   + "id_categoria bigint, ano integer, mes integer, total numeric(16,2))");
+		jdbc.execute("create table financas.lancamento_arquivo (id bigint auto_increment primary key, id_usuario bigint, "
+				   + "descricao varchar(100))");
+		jdbc.execute("create table financas.versao_usuario (id_usuario bigint primary key, versao bigint)");
+		jdbc.execute("create table financas.lancamento_auditoria (id bigint auto_increment primary key, id_lancamento bigint, "
+				   + "conteudo varbinary(1000))");
+		jdbc.execute("create table financas.lancamento_auditoria_pendente (id bigint auto_increment primary key, "
+				   + "id_lancamento bigint, conteudo varbinary(1000))");
+		jdbc.execute("create table financas.cotacao (id bigint auto_increment primary key, moeda_origem varchar(3))");
+		jdbc.execute("create table financas.usuario_shard (id_usuario bigint primary key, shard varchar(50) not null, "
+				   + "em_migracao boolean default false not null)");
+	}
+}